@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Alan Harder
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.audit_trail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Log handler writing the audit trail to rotating files without making the
+ * logging thread wait for the disk.
+ *
+ * Records are put in a bounded ring buffer without taking any lock, and written
+ * by a background thread which flushes (and optionally syncs) the file once per
+ * group of records, at least every {@link #FLUSH_INTERVAL} ms.  If the buffer is
+ * full, records are dropped and counted.  Files are named like those of
+ * {@link java.util.logging.FileHandler} and rotated by size and/or age.
+ * Queued records are written when the handler is closed, or when the JVM exits.
+ */
+public class AuditLogWriter extends Handler {
+
+    static final int CAPACITY = Integer.getInteger(AuditLogWriter.class.getName() + ".capacity", 8192);
+    static final long FLUSH_INTERVAL = Long.getLong(AuditLogWriter.class.getName() + ".flushInterval", 1000);
+    /** Whether the file is synced to the disk after each group of records. */
+    static final boolean FSYNC = !Boolean.getBoolean(AuditLogWriter.class.getName() + ".noFsync");
+
+    private final String pattern;
+    private final long limit, rotateMillis;
+    private final int count;
+
+    // Ring buffer: producers claim a slot by moving tail, the writer frees it by moving head
+    private final AtomicReferenceArray<LogRecord> ring;
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong(), written = new AtomicLong();
+
+    // Guarded by this: the file and the draining of the ring
+    private FileOutputStream out;
+    private long size, opened;
+
+    private volatile boolean closed = false;
+    private final Thread writer, shutdownHook;
+
+    /**
+     * @param pattern FileHandler pattern of the log files
+     * @param limit maximum size of a file in bytes, 0 for no limit
+     * @param count number of files
+     * @param rotateMillis maximum age of a file in ms, 0 for no limit
+     */
+    public AuditLogWriter(String pattern, long limit, int count, long rotateMillis) throws IOException {
+        this.pattern = pattern;
+        this.limit = limit;
+        this.count = Math.max(count, 1);
+        this.rotateMillis = rotateMillis;
+        int capacity = 1;
+        while (capacity < CAPACITY) capacity <<= 1;
+        ring = new AtomicReferenceArray<LogRecord>(capacity);
+        open();
+
+        writer = new Thread("Audit trail writer") {
+            @Override public void run() {
+                while (!closed) {
+                    synchronized (ring) {
+                        if (!closed && tail.get() == head.get()) try {
+                            ring.wait(FLUSH_INTERVAL);
+                        } catch (InterruptedException ex) { }
+                    }
+                    // Group records arriving close together
+                    try { Thread.sleep(10); } catch (InterruptedException ex) { }
+                    flush();
+                }
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+        shutdownHook = new Thread("Audit trail flush") {
+            @Override public void run() {
+                AuditLogWriter.this.close();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        long t;
+        do {
+            t = tail.get();
+            if (t - head.get() >= ring.length()) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.set((int) t & (ring.length() - 1), record);
+        if (t == head.get()) {
+            // The writer may be waiting for a record
+            synchronized (ring) { ring.notify(); }
+        }
+    }
+
+    /**
+     * Writes all the queued records and flushes the file.
+     */
+    @Override public synchronized void flush() {
+        if (out == null) return;
+        boolean any = false;
+        try {
+            for (long h = head.get(); h < tail.get(); h++) {
+                int slot = (int) h & (ring.length() - 1);
+                LogRecord record;
+                // The slot is claimed but the record may not be set yet
+                while ((record = ring.get(slot)) == null) Thread.yield();
+                ring.set(slot, null);
+                head.set(h + 1);
+                write(record);
+                any = true;
+            }
+            if (any) {
+                out.flush();
+                if (FSYNC) out.getFD().sync();
+            }
+        } catch (IOException ex) {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        synchronized (ring) { ring.notify(); }
+        flush();
+        synchronized (this) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                reportError(null, ex, ErrorManager.CLOSE_FAILURE);
+            }
+            out = null;
+        }
+        if (Thread.currentThread() != shutdownHook) try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException alreadyShuttingDown) { }
+    }
+
+    /** Number of records waiting to be written. */
+    public long getQueued() { return tail.get() - head.get(); }
+    /** Number of records dropped because the buffer was full. */
+    public long getDropped() { return dropped.get(); }
+    /** Number of records written. */
+    public long getWritten() { return written.get(); }
+
+    private void write(LogRecord record) throws IOException {
+        String msg;
+        try {
+            msg = getFormatter().format(record);
+        } catch (Exception ex) {
+            reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        byte[] bytes = getEncoding() != null ? msg.getBytes(getEncoding()) : msg.getBytes();
+        if (size > 0 && ((limit > 0 && size + bytes.length > limit)
+                || (rotateMillis > 0 && System.currentTimeMillis() - opened > rotateMillis))) {
+            rotate();
+        }
+        out.write(bytes);
+        size += bytes.length;
+        written.incrementAndGet();
+    }
+
+    private void open() throws IOException {
+        File file = generation(0);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        out = new FileOutputStream(file, true);
+        size = file.length();
+        // Age of an existing file is unknown, count from now
+        opened = System.currentTimeMillis();
+    }
+
+    private void rotate() throws IOException {
+        out.flush();
+        if (FSYNC) out.getFD().sync();
+        out.close();
+        for (int g = count - 2; g >= 0; g--) {
+            File from = generation(g), to = generation(g + 1);
+            if (from.exists()) {
+                to.delete();
+                from.renameTo(to);
+            }
+        }
+        if (count == 1) generation(0).delete();
+        open();
+    }
+
+    /**
+     * Name of a log file, following the FileHandler pattern conventions.
+     */
+    File generation(int g) {
+        StringBuilder buf = new StringBuilder();
+        boolean hasGeneration = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '%' && i + 1 < pattern.length()) {
+                char n = pattern.charAt(++i);
+                switch (n) {
+                    case 't': buf.append(System.getProperty("java.io.tmpdir")); continue;
+                    case 'h': buf.append(System.getProperty("user.home")); continue;
+                    case 'g': buf.append(g); hasGeneration = true; continue;
+                    case 'u': buf.append('0'); continue;
+                    case '%': buf.append('%'); continue;
+                    default: buf.append(c); break;
+                }
+                c = n;
+            }
+            buf.append(c);
+        }
+        if (count > 1 && !hasGeneration) buf.append('.').append(g);
+        return new File(buf.toString());
+    }
+}
@@ -41,7 +41,6 @@ import hudson.util.PluginServletFilter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -62,13 +61,14 @@ import org.kohsuke.stapler.StaplerRequest;
 public class AuditTrailPlugin extends Plugin {
     private String log = "", pattern = ".*/(?:configSubmit|doDelete|postBuildResult|"
       + "cancelQueue|stop|toggleLogKeep|doWipeOutWorkspace|createItem|createView|toggleOffline)";
-    private int limit = 1, count = 1;
+    private int limit = 1, count = 1, rotateHours = 0;
     private boolean logBuildCause = true;
     private transient ServletContext context;
 
     public String getLog() { return log; }
     public int getLimit() { return limit; }
     public int getCount() { return count; }
+    public int getRotateHours() { return rotateHours; }
     public String getPattern() { return pattern; }
     public boolean getLogBuildCause() { return logBuildCause; }
 
@@ -84,6 +84,25 @@ public class AuditTrailPlugin extends Plugin {
         PluginServletFilter.addFilter(new AuditTrailFilter());
     }
 
+    @Override public void stop() throws Exception {
+        // Write the queued records before Hudson exits
+        Logger logger = Logger.getLogger(AuditTrailFilter.class.getPackage().getName());
+        for (Handler handler : logger.getHandlers()) {
+            logger.removeHandler(handler);
+            handler.close();
+        }
+    }
+
+    /**
+     * The writer of the log file, null if no log file is configured.
+     */
+    public AuditLogWriter getWriter() {
+        for (Handler handler : Logger.getLogger(AuditTrailFilter.class.getPackage().getName()).getHandlers()) {
+            if (handler instanceof AuditLogWriter) return (AuditLogWriter)handler;
+        }
+        return null;
+    }
+
     @Override public void postInitialize() {
         // Add LogRecorder if not already configured.. but wait for Hudson to initialize:
         new Thread() {
@@ -108,6 +127,7 @@ public class AuditTrailPlugin extends Plugin {
         log = formData.optString("log");
         limit = formData.optInt("limit", 1);
         count = formData.optInt("count", 1);
+        rotateHours = formData.optInt("rotateHours", 0);
         pattern = formData.optString("pattern");
         logBuildCause = formData.optBoolean("logBuildCause", true);
         save();
@@ -128,7 +148,9 @@ public class AuditTrailPlugin extends Plugin {
             handler.close();
         }
         if (log != null && log.length() > 0) try {
-            FileHandler handler = new FileHandler(log, limit * 1024 * 1024, count, true);
+            // Written in the background so requests and builds don't wait for the disk
+            AuditLogWriter handler = new AuditLogWriter(log, limit * 1024L * 1024L, count,
+                                                        rotateHours * 3600000L);
             handler.setLevel(Level.CONFIG);
             handler.setFormatter(new Formatter() {
                 SimpleDateFormat dateformat = new SimpleDateFormat("MMM d, yyyy h:mm:ss aa ");
@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Alan Harder
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.audit_trail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import junit.framework.TestCase;
+
+/**
+ * Test the ring buffer, the rotation and the file names of the audit log writer.
+ */
+public class AuditLogWriterTest extends TestCase {
+
+    private File dir;
+    private final List<AuditLogWriter> writers = new ArrayList<AuditLogWriter>();
+
+    @Override protected void setUp() throws Exception {
+        super.setUp();
+        dir = File.createTempFile("audit", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @Override protected void tearDown() throws Exception {
+        for (AuditLogWriter writer : writers) writer.close();
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        dir.delete();
+        super.tearDown();
+    }
+
+    public void testDroppedWhenFull() throws Exception {
+        AuditLogWriter writer = writer(dir + "/audit.log", 0, 1, 0);
+        int capacity = 1;
+        while (capacity < AuditLogWriter.CAPACITY) capacity <<= 1;
+        // The background writer waits for the lock to drain the ring
+        synchronized (writer) {
+            for (int i = 0; i < capacity + 5; i++) writer.publish(record("record " + i));
+            assertEquals("queued", capacity, writer.getQueued());
+            assertEquals("dropped", 5, writer.getDropped());
+        }
+        writer.close();
+        assertEquals("written", capacity, writer.getWritten());
+        assertEquals("queued", 0, writer.getQueued());
+        assertEquals("dropped", 5, writer.getDropped());
+        List<String> lines = read(new File(dir, "audit.log"));
+        assertEquals("lines", capacity, lines.size());
+        assertEquals("first", "record 0", lines.get(0));
+        assertEquals("last", "record " + (capacity - 1), lines.get(capacity - 1));
+    }
+
+    public void testRotateBySize() throws Exception {
+        // Two records of 9 bytes fit in a file
+        AuditLogWriter writer = writer(dir + "/audit%g.log", 20, 3, 0);
+        for (int i = 1; i <= 7; i++) writer.publish(record("record " + i));
+        writer.close();
+        assertEquals("record 7", join(read(new File(dir, "audit0.log"))));
+        assertEquals("record 5,record 6", join(read(new File(dir, "audit1.log"))));
+        assertEquals("record 3,record 4", join(read(new File(dir, "audit2.log"))));
+        assertFalse("oldest file dropped", new File(dir, "audit3.log").exists());
+    }
+
+    public void testRotateByAge() throws Exception {
+        AuditLogWriter writer = writer(dir + "/audit%g.log", 0, 2, 50);
+        writer.publish(record("record 1"));
+        writer.flush();
+        Thread.sleep(100);
+        writer.publish(record("record 2"));
+        writer.publish(record("record 3"));
+        writer.close();
+        assertEquals("record 2,record 3", join(read(new File(dir, "audit0.log"))));
+        assertEquals("record 1", join(read(new File(dir, "audit1.log"))));
+    }
+
+    public void testSingleFileIsReplaced() throws Exception {
+        AuditLogWriter writer = writer(dir + "/audit.log", 10, 1, 0);
+        for (int i = 1; i <= 3; i++) writer.publish(record("record " + i));
+        writer.close();
+        assertEquals("record 3", join(read(new File(dir, "audit.log"))));
+        assertEquals("files", 1, dir.list().length);
+    }
+
+    public void testGenerationNames() throws Exception {
+        AuditLogWriter writer = writer(dir + "/a%g-%u%%.log", 0, 3, 0);
+        assertEquals(new File(dir, "a0-0%.log"), writer.generation(0));
+        assertEquals(new File(dir, "a2-0%.log"), writer.generation(2));
+        writer = writer(dir + "/b.log", 0, 3, 0);
+        assertEquals(new File(dir, "b.log.0"), writer.generation(0));
+        assertEquals(new File(dir, "b.log.1"), writer.generation(1));
+        writer = writer(dir + "/c.log", 0, 1, 0);
+        assertEquals(new File(dir, "c.log"), writer.generation(0));
+        writer = writer("%t/" + dir.getName() + "/d%g.log", 0, 2, 0);
+        assertEquals(new File(System.getProperty("java.io.tmpdir") + "/" + dir.getName() + "/d1.log"),
+                     writer.generation(1));
+    }
+
+    public void testSameNamesAsFileHandler() throws Exception {
+        for (String pattern : new String[] { "/e%g-%u.log", "/f.log" }) {
+            FileHandler handler = new FileHandler(dir + pattern, 0, 2);
+            handler.close();
+            File file = writer(dir + pattern, 0, 2, 0).generation(0);
+            assertTrue("written by FileHandler: " + file, file.exists());
+        }
+    }
+
+    private AuditLogWriter writer(String pattern, long limit, int count, long rotateMillis) throws IOException {
+        AuditLogWriter writer = new AuditLogWriter(pattern, limit, count, rotateMillis);
+        writer.setFormatter(new Formatter() {
+            @Override public String format(LogRecord record) {
+                return record.getMessage() + "\n";
+            }
+        });
+        writers.add(writer);
+        return writer;
+    }
+
+    private static LogRecord record(String message) {
+        return new LogRecord(Level.CONFIG, message);
+    }
+
+    private static List<String> read(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            for (String line; (line = reader.readLine()) != null;) lines.add(line);
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder buf = new StringBuilder();
+        for (String line : lines) buf.append(buf.length() > 0 ? "," : "").append(line);
+        return buf.toString();
+    }
+}
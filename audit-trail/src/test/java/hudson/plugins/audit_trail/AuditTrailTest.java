@@ -29,6 +29,8 @@ import hudson.model.Cause.UserCause;
 import hudson.model.FreeStyleProject;
 import hudson.model.Hudson;
 import java.io.File;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import org.jvnet.hudson.test.HudsonTestCase;
 
@@ -59,6 +61,10 @@ public class AuditTrailTest extends HudsonTestCase {
         job.scheduleBuild2(0, new UserCause()).get();
         wc.goTo(job.getUrl() + "doWipeOutWorkspace");
 
+        // Records are written in the background, write them now
+        for (Handler handler : Logger.getLogger(AuditTrailFilter.class.getPackage().getName()).getHandlers()) {
+            handler.flush();
+        }
         String log = Util.loadFile(new File(tmpDir, "test.log.0"));
         assertTrue("logged actions: " + log, Pattern.compile(".* job/test-job/ #1 Started by user"
             + " .*job/test-job/doWipeOutWorkspace by .*", Pattern.DOTALL).matcher(log).matches());
@@ -46,6 +46,7 @@ public class BackupConfig {
 	private boolean keepFingerprints;
 	private boolean keepBuilds;
 	private boolean keepArchives;
+	private boolean incremental;
 
         private String jobIncludes;
         private String jobExcludes;
@@ -142,6 +143,17 @@ public class BackupConfig {
 		return keepArchives;
 	}
 
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * @return true if only the files changed since the last backup are saved
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
         public String getJobIncludes() {
                 return jobIncludes;
         }
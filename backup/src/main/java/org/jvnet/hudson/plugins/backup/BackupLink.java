@@ -31,12 +31,12 @@ import hudson.model.ManagementLink;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
+import org.jvnet.hudson.plugins.backup.utils.BackupManifest;
 import org.jvnet.hudson.plugins.backup.utils.BackupPluginTask;
 import org.jvnet.hudson.plugins.backup.utils.BackupTask;
 import org.jvnet.hudson.plugins.backup.utils.LastModifiedFileComparator;
@@ -140,7 +140,8 @@ public class BackupLink extends ManagementLink {
 
 
     /**
-     * search into the declared backup directory for backup archives
+     * search into the declared backup directory for backup archives and
+     * complete incremental backups
      */
     public List<File> getFileList() throws IOException {
         LOGGER.info("Listing files of " + getConfiguration().getTargetDirectory());
@@ -151,11 +152,14 @@ public class BackupLink extends ManagementLink {
         File backupDirectory = new File(configuration.getTargetDirectory());
         File[] backupFiles = backupDirectory.listFiles();
 
-        List fileList;
-        if (backupFiles == null) {
-            fileList = new ArrayList();
-        } else {
-            fileList = Arrays.asList(backupFiles);
+        List<File> fileList = new ArrayList<File>();
+        if (backupFiles != null) {
+            for (File file : backupFiles) {
+                // an interrupted incremental backup can't be restored
+                if (!file.isDirectory() || BackupManifest.isIncrementalBackup(file)) {
+                    fileList.add(file);
+                }
+            }
         }
 
         // Sort file list
@@ -175,7 +179,8 @@ public class BackupLink extends ManagementLink {
                                @QueryParameter("keepArchives") boolean keepArchives,
                                @QueryParameter("jobIncludes") String jobIncludes,
                                @QueryParameter("jobExcludes") String jobExcludes,
-                               @QueryParameter("caseSensitive") boolean caseSensitive)
+                               @QueryParameter("caseSensitive") boolean caseSensitive,
+                               @QueryParameter("incremental") boolean incremental)
     		throws IOException {
     	LOGGER.info("BackupLink.doSaveSetting");
     	Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
@@ -193,6 +198,7 @@ public class BackupLink extends ManagementLink {
         configuration.setKeepFingerprints(keepFingerprints);
         configuration.setKeepBuilds(keepBuilds);
         configuration.setKeepArchives(keepArchives);
+        configuration.setIncremental(incremental);
 
         configuration.setJobIncludes(jobIncludes);
         configuration.setJobExcludes(jobExcludes);
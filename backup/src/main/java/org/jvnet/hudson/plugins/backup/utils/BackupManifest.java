@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010, Vincent Sellier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jvnet.hudson.plugins.backup.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content of an incremental backup : every file of the hudson home at backup
+ * time, with its size, modification date and content hash, and the backup
+ * holding this content.
+ * <p/>
+ * A backup only archives the contents not already held by a previous backup,
+ * so restoring it needs the backups its manifest refers to.
+ */
+public class BackupManifest {
+	/**
+	 * name of the manifest in an incremental backup directory
+	 */
+	public final static String FILE_NAME = "manifest";
+
+	private final static String HEADER = "# backup manifest v1";
+	private final static String SEPARATOR = "\t";
+
+	/**
+	 * path (with '/' separators) -> entry, in walk order
+	 */
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+	/**
+	 * content hash -> first entry with this content
+	 */
+	private final Map<String, Entry> contents = new HashMap<String, Entry>();
+
+	public static class Entry {
+		private final String path;
+		private final long size;
+		private final long lastModified;
+		private final String hash;
+		private final String backupName;
+
+		public Entry(String path, long size, long lastModified, String hash,
+				String backupName) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.backupName = backupName;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * @return the name of the backup directory archiving the content
+		 */
+		public String getBackupName() {
+			return backupName;
+		}
+
+		/**
+		 * @return true if the file has not been modified since this entry
+		 *         was recorded, according to its size and modification date
+		 */
+		public boolean isUpToDate(File file) {
+			return file.length() == size && file.lastModified() == lastModified;
+		}
+	}
+
+	public void add(Entry entry) {
+		entries.put(entry.getPath(), entry);
+		if (!contents.containsKey(entry.getHash())) {
+			contents.put(entry.getHash(), entry);
+		}
+	}
+
+	public Entry get(String path) {
+		return entries.get(path);
+	}
+
+	/**
+	 * @return an entry with this content, or null
+	 */
+	public Entry getByHash(String hash) {
+		return contents.get(hash);
+	}
+
+	public Collection<Entry> getEntries() {
+		return entries.values();
+	}
+
+	public void write(File file) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), "UTF-8"));
+		try {
+			writer.write(HEADER);
+			writer.write('\n');
+			for (Entry entry : entries.values()) {
+				writer.write(entry.getHash() + SEPARATOR + entry.getSize()
+						+ SEPARATOR + entry.getLastModified() + SEPARATOR
+						+ entry.getBackupName() + SEPARATOR + entry.getPath());
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	public static BackupManifest read(File file) throws IOException {
+		BackupManifest manifest = new BackupManifest();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), "UTF-8"));
+		try {
+			String line = reader.readLine();
+			if (!HEADER.equals(line)) {
+				throw new IOException(file.getAbsolutePath()
+						+ " is not a backup manifest");
+			}
+			while ((line = reader.readLine()) != null) {
+				// the path is last, it may contain the separator
+				String[] fields = line.split(SEPARATOR, 5);
+				if (fields.length < 5) {
+					throw new IOException("Invalid line in "
+							+ file.getAbsolutePath() + " : " + line);
+				}
+				manifest.add(new Entry(fields[4], Long.parseLong(fields[1]),
+						Long.parseLong(fields[2]), fields[0], fields[3]));
+			}
+		} finally {
+			reader.close();
+		}
+		return manifest;
+	}
+
+	/**
+	 * @return true if the directory is a complete incremental backup
+	 */
+	public static boolean isIncrementalBackup(File directory) {
+		return new File(directory, FILE_NAME).isFile();
+	}
+
+	/**
+	 * Search the last complete incremental backup of a backup directory
+	 * 
+	 * @return the backup directory, or null if there is none
+	 */
+	public static File findLastBackup(File backupDirectory) {
+		File[] files = backupDirectory.listFiles();
+		File last = null;
+		if (files != null) {
+			for (File file : files) {
+				if (isIncrementalBackup(file)
+						&& (last == null || new File(file, FILE_NAME)
+								.lastModified() > new File(last, FILE_NAME)
+								.lastModified())) {
+					last = file;
+				}
+			}
+		}
+		return last;
+	}
+}
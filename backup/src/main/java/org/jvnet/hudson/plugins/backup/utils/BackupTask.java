@@ -120,9 +120,15 @@ public class BackupTask extends BackupPluginTask {
         IOFileFilter filter = createFileFilter(exclusions, jobsExclusionFileFilter);
 
         try {
-            BackupEngine backupEngine = new BackupEngine(logger,
-                    hudsonWorkDir, backupFileName, configuration.getArchiveType().getArchiver(), filter);
-            backupEngine.doBackup();
+            if (configuration.isIncremental()) {
+                IncrementalBackupEngine backupEngine = new IncrementalBackupEngine(logger,
+                        hudsonWorkDir, getIncrementalBackupName(), configuration.getArchiveType(), filter);
+                backupEngine.doBackup();
+            } else {
+                BackupEngine backupEngine = new BackupEngine(logger,
+                        hudsonWorkDir, backupFileName, configuration.getArchiveType().getArchiver(), filter);
+                backupEngine.doBackup();
+            }
         } catch (BackupException e) {
             e.printStackTrace(logger.getWriter());
         } finally {
@@ -142,6 +148,18 @@ public class BackupTask extends BackupPluginTask {
         }
     }
 
+    /**
+     * An incremental backup is a directory, named like the archive without
+     * its extension.
+     */
+    private String getIncrementalBackupName() {
+        String extension = "." + configuration.getArchiveType().getCode();
+        if (backupFileName.endsWith(extension)) {
+            return backupFileName.substring(0, backupFileName.length() - extension.length());
+        }
+        return backupFileName;
+    }
+
     public static IOFileFilter createFileFilter(List<String> exclusions, IOFileFilter jobsExclusionFileFilter) {
         if(jobsExclusionFileFilter == null) {
             return FileFilterUtils.notFileFilter(new NameFileFilter(exclusions.toArray(new String[]{})));
@@ -0,0 +1,409 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010, Vincent Sellier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jvnet.hudson.plugins.backup.utils;
+
+import hudson.Util;
+import hudson.util.IOException2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.DirectoryWalker;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.IOFileFilter;
+import org.jvnet.hudson.plugins.backup.BackupException;
+import org.jvnet.hudson.plugins.backup.utils.compress.Archiver;
+import org.jvnet.hudson.plugins.backup.utils.compress.ArchiverException;
+import org.jvnet.hudson.plugins.backup.utils.compress.CompressionMethodEnum;
+
+/**
+ * Incremental backup : the backup is a directory holding a
+ * {@link BackupManifest} and the archives of the contents which are not
+ * already in a previous backup.
+ * <p/>
+ * Files whose size and modification date did not change since the last
+ * backup are not read again. The other ones are hashed, and only archived if
+ * no backup holds the same content yet. The contents to archive are split in
+ * chunks, compressed in parallel.
+ */
+public class IncrementalBackupEngine extends DirectoryWalker {
+	/**
+	 * prefix of the chunk archives in a backup directory
+	 */
+	public final static String CHUNK_PREFIX = "chunk-";
+
+	/**
+	 * number of chunks compressed at the same time
+	 */
+	private final static int THREADS = Integer.getInteger(
+			IncrementalBackupEngine.class.getName() + ".threads", Runtime
+					.getRuntime().availableProcessors());
+
+	/**
+	 * size of the contents in a chunk, in bytes
+	 */
+	private final static long CHUNK_SIZE = Long.getLong(
+			IncrementalBackupEngine.class.getName() + ".chunkSize",
+			64 * 1024 * 1024);
+
+	private BackupLogger logger;
+	private File source;
+	private int nbFiles = 0;
+	private int nbUnchanged = 0;
+	private int nbDuplicates = 0;
+	private int nbErrors = 0;
+
+	/**
+	 * the length of the source string, to speed up walk
+	 */
+	private int sourceLength;
+	private File backupDirectory;
+	private CompressionMethodEnum compression;
+
+	/**
+	 * manifest of the last backup, empty if there is none
+	 */
+	private BackupManifest previous;
+	private BackupManifest manifest = new BackupManifest();
+
+	/**
+	 * content hash -> file, for the chunk being filled
+	 */
+	private Map<String, File> chunk = new LinkedHashMap<String, File>();
+	private long chunkLength = 0;
+	private List<Future<Object>> chunks = new ArrayList<Future<Object>>();
+	private ExecutorService executor;
+
+	public IncrementalBackupEngine(BackupLogger logger, String sourceDirectory,
+			String backupDirectoryName, CompressionMethodEnum compression,
+			IOFileFilter filter) throws BackupException {
+		super(filter, filter, -1);
+		this.logger = logger;
+		this.source = new File(sourceDirectory);
+		this.sourceLength = sourceDirectory.length();
+		this.compression = compression;
+
+		this.backupDirectory = new File(backupDirectoryName);
+		logger.info("Incremental backup directory : "
+				+ backupDirectory.getAbsolutePath());
+		if (backupDirectory.exists()) {
+			throw new BackupException(backupDirectory.getAbsolutePath()
+					+ " already exists");
+		}
+
+		File last = BackupManifest.findLastBackup(backupDirectory
+				.getAbsoluteFile().getParentFile());
+		if (last == null) {
+			logger.info("No previous incremental backup, saving all files");
+			previous = new BackupManifest();
+		} else {
+			logger.info("Previous incremental backup : " + last.getName());
+			try {
+				previous = BackupManifest.read(new File(last,
+						BackupManifest.FILE_NAME));
+			} catch (IOException e) {
+				throw new BackupException(e);
+			}
+		}
+
+		if (!backupDirectory.mkdirs()) {
+			throw new BackupException("Unable to create "
+					+ backupDirectory.getAbsolutePath());
+		}
+	}
+
+	@Override
+	protected void handleFile(File file, int depth, Collection results)
+			throws IOException {
+
+		if (!file.exists()) {
+			logger.warn("inconsistent file " + file.getAbsolutePath());
+			nbErrors++;
+			super.handleFile(file, depth, results);
+			return;
+		}
+
+		String name = getInArchiveName(file.getAbsolutePath());
+
+		BackupManifest.Entry entry = previous.get(name);
+		if (entry != null && entry.isUpToDate(file)) {
+			logger.debug(name + " unchanged");
+			manifest.add(entry);
+			nbUnchanged++;
+			super.handleFile(file, depth, results);
+			return;
+		}
+
+		// read before hashing, a change during the hash is seen next time
+		long size = file.length();
+		long lastModified = file.lastModified();
+		String hash = getDigest(file);
+
+		BackupManifest.Entry same = manifest.getByHash(hash);
+		if (same == null) {
+			same = previous.getByHash(hash);
+		}
+		if (same != null) {
+			logger.debug(name + " same content as " + same.getPath());
+			manifest.add(new BackupManifest.Entry(name, size, lastModified,
+					hash, same.getBackupName()));
+			nbDuplicates++;
+		} else {
+			logger.debug(name + " file");
+			manifest.add(new BackupManifest.Entry(name, size, lastModified,
+					hash, backupDirectory.getName()));
+			chunk.put(hash, file);
+			chunkLength += size;
+			nbFiles++;
+			if (chunkLength >= CHUNK_SIZE) {
+				submitChunk();
+			}
+		}
+
+		super.handleFile(file, depth, results);
+	}
+
+	@Override
+	protected void handleEnd(Collection results) throws IOException {
+		submitChunk();
+
+		for (Future<Object> future : chunks) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted while compressing");
+			} catch (ExecutionException e) {
+				logger.error("Unable to compress the contents : "
+						+ e.getCause());
+				throw new IOException2("Unable to compress the contents",
+						e.getCause());
+			}
+		}
+
+		// written last, an interrupted backup is never used as a base
+		File tmp = new File(backupDirectory, BackupManifest.FILE_NAME + ".tmp");
+		manifest.write(tmp);
+		if (!tmp.renameTo(new File(backupDirectory, BackupManifest.FILE_NAME))) {
+			throw new IOException("Unable to rename " + tmp.getAbsolutePath());
+		}
+
+		logger.info("Saved files : " + nbFiles + " in " + chunks.size()
+				+ " chunks");
+		logger.info("Unchanged files : " + nbUnchanged);
+		logger.info("Files with an already saved content : " + nbDuplicates);
+		logger.info("Number of errors : " + nbErrors);
+	}
+
+	public void doBackup() throws BackupException {
+		executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			this.walk(source, new ArrayList<Object>());
+		} catch (IOException e) {
+			throw new BackupException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void submitChunk() {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		final File target = new File(backupDirectory, CHUNK_PREFIX
+				+ chunks.size() + "." + compression.getCode());
+		final Map<String, File> files = chunk;
+		chunk = new LinkedHashMap<String, File>();
+		chunkLength = 0;
+
+		chunks.add(executor.submit(new Callable<Object>() {
+			public Object call() throws ArchiverException {
+				Archiver archiver = compression.getArchiver();
+				archiver.init(target);
+				for (Map.Entry<String, File> file : files.entrySet()) {
+					archiver.addFile(file.getKey(), file.getValue());
+				}
+				archiver.close();
+				logger.debug(target.getName() + " written");
+				return null;
+			}
+		}));
+	}
+
+	/**
+	 * Restore an incremental backup, with the contents held by the previous
+	 * backups it refers to. Nothing is restored if one of them is missing or
+	 * incomplete.
+	 * 
+	 * @param backup
+	 *            the backup directory, next to the previous backups
+	 * @param toDir
+	 *            the directory to restore to
+	 */
+	public static void restore(BackupLogger logger, File backup, File toDir)
+			throws BackupException {
+		BackupManifest manifest;
+		try {
+			manifest = BackupManifest.read(new File(backup,
+					BackupManifest.FILE_NAME));
+		} catch (IOException e) {
+			throw new BackupException(e);
+		}
+
+		Map<String, List<BackupManifest.Entry>> byBackup = new LinkedHashMap<String, List<BackupManifest.Entry>>();
+		for (BackupManifest.Entry entry : manifest.getEntries()) {
+			List<BackupManifest.Entry> entries = byBackup.get(entry
+					.getBackupName());
+			if (entries == null) {
+				entries = new ArrayList<BackupManifest.Entry>();
+				byBackup.put(entry.getBackupName(), entries);
+			}
+			entries.add(entry);
+		}
+
+		List<String> missing = new ArrayList<String>();
+		for (String name : byBackup.keySet()) {
+			if (!BackupManifest.isIncrementalBackup(new File(backup
+					.getParentFile(), name))) {
+				missing.add(name);
+			}
+		}
+		if (!missing.isEmpty()) {
+			throw new BackupException(backup.getName()
+					+ " needs the contents of the previous backups "
+					+ missing + ", which are missing or incomplete");
+		}
+
+		// content hash -> restored file, to copy duplicates from
+		Map<String, File> restored = new HashMap<String, File>();
+		File contents = new File(toDir.getAbsolutePath() + "_contents");
+		try {
+			for (Map.Entry<String, List<BackupManifest.Entry>> entries : byBackup
+					.entrySet()) {
+				File chunksDirectory = new File(backup.getParentFile(), entries
+						.getKey());
+				logger.info("Uncompressing contents of " + entries.getKey());
+				FileUtils.deleteDirectory(contents);
+				extractChunks(chunksDirectory, contents);
+
+				for (BackupManifest.Entry entry : entries.getValue()) {
+					File target = new File(toDir, entry.getPath());
+					target.getParentFile().mkdirs();
+					File same = restored.get(entry.getHash());
+					if (same != null) {
+						FileUtils.copyFile(same, target);
+					} else {
+						File content = new File(contents, entry.getHash());
+						if (!content.exists()) {
+							throw new BackupException("Content of "
+									+ entry.getPath() + " not found in "
+									+ entries.getKey());
+						}
+						if (!content.renameTo(target)) {
+							FileUtils.copyFile(content, target);
+						}
+						restored.put(entry.getHash(), target);
+					}
+					target.setLastModified(entry.getLastModified());
+					logger.debug(entry.getPath() + " restored");
+				}
+			}
+			FileUtils.deleteDirectory(contents);
+		} catch (IOException e) {
+			throw new BackupException(e);
+		}
+		logger.info("Restored files : " + manifest.getEntries().size());
+	}
+
+	private static void extractChunks(File chunksDirectory, File toDir)
+			throws BackupException {
+		File[] files = chunksDirectory.listFiles();
+		if (files == null) {
+			throw new BackupException("Backup "
+					+ chunksDirectory.getAbsolutePath() + " not found");
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (!name.startsWith(CHUNK_PREFIX) || name.indexOf('.') < 0) {
+				continue;
+			}
+			CompressionMethodEnum method = CompressionMethodEnum
+					.getFromCode(name.substring(name.indexOf('.') + 1));
+			try {
+				method.getUnArchiver().unArchive(file, toDir.getAbsolutePath());
+			} catch (ArchiverException e) {
+				throw new BackupException(e);
+			}
+		}
+	}
+
+	private static String getDigest(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("MD5 not supported");
+		}
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int length;
+			while ((length = in.read(buffer)) >= 0) {
+				digest.update(buffer, 0, length);
+			}
+		} finally {
+			in.close();
+		}
+		return Util.toHexString(digest.digest());
+	}
+
+	/**
+	 * Suppress the path to hudson working dir on the beginning of the path, +1
+	 * because of the ending /, and use / as separator whatever the platform.
+	 * 
+	 * @param absoluteName
+	 *            the name including dat path
+	 * @return the name in the manifest
+	 */
+	private String getInArchiveName(String absoluteName) {
+		return absoluteName.substring(sourceLength + 1).replace(
+				File.separatorChar, '/');
+	}
+
+}
@@ -100,16 +100,28 @@ public class RestoreTask extends BackupPluginTask {
 
         File archive = new File(backupFileName);
 
-        logger.info("Uncompressing archive file...");
-        UnArchiver unAchiver = configuration.getArchiveType().getUnArchiver();
+        if (BackupManifest.isIncrementalBackup(archive)) {
+            logger.info("Restoring incremental backup...");
+            try {
+                IncrementalBackupEngine.restore(logger, archive, temporary_directory);
+            } catch (Exception e) {
+                e.printStackTrace(logger.getWriter());
+                logger.error("Error restoring incremental backup : " + e.getMessage());
+                finished = true;
+                return;
+            }
+        } else {
+            logger.info("Uncompressing archive file...");
+            UnArchiver unAchiver = configuration.getArchiveType().getUnArchiver();
 
-        try {
-            unAchiver.unArchive(archive, tempDirectoryPath);
-        } catch (Exception e) {
-            e.printStackTrace(logger.getWriter());
-            logger.error("Error uncompressiong archive : " + e.getMessage());
-            finished = true;
-            return;
+            try {
+                unAchiver.unArchive(archive, tempDirectoryPath);
+            } catch (Exception e) {
+                e.printStackTrace(logger.getWriter());
+                logger.error("Error uncompressiong archive : " + e.getMessage());
+                finished = true;
+                return;
+            }
         }
 
         // Not using tools like FileUtils.deleteDirectory
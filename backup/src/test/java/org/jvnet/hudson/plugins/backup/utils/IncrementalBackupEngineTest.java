@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010, Vincent Sellier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jvnet.hudson.plugins.backup.utils;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.jvnet.hudson.plugins.backup.BackupException;
+import org.jvnet.hudson.plugins.backup.utils.compress.ArchiverTestUtil;
+import org.jvnet.hudson.plugins.backup.utils.compress.CompressionMethodEnum;
+
+public class IncrementalBackupEngineTest {
+	private final static String OUTPUT_DIRECTORY = "target/incremental";
+
+	File source;
+	File backupDirectory;
+	File restoreDirectory;
+	BackupLogger logger;
+
+	@Before
+	public void tearUp() throws Exception {
+		File data = new File(Thread.currentThread().getContextClassLoader()
+				.getResource("data").getFile());
+
+		// the sources are modified by the tests
+		source = new File(OUTPUT_DIRECTORY, "source");
+		FileUtils.copyDirectory(data, source);
+		backupDirectory = new File(OUTPUT_DIRECTORY, "backups");
+		backupDirectory.mkdirs();
+		restoreDirectory = new File(OUTPUT_DIRECTORY, "restore");
+
+		logger = new BackupLogger(new File(OUTPUT_DIRECTORY, "backup.log")
+				.getPath(), true);
+	}
+
+	@Test
+	public void testOnlyChangesAreArchived() throws Exception {
+		backup("backup1");
+		Assert.assertEquals(1, countChunks("backup1"));
+
+		backup("backup2");
+		Assert.assertEquals(0, countChunks("backup2"));
+
+		FileUtils.writeStringToFile(new File(source, "dir1/file2"), "modified");
+		backup("backup3");
+		Assert.assertEquals(1, countChunks("backup3"));
+
+		BackupManifest manifest = BackupManifest.read(new File(new File(
+				backupDirectory, "backup3"), BackupManifest.FILE_NAME));
+		Assert.assertEquals("backup1", manifest.get("file1").getBackupName());
+		Assert.assertEquals("backup3", manifest.get("dir1/file2")
+				.getBackupName());
+	}
+
+	@Test
+	public void testSameContentIsArchivedOnce() throws Exception {
+		FileUtils.copyFile(new File(source, "file1"), new File(source,
+				"dir1/copy"));
+		backup("backup1");
+
+		BackupManifest manifest = BackupManifest.read(new File(new File(
+				backupDirectory, "backup1"), BackupManifest.FILE_NAME));
+		Assert.assertEquals(manifest.get("file1").getHash(), manifest.get(
+				"dir1/copy").getHash());
+	}
+
+	@Test
+	public void testRestoreFromChain() throws Exception {
+		backup("backup1");
+		FileUtils.writeStringToFile(new File(source, "dir1/file2"), "modified");
+		FileUtils.copyFile(new File(source, "file1"), new File(source,
+				"dir1/copy"));
+		new File(source, "dir1/file1").delete();
+		backup("backup2");
+
+		restoreDirectory.mkdirs();
+		IncrementalBackupEngine.restore(logger, new File(backupDirectory,
+				"backup2"), restoreDirectory);
+
+		Assert.assertTrue(ArchiverTestUtil.compareDirectoryContent(source,
+				restoreDirectory));
+		Assert.assertFalse(new File(restoreDirectory, "dir1/file1").exists());
+		Assert.assertEquals("modified", FileUtils.readFileToString(new File(
+				restoreDirectory, "dir1/file2")));
+		Assert.assertTrue(FileUtils.contentEquals(new File(source, "file1"),
+				new File(restoreDirectory, "dir1/copy")));
+	}
+
+	@Test
+	public void testRestoreWithoutPreviousBackupIsRejected() throws Exception {
+		backup("backup1");
+		FileUtils.writeStringToFile(new File(source, "dir1/file2"), "modified");
+		backup("backup2");
+		FileUtils.deleteDirectory(new File(backupDirectory, "backup1"));
+
+		restoreDirectory.mkdirs();
+		try {
+			IncrementalBackupEngine.restore(logger, new File(backupDirectory,
+					"backup2"), restoreDirectory);
+			Assert.fail("backup1 is missing");
+		} catch (BackupException e) {
+			Assert.assertTrue(e.getMessage().contains("backup1"));
+		}
+		Assert.assertEquals(0, restoreDirectory.list().length);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		logger.close();
+		FileUtils.deleteDirectory(new File(OUTPUT_DIRECTORY));
+	}
+
+	private void backup(String name) throws Exception {
+		new IncrementalBackupEngine(logger, source.getAbsolutePath(), new File(
+				backupDirectory, name).getAbsolutePath(),
+				CompressionMethodEnum.ZIP, TrueFileFilter.INSTANCE).doBackup();
+	}
+
+	private int countChunks(String name) {
+		int chunks = 0;
+		for (File file : new File(backupDirectory, name).listFiles()) {
+			if (file.getName().startsWith(IncrementalBackupEngine.CHUNK_PREFIX)) {
+				chunks++;
+			}
+		}
+		return chunks;
+	}
+}
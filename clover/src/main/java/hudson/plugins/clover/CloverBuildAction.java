@@ -11,11 +11,16 @@ import hudson.plugins.clover.results.PackageCoverage;
 import hudson.plugins.clover.results.ProjectCoverage;
 import hudson.plugins.clover.targets.CoverageMetric;
 import hudson.plugins.clover.targets.CoverageTarget;
+import hudson.util.ChartUtil;
+import hudson.util.DataSetBuilder;
 import org.kohsuke.stapler.StaplerProxy;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,7 +47,10 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics implemen
         {
             return null;
         }
-        ProjectCoverage projectCoverage = getResult();
+        ProjectCoverage projectCoverage = getTrendCoverage();
+        if (projectCoverage == null) {
+            projectCoverage = getResult();
+        }
         Map<CoverageMetric, Integer> scores = healthyTarget.getRangeScores(unhealthyTarget, projectCoverage);
         int minValue = 100;
         CoverageMetric minKey = null;
@@ -258,6 +266,80 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics implemen
         return getResult().getElements();
     }
 
+    private static final String[] TREND_METRICS = {"method", "conditional", "statement", "element"};
+
+    private static CoverageTrendIndex.Entry toTrendEntry(AbstractBuild<?, ?> build, ProjectCoverage r) {
+        return new CoverageTrendIndex.Entry(build.getNumber())
+                .put("method", r.getCoveredmethods(), r.getMethods())
+                .put("conditional", r.getCoveredconditionals(), r.getConditionals())
+                .put("statement", r.getCoveredstatements(), r.getStatements())
+                .put("element", r.getCoveredelements(), r.getElements());
+    }
+
+    /**
+     * Rebuilds the overall counts of this build from the {@link CoverageTrendIndex}, without parsing the report.
+     *
+     * @return null if the build is not in the index.
+     */
+    private ProjectCoverage getTrendCoverage() {
+        CoverageTrendIndex.Entry e = CoverageTrendIndex.of(owner.getProject()).get(owner.getNumber());
+        if (e == null || !e.has("element")) {
+            return null;
+        }
+        ProjectCoverage r = new ProjectCoverage();
+        r.setCoveredmethods((int) e.getNumerator("method"));
+        r.setMethods((int) e.getDenominator("method"));
+        r.setCoveredconditionals((int) e.getNumerator("conditional"));
+        r.setConditionals((int) e.getDenominator("conditional"));
+        r.setCoveredstatements((int) e.getNumerator("statement"));
+        r.setStatements((int) e.getDenominator("statement"));
+        r.setCoveredelements((int) e.getNumerator("element"));
+        r.setElements((int) e.getDenominator("element"));
+        return r;
+    }
+
+    /**
+     * Records the overall counts of this build in the project's {@link CoverageTrendIndex}, seeding the index from
+     * the build history the first time.
+     */
+    /*package*/ void recordTrend(ProjectCoverage result) throws IOException {
+        CoverageTrendIndex.of(owner.getProject()).record(toTrendEntry(owner, result), new CoverageTrendIndex.History() {
+            public Collection<CoverageTrendIndex.Entry> getEntries() {
+                List<CoverageTrendIndex.Entry> history = new ArrayList<CoverageTrendIndex.Entry>();
+                for (AbstractBuild<?, ?> b = owner.getPreviousBuild(); b != null; b = b.getPreviousBuild()) {
+                    CloverBuildAction a = b.getAction(CloverBuildAction.class);
+                    ProjectCoverage r = a == null ? null : a.getResult();
+                    if (r != null) {
+                        history.add(toTrendEntry(b, r));
+                    }
+                }
+                return history;
+            }
+        });
+    }
+
+    @Override
+    public void populateTrend(DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dsb) {
+        CoverageTrendIndex index = CoverageTrendIndex.of(owner.getProject());
+        if (!index.exists()) {
+            super.populateTrend(dsb);
+            return;
+        }
+        for (CoverageTrendIndex.Entry e : index.getEntriesUpTo(owner.getNumber())) {
+            AbstractBuild<?, ?> b = (AbstractBuild<?, ?>) owner.getProject().getBuildByNumber(e.getBuildNumber());
+            if (b == null || (b != owner && b.getResult() == Result.FAILURE)) {
+                continue;
+            }
+            ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(b);
+            // the element ratio is only used for health reporting
+            for (int i = 0; i < TREND_METRICS.length - 1; i++) {
+                if (e.has(TREND_METRICS[i])) {
+                    dsb.add(e.getPercentageFloat(TREND_METRICS[i]), TREND_METRICS[i], label);
+                }
+            }
+        }
+    }
+
     private static final Logger logger = Logger.getLogger(CloverBuildAction.class.getName());
 
     public static CloverBuildAction load(AbstractBuild<?, ?> build, String workspacePath, ProjectCoverage result,
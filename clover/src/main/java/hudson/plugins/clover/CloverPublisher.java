@@ -197,6 +197,13 @@ public class CloverPublisher extends Recorder {
             final CloverBuildAction action = CloverBuildAction.load(build, workspacePath, result, healthyTarget, unhealthyTarget);
 
             build.getActions().add(action);
+            if (result != null) {
+                try {
+                    action.recordTrend(result);
+                } catch (IOException e) {
+                    e.printStackTrace(listener.error("Unable to record the coverage trend"));
+                }
+            }
             Set<CoverageMetric> failingMetrics = failingTarget.getFailingMetrics(result);
             if (!failingMetrics.isEmpty()) {
                 listener.getLogger().println("Code coverage enforcement failed for the following metrics:");
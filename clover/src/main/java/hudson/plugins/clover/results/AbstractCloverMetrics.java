@@ -252,15 +252,19 @@ abstract public class AbstractCloverMetrics {
             return; // up to date
 
         DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dsb = new DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel>();
+        populateTrend(dsb);
 
+        ChartUtil.generateGraph(req, rsp, createChart(dsb.build()), 400, 200);
+    }
+
+    /** Adds the coverage of this element and its previous results to the trend graph data. */
+    public void populateTrend(DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dsb) {
         for (AbstractCloverMetrics metrics = this; metrics != null; metrics = metrics.getPreviousResult()) {
             ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(metrics.getOwner());
             dsb.add(metrics.getMethodCoverage().getPercentageFloat(), "method", label);
             dsb.add(metrics.getConditionalCoverage().getPercentageFloat(), "conditional", label);
             dsb.add(metrics.getStatementCoverage().getPercentageFloat(), "statement", label);
         }
-
-        ChartUtil.generateGraph(req, rsp, createChart(dsb.build()), 400, 200);
     }
 
     private JFreeChart createChart(CategoryDataset dataset) {
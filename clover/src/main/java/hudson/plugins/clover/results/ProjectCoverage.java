@@ -3,6 +3,8 @@ package hudson.plugins.clover.results;
 import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.plugins.clover.CloverBuildAction;
+import hudson.util.ChartUtil;
+import hudson.util.DataSetBuilder;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -70,6 +72,17 @@ public class ProjectCoverage extends AbstractPackageAggregatedMetrics {
         return action.getResult();
     }
 
+    /** The project level trend comes from the trend index, without parsing the previous reports. */
+    @Override
+    public void populateTrend(DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dsb) {
+        CloverBuildAction action = owner == null ? null : (CloverBuildAction) owner.getAction(CloverBuildAction.class);
+        if (action != null) {
+            action.populateTrend(dsb);
+        } else {
+            super.populateTrend(dsb);
+        }
+    }
+
     @Override
     public void setOwner(AbstractBuild owner) {
         super.setOwner(owner);    //To change body of overridden methods use File | Settings | File Templates.
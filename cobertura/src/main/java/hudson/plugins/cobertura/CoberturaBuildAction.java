@@ -11,6 +11,7 @@ import hudson.util.ChartUtil;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
 import hudson.util.DescribableList;
+import hudson.util.IOException2;
 import hudson.util.ShiftedCategoryAxis;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
@@ -30,14 +31,25 @@ import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
 import java.awt.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Created by IntelliJ IDEA.
@@ -205,6 +217,14 @@ public class CoberturaBuildAction implements HealthReportingAction, StaplerProxy
         }
 
         CoverageResult r = null;
+        File merged = CoberturaPublisher.getMergedCoberturaResult(owner);
+        if (merged.exists()) {
+            try {
+                r = loadMergedResult(merged);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to load " + merged, e);
+            }
+        }
         for (File reportFile : CoberturaPublisher.getCoberturaReports(owner)) {
             try {
                 r = CoberturaCoverageParser.parse(reportFile, r);
@@ -221,6 +241,58 @@ public class CoberturaBuildAction implements HealthReportingAction, StaplerProxy
         }
     }
 
+    /**
+     * Stores a merged (not yet owned) coverage result, as produced by {@link CoberturaReportMerger}.
+     */
+    /*package*/ static void saveMergedResult(File file, CoverageResult result) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+        try {
+            out.writeObject(result);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static CoverageResult loadMergedResult(File file) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+        try {
+            return (CoverageResult) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException2("Cannot load merged coverage results", e);
+        } finally {
+            in.close();
+        }
+    }
+
+    private CoverageTrendIndex.Entry toTrendEntry() {
+        CoverageTrendIndex.Entry entry = new CoverageTrendIndex.Entry(owner.getNumber());
+        if (result != null) {
+            for (Map.Entry<CoverageMetric, Ratio> r : result.entrySet()) {
+                entry.put(r.getKey().name(), r.getValue().numerator, r.getValue().denominator);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Records the overall ratios of this build in the project's {@link CoverageTrendIndex}, seeding the index from
+     * the build history the first time.
+     */
+    /*package*/ void recordTrend() throws IOException {
+        CoverageTrendIndex.of(owner.getProject()).record(toTrendEntry(), new CoverageTrendIndex.History() {
+            public Collection<CoverageTrendIndex.Entry> getEntries() {
+                List<CoverageTrendIndex.Entry> history = new ArrayList<CoverageTrendIndex.Entry>();
+                for (AbstractBuild<?, ?> b = owner.getPreviousBuild(); b != null; b = b.getPreviousBuild()) {
+                    CoberturaBuildAction a = b.getAction(CoberturaBuildAction.class);
+                    if (a != null) {
+                        history.add(a.toTrendEntry());
+                    }
+                }
+                return history;
+            }
+        });
+    }
+
     private static final Logger logger = Logger.getLogger(CoberturaBuildAction.class.getName());
 
     public static CoberturaBuildAction load(AbstractBuild<?, ?> build, CoverageResult result, CoverageTarget healthyTarget,
@@ -245,10 +317,27 @@ public class CoberturaBuildAction implements HealthReportingAction, StaplerProxy
 
         DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dsb = new DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel>();
 
-        for (CoberturaBuildAction a = this; a != null; a = a.getPreviousResult()) {
-            ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(a.owner);
-            for (Map.Entry<CoverageMetric, Ratio> value : a.result.entrySet()) {
-                dsb.add(value.getValue().getPercentageFloat(), value.getKey().getName(), label);
+        CoverageTrendIndex index = CoverageTrendIndex.of(owner.getProject());
+        if (index.exists()) {
+            for (CoverageTrendIndex.Entry e : index.getEntriesUpTo(owner.getNumber())) {
+                AbstractBuild<?, ?> b = owner.getProject().getBuildByNumber(e.getBuildNumber());
+                if (b == null || (b != owner && (b.getResult() == Result.FAILURE
+                        || (onlyStable && b.getResult() != Result.SUCCESS)))) {
+                    continue;
+                }
+                ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(b);
+                for (CoverageMetric metric : CoverageMetric.values()) {
+                    if (e.has(metric.name())) {
+                        dsb.add(e.getPercentageFloat(metric.name()), metric.getName(), label);
+                    }
+                }
+            }
+        } else {
+            for (CoberturaBuildAction a = this; a != null; a = a.getPreviousResult()) {
+                ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(a.owner);
+                for (Map.Entry<CoverageMetric, Ratio> value : a.result.entrySet()) {
+                    dsb.add(value.getValue().getPercentageFloat(), value.getKey().getName(), label);
+                }
             }
         }
 
@@ -32,20 +32,28 @@ public class CoberturaPublisher extends Recorder {
 
     private final String coberturaReportFile;
     private final boolean onlyStable;
+    private final boolean parseOnSlave;
     
     private CoverageTarget healthyTarget;
     private CoverageTarget unhealthyTarget;
     private CoverageTarget failingTarget;
     public static final CoberturaReportFilenameFilter COBERTURA_FILENAME_FILTER = new CoberturaReportFilenameFilter();
+    /*package*/ static final String MERGED_RESULT_FILENAME = "coverage-merged.ser.gz";
+
+    public CoberturaPublisher(String coberturaReportFile, boolean onlyStable) {
+        this(coberturaReportFile, onlyStable, false);
+    }
 
     /**
      * @param coberturaReportFile the report directory
+     * @param parseOnSlave parse and merge the reports in parallel where they were produced
      * @stapler-constructor
      */
     @DataBoundConstructor 
-    public CoberturaPublisher(String coberturaReportFile, boolean onlyStable) {
+    public CoberturaPublisher(String coberturaReportFile, boolean onlyStable, boolean parseOnSlave) {
         this.coberturaReportFile = coberturaReportFile;
         this.onlyStable = onlyStable;
+        this.parseOnSlave = parseOnSlave;
         this.healthyTarget = new CoverageTarget();
         this.unhealthyTarget = new CoverageTarget();
         this.failingTarget = new CoverageTarget();
@@ -128,6 +136,15 @@ public class CoberturaPublisher extends Recorder {
         return onlyStable;
     }
 
+    /**
+     * Whether the reports are parsed in parallel on the node that produced them, shipping only the merged result
+     * to the master.
+     * @return the parseOnSlave
+     */
+    public boolean getParseOnSlave() {
+        return parseOnSlave;
+    }
+
     /**
      * Getter for property 'healthyTarget'.
      *
@@ -198,6 +215,14 @@ public class CoberturaPublisher extends Recorder {
         return build.getRootDir().listFiles(COBERTURA_FILENAME_FILTER);
     }
 
+    /**
+     * Gets the file where the merged coverage result is stored when the reports were parsed on the slave.
+     */
+    /*package*/
+    static File getMergedCoberturaResult(AbstractBuild<?,?> build) {
+        return new File(build.getRootDir(), MERGED_RESULT_FILENAME);
+    }
+
 
     /**
      * {@inheritDoc}
@@ -217,53 +242,90 @@ public class CoberturaPublisher extends Recorder {
         final File buildCoberturaDir = build.getRootDir();
         FilePath buildTarget = new FilePath(buildCoberturaDir);
 
-        FilePath[] reports = new FilePath[0];
-        try {
-            reports = moduleRoot.list(coberturaReportFile);
+        Set<String> sourcePaths = new HashSet<String>();
+        CoverageResult result = null;
+        if (parseOnSlave) {
+            CoberturaReportMerger.MergedReport merged;
+            try {
+                merged = moduleRoot.act(new CoberturaReportMerger(coberturaReportFile));
+            } catch (IOException e) {
+                Util.displayIOException(e, listener);
+                e.printStackTrace(listener.fatalError("Unable to parse coverage results"));
+                build.setResult(Result.FAILURE);
+                return true;
+            }
 
             // if the build has failed, then there's not
             // much point in reporting an error
-            if (build.getResult().isWorseOrEqualTo(Result.FAILURE) && reports.length == 0)
+            if (build.getResult().isWorseOrEqualTo(Result.FAILURE) && merged.getReportCount() == 0)
                 return true;
 
-        } catch (IOException e) {
-            Util.displayIOException(e, listener);
-            e.printStackTrace(listener.fatalError("Unable to find coverage results"));
-            build.setResult(Result.FAILURE);
-        }
-
-        if (reports.length == 0) {
-            String msg = "No coverage results were found using the pattern '"
-            + coberturaReportFile + "' relative to '"
-            + moduleRoot.getRemote() + "'."
-            + "  Did you enter a pattern relative to the correct directory?"
-            + "  Did you generate the XML report(s) for Cobertura?";
-            listener.getLogger().println(msg);
-            build.setResult(Result.FAILURE);
-            return true;
-        }
+            if (merged.getReportCount() == 0) {
+                listener.getLogger().println(noReportsMessage(moduleRoot));
+                build.setResult(Result.FAILURE);
+                return true;
+            }
 
-        for (int i = 0; i < reports.length; i++) {
-            final FilePath targetPath = new FilePath(buildTarget, "coverage" + (i == 0 ? "" : i) + ".xml");
+            listener.getLogger().println("Merged " + merged.getReportCount() + " Cobertura coverage report(s) on "
+                    + moduleRoot.getRemote());
+            for (Map.Entry<String, IOException> failure : merged.getFailures().entrySet()) {
+                Util.displayIOException(failure.getValue(), listener);
+                failure.getValue().printStackTrace(listener.fatalError("Unable to parse " + failure.getKey()));
+                build.setResult(Result.FAILURE);
+            }
+            result = merged.getResult();
+            sourcePaths.addAll(merged.getSourcePaths());
+            if (result != null) {
+                try {
+                    CoberturaBuildAction.saveMergedResult(getMergedCoberturaResult(build), result);
+                } catch (IOException e) {
+                    Util.displayIOException(e, listener);
+                    e.printStackTrace(listener.fatalError("Unable to save merged coverage results to " + buildTarget));
+                    build.setResult(Result.FAILURE);
+                }
+            }
+        } else {
+            FilePath[] reports = new FilePath[0];
             try {
-                reports[i].copyTo(targetPath);
+                reports = moduleRoot.list(coberturaReportFile);
+
+                // if the build has failed, then there's not
+                // much point in reporting an error
+                if (build.getResult().isWorseOrEqualTo(Result.FAILURE) && reports.length == 0)
+                    return true;
+
             } catch (IOException e) {
                 Util.displayIOException(e, listener);
-                e.printStackTrace(listener.fatalError("Unable to copy coverage from " + reports[i] + " to " + buildTarget));
+                e.printStackTrace(listener.fatalError("Unable to find coverage results"));
                 build.setResult(Result.FAILURE);
             }
-        }
 
-        listener.getLogger().println("Publishing Cobertura coverage results...");
-        Set<String> sourcePaths = new HashSet<String>();
-        CoverageResult result = null;
-        for (File coberturaXmlReport : getCoberturaReports(build)) {
-            try {
-                result = CoberturaCoverageParser.parse(coberturaXmlReport, result, sourcePaths);
-            } catch (IOException e) {
-                Util.displayIOException(e, listener);
-                e.printStackTrace(listener.fatalError("Unable to parse " + coberturaXmlReport));
+            if (reports.length == 0) {
+                listener.getLogger().println(noReportsMessage(moduleRoot));
                 build.setResult(Result.FAILURE);
+                return true;
+            }
+
+            for (int i = 0; i < reports.length; i++) {
+                final FilePath targetPath = new FilePath(buildTarget, "coverage" + (i == 0 ? "" : i) + ".xml");
+                try {
+                    reports[i].copyTo(targetPath);
+                } catch (IOException e) {
+                    Util.displayIOException(e, listener);
+                    e.printStackTrace(listener.fatalError("Unable to copy coverage from " + reports[i] + " to " + buildTarget));
+                    build.setResult(Result.FAILURE);
+                }
+            }
+
+            listener.getLogger().println("Publishing Cobertura coverage results...");
+            for (File coberturaXmlReport : getCoberturaReports(build)) {
+                try {
+                    result = CoberturaCoverageParser.parse(coberturaXmlReport, result, sourcePaths);
+                } catch (IOException e) {
+                    Util.displayIOException(e, listener);
+                    e.printStackTrace(listener.fatalError("Unable to parse " + coberturaXmlReport));
+                    build.setResult(Result.FAILURE);
+                }
             }
         }
         if (result != null) {
@@ -279,6 +341,11 @@ public class CoberturaPublisher extends Recorder {
                     unhealthyTarget, getOnlyStable());
 
             build.getActions().add(action);
+            try {
+                action.recordTrend();
+            } catch (IOException e) {
+                e.printStackTrace(listener.error("Unable to record the coverage trend"));
+            }
             Set<CoverageMetric> failingMetrics = failingTarget.getFailingMetrics(result);
             if (!failingMetrics.isEmpty()) {
                 listener.getLogger().println("Code coverage enforcement failed for the following metrics:");
@@ -297,6 +364,14 @@ public class CoberturaPublisher extends Recorder {
         return true;
     }
 
+    private String noReportsMessage(FilePath moduleRoot) {
+        return "No coverage results were found using the pattern '"
+            + coberturaReportFile + "' relative to '"
+            + moduleRoot.getRemote() + "'."
+            + "  Did you enter a pattern relative to the correct directory?"
+            + "  Did you generate the XML report(s) for Cobertura?";
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,193 @@
+package hudson.plugins.cobertura;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.plugins.cobertura.targets.CoverageResult;
+import hudson.remoting.VirtualChannel;
+import hudson.util.IOException2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the Cobertura reports matching a pattern on the node where they were produced, in parallel, and merges the
+ * partial {@link CoverageResult} trees into a single result so only that merged result travels back to the master.
+ *
+ * <p>
+ * The reports are parsed in the order of their (sorted) relative paths and merged pairwise in that same order, so the
+ * merged tree does not depend on thread scheduling.
+ */
+public class CoberturaReportMerger implements FilePath.FileCallable<CoberturaReportMerger.MergedReport>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String includes;
+    private final int threads;
+
+    public CoberturaReportMerger(String includes) {
+        this(includes, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CoberturaReportMerger(String includes, int threads) {
+        this.includes = includes;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public MergedReport invoke(File moduleRoot, VirtualChannel channel) throws IOException {
+        String[] names = Util.createFileSet(moduleRoot, includes).getDirectoryScanner().getIncludedFiles();
+        Arrays.sort(names);
+        List<File> reports = new ArrayList<File>(names.length);
+        for (String name : names) {
+            reports.add(new File(moduleRoot, name));
+        }
+        return merge(reports);
+    }
+
+    /**
+     * Parses and merges the given reports.
+     *
+     * @param reports the reports, in the order they should be merged.
+     * @return the merged result.
+     * @throws IOException if the parsing was interrupted.
+     */
+    public MergedReport merge(List<File> reports) throws IOException {
+        final MergedReport merged = new MergedReport(reports.size());
+        if (reports.isEmpty()) {
+            return merged;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, reports.size()));
+        try {
+            List<Future<ParsedReport>> parsing = new ArrayList<Future<ParsedReport>>(reports.size());
+            for (final File report : reports) {
+                parsing.add(executor.submit(new Callable<ParsedReport>() {
+                    public ParsedReport call() throws IOException {
+                        Set<String> sourcePaths = new HashSet<String>();
+                        CoverageResult result = CoberturaCoverageParser.parse(report, null, sourcePaths);
+                        return new ParsedReport(result, sourcePaths);
+                    }
+                }));
+            }
+
+            List<CoverageResult> partials = new ArrayList<CoverageResult>(reports.size());
+            for (int i = 0; i < reports.size(); i++) {
+                try {
+                    ParsedReport parsed = parsing.get(i).get();
+                    partials.add(parsed.result);
+                    merged.sourcePaths.addAll(parsed.sourcePaths);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    merged.failures.put(reports.get(i).getPath(), cause instanceof IOException
+                            ? (IOException) cause : new IOException2("Cannot parse coverage results", cause));
+                }
+            }
+
+            // deterministic pairwise reduction: round after round, element 2k absorbs element 2k+1
+            while (partials.size() > 1) {
+                List<Future<CoverageResult>> round = new ArrayList<Future<CoverageResult>>();
+                for (int i = 0; i < partials.size(); i += 2) {
+                    final CoverageResult left = partials.get(i);
+                    final CoverageResult right = i + 1 < partials.size() ? partials.get(i + 1) : null;
+                    round.add(executor.submit(new Callable<CoverageResult>() {
+                        public CoverageResult call() {
+                            if (right != null) {
+                                left.merge(right);
+                            }
+                            return left;
+                        }
+                    }));
+                }
+                partials = new ArrayList<CoverageResult>(round.size());
+                for (Future<CoverageResult> f : round) {
+                    partials.add(f.get());
+                }
+            }
+            merged.result = partials.isEmpty() ? null : partials.get(0);
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException2("Interrupted while merging coverage results", e);
+        } catch (ExecutionException e) {
+            throw new IOException2("Cannot merge coverage results", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class ParsedReport {
+        private final CoverageResult result;
+        private final Set<String> sourcePaths;
+
+        private ParsedReport(CoverageResult result, Set<String> sourcePaths) {
+            this.result = result;
+            this.sourcePaths = sourcePaths;
+        }
+    }
+
+    /**
+     * The outcome of {@link CoberturaReportMerger}, sent back to the master.
+     */
+    public static final class MergedReport implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int reportCount;
+        private CoverageResult result;
+        private final Set<String> sourcePaths = new HashSet<String>();
+        private final Map<String, IOException> failures = new LinkedHashMap<String, IOException>();
+
+        private MergedReport(int reportCount) {
+            this.reportCount = reportCount;
+        }
+
+        /**
+         * Getter for property 'reportCount'.
+         *
+         * @return the number of reports that matched the pattern.
+         */
+        public int getReportCount() {
+            return reportCount;
+        }
+
+        /**
+         * Getter for property 'result'.
+         *
+         * @return the merged (not yet owned) result, or {@code null} if no report could be parsed.
+         */
+        public CoverageResult getResult() {
+            return result;
+        }
+
+        /**
+         * Getter for property 'sourcePaths'.
+         *
+         * @return the source directories declared by all reports.
+         */
+        public Set<String> getSourcePaths() {
+            return Collections.unmodifiableSet(sourcePaths);
+        }
+
+        /**
+         * Getter for property 'failures'.
+         *
+         * @return the reports which could not be parsed, with the reason.
+         */
+        public Map<String, IOException> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+    }
+}
@@ -243,7 +243,6 @@ public class MavenCoberturaPublisher extends MavenReporter {
 
     private static class MavenCoberturaActionAdder implements MavenBuildProxy.BuildCallable<Boolean, IOException> {
         private static final long serialVersionUID = -5470450037371279762L;
-        @SuppressWarnings("unused")
         private final BuildListener listener;
 
         public MavenCoberturaActionAdder(BuildListener listener) {
@@ -260,6 +259,11 @@ public class MavenCoberturaPublisher extends MavenReporter {
 
                     CoberturaBuildAction o = CoberturaBuildAction.load(build, result, null, null, false);
                     build.getActions().add(o);
+                    try {
+                        o.recordTrend();
+                    } catch (IOException e) {
+                        e.printStackTrace(listener.error("Unable to record the coverage trend"));
+                    }
                 } else {
                     return false;
                 }
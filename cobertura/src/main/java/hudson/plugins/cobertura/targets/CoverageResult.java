@@ -80,7 +80,7 @@ public class CoverageResult implements Serializable {
     private final CoveragePaint paint;
     private String relativeSourcePath;
 
-    public AbstractBuild<?, ?> owner = null;
+    public transient AbstractBuild<?, ?> owner = null;
 
     public CoverageResult(CoverageElement elementType, CoverageResult parent, String name) {
         this.element = elementType;
@@ -340,6 +340,34 @@ public class CoverageResult implements Serializable {
         }
     }
 
+    /**
+     * Merges another, independently parsed, coverage tree into this one.
+     *
+     * <p>
+     * Both trees must still be raw parse results (i.e. {@link #setOwner(AbstractBuild)} has not been called yet), and
+     * the outcome is the same as if the other report had been parsed cumulatively into this result.
+     *
+     * @param other the tree to merge into this one.
+     */
+    public void merge(CoverageResult other) {
+        if (relativeSourcePath == null) {
+            relativeSourcePath = other.relativeSourcePath;
+        }
+        for (Map.Entry<CoverageMetric, Ratio> localResult : other.localResults.entrySet()) {
+            updateMetric(localResult.getKey(), localResult.getValue());
+        }
+        if (paint != null && other.paint != null) {
+            paint.add(other.paint);
+        }
+        for (CoverageResult otherChild : other.children.values()) {
+            CoverageResult child = children.get(otherChild.name);
+            if (child == null) {
+                child = new CoverageResult(otherChild.element, this, otherChild.name);
+            }
+            child.merge(otherChild);
+        }
+    }
+
     /**
      * Getter for property 'owner'.
      *
@@ -428,6 +456,14 @@ public class CoverageResult implements Serializable {
         }
 
         AbstractBuild<?,?> build = getOwner();
+        if (parent == null) {
+            // the project level trend is kept in the trend index, no need to load the previous reports
+            CoberturaBuildAction action = build.getAction(CoberturaBuildAction.class);
+            if (action != null) {
+                action.doGraph(req, rsp);
+                return;
+            }
+        }
         Calendar t = build.getTimestamp();
 
         if (req.checkIfModified(t, rsp))
@@ -0,0 +1,105 @@
+package hudson.plugins.cobertura;
+
+import hudson.plugins.cobertura.targets.CoverageMetric;
+import hudson.plugins.cobertura.targets.CoverageResult;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link CoberturaReportMerger}.
+ */
+public class CoberturaReportMergerTest extends TestCase {
+    private File dir;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        dir = File.createTempFile("cobertura", "merge");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    public void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+        super.tearDown();
+    }
+
+    private File copy(String resource, String name) throws Exception {
+        File target = new File(dir, name);
+        InputStream in = getClass().getResourceAsStream(resource);
+        OutputStream out = new FileOutputStream(target);
+        try {
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) > 0) {
+                out.write(buf, 0, len);
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+        return target;
+    }
+
+    private void assertSameCoverage(CoverageResult expected, CoverageResult actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getElement(), actual.getElement());
+        assertEquals(expected.getRelativeSourcePath(), actual.getRelativeSourcePath());
+        for (Map.Entry<CoverageMetric, Ratio> e : expected.getResults().entrySet()) {
+            assertEquals(expected.getName() + " " + e.getKey(), e.getValue(), actual.getCoverage(e.getKey()));
+        }
+        assertEquals(expected.getChildren(), actual.getChildren());
+        for (String child : expected.getChildren()) {
+            assertSameCoverage(expected.getChild(child), actual.getChild(child));
+        }
+    }
+
+    public void testMergeMatchesSequentialParse() throws Exception {
+        List<File> reports = new ArrayList<File>();
+        reports.add(copy("coverage.xml", "a.xml"));
+        reports.add(copy("coverage-with-data.xml", "b.xml"));
+        reports.add(copy("coverage-with-lots-of-data.xml", "c.xml"));
+
+        CoverageResult sequential = null;
+        for (File report : reports) {
+            sequential = CoberturaCoverageParser.parse(report, sequential);
+        }
+        sequential.setOwner(null);
+
+        CoberturaReportMerger.MergedReport merged = new CoberturaReportMerger("*.xml", 3).merge(reports);
+        assertEquals(3, merged.getReportCount());
+        assertTrue(merged.getFailures().isEmpty());
+        assertFalse(merged.getSourcePaths().isEmpty());
+        CoverageResult result = merged.getResult();
+        result.setOwner(null);
+
+        assertSameCoverage(sequential, result);
+    }
+
+    public void testInvokeListsReportsAndReportsFailures() throws Exception {
+        copy("coverage.xml", "coverage.xml");
+        OutputStream out = new FileOutputStream(new File(dir, "broken.xml"));
+        out.write("<coverage>".getBytes());
+        out.close();
+
+        CoberturaReportMerger.MergedReport merged = new CoberturaReportMerger("*.xml").invoke(dir, null);
+        assertEquals(2, merged.getReportCount());
+        assertEquals(1, merged.getFailures().size());
+        assertNotNull(merged.getResult());
+    }
+
+    public void testNoReports() throws Exception {
+        CoberturaReportMerger.MergedReport merged = new CoberturaReportMerger("*.xml").invoke(dir, null);
+        assertEquals(0, merged.getReportCount());
+        assertNull(merged.getResult());
+    }
+}
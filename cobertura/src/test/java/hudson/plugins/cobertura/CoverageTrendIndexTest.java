@@ -0,0 +1,78 @@
+package hudson.plugins.cobertura;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Unit tests for {@link CoverageTrendIndex}.
+ */
+public class CoverageTrendIndexTest extends TestCase {
+    private File file;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("trend", ".txt");
+        file.delete();
+    }
+
+    public void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testRecordAndRead() throws Exception {
+        CoverageTrendIndex index = new CoverageTrendIndex(file);
+        assertFalse(index.exists());
+        index.rewrite(Arrays.asList(
+                new CoverageTrendIndex.Entry(2).put("LINE", 5, 10),
+                new CoverageTrendIndex.Entry(1).put("LINE", 1, 10)));
+        index.record(new CoverageTrendIndex.Entry(3).put("LINE", 9, 10).put("METHOD", 1, 4));
+        assertTrue(index.exists());
+
+        CoverageTrendIndex reread = new CoverageTrendIndex(file);
+        List<CoverageTrendIndex.Entry> entries = reread.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals(3, entries.get(0).getBuildNumber());
+        assertEquals(1, entries.get(2).getBuildNumber());
+        assertEquals(90f, entries.get(0).getPercentageFloat("LINE"), 0.001f);
+        assertEquals(25f, entries.get(0).getPercentageFloat("METHOD"), 0.001f);
+        assertFalse(entries.get(1).has("METHOD"));
+
+        assertEquals(2, reread.getEntriesUpTo(2).size());
+        assertEquals(2, reread.getEntriesUpTo(2).get(0).getBuildNumber());
+    }
+
+    public void testLastRecordWinsAndBrokenLinesAreSkipped() throws Exception {
+        FileWriter w = new FileWriter(file);
+        w.write("1 LINE=1.0/2.0\n");
+        w.write("garbage\n");
+        w.write("1 LINE=2.0/2.0\n");
+        w.close();
+
+        CoverageTrendIndex index = new CoverageTrendIndex(file);
+        assertEquals(1, index.getEntries().size());
+        assertEquals(100f, index.get(1).getPercentageFloat("LINE"), 0.001f);
+        assertNull(index.get(2));
+    }
+
+    public void testHistoryIsOnlyUsedToSeedTheIndex() throws Exception {
+        final int[] calls = {0};
+        CoverageTrendIndex.History history = new CoverageTrendIndex.History() {
+            public Collection<CoverageTrendIndex.Entry> getEntries() {
+                calls[0]++;
+                return Arrays.asList(new CoverageTrendIndex.Entry(1).put("LINE", 1, 10));
+            }
+        };
+        CoverageTrendIndex index = new CoverageTrendIndex(file);
+        index.record(new CoverageTrendIndex.Entry(2).put("LINE", 2, 10), history);
+        index.record(new CoverageTrendIndex.Entry(3).put("LINE", 3, 10), history);
+
+        assertEquals(1, calls[0]);
+        assertEquals(3, new CoverageTrendIndex(file).getEntries().size());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2010, Sun Microsystems, Inc., Alan Harder
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.copyartifact;
+
+import hudson.Util;
+import hudson.model.Run;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.tools.ant.DirectoryScanner;
+
+/**
+ * Checksums of the artifacts of a build.
+ *
+ * <p>
+ * Artifacts don't change once the build is over, so the checksums are computed the first time
+ * the artifacts are copied with {@link CopyArtifact#isDeltaCopy()}, and kept in {@value #FILE_NAME}
+ * in the build directory for the next copies.
+ */
+final class ArtifactManifest {
+    static final String FILE_NAME = "copyartifact.md5";
+
+    /**
+     * An artifact, with its path relative to the artifacts directory, using '/'.
+     */
+    static final class Entry implements Serializable {
+        final String path;
+        final long size;
+        final String md5;
+        private final transient long lastModified;
+
+        private Entry(String path, long size, long lastModified, String md5) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.md5 = md5;
+        }
+
+        private boolean isUpToDate(File f) {
+            return f.length() == size && f.lastModified() == lastModified;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Locks guarding the manifest files, picked by the hash of the file, so that copies from the same
+     * build wait for each other without locking the {@link Run} itself.
+     */
+    private static final Object[] LOCKS = new Object[16];
+    static {
+        for (int i = 0; i < LOCKS.length; i++) LOCKS[i] = new Object();
+    }
+
+    private ArtifactManifest() {
+    }
+
+    private static Object lockOf(File manifest) {
+        return LOCKS[(manifest.hashCode() & 0x7fffffff) % LOCKS.length];
+    }
+
+    /**
+     * Gets the checksums of the artifacts matching the filter.
+     * @param filter Ant file pattern, like for {@link hudson.FilePath#copyRecursiveTo(String, hudson.FilePath)}.
+     */
+    static List<Entry> get(Run<?,?> run, String filter) throws IOException {
+        File srcDir = run.getArtifactsDir();
+        List<Entry> entries = new ArrayList<Entry>();
+        if (!srcDir.isDirectory()) return entries;
+
+        DirectoryScanner ds = Util.createFileSet(srcDir, filter).getDirectoryScanner(
+                new org.apache.tools.ant.Project());
+        File manifest = new File(run.getRootDir(), FILE_NAME);
+        synchronized (lockOf(manifest)) {
+            Map<String,Entry> known = read(manifest);
+            boolean modified = false;
+            for (String path : ds.getIncludedFiles()) {
+                path = path.replace('\\', '/');
+                File f = new File(srcDir, path);
+                Entry e = known.get(path);
+                if (e == null || !e.isUpToDate(f)) {
+                    FileInputStream in = new FileInputStream(f);
+                    try {
+                        e = new Entry(path, f.length(), f.lastModified(), Util.getDigestOf(in));
+                    } finally {
+                        in.close();
+                    }
+                    known.put(path, e);
+                    modified = true;
+                }
+                entries.add(e);
+            }
+            if (modified) write(manifest, known);
+        }
+        return entries;
+    }
+
+    private static Map<String,Entry> read(File manifest) throws IOException {
+        Map<String,Entry> entries = new HashMap<String,Entry>();
+        if (!manifest.exists()) return entries;
+        BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), "UTF-8"));
+        try {
+            String line;
+            while ((line = r.readLine()) != null) {
+                // md5 size lastModified path
+                String[] t = line.split(" ", 4);
+                if (t.length < 4) continue;
+                try {
+                    entries.put(t[3], new Entry(t[3], Long.parseLong(t[1]), Long.parseLong(t[2]), t[0]));
+                } catch (NumberFormatException e) {
+                    // computed again
+                }
+            }
+        } finally {
+            r.close();
+        }
+        return entries;
+    }
+
+    private static void write(File manifest, Map<String,Entry> entries) throws IOException {
+        File tmp = new File(manifest.getPath() + ".tmp");
+        PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+        try {
+            for (Entry e : entries.values())
+                w.println(e.md5 + ' ' + e.size + ' ' + e.lastModified + ' ' + e.path);
+        } finally {
+            w.close();
+        }
+        manifest.delete();
+        if (!tmp.renameTo(manifest))
+            throw new IOException("Failed to rename " + tmp + " to " + manifest);
+    }
+}
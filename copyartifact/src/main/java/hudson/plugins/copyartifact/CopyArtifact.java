@@ -63,13 +63,21 @@ public class CopyArtifact extends Builder {
     private String projectName;
     private final String filter, target;
     private final Boolean stable;
+    private final Boolean deltaCopy, nodeCache;
 
     @DataBoundConstructor
-    public CopyArtifact(String projectName, String filter, String target, boolean stable) {
+    public CopyArtifact(String projectName, String filter, String target, boolean stable,
+                        boolean deltaCopy, boolean nodeCache) {
         this.projectName = projectName;
         this.filter = Util.fixNull(filter).trim();
         this.target = Util.fixNull(target).trim();
         this.stable = stable ? Boolean.TRUE : null;
+        this.deltaCopy = deltaCopy ? Boolean.TRUE : null;
+        this.nodeCache = deltaCopy && nodeCache ? Boolean.TRUE : null;
+    }
+
+    public CopyArtifact(String projectName, String filter, String target, boolean stable) {
+        this(projectName, filter, target, stable, false, false);
     }
 
     public String getProjectName() {
@@ -88,6 +96,20 @@ public class CopyArtifact extends Builder {
         return stable != null ? stable.booleanValue() : false;
     }
 
+    /**
+     * Only copy the artifacts that are missing or differ in the target directory.
+     */
+    public boolean isDeltaCopy() {
+        return deltaCopy != null ? deltaCopy.booleanValue() : false;
+    }
+
+    /**
+     * Keep the artifacts copied to a node in a cache shared by the jobs building there.
+     */
+    public boolean isNodeCache() {
+        return nodeCache != null ? nodeCache.booleanValue() : false;
+    }
+
     @Override
     public boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener)
             throws InterruptedException {
@@ -131,8 +153,20 @@ public class CopyArtifact extends Builder {
             if (target.length() > 0) targetDir = new FilePath(targetDir, env.expand(target));
             expandedFilter = build.getEnvironment(listener).expand(filter);
             if (expandedFilter.trim().length() == 0) expandedFilter = "**";
-            int cnt = new FilePath(srcDir).copyRecursiveTo(expandedFilter, targetDir);
-            listener.getLogger().println(Messages.CopyArtifact_Copied(cnt, projectName));
+            if (isDeltaCopy()) {
+                FilePath cacheDir = null;
+                if (isNodeCache() && build.getBuiltOn() != null) {
+                    FilePath root = build.getBuiltOn().getRootPath();
+                    if (root != null) cacheDir = root.child(CACHE_DIR);
+                }
+                DeltaCopy copy = new DeltaCopy(run, targetDir, cacheDir);
+                int cnt = copy.copy(expandedFilter);
+                console.println(Messages.CopyArtifact_CopiedDelta(cnt, projectName,
+                        copy.unchanged, copy.fromCache, copy.transferred, copy.transferredBytes));
+            } else {
+                int cnt = new FilePath(srcDir).copyRecursiveTo(expandedFilter, targetDir);
+                listener.getLogger().println(Messages.CopyArtifact_Copied(cnt, projectName));
+            }
         }
         catch (IOException ex) {
             Util.displayIOException(ex, listener);
@@ -143,6 +177,11 @@ public class CopyArtifact extends Builder {
         return true;
     }
 
+    /**
+     * Directory of the artifact cache, relative to the root of a node.
+     */
+    static final String CACHE_DIR = "copyartifact-cache";
+
     @Extension
     public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
 
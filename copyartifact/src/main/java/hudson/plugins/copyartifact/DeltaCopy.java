@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2010, Sun Microsystems, Inc., Alan Harder
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.copyartifact;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Functions;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.remoting.Future;
+import hudson.remoting.Pipe;
+import hudson.remoting.VirtualChannel;
+import hudson.util.IOException2;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+import org.apache.tools.tar.TarOutputStream;
+
+import static hudson.util.jna.GNUCLibrary.LIBC;
+
+/**
+ * Copies artifacts to a directory, skipping those that are already there.
+ *
+ * <p>
+ * The checksums of the artifacts ({@link ArtifactManifest}) are sent to the node of the target
+ * directory, which compares them with the files it has. Only the artifacts that are missing or
+ * differ are then sent, in one tar stream. Optionally, the node keeps a copy of the artifacts it
+ * receives in a cache named after their checksum, shared by all the jobs building there, and
+ * takes the artifacts from there when it can.
+ */
+final class DeltaCopy {
+    /**
+     * Number of days an artifact stays in the cache of a node without being used.
+     */
+    public static int CACHE_DAYS = Integer.getInteger(DeltaCopy.class.getName() + ".cacheDays", 7);
+
+    private final Run<?,?> run;
+    private final FilePath targetDir;
+    private final String cacheDir;
+
+    int unchanged, fromCache, transferred;
+    long transferredBytes;
+
+    /**
+     * @param cacheDir Cache directory on the node of the target directory, or null to not use one.
+     */
+    DeltaCopy(Run<?,?> run, FilePath targetDir, FilePath cacheDir) {
+        this.run = run;
+        this.targetDir = targetDir;
+        this.cacheDir = cacheDir != null ? cacheDir.getRemote() : null;
+    }
+
+    /**
+     * @return Number of artifacts matching the filter, copied or not.
+     */
+    int copy(String filter) throws IOException, InterruptedException {
+        List<ArtifactManifest.Entry> entries = ArtifactManifest.get(run, filter);
+        if (entries.isEmpty()) return 0;
+
+        Plan plan = targetDir.act(new PlanTask(entries, cacheDir));
+        unchanged = plan.unchanged;
+        fromCache = plan.fromCache;
+        if (!plan.needed.isEmpty()) send(plan.needed);
+        return entries.size();
+    }
+
+    /**
+     * Sends artifacts to the target directory in a tar stream.
+     */
+    private void send(final List<ArtifactManifest.Entry> needed) throws IOException, InterruptedException {
+        File srcDir = run.getArtifactsDir();
+        if (!targetDir.isRemote()) {
+            // nothing to stream, the files are right here
+            File base = new File(targetDir.getRemote());
+            for (ArtifactManifest.Entry e : needed) {
+                File f = new File(base, e.path);
+                FileUtils.copyFile(new File(srcDir, e.path), f);
+                if (cacheDir != null) store(f, cacheFile(new File(cacheDir), e.md5));
+                transferred++;
+                transferredBytes += e.size;
+            }
+            return;
+        }
+
+        final Pipe pipe = Pipe.createLocalToRemote();
+        Future<Void> future = targetDir.actAsync(new ReceiveTask(pipe, needed, cacheDir));
+
+        byte[] buf = new byte[8192];
+        TarOutputStream tar = new TarOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(pipe.getOut())));
+        try {
+            tar.setLongFileMode(TarOutputStream.LONGFILE_GNU);
+            for (ArtifactManifest.Entry e : needed) {
+                File f = new File(srcDir, e.path);
+                TarEntry te = new TarEntry(e.path);
+                te.setModTime(f.lastModified());
+                te.setSize(f.length());
+                int mode = new FilePath(f).mode();
+                if (mode > 0) te.setMode(mode);
+                tar.putNextEntry(te);
+                FileInputStream in = new FileInputStream(f);
+                try {
+                    int len;
+                    while ((len = in.read(buf)) >= 0)
+                        tar.write(buf, 0, len);
+                } finally {
+                    in.close();
+                }
+                tar.closeEntry();
+                transferred++;
+                transferredBytes += f.length();
+            }
+        } finally {
+            tar.close();
+        }
+
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw new IOException2(e);
+        }
+    }
+
+    /**
+     * What the target directory needs.
+     */
+    private static final class Plan implements Serializable {
+        final List<ArtifactManifest.Entry> needed = new ArrayList<ArtifactManifest.Entry>();
+        int unchanged, fromCache;
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Compares the artifacts with the files of the target directory, and restores those in the cache.
+     */
+    private static final class PlanTask implements FileCallable<Plan> {
+        private final List<ArtifactManifest.Entry> entries;
+        private final String cacheDir;
+
+        PlanTask(List<ArtifactManifest.Entry> entries, String cacheDir) {
+            this.entries = entries;
+            this.cacheDir = cacheDir;
+        }
+
+        public Plan invoke(File base, VirtualChannel channel) throws IOException {
+            Plan plan = new Plan();
+            File cache = cacheDir != null ? new File(cacheDir) : null;
+            if (cache != null) prune(cache);
+            for (ArtifactManifest.Entry e : entries) {
+                File f = new File(base, e.path);
+                if (f.isFile() && f.length() == e.size && e.md5.equals(md5(f))) {
+                    plan.unchanged++;
+                    continue;
+                }
+                if (cache != null) {
+                    File c = cacheFile(cache, e.md5);
+                    if (c.isFile() && c.length() == e.size) {
+                        FileUtils.copyFile(c, f);
+                        c.setLastModified(System.currentTimeMillis()); // mark as used
+                        plan.fromCache++;
+                        continue;
+                    }
+                }
+                plan.needed.add(e);
+            }
+            return plan;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Extracts the artifacts sent, and adds them to the cache.
+     */
+    private static final class ReceiveTask implements FileCallable<Void> {
+        private final Pipe pipe;
+        private final Map<String,String> checksums = new HashMap<String,String>();
+        private final String cacheDir;
+
+        ReceiveTask(Pipe pipe, List<ArtifactManifest.Entry> entries, String cacheDir) {
+            this.pipe = pipe;
+            for (ArtifactManifest.Entry e : entries)
+                checksums.put(e.path, e.md5);
+            this.cacheDir = cacheDir;
+        }
+
+        public Void invoke(File base, VirtualChannel channel) throws IOException {
+            TarInputStream t = new TarInputStream(new GZIPInputStream(pipe.getIn()));
+            try {
+                TarEntry te;
+                while ((te = t.getNextEntry()) != null) {
+                    File f = new File(base, te.getName());
+                    File parent = f.getParentFile();
+                    if (parent != null) parent.mkdirs();
+                    OutputStream out = new FileOutputStream(f);
+                    try {
+                        IOUtils.copy(t, out);
+                    } finally {
+                        out.close();
+                    }
+                    f.setLastModified(te.getModTime().getTime());
+                    int mode = te.getMode() & 0777;
+                    if (mode != 0 && !Functions.isWindows()) // be defensive
+                        try {
+                            LIBC.chmod(f.getPath(), mode);
+                        } catch (NoClassDefFoundError e) {
+                            // libc isn't available
+                        }
+                    String md5 = checksums.get(te.getName());
+                    if (cacheDir != null && md5 != null)
+                        store(f, cacheFile(new File(cacheDir), md5));
+                }
+            } catch (IOException e) {
+                throw new IOException2("Failed to extract artifacts to " + base, e);
+            } finally {
+                t.close();
+            }
+            return null;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static String md5(File f) throws IOException {
+        InputStream in = new FileInputStream(f);
+        try {
+            return Util.getDigestOf(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static File cacheFile(File cache, String md5) {
+        return new File(new File(cache, md5.substring(0, 2)), md5);
+    }
+
+    /**
+     * Adds a file to the cache. Another build may be adding the same file, so it's copied aside first.
+     */
+    private static void store(File f, File c) throws IOException {
+        if (c.exists()) return;
+        c.getParentFile().mkdirs();
+        File tmp = File.createTempFile(c.getName(), ".tmp", c.getParentFile());
+        FileUtils.copyFile(f, tmp, false);
+        if (!tmp.renameTo(c)) tmp.delete();
+    }
+
+    /**
+     * Removes the artifacts that have not been used for {@link #CACHE_DAYS}, once a day.
+     */
+    private static void prune(File cache) {
+        File stamp = new File(cache, ".pruned");
+        long now = System.currentTimeMillis();
+        long day = 24L * 60 * 60 * 1000;
+        if (stamp.exists() && now - stamp.lastModified() < day) return;
+        File[] dirs = cache.listFiles();
+        if (dirs == null) return;
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) continue;
+            for (File f : files)
+                if (now - f.lastModified() > CACHE_DAYS * day) f.delete();
+        }
+        try {
+            FileUtils.touch(stamp);
+        } catch (IOException e) {
+            // try again next time
+        }
+    }
+}
@@ -159,4 +159,46 @@ public class CopyArtifactTest extends HudsonTestCase {
         assertFile(false, "foo/bar/foo.txt", b);
         assertFile(true, "foo/bar/subdir/subfoo.txt", b);
     }
+
+    public void testDeltaCopy() throws Exception {
+        FreeStyleProject other = createArtifactProject(),
+                         p = createFreeStyleProject();
+        p.getBuildersList().add(new CopyArtifact(other.getName(), "", "", false, true, false));
+        assertBuildStatusSuccess(other.scheduleBuild2(0, new UserCause()).get());
+        FreeStyleBuild b = p.scheduleBuild2(0, new UserCause()).get();
+        assertBuildStatusSuccess(b);
+        assertTrue(getLog(b), getLog(b).contains("0 unchanged, 0 from the node cache, 3 transferred"));
+        assertFile(true, "deepfoo/a/b/c.log", b);
+
+        // only the modified file is copied again
+        b.getWorkspace().child("foo.txt").write("modified", "UTF-8");
+        b = p.scheduleBuild2(0, new UserCause()).get();
+        assertBuildStatusSuccess(b);
+        assertTrue(getLog(b), getLog(b).contains("2 unchanged, 0 from the node cache, 1 transferred"));
+        assertEquals("", b.getWorkspace().child("foo.txt").readToString());
+    }
+
+    public void testDeltaCopyFromNodeCache() throws Exception {
+        DumbSlave node = createSlave();
+        FreeStyleProject other = createArtifactProject(),
+                         p1 = createFreeStyleProject(),
+                         p2 = createFreeStyleProject();
+        p1.getBuildersList().add(new CopyArtifact(other.getName(), "", "", false, true, true));
+        p2.getBuildersList().add(new CopyArtifact(other.getName(), "", "", false, true, true));
+        p1.setAssignedLabel(node.getSelfLabel());
+        p2.setAssignedLabel(node.getSelfLabel());
+        assertBuildStatusSuccess(other.scheduleBuild2(0, new UserCause()).get());
+        FreeStyleBuild b = p1.scheduleBuild2(0, new UserCause()).get();
+        assertBuildStatusSuccess(b);
+        assertTrue(getLog(b), getLog(b).contains("3 transferred"));
+
+        // the other job takes the artifacts from the cache of the node
+        b = p2.scheduleBuild2(0, new UserCause()).get();
+        assertBuildStatusSuccess(b);
+        assertSame(node, b.getBuiltOn());
+        assertTrue(getLog(b), getLog(b).contains("0 unchanged, 3 from the node cache, 0 transferred"));
+        assertFile(true, "foo.txt", b);
+        assertFile(true, "subdir/subfoo.txt", b);
+        assertFile(true, "deepfoo/a/b/c.log", b);
+    }
 }
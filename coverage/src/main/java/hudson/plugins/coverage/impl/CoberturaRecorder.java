@@ -2,6 +2,7 @@ package hudson.plugins.coverage.impl;
 
 import hudson.plugins.coverage.model.Instance;
 import hudson.plugins.coverage.model.JavaModel;
+import hudson.plugins.coverage.model.LineTable;
 import hudson.plugins.coverage.model.Recorder;
 import org.codehaus.stax2.XMLInputFactory2;
 import org.codehaus.stax2.XMLOutputFactory2;
@@ -238,31 +239,85 @@ public class CoberturaRecorder implements Recorder {
      * {@inheritDoc}
      */
     public void parseSourceResults(Instance sourceFile, File measurementFile, Collection<Object> memos) {
-        if (sourceFile.getElement().isFileLevel() && measurementFile.isFile() && memos != null && !memos.isEmpty()) {
-            Collection<String> results = Collection.class.cast(memos);
-
-            // arse arse arse... how to efficiently re-read this file
+        if (sourceFile.getElement().isFileLevel() && memos != null && !memos.isEmpty()) {
+            XMLInputFactory inputFactory = newXMLInputFactory();
+            for (Object memo : memos) {
+                if (!(memo instanceof String)) {
+                    continue;
+                }
+                XMLEventReader r = null;
+                try {
+                    r = inputFactory.createXMLEventReader(new StringReader((String) memo));
 
-            XMLEventReader r = null;
-            try {
-                r = newXMLInputFactory().createXMLEventReader(new StringReader(result));
-
-                while (r.hasNext()) {
-                    final XMLEvent event = r.nextEvent();
-                    if (event.isStartElement()) {
-                        StartElement start = event.asStartElement();
-                        System.out.println(start.getName());
-                        return;
-                    } else if (event.isEndElement()) {
+                    Instance classInstance = null;
+                    Instance methodInstance = null;
+                    while (r.hasNext()) {
+                        final XMLEvent event = r.nextEvent();
+                        if (event.isStartElement()) {
+                            StartElement start = event.asStartElement();
+                            final String localPart = start.getName().getLocalPart();
+                            if ("class".equals(localPart)) {
+                                String className = getAttributeValue(start, "name");
+                                classInstance = className == null
+                                        ? null
+                                        : sourceFile.findOrCreateChild(JavaModel.CLASS, className);
+                            } else if (classInstance != null && "method".equals(localPart)) {
+                                String methodName = getAttributeValue(start, "name");
+                                String signature = getAttributeValue(start, "signature");
+                                methodInstance = methodName == null
+                                        ? null
+                                        : classInstance.findOrCreateChild(JavaModel.METHOD,
+                                                signature == null ? methodName : methodName + signature);
+                            } else if ("line".equals(localPart)) {
+                                // method lines are repeated at the class level, which we record against the file
+                                recordLine(methodInstance == null ? sourceFile.getLines() : methodInstance.getLines(),
+                                        start);
+                            }
+                        } else if (event.isEndElement()) {
+                            if ("method".equals(event.asEndElement().getName().getLocalPart())) {
+                                methodInstance = null;
+                            }
+                        }
                     }
+                } catch (XMLStreamException e) {
+                    e.printStackTrace();
+                } finally {
+                    safelyClose(r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a cobertura {@code line} element.
+     *
+     * @param lines The table to record the line in.
+     * @param start The {@code line} element.
+     */
+    private void recordLine(LineTable lines, StartElement start) {
+        try {
+            final String number = getAttributeValue(start, "number");
+            final String hits = getAttributeValue(start, "hits");
+            if (number == null) {
+                return;
+            }
+            int line = Integer.parseInt(number);
+            long count = hits == null ? 0 : Long.parseLong(hits);
+            lines.touch(line, count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) count);
+            // condition-coverage="50% (1/2)"
+            final String conditions = getAttributeValue(start, "condition-coverage");
+            if ("true".equals(getAttributeValue(start, "branch")) && conditions != null) {
+                int open = conditions.indexOf('(');
+                int slash = conditions.indexOf('/', open);
+                int close = conditions.indexOf(')', slash);
+                if (open >= 0 && slash > open && close > slash) {
+                    lines.touchBranches(line,
+                            Integer.parseInt(conditions.substring(open + 1, slash).trim()),
+                            Integer.parseInt(conditions.substring(slash + 1, close).trim()));
                 }
-            } catch (XMLStreamException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                safelyClose(r);
             }
+        } catch (IllegalArgumentException e) {
+            // ignore malformed lines, including unparsable numbers
         }
     }
 
@@ -45,6 +45,12 @@ public class Instance {
      */
     private final Map<Metric, Measurement> measurements = new HashMap<Metric, Measurement>();
 
+    /**
+     * The instance's line level results, only created for file and sub-file level elements that have lines recorded
+     * directly against them.
+     */
+    private LineTable lines;
+
     /**
      * Used to keep track of multiple recorders mapping the same file to different models. Only set for file level
      * elements while on the slave that hosts the source code.
@@ -318,6 +324,34 @@ public class Instance {
         return Collections.unmodifiableMap(measurements);
     }
 
+    /**
+     * Returns the line level results recorded directly against this instance, creating the table if necessary.
+     *
+     * @return The line level results.
+     */
+    public synchronized LineTable getLines() {
+        if (lines == null) {
+            boolean fileLevel = false;
+            for (Instance i = this; i != null && !fileLevel; i = i.parent) {
+                fileLevel = i.element.isFileLevel();
+            }
+            if (!fileLevel) {
+                throw new IllegalStateException("Cannot record lines except at or below the file level");
+            }
+            lines = new LineTable();
+        }
+        return lines;
+    }
+
+    /**
+     * Returns {@code true} if lines have been recorded directly against this instance.
+     *
+     * @return {@code true} if lines have been recorded directly against this instance.
+     */
+    public synchronized boolean hasLines() {
+        return lines != null && !lines.isEmpty();
+    }
+
     /**
      * Returns the available metrics on this instance.
      *
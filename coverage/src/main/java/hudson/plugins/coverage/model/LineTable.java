@@ -0,0 +1,298 @@
+package hudson.plugins.coverage.model;
+
+import hudson.plugins.coverage.model.measurements.BranchCoverage;
+import hudson.plugins.coverage.model.measurements.LineCoverage;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Columnar line level results of a file (or sub-file) level {@linkplain Instance}.
+ * <p/>
+ * Rather than one {@linkplain LineDetail} per line held in a map, the hits and branch counts of all lines are kept in
+ * primitive arrays indexed by line number. The per-line accessors mirror those of {@linkplain LineDetail}.
+ */
+public final class LineTable implements Serializable {
+// ------------------------------ FIELDS ------------------------------
+
+    /**
+     * Marks a line that has no instrumented code.
+     */
+    private static final int NOT_INSTRUMENTED = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Hit count by line number, {@link #NOT_INSTRUMENTED} for lines without code.
+     */
+    private int[] hits;
+
+    /**
+     * Number of branches by line number.
+     */
+    private int[] branches;
+
+    /**
+     * Number of covered branches by line number.
+     */
+    private int[] coveredBranches;
+
+    /**
+     * The number of instrumented lines.
+     */
+    private int size;
+
+    /**
+     * The highest instrumented line number.
+     */
+    private int maxLine = -1;
+
+// --------------------------- CONSTRUCTORS ---------------------------
+
+    /**
+     * Constructs a new empty LineTable.
+     */
+    public LineTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs a new empty LineTable sized for the given number of lines.
+     *
+     * @param capacity The expected highest line number.
+     */
+    public LineTable(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        hits = new int[capacity + 1];
+        Arrays.fill(hits, NOT_INSTRUMENTED);
+        branches = new int[capacity + 1];
+        coveredBranches = new int[capacity + 1];
+    }
+
+// --------------------- GETTER / SETTER METHODS ---------------------
+
+    /**
+     * Returns the number of instrumented lines.
+     *
+     * @return the number of instrumented lines.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if no line has been recorded.
+     *
+     * @return {@code true} if no line has been recorded.
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the highest instrumented line number, or {@code -1} if the table is empty.
+     *
+     * @return the highest instrumented line number.
+     */
+    public synchronized int getMaxLine() {
+        return maxLine;
+    }
+
+// -------------------------- OTHER METHODS --------------------------
+
+    /**
+     * Records hits against a line. Recording the same line again (e.g. from a second report) adds the hits.
+     *
+     * @param line The line number.
+     * @param hits The number of hits.
+     */
+    public synchronized void touch(int line, int hits) {
+        if (hits < 0) {
+            throw new IllegalArgumentException("Number of hits cannot be negative");
+        }
+        ensureLine(line);
+        if (this.hits[line] == NOT_INSTRUMENTED) {
+            this.hits[line] = hits;
+            size++;
+        } else {
+            long total = (long) this.hits[line] + hits;
+            this.hits[line] = total > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) total;
+        }
+    }
+
+    /**
+     * Records the branch coverage of a line. As reports only give totals per line, recording the same line again keeps
+     * the best of the results.
+     *
+     * @param line    The line number.
+     * @param covered The number of covered branches.
+     * @param count   The number of branches.
+     */
+    public synchronized void touchBranches(int line, int covered, int count) {
+        if (count < 0 || covered < 0 || covered > count) {
+            throw new IllegalArgumentException("Invalid branch coverage " + covered + "/" + count);
+        }
+        touch(line, 0);
+        branches[line] = Math.max(branches[line], count);
+        coveredBranches[line] = Math.min(branches[line], Math.max(coveredBranches[line], covered));
+    }
+
+    /**
+     * Returns {@code true} if the line has instrumented code.
+     *
+     * @param line The line number.
+     * @return {@code true} if the line has instrumented code.
+     */
+    public synchronized boolean isInstrumented(int line) {
+        return line >= 0 && line <= maxLine && hits[line] != NOT_INSTRUMENTED;
+    }
+
+    /**
+     * @see LineDetail#isTouched()
+     */
+    public synchronized boolean isTouched(int line) {
+        return getLineCount(line) > 0;
+    }
+
+    /**
+     * @see LineDetail#isCovered()
+     */
+    public synchronized boolean isCovered(int line) {
+        return getBranchCoverage(line) > 0.9998f;
+    }
+
+    /**
+     * @see LineDetail#getLineCount()
+     */
+    public synchronized int getLineCount(int line) {
+        return isInstrumented(line) ? hits[line] : 0;
+    }
+
+    /**
+     * @see LineDetail#getBranchCoverage()
+     */
+    public synchronized float getBranchCoverage(int line) {
+        if (!isInstrumented(line) || branches[line] == 0) {
+            return 1.0f;
+        }
+        return (1.0f * coveredBranches[line]) / branches[line];
+    }
+
+    /**
+     * Returns the number of branches on a line.
+     *
+     * @param line The line number.
+     * @return the number of branches on the line.
+     */
+    public synchronized int getBranchCount(int line) {
+        return isInstrumented(line) ? branches[line] : 0;
+    }
+
+    /**
+     * Returns the number of covered branches on a line.
+     *
+     * @param line The line number.
+     * @return the number of covered branches on the line.
+     */
+    public synchronized int getCoveredBranchCount(int line) {
+        return isInstrumented(line) ? coveredBranches[line] : 0;
+    }
+
+    /**
+     * Sums the line coverage of all the lines.
+     *
+     * @return the line coverage.
+     */
+    public synchronized LineCoverage getLineCoverage() {
+        int cover = 0;
+        for (int i = 0; i <= maxLine; i++) {
+            if (hits[i] > 0) {
+                cover++;
+            }
+        }
+        return new LineCoverage(size, cover);
+    }
+
+    /**
+     * Sums the branch coverage of all the lines.
+     *
+     * @return the branch coverage.
+     */
+    public synchronized BranchCoverage getBranchCoverage() {
+        int count = 0;
+        int cover = 0;
+        for (int i = 0; i <= maxLine; i++) {
+            count += branches[i];
+            cover += coveredBranches[i];
+        }
+        return new BranchCoverage(count, cover);
+    }
+
+    /**
+     * Adds all the lines of another table to this one.
+     *
+     * @param other The other table.
+     */
+    public void addAll(LineTable other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot add a table to itself");
+        }
+        synchronized (other) {
+            for (int i = 0; i <= other.maxLine; i++) {
+                if (other.hits[i] != NOT_INSTRUMENTED) {
+                    touch(i, other.hits[i]);
+                    if (other.branches[i] > 0) {
+                        touchBranches(i, other.coveredBranches[i], other.branches[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure the columns can hold the given line.
+     *
+     * @param line The line number.
+     */
+    private void ensureLine(int line) {
+        if (line < 0) {
+            throw new IndexOutOfBoundsException("Line " + line);
+        }
+        if (line >= hits.length) {
+            int capacity = Math.max(line + 1, hits.length + (hits.length >> 1));
+            int oldLength = hits.length;
+            hits = copyOf(hits, capacity);
+            Arrays.fill(hits, oldLength, capacity, NOT_INSTRUMENTED);
+            branches = copyOf(branches, capacity);
+            coveredBranches = copyOf(coveredBranches, capacity);
+        }
+        if (line > maxLine) {
+            maxLine = line;
+        }
+    }
+
+    private static int[] copyOf(int[] source, int length) {
+        int[] result = new int[length];
+        System.arraycopy(source, 0, result, 0, Math.min(source.length, length));
+        return result;
+    }
+
+    /**
+     * Trims the columns to the highest line before serialization.
+     *
+     * @param out The stream.
+     * @throws IOException if the stream fails.
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        if (hits.length > maxLine + 1) {
+            hits = copyOf(hits, maxLine + 1);
+            branches = copyOf(branches, maxLine + 1);
+            coveredBranches = copyOf(coveredBranches, maxLine + 1);
+        }
+        out.defaultWriteObject();
+    }
+}
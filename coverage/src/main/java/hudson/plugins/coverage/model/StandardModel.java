@@ -19,6 +19,12 @@ public final class StandardModel implements Model {
     }
 
     public void apply(Instance instance) {
+        if (instance.hasLines()) {
+            LineTable lines = instance.getLines();
+            instance.setMeasurement(Metric.LINE_COVERAGE, lines.getLineCoverage());
+            instance.setMeasurement(Metric.BRANCH_COVERAGE, lines.getBranchCoverage());
+            return;
+        }
         int lineCount = 0;
         int lineCover = 0;
         int branchCount = 0;
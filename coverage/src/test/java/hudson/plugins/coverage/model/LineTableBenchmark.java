@@ -0,0 +1,164 @@
+package hudson.plugins.coverage.model;
+
+import hudson.plugins.coverage.model.measurements.BranchCoverage;
+import hudson.plugins.coverage.model.measurements.LineCoverage;
+import org.codehaus.stax2.XMLInputFactory2;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the heap footprint and aggregation time of {@linkplain LineDetail} maps and {@linkplain LineTable}s built
+ * from cobertura results.
+ * <p/>
+ * Not a unit test, run it by hand:
+ * <pre>
+ * java -cp ... hudson.plugins.coverage.model.LineTableBenchmark [coverage.xml] [copies]
+ * </pre>
+ */
+public final class LineTableBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    private LineTableBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        InputStream in = args.length > 0
+                ? new FileInputStream(new File(args[0]))
+                : LineTableBenchmark.class.getResourceAsStream("/hudson/plugins/coverage/impl/cobertura-coverage.xml");
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        List<int[]> lines;
+        try {
+            lines = readClassLines(in);
+        } finally {
+            in.close();
+        }
+        System.out.println(lines.size() + " lines per copy, " + copies + " copies");
+
+        long before = usedMemory();
+        List<Map<Integer, LineDetail>> details = new ArrayList<Map<Integer, LineDetail>>(copies);
+        for (int i = 0; i < copies; i++) {
+            details.add(toDetails(lines));
+        }
+        long detailBytes = usedMemory() - before;
+
+        before = usedMemory();
+        List<LineTable> tables = new ArrayList<LineTable>(copies);
+        for (int i = 0; i < copies; i++) {
+            tables.add(toTable(lines));
+        }
+        long tableBytes = usedMemory() - before;
+
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int n = 0; n < ITERATIONS; n++) {
+            for (Map<Integer, LineDetail> detail : details) {
+                int count = 0;
+                int cover = 0;
+                for (LineDetail line : detail.values()) {
+                    count++;
+                    if (line.isTouched()) {
+                        cover++;
+                    }
+                }
+                checksum += new LineCoverage(count, cover).getCover();
+            }
+        }
+        long detailNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int n = 0; n < ITERATIONS; n++) {
+            for (LineTable table : tables) {
+                checksum += table.getLineCoverage().getCover();
+                BranchCoverage branches = table.getBranchCoverage();
+                checksum += branches.getCover();
+            }
+        }
+        long tableNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println("LineDetail map: " + detailBytes / 1024 + " KiB, " + detailNanos / 1000 + " us/aggregation");
+        System.out.println("LineTable:      " + tableBytes / 1024 + " KiB, " + tableNanos / 1000 + " us/aggregation");
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    /**
+     * Reads the class level lines of a cobertura report as {number, hits, covered branches, branches}.
+     */
+    private static List<int[]> readClassLines(InputStream in) throws Exception {
+        XMLInputFactory factory = XMLInputFactory2.newInstance();
+        XMLStreamReader r = factory.createXMLStreamReader(in);
+        List<int[]> result = new ArrayList<int[]>();
+        boolean inMethod = false;
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("method".equals(r.getLocalName())) {
+                    inMethod = true;
+                } else if (!inMethod && "line".equals(r.getLocalName())) {
+                    int covered = 0;
+                    int branches = 0;
+                    String conditions = r.getAttributeValue(null, "condition-coverage");
+                    if (conditions != null && conditions.indexOf('(') >= 0) {
+                        String ratio = conditions.substring(conditions.indexOf('(') + 1, conditions.indexOf(')'));
+                        covered = Integer.parseInt(ratio.substring(0, ratio.indexOf('/')));
+                        branches = Integer.parseInt(ratio.substring(ratio.indexOf('/') + 1));
+                    }
+                    result.add(new int[]{
+                            Integer.parseInt(r.getAttributeValue(null, "number")),
+                            Integer.parseInt(r.getAttributeValue(null, "hits")),
+                            covered,
+                            branches});
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "method".equals(r.getLocalName())) {
+                inMethod = false;
+            }
+        }
+        r.close();
+        return result;
+    }
+
+    private static Map<Integer, LineDetail> toDetails(List<int[]> lines) {
+        Map<Integer, LineDetail> result = new TreeMap<Integer, LineDetail>();
+        for (int[] line : lines) {
+            LineDetail detail = new LineDetail(line[3]);
+            if (line[3] == 0) {
+                detail.touch(line[1]);
+            } else {
+                for (int b = 0; b < line[2]; b++) {
+                    detail.touch(b, 1);
+                }
+            }
+            result.put(line[0], detail);
+        }
+        return result;
+    }
+
+    private static LineTable toTable(List<int[]> lines) {
+        LineTable result = new LineTable(lines.isEmpty() ? 0 : lines.get(lines.size() - 1)[0]);
+        for (int[] line : lines) {
+            result.touch(line[0], line[1]);
+            if (line[3] > 0) {
+                result.touchBranches(line[0], line[2], line[3]);
+            }
+        }
+        return result;
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
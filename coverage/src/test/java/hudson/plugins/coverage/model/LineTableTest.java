@@ -0,0 +1,75 @@
+package hudson.plugins.coverage.model;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link LineTable}.
+ */
+public class LineTableTest extends TestCase {
+
+    public void testEmpty() throws Exception {
+        LineTable table = new LineTable();
+        assertTrue(table.isEmpty());
+        assertEquals(-1, table.getMaxLine());
+        assertFalse(table.isInstrumented(3));
+        assertEquals(0, table.getLineCoverage().getCount());
+        assertEquals(100f, table.getLineCoverage().getPercentValue());
+    }
+
+    public void testMatchesLineDetail() throws Exception {
+        LineTable table = new LineTable(2);
+        table.touch(1, 0);
+        table.touch(500, 3);
+        table.touchBranches(501, 1, 2);
+        table.touch(501, 4);
+
+        LineDetail plain = new LineDetail(0);
+        plain.touch(3);
+        assertEquals(plain.isTouched(), table.isTouched(500));
+        assertEquals(plain.isCovered(), table.isCovered(500));
+        assertEquals(plain.getLineCount(), table.getLineCount(500));
+        assertEquals(plain.getBranchCoverage(), table.getBranchCoverage(500));
+
+        LineDetail branched = new LineDetail(2);
+        branched.touch(0, 4);
+        assertEquals(branched.isTouched(), table.isTouched(501));
+        assertEquals(branched.isCovered(), table.isCovered(501));
+        assertEquals(branched.getLineCount(), table.getLineCount(501));
+        assertEquals(branched.getBranchCoverage(), table.getBranchCoverage(501));
+
+        assertTrue(table.isInstrumented(1));
+        assertFalse(table.isTouched(1));
+        assertFalse(table.isInstrumented(2));
+        assertEquals(3, table.size());
+        assertEquals(501, table.getMaxLine());
+    }
+
+    public void testTotals() throws Exception {
+        LineTable table = new LineTable();
+        table.touch(10, 0);
+        table.touch(11, 2);
+        table.touchBranches(11, 1, 2);
+        table.touchBranches(12, 2, 2);
+
+        assertEquals(3, table.getLineCoverage().getCount());
+        assertEquals(1, table.getLineCoverage().getCover());
+        assertEquals(4, table.getBranchCoverage().getCount());
+        assertEquals(3, table.getBranchCoverage().getCover());
+    }
+
+    public void testAddAll() throws Exception {
+        LineTable a = new LineTable();
+        a.touch(5, 1);
+        a.touchBranches(6, 0, 2);
+        LineTable b = new LineTable();
+        b.touch(5, 2);
+        b.touchBranches(6, 2, 2);
+        b.touch(7, 0);
+
+        a.addAll(b);
+        assertEquals(3, a.size());
+        assertEquals(3, a.getLineCount(5));
+        assertEquals(2, a.getCoveredBranchCount(6));
+        assertTrue(a.isInstrumented(7));
+    }
+}
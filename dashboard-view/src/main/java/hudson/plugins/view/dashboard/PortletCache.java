@@ -0,0 +1,319 @@
+package hudson.plugins.view.dashboard;
+
+import hudson.Extension;
+import hudson.model.BallColor;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.view.dashboard.stats.StatJobs.HealthStatus;
+import hudson.plugins.view.dashboard.test.TestResult;
+import hudson.plugins.view.dashboard.test.TestUtil;
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.tasks.test.TestResultProjectAction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Data shown by the portlets, per job, so that a dashboard is rendered without
+ * going through all the builds of its jobs.
+ *
+ * The data of a job is computed from its builds the first time it is needed,
+ * then kept up to date as builds complete or are deleted.
+ */
+public final class PortletCache {
+
+	/**
+	 * Number of latest builds kept per job
+	 */
+	public static final int LATEST_BUILDS = 10;
+
+	/**
+	 * Weak keys, so that deleted jobs are forgotten. The data must not refer to
+	 * its job. The lock on the map is only held to look up a holder.
+	 */
+	private static final Map<Job, Holder> cache = new WeakHashMap<Job, Holder>();
+
+	private PortletCache() {
+	}
+
+	/**
+	 * Data of a job, and the lock guarding it, so that computing the data of a
+	 * job with many builds doesn't hold up the other jobs.
+	 */
+	private static final class Holder {
+		private JobData data;
+	}
+
+	private static final class BuildRef {
+		private final int number;
+
+		BuildRef(Run run) {
+			this.number = run.getNumber();
+		}
+	}
+
+	private static final class JobData {
+		/** Number of finished builds per color */
+		private final Map<BallColor, Integer> buildColors = new HashMap<BallColor, Integer>();
+
+		/** Latest finished builds, the most recent first */
+		private final LinkedList<BuildRef> latestBuilds = new LinkedList<BuildRef>();
+
+		/** Test result of the last build of each day, with the build number */
+		private final SortedMap<LocalDate, TestResult> days = new TreeMap<LocalDate, TestResult>();
+		private final Map<LocalDate, Integer> dayBuilds = new HashMap<LocalDate, Integer>();
+
+		/** Test result of the last successful build with tests, or null */
+		private TestResult lastTestResult;
+
+		/** Computed on demand, null when unknown */
+		private HealthStatus health;
+
+		/**
+		 * Builds counted while still building, with the color they were counted
+		 * with. Their completion may be notified afterwards, maybe with another
+		 * result.
+		 */
+		private final Map<Integer, BallColor> building = new HashMap<Integer, BallColor>();
+
+		JobData(Job job) {
+			// from the most recent build. A build is still building for a while
+			// after its completion is notified, so it is counted once its result
+			// is set
+			for (Run run : (List<Run>) job.getBuilds()) {
+				Result result = run.getResult();
+				if (result == null) {
+					continue;
+				}
+				if (run.isBuilding()) {
+					building.put(run.getNumber(), result.color);
+				}
+				addColor(result.color, 1);
+				if (latestBuilds.size() < LATEST_BUILDS) {
+					latestBuilds.addLast(new BuildRef(run));
+				}
+				LocalDate day = new LocalDate(run.getTimestamp());
+				if (!days.containsKey(day)) {
+					putDay(day, run);
+				}
+			}
+
+			TestResultProjectAction testResults = job.getAction(TestResultProjectAction.class);
+			if (testResults != null) {
+				AbstractTestResultAction tra = testResults.getLastTestResultAction();
+				if (tra != null) {
+					lastTestResult = new TestResult(null, tra.getTotalCount(), tra.getFailCount(), tra.getSkipCount());
+				}
+			}
+		}
+
+		void onCompleted(Run run) {
+			BallColor counted = building.remove(run.getNumber());
+			if (counted != null) {
+				addColor(counted, -1);
+				removeLatest(run.getNumber());
+			}
+			addColor(run.getResult().color, 1);
+
+			latestBuilds.addFirst(new BuildRef(run));
+			if (latestBuilds.size() > LATEST_BUILDS) {
+				latestBuilds.removeLast();
+			}
+
+			putDay(new LocalDate(run.getTimestamp()), run);
+
+			if (run.getResult().isBetterOrEqualTo(Result.UNSTABLE)) {
+				AbstractTestResultAction tra = run.getAction(AbstractTestResultAction.class);
+				if (tra != null) {
+					lastTestResult = new TestResult(null, tra.getTotalCount(), tra.getFailCount(), tra.getSkipCount());
+				}
+			}
+
+			health = null;
+		}
+
+		void onDeleted(Run run) {
+			addColor(run.getResult().color, -1);
+
+			removeLatest(run.getNumber());
+
+			// Builds are deleted from the oldest, so the other builds of the day are
+			// usually already gone
+			LocalDate day = new LocalDate(run.getTimestamp());
+			Integer dayBuild = dayBuilds.get(day);
+			if (dayBuild != null && dayBuild.intValue() == run.getNumber()) {
+				days.remove(day);
+				dayBuilds.remove(day);
+			}
+
+			health = null;
+		}
+
+		private void removeLatest(int number) {
+			for (Iterator<BuildRef> it = latestBuilds.iterator(); it.hasNext();) {
+				if (it.next().number == number) {
+					it.remove();
+				}
+			}
+		}
+
+		private void addColor(BallColor color, int count) {
+			Integer current = buildColors.get(color);
+			buildColors.put(color, (current != null ? current : 0) + count);
+		}
+
+		private void putDay(LocalDate day, Run run) {
+			TestResult result = TestUtil.getTestResult(run);
+			days.put(day, new TestResult(null, result.getTests(), result.getFailed(), result.getSkipped()));
+			dayBuilds.put(day, run.getNumber());
+		}
+	}
+
+	private static Holder getHolder(Job job) {
+		synchronized (cache) {
+			Holder holder = cache.get(job);
+			if (holder == null) {
+				holder = new Holder();
+				cache.put(job, holder);
+			}
+			return holder;
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock on the holder.
+	 */
+	private static JobData get(Job job, Holder holder) {
+		if (holder.data == null) {
+			holder.data = new JobData(job);
+		}
+		return holder.data;
+	}
+
+	/**
+	 * Number of finished builds of the job, per color.
+	 */
+	public static Map<BallColor, Integer> getBuildColors(Job job) {
+		Holder holder = getHolder(job);
+		synchronized (holder) {
+			return new HashMap<BallColor, Integer>(get(job, holder).buildColors);
+		}
+	}
+
+	/**
+	 * Latest finished builds of the job, at most {@link #LATEST_BUILDS}, the most
+	 * recent first.
+	 */
+	public static List<Run> getLatestBuilds(Job job) {
+		List<BuildRef> refs;
+		Holder holder = getHolder(job);
+		synchronized (holder) {
+			refs = new ArrayList<BuildRef>(get(job, holder).latestBuilds);
+		}
+		List<Run> builds = new ArrayList<Run>();
+		for (BuildRef ref : refs) {
+			Run run = job.getBuildByNumber(ref.number);
+			if (run != null) {
+				builds.add(run);
+			}
+		}
+		return builds;
+	}
+
+	/**
+	 * Test result of the last build of each day the job was built.
+	 */
+	public static SortedMap<LocalDate, TestResult> getDailyTestResults(Job job) {
+		SortedMap<LocalDate, TestResult> results = new TreeMap<LocalDate, TestResult>();
+		Holder holder = getHolder(job);
+		synchronized (holder) {
+			for (Entry<LocalDate, TestResult> entry : get(job, holder).days.entrySet()) {
+				TestResult result = entry.getValue();
+				results.put(entry.getKey(), new TestResult(job, result.getTests(), result.getFailed(), result.getSkipped()));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Test result of the last successful build with tests, or null.
+	 */
+	public static TestResult getLastTestResult(Job job) {
+		Holder holder = getHolder(job);
+		synchronized (holder) {
+			TestResult result = get(job, holder).lastTestResult;
+			return result != null ? new TestResult(job, result.getTests(), result.getFailed(), result.getSkipped()) : null;
+		}
+	}
+
+	public static HealthStatus getHealthStatus(Job job) {
+		Holder holder = getHolder(job);
+		synchronized (holder) {
+			JobData data = get(job, holder);
+			if (data.health == null) {
+				data.health = HealthStatus.getHealthStatus(job);
+			}
+			return data.health;
+		}
+	}
+
+	/**
+	 * Keeps the data of the jobs already in the cache up to date. A build
+	 * completing while the data of its job is computed waits for it.
+	 */
+	@Extension
+	public static final class RunListenerImpl extends RunListener<Run> {
+
+		public RunListenerImpl() {
+			super(Run.class);
+		}
+
+		@Override
+		public void onCompleted(Run run, TaskListener listener) {
+			Holder holder = getCachedHolder(run.getParent());
+			if (holder == null) {
+				return;
+			}
+			synchronized (holder) {
+				if (holder.data != null) {
+					holder.data.onCompleted(run);
+				}
+			}
+		}
+
+		@Override
+		public void onDeleted(Run run) {
+			if (run.getResult() == null) {
+				return;
+			}
+			Holder holder = getCachedHolder(run.getParent());
+			if (holder == null) {
+				return;
+			}
+			synchronized (holder) {
+				if (holder.data != null) {
+					holder.data.onDeleted(run);
+				}
+			}
+		}
+
+		private static Holder getCachedHolder(Job job) {
+			synchronized (cache) {
+				return cache.get(job);
+			}
+		}
+	}
+}
@@ -7,6 +7,7 @@ import hudson.model.Job;
 import hudson.model.Run;
 import hudson.model.TopLevelItem;
 import hudson.plugins.view.dashboard.DashboardPortlet;
+import hudson.plugins.view.dashboard.PortletCache;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,7 +26,7 @@ public class LatestBuilds extends DashboardPortlet{
 	/**
 	 * Number of latest builds which will be displayed on the screen
 	 */
-	private static final int N_LATEST_JOBS = 10;
+	private static final int N_LATEST_JOBS = PortletCache.LATEST_BUILDS;
 	
 	/**
 	 * Last <code>N_LATEST_BUILDS</code> builds
@@ -36,8 +37,7 @@ public class LatestBuilds extends DashboardPortlet{
 		List<Run> allBuilds = new ArrayList<Run>();
 		for (TopLevelItem job : jobs) {
 			if (job instanceof Job) {
-				List<Run> builds = ((Job) job).getBuilds();
-				allBuilds.addAll(builds);
+				allBuilds.addAll(PortletCache.getLatestBuilds((Job) job));
 			}
 		}
 		Collections.sort(allBuilds, Run.ORDER_BY_DATE);
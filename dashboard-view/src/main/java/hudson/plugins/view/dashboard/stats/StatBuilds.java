@@ -5,9 +5,9 @@ import hudson.model.BallColor;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
 import hudson.model.Job;
-import hudson.model.Run;
 import hudson.model.TopLevelItem;
 import hudson.plugins.view.dashboard.DashboardPortlet;
+import hudson.plugins.view.dashboard.PortletCache;
 
 import java.util.Collection;
 import java.util.List;
@@ -39,20 +39,20 @@ public class StatBuilds extends DashboardPortlet{
 		//loop over jobs
 		for (TopLevelItem job : jobs) {
 			if (job instanceof Job) {
-				// Build statistics
-				List<Run> builds = ((Job) job).getBuilds();
+				// Build statistics, the builds are counted by PortletCache
+				Map<BallColor, Integer> builds = PortletCache.getBuildColors((Job) job);
 				if (builds.isEmpty()) {
 					colStatBuilds.put(BallColor.GREY.noAnime(), colStatBuilds
 							.get(BallColor.GREY) + 1);
 					nBuilds++;
 				} else {
-					//loop over builds
-					for (Run build : builds) {
-						BallColor bColor = build.getIconColor();
+					//loop over colors
+					for (Map.Entry<BallColor, Integer> build : builds.entrySet()) {
+						BallColor bColor = build.getKey();
 						if(bColor != null && bColor.noAnime() != null && colStatBuilds.get(bColor) != null){
 							colStatBuilds.put(bColor.noAnime(), colStatBuilds
-								.get(bColor) + 1);
-							nBuilds++;
+								.get(bColor) + build.getValue());
+							nBuilds += build.getValue();
 						}
 					}
 				}
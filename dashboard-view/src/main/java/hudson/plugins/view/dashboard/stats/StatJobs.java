@@ -7,6 +7,7 @@ import hudson.model.Hudson;
 import hudson.model.Job;
 import hudson.model.TopLevelItem;
 import hudson.plugins.view.dashboard.DashboardPortlet;
+import hudson.plugins.view.dashboard.PortletCache;
 
 import java.util.List;
 import java.util.Map;
@@ -50,7 +51,7 @@ public class StatJobs extends DashboardPortlet{
 		
 		public static HealthStatus getHealthStatus(Job job){
 			int score = job.getBuildHealth().getScore();
-			int nBuilds = job.getBuilds().size();
+			boolean hasBuilds = job.getLastBuild() != null;
 			if (score < 20) {
                 return HEALTH_0_TO_19;
             } else if (score < 40) {
@@ -60,7 +61,7 @@ public class StatJobs extends DashboardPortlet{
             } else if (score < 80) {
                 return HEALTH_60_TO_79;
             } else if (score >= 79){
-            	if(nBuilds != 0)
+            	if(hasBuilds)
             		return HEALTH_OVER_80;
             	else
             		return HEALTH_UNKNOWN;
@@ -100,7 +101,7 @@ public class StatJobs extends DashboardPortlet{
 		// Job and build statistics
 		for (TopLevelItem job : jobs) {
 			if (job instanceof Job) {
-				HealthStatus status = HealthStatus.getHealthStatus(((Job) job)); 
+				HealthStatus status = PortletCache.getHealthStatus(((Job) job));
 				colStatJobs.put(status, colStatJobs.get(status) + 1);
 			}
 		}
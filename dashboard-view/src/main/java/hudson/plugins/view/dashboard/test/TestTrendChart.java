@@ -3,8 +3,8 @@ package hudson.plugins.view.dashboard.test;
 import hudson.Extension;
 import hudson.model.Descriptor;
 import hudson.model.Job;
-import hudson.model.Run;
 import hudson.plugins.view.dashboard.DashboardPortlet;
+import hudson.plugins.view.dashboard.PortletCache;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
 import hudson.util.Graph;
@@ -12,8 +12,13 @@ import hudson.util.ShiftedCategoryAxis;
 import hudson.util.StackedAreaRenderer2;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
@@ -25,7 +30,6 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.renderer.category.StackedAreaRenderer;
 import org.jfree.data.category.CategoryDataset;
 import org.jfree.ui.RectangleInsets;
-import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -40,49 +44,19 @@ public class TestTrendChart extends DashboardPortlet {
 	 * Graph of duration of tests over time.
 	 */
 	public Graph getSummaryGraph() {		
-		// find the first test execution
-		DateTime first = new DateTime();
+		// test results of the last build of each day, per job
+		List<SortedMap<LocalDate, TestResult>> jobDays = new ArrayList<SortedMap<LocalDate, TestResult>>();
 		
 		for (Job job : getDashboard().getJobs()) {
-			Run firstRun = job.getFirstBuild();
+			SortedMap<LocalDate, TestResult> days = PortletCache.getDailyTestResults(job);
 			
-			if (firstRun != null) {
-				DateTime date = new DateTime(firstRun.getTimestamp());
-				
-				if (date.isBefore(first)) {
-					first = date;
-				}
+			if (!days.isEmpty()) {
+				jobDays.add(days);
 			}
 		}
 		
 		// hold onto summaries
-		final Map<LocalDate, TestResultSummary> summaries = new HashMap<LocalDate, TestResultSummary>();
-		LocalDate firstDay = new LocalDate(first);
-		LocalDate today = new LocalDate();
-		
-		// for each job, for each day, add to summary
-		for (Job job : getDashboard().getJobs()) {
-			Run run = job.getFirstBuild();
-			LocalDate lastRunDay = firstDay;
-			
-			while (run != null) {
-				Run nextRun = run.getNextBuild();
-				
-				if (nextRun != null) {
-					LocalDate runDay = new LocalDate(run.getTimestamp());
-					// if next run is the next day, use this test to summarize
-					if (new LocalDate(nextRun.getTimestamp()).isAfter(runDay)) {
-						summarize(summaries, run, lastRunDay, runDay);
-						lastRunDay = runDay.plusDays(1);
-					}
-				} else {
-					// use this run's test result from last run to today
-					summarize(summaries, run, lastRunDay, today);
-				}
-				
-				run = nextRun;
-			}
-		}
+		final Map<LocalDate, TestResultSummary> summaries = summarizeDays(jobDays, new LocalDate());
 		
 		return new Graph(-1, 300, 220) {
 
@@ -145,21 +119,50 @@ public class TestTrendChart extends DashboardPortlet {
         return dsb.build();
     }
 	
-	private void summarize(Map<LocalDate, TestResultSummary> summaries,
-			Run run, LocalDate firstDay, LocalDate lastDay) {
-		TestResult testResult = TestUtil.getTestResult(run);
+	/**
+	 * Sums the test results of the jobs for each day, from the first day a job
+	 * was built to today.
+	 * 
+	 * @param jobDays test results of the last build of each day, per job, none empty
+	 */
+	static Map<LocalDate, TestResultSummary> summarizeDays(Collection<SortedMap<LocalDate, TestResult>> jobDays, LocalDate today) {
+		// find the first test execution
+		LocalDate firstDay = today;
+		for (SortedMap<LocalDate, TestResult> days : jobDays) {
+			if (days.firstKey().isBefore(firstDay)) {
+				firstDay = days.firstKey();
+			}
+		}
+		
+		Map<LocalDate, TestResultSummary> summaries = new HashMap<LocalDate, TestResultSummary>();
 		
-		// for every day between first day and last day inclusive
-		for (LocalDate curr = firstDay; curr.compareTo(lastDay) <= 0; curr = curr.plusDays(1)) {
-			TestResultSummary trs = summaries.get(curr);
+		// for each job, for each day, add to summary
+		for (SortedMap<LocalDate, TestResult> days : jobDays) {
+			Iterator<Map.Entry<LocalDate, TestResult>> it = days.entrySet().iterator();
+			Map.Entry<LocalDate, TestResult> day = it.next();
 			
-			if (trs == null) {
-				trs = new TestResultSummary();
-				summaries.put(curr, trs);
+			// a day without build uses the test result of the next day with one,
+			// the days after the last build use the last test result
+			for (LocalDate curr = firstDay; curr.compareTo(today) <= 0; curr = curr.plusDays(1)) {
+				while (curr.isAfter(day.getKey()) && it.hasNext()) {
+					day = it.next();
+				}
+				summarize(summaries, day.getValue(), curr);
 			}
-			
-			trs.addTestResult(testResult);
 		}
+		return summaries;
+	}
+	
+	private static void summarize(Map<LocalDate, TestResultSummary> summaries,
+			TestResult testResult, LocalDate day) {
+		TestResultSummary trs = summaries.get(day);
+		
+		if (trs == null) {
+			trs = new TestResultSummary();
+			summaries.put(day, trs);
+		}
+		
+		trs.addTestResult(testResult);
 	}
 
 	@Extension
@@ -2,8 +2,8 @@ package hudson.plugins.view.dashboard.test;
 
 import hudson.model.Job;
 import hudson.model.Run;
+import hudson.plugins.view.dashboard.PortletCache;
 import hudson.tasks.junit.TestResultAction;
-import hudson.tasks.test.AbstractTestResultAction;
 import hudson.tasks.test.TestResultProjectAction;
 
 import java.util.Collection;
@@ -25,11 +25,12 @@ public class TestUtil {
 			TestResultProjectAction testResults = job.getAction(TestResultProjectAction.class);
 			
 			if (testResults != null) {
-				AbstractTestResultAction tra = testResults.getLastTestResultAction();
+				// the last test result is kept by PortletCache, not to load it on every render
+				TestResult testResult = PortletCache.getLastTestResult(job);
 				
-				if (tra != null) {
+				if (testResult != null) {
 					addBlank = false;
-					summary.addTestResult(new TestResult(job, tra.getTotalCount(), tra.getFailCount(), tra.getSkipCount()));
+					summary.addTestResult(testResult);
 				}
 			}
 			
@@ -0,0 +1,111 @@
+package hudson.plugins.view.dashboard;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BallColor;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.jvnet.hudson.test.HudsonTestCase;
+import org.jvnet.hudson.test.TestBuilder;
+
+public class PortletCacheTest extends HudsonTestCase {
+
+  public void testCompletedAndDeletedBuilds() throws Exception {
+    FreeStyleProject project = createFreeStyleProject();
+    FreeStyleBuild first = project.scheduleBuild2(0).get();
+    assertEquals(Integer.valueOf(1), PortletCache.getBuildColors(project).get(BallColor.BLUE));
+
+    // the data is now cached, and kept up to date
+    project.getBuildersList().add(new FailingBuilder());
+    FreeStyleBuild second = project.scheduleBuild2(0).get();
+    Map<BallColor, Integer> colors = PortletCache.getBuildColors(project);
+    assertEquals(Integer.valueOf(1), colors.get(BallColor.BLUE));
+    assertEquals(Integer.valueOf(1), colors.get(BallColor.RED));
+    assertEquals(Arrays.asList(second, first), PortletCache.getLatestBuilds(project));
+    assertEquals(1, PortletCache.getDailyTestResults(project).size());
+
+    second.delete();
+    colors = PortletCache.getBuildColors(project);
+    assertEquals(Integer.valueOf(1), colors.get(BallColor.BLUE));
+    assertEquals(Integer.valueOf(0), colors.get(BallColor.RED));
+    assertEquals(Arrays.asList(first), PortletCache.getLatestBuilds(project));
+  }
+
+  public void testLatestBuildsAreLimited() throws Exception {
+    FreeStyleProject project = createFreeStyleProject();
+    PortletCache.getBuildColors(project);
+    for (int i = 0; i <= PortletCache.LATEST_BUILDS; i++) {
+      project.scheduleBuild2(0).get();
+    }
+    assertEquals(PortletCache.LATEST_BUILDS, PortletCache.getLatestBuilds(project).size());
+    assertEquals(project.getLastBuild(), PortletCache.getLatestBuilds(project).get(0));
+    assertEquals(Integer.valueOf(PortletCache.LATEST_BUILDS + 1),
+        PortletCache.getBuildColors(project).get(BallColor.BLUE));
+  }
+
+  /**
+   * The data is computed while the build is running, once its result is set,
+   * and its completion is notified afterwards with another result.
+   */
+  public void testBuildCountedWhileBuildingIsNotCountedTwice() throws Exception {
+    FreeStyleProject project = createFreeStyleProject();
+    project.getBuildersList().add(new TestBuilder() {
+      public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
+        build.setResult(Result.UNSTABLE);
+        Map<BallColor, Integer> colors = PortletCache.getBuildColors(build.getProject());
+        assertEquals(Integer.valueOf(1), colors.get(BallColor.YELLOW));
+        return false;
+      }
+    });
+    FreeStyleBuild build = project.scheduleBuild2(0).get();
+    assertEquals(Result.FAILURE, build.getResult());
+
+    Map<BallColor, Integer> colors = PortletCache.getBuildColors(project);
+    assertEquals(Integer.valueOf(0), colors.get(BallColor.YELLOW));
+    assertEquals(Integer.valueOf(1), colors.get(BallColor.RED));
+    assertEquals(Arrays.asList(build), PortletCache.getLatestBuilds(project));
+  }
+
+  /**
+   * The data is computed after the completion of the build is notified, while
+   * it is still building.
+   */
+  public void testBuildCompletedBeforeItsJobIsComputed() throws Exception {
+    FreeStyleProject project = createFreeStyleProject();
+    final boolean[] building = new boolean[1];
+    RunListener<Run> listener = new RunListener<Run>(Run.class) {
+      @Override
+      public void onCompleted(Run run, TaskListener listener) {
+        building[0] = run.isBuilding();
+        PortletCache.getBuildColors(run.getParent());
+      }
+    };
+    listener.register();
+    FreeStyleBuild build;
+    try {
+      build = project.scheduleBuild2(0).get();
+    } finally {
+      listener.unregister();
+    }
+    assertTrue(building[0]);
+
+    assertEquals(Integer.valueOf(1), PortletCache.getBuildColors(project).get(BallColor.BLUE));
+    assertEquals(Arrays.asList(build), PortletCache.getLatestBuilds(project));
+    assertEquals(1, PortletCache.getDailyTestResults(project).size());
+  }
+
+  private static final class FailingBuilder extends TestBuilder {
+    public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
+      return false;
+    }
+  }
+}
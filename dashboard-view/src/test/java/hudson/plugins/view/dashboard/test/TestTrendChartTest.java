@@ -0,0 +1,69 @@
+package hudson.plugins.view.dashboard.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.joda.time.LocalDate;
+
+public class TestTrendChartTest extends TestCase {
+
+  private static final LocalDate TODAY = new LocalDate(2010, 3, 10);
+
+  public void testDaysWithoutBuildUseTheNextBuild() {
+    SortedMap<LocalDate, TestResult> days = new TreeMap<LocalDate, TestResult>();
+    days.put(new LocalDate(2010, 3, 6), new TestResult(null, 10, 1, 0));
+    days.put(new LocalDate(2010, 3, 8), new TestResult(null, 12, 2, 1));
+
+    Map<LocalDate, TestResultSummary> summaries = TestTrendChart.summarizeDays(
+        Collections.singletonList(days), TODAY);
+    assertEquals(5, summaries.size());
+    assertEquals(10, summaries.get(new LocalDate(2010, 3, 6)).getTests());
+    assertEquals(12, summaries.get(new LocalDate(2010, 3, 7)).getTests());
+    assertEquals(2, summaries.get(new LocalDate(2010, 3, 8)).getFailed());
+    // after the last build
+    assertEquals(12, summaries.get(new LocalDate(2010, 3, 9)).getTests());
+    assertEquals(1, summaries.get(TODAY).getSkipped());
+    assertEquals(9, summaries.get(TODAY).getSuccess());
+  }
+
+  public void testJobsAreSummedFromTheFirstDayOfAnyJob() {
+    SortedMap<LocalDate, TestResult> first = new TreeMap<LocalDate, TestResult>();
+    first.put(new LocalDate(2010, 3, 6), new TestResult(null, 10, 0, 0));
+    SortedMap<LocalDate, TestResult> second = new TreeMap<LocalDate, TestResult>();
+    second.put(new LocalDate(2010, 3, 9), new TestResult(null, 5, 1, 0));
+    List<SortedMap<LocalDate, TestResult>> jobDays = new ArrayList<SortedMap<LocalDate, TestResult>>();
+    jobDays.add(first);
+    jobDays.add(second);
+
+    Map<LocalDate, TestResultSummary> summaries = TestTrendChart.summarizeDays(jobDays, TODAY);
+    assertEquals(5, summaries.size());
+    // before its first build, a job counts with its first test result
+    for (LocalDate day = new LocalDate(2010, 3, 6); !day.isAfter(TODAY); day = day.plusDays(1)) {
+      assertEquals(15, summaries.get(day).getTests());
+      assertEquals(1, summaries.get(day).getFailed());
+      assertEquals(2, summaries.get(day).getTestResults().size());
+    }
+  }
+
+  public void testBuildsInTheFutureAreOnlyCountedUpToToday() {
+    SortedMap<LocalDate, TestResult> days = new TreeMap<LocalDate, TestResult>();
+    days.put(new LocalDate(2010, 3, 9), new TestResult(null, 10, 0, 0));
+    days.put(new LocalDate(2010, 3, 12), new TestResult(null, 20, 0, 0));
+
+    Map<LocalDate, TestResultSummary> summaries = TestTrendChart.summarizeDays(
+        Collections.singletonList(days), TODAY);
+    assertEquals(2, summaries.size());
+    assertEquals(20, summaries.get(TODAY).getTests());
+  }
+
+  public void testNoJob() {
+    List<SortedMap<LocalDate, TestResult>> none = Collections.emptyList();
+    assertTrue(TestTrendChart.summarizeDays(none, TODAY).isEmpty());
+  }
+}
@@ -26,6 +26,14 @@ public class BuildDiskUsageAction extends DiskUsageAction implements BuildBadgeA
      * @return Disk usage of the build (included child builds)
      */
     public DiskUsage getDiskUsage() {
+        if (DiskUsageIndex.isEnabled()) {
+            DiskUsage du = DiskUsageIndex.get().getDiskUsage(build);
+            if (du != null) {
+                return du;
+            }
+            //not measured yet, show what the build recorded
+        }
+
         DiskUsage du = (diskUsage != null) ? 
             new DiskUsage(diskUsage.buildUsage, diskUsage.wsUsage) :
             new DiskUsage(0,0);
@@ -0,0 +1,230 @@
+package hudson.plugins.disk_usage;
+
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.model.ItemGroup;
+import hudson.triggers.SafeTimerTask;
+import hudson.triggers.Trigger;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Disk usage of the builds and workspaces of all projects, kept in a single file.
+ *
+ * <p>
+ * Used in incremental mode: a build barely changes once it's over, so it is measured once,
+ * and its size is recorded here instead of in its build.xml. It is measured again only if its
+ * directory has changed since, e.g. when its artifacts or its log are deleted. A workspace is
+ * measured again only when its project has built since the last time.
+ */
+public class DiskUsageIndex {
+
+    /**
+     * Usage per project full name, not including nested projects.
+     */
+    private final Map<String, ProjectUsage> projects = new HashMap<String, ProjectUsage>();
+
+    private transient boolean saveScheduled;
+
+    private static DiskUsageIndex instance;
+
+    static final class ProjectUsage {
+        /** Build number -> size of the build directory */
+        final TreeMap<Integer, Long> builds = new TreeMap<Integer, Long>();
+        /** Build number -> size of the workspace, measured after that build */
+        final TreeMap<Integer, Long> workspaces = new TreeMap<Integer, Long>();
+        /** Build number -> when the build directory was measured */
+        TreeMap<Integer, Long> measured = new TreeMap<Integer, Long>();
+
+        private Object readResolve() {
+            if (measured == null) {
+                measured = new TreeMap<Integer, Long>();
+            }
+            return this;
+        }
+    }
+
+    /**
+     * @return True if disk usage is recorded here rather than in builds.
+     */
+    public static boolean isEnabled() {
+        return Hudson.getInstance().getDescriptorByType(DiskUsageProperty.DiskUsageDescriptor.class).isIncremental();
+    }
+
+    public static synchronized DiskUsageIndex get() {
+        if (instance == null) {
+            instance = load();
+        }
+        return instance;
+    }
+
+    /**
+     * @return The saved index, or an empty one.
+     */
+    static DiskUsageIndex load() {
+        XmlFile file = getFile();
+        if (file.exists()) {
+            try {
+                return (DiskUsageIndex) file.read();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Error when loading " + file, ex);
+            }
+        }
+        return new DiskUsageIndex();
+    }
+
+    private static XmlFile getFile() {
+        return new XmlFile(Hudson.XSTREAM, new File(Hudson.getInstance().getRootDir(), "disk-usage.xml"));
+    }
+
+    private ProjectUsage getProjectUsage(AbstractProject project, boolean create) {
+        ProjectUsage usage = projects.get(project.getFullName());
+        if (usage == null && create) {
+            usage = new ProjectUsage();
+            projects.put(project.getFullName(), usage);
+        }
+        return usage;
+    }
+
+    /**
+     * @return True if the build has been measured since its directory last changed.
+     */
+    public synchronized boolean isUpToDate(AbstractBuild build) {
+        ProjectUsage usage = getProjectUsage(build.getProject(), false);
+        if (usage == null || !usage.builds.containsKey(build.getNumber())) {
+            return false;
+        }
+        Long measured = usage.measured.get(build.getNumber());
+        return (measured != null) && (build.getRootDir().lastModified() <= measured);
+    }
+
+    /**
+     * @param measured When the measure started, anything changed later is measured again.
+     */
+    public synchronized void putBuild(AbstractBuild build, long size, long measured) {
+        ProjectUsage usage = getProjectUsage(build.getProject(), true);
+        usage.builds.put(build.getNumber(), size);
+        usage.measured.put(build.getNumber(), measured);
+    }
+
+    /**
+     * Forgets the builds that have been deleted.
+     */
+    public synchronized void retainBuilds(AbstractProject project, Collection<Integer> buildNumbers) {
+        ProjectUsage usage = getProjectUsage(project, false);
+        if (usage != null) {
+            usage.builds.keySet().retainAll(buildNumbers);
+            usage.measured.keySet().retainAll(buildNumbers);
+            //Keep the last workspace size, whatever happened to its build
+            if (usage.workspaces.size() > 1) {
+                Integer last = usage.workspaces.lastKey();
+                usage.workspaces.headMap(last).keySet().retainAll(buildNumbers);
+            }
+        }
+    }
+
+    /**
+     * @return Number of the build after which the workspace was last measured, or null.
+     */
+    public synchronized Integer getWorkspaceBuild(AbstractProject project) {
+        ProjectUsage usage = getProjectUsage(project, false);
+        return (usage == null || usage.workspaces.isEmpty()) ? null : usage.workspaces.lastKey();
+    }
+
+    public synchronized void putWorkspace(AbstractProject project, int buildNumber, long size) {
+        getProjectUsage(project, true).workspaces.put(buildNumber, size);
+    }
+
+    /**
+     * @return Disk usage of all builds of the project (including nested projects) and of its last workspace
+     */
+    public synchronized DiskUsage getDiskUsage(AbstractProject project) {
+        DiskUsage du = new DiskUsage(0, 0);
+        ProjectUsage usage = getProjectUsage(project, false);
+        if (usage != null) {
+            for (Long size : usage.builds.values()) {
+                du.buildUsage += size;
+            }
+            if (!usage.workspaces.isEmpty()) {
+                du.wsUsage = usage.workspaces.get(usage.workspaces.lastKey());
+            }
+        }
+
+        if (project instanceof ItemGroup) {
+            for (Object child : ((ItemGroup) project).getItems()) {
+                if (child instanceof AbstractProject) {
+                    du.buildUsage += getDiskUsage((AbstractProject) child).buildUsage;
+                }
+            }
+        }
+        return du;
+    }
+
+    /**
+     * @return Disk usage of the build (included child builds) and of the workspace after it,
+     *      or null if the build hasn't been measured.
+     */
+    public synchronized DiskUsage getDiskUsage(AbstractBuild build) {
+        ProjectUsage usage = getProjectUsage(build.getProject(), false);
+        if (usage == null || !usage.builds.containsKey(build.getNumber())) {
+            return null;
+        }
+        DiskUsage du = new DiskUsage(usage.builds.get(build.getNumber()), 0);
+
+        AbstractProject project = build.getProject();
+        if (project instanceof ItemGroup) {
+            AbstractBuild nextBuild = (AbstractBuild) build.getNextBuild();
+            int nextBuildNumber = (nextBuild != null) ? nextBuild.getNumber() : Integer.MAX_VALUE;
+            for (Object child : ((ItemGroup) project).getItems()) {
+                if (child instanceof AbstractProject) {
+                    ProjectUsage childUsage = getProjectUsage((AbstractProject) child, false);
+                    if (childUsage != null) {
+                        for (Long size : childUsage.builds.subMap(build.getNumber(), nextBuildNumber).values()) {
+                            du.buildUsage += size;
+                        }
+                    }
+                }
+            }
+        }
+
+        //In case the workspace wasn't measured after this build, refer to the previous result
+        SortedMap<Integer, Long> workspaces = usage.workspaces.headMap(build.getNumber() + 1);
+        if (!workspaces.isEmpty()) {
+            du.wsUsage = workspaces.get(workspaces.lastKey());
+        }
+        return du;
+    }
+
+    public synchronized void save() throws IOException {
+        saveScheduled = false;
+        getFile().write(this);
+    }
+
+    /**
+     * Saves the index a bit later, so that builds finishing together are saved at once.
+     */
+    public synchronized void saveLater() {
+        if (saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        Trigger.timer.schedule(new SafeTimerTask() {
+            protected void doRun() throws Exception {
+                save();
+            }
+        }, SAVE_DELAY);
+    }
+
+    private static final long SAVE_DELAY = 10 * 1000;
+
+    private static final Logger logger = Logger.getLogger(DiskUsageIndex.class.getName());
+}
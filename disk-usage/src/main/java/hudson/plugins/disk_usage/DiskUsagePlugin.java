@@ -105,6 +105,11 @@ public class DiskUsagePlugin extends Plugin {
     public static DiskUsage getDiskUsageSum() {
         return diskUsageSum;
     }
+
+    //Shortcut for the view
+    public static DiskUsageThread.ScanStatistics getLastScan() {
+        return DiskUsageThread.getLastScan();
+    }
     
     public void doRecordDiskUsage(StaplerRequest req, StaplerResponse res) throws ServletException, IOException {
         duThread.doRun();
@@ -32,6 +32,9 @@ public class DiskUsageProperty extends JobProperty<Job<?, ?>> {
         //Show graph on the project page?
         private boolean showGraph;
 
+        //Measure builds once and keep results in DiskUsageIndex?
+        private boolean incremental;
+
         @Override
         public String getDisplayName() {
             return "Disk usage";
@@ -46,6 +49,7 @@ public class DiskUsageProperty extends JobProperty<Job<?, ?>> {
         @Override
         public boolean configure(StaplerRequest req, JSONObject formData) throws FormException {
             showGraph = req.getParameter("disk_usage.showGraph") != null;
+            incremental = req.getParameter("disk_usage.incremental") != null;
             save();
             return super.configure(req, formData);
         }
@@ -63,6 +67,14 @@ public class DiskUsageProperty extends JobProperty<Job<?, ?>> {
         public void setShowGraph(Boolean showGraph) {
             this.showGraph = showGraph;
         }
+
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        public void setIncremental(Boolean incremental) {
+            this.incremental = incremental;
+        }
     }
 }
 
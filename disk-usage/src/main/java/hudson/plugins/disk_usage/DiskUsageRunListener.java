@@ -0,0 +1,59 @@
+package hudson.plugins.disk_usage;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.disk_usage.DiskUsageThread.DiskUsageCallable;
+import hudson.util.DaemonThreadFactory;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In incremental mode, measures a build once it is finalized, since it barely changes afterwards.
+ */
+@Extension
+public class DiskUsageRunListener extends RunListener<AbstractBuild> {
+
+    //one build at a time, not to slow down the builds still running
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+
+    public DiskUsageRunListener() {
+        super(AbstractBuild.class);
+    }
+
+    /**
+     * Adds the action showing the size of the build, before the build is saved for the last time.
+     */
+    @Override
+    public void onCompleted(AbstractBuild build, TaskListener listener) {
+        if (DiskUsageIndex.isEnabled() && (build.getAction(BuildDiskUsageAction.class) == null)) {
+            build.addAction(new BuildDiskUsageAction(build, 0, 0));
+        }
+    }
+
+    @Override
+    public void onFinalized(final AbstractBuild build) {
+        if (!DiskUsageIndex.isEnabled()) {
+            return;
+        }
+
+        executor.submit(new Runnable() {
+            public void run() {
+                try {
+                    DiskUsageIndex index = DiskUsageIndex.get();
+                    long measured = System.currentTimeMillis();
+                    index.putBuild(build, DiskUsageCallable.getFileSize(build.getRootDir()), measured);
+                    index.saveLater();
+                } catch (IOException ex) {
+                    logger.log(Level.WARNING, "Error when recording disk usage for " + build, ex);
+                }
+            }
+        });
+    }
+
+    private static final Logger logger = Logger.getLogger(DiskUsageRunListener.class.getName());
+}
@@ -11,10 +11,20 @@ import hudson.model.ItemGroup;
 import hudson.model.TaskListener;
 import hudson.model.TopLevelItem;
 import hudson.remoting.Callable;
+import hudson.util.DaemonThreadFactory;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -27,6 +37,15 @@ public class DiskUsageThread extends AsyncPeriodicWork {
     //trigger disk usage thread each 60 minutes
     public static final int COUNT_INTERVAL_MINUTES = 60;
 
+    /**
+     * Number of workspaces measured at the same time in incremental mode.
+     */
+    public static int WORKSPACE_THREADS = Integer.getInteger(DiskUsageThread.class.getName() + ".workspaceThreads", 4);
+
+    private static ExecutorService workspaceExecutor;
+
+    private static volatile ScanStatistics lastScan;
+
 
     public DiskUsageThread() {
         super("Project disk usage");
@@ -38,27 +57,29 @@ public class DiskUsageThread extends AsyncPeriodicWork {
 
     @Override
     protected void execute(TaskListener listener) throws IOException, InterruptedException {
-        List items = Hudson.getInstance().getItems();
-
-        //Include nested projects as well
-        //TODO fix MatrixProject and use getAllJobs()
-        for (TopLevelItem item : Hudson.getInstance().getItems()) {
-            if(item instanceof ItemGroup) {
-                items.addAll(((ItemGroup)item).getItems());
-            }
+        ScanStatistics stats = new ScanStatistics();
+        if (DiskUsageIndex.isEnabled()) {
+            executeIncremental(stats);
+        } else {
+            executeFull(stats);
         }
+        stats.end = System.currentTimeMillis();
+        lastScan = stats;
+    }
 
-        for (Object item : items) {
+    /**
+     * @return Statistics of the last completed scan, or null.
+     */
+    public static ScanStatistics getLastScan() {
+        return lastScan;
+    }
+
+    private void executeFull(ScanStatistics stats) throws IOException, InterruptedException {
+        for (Object item : getProjects()) {
             if (item instanceof AbstractProject) {
                 AbstractProject project = (AbstractProject) item;
-                if (project.getAction(ProjectDiskUsageAction.class) == null) {
-                    try {
-                        project.addProperty(new DiskUsageProperty());
-                        project.save();
-                    } catch (IOException ex) {
-                        logger.log(Level.WARNING, "Error when adding disk usage property for " + project.getName(), ex);
-                        break;
-                    }
+                if (!addProperty(project)) {
+                    break;
                 }
 
                 //well, this is not absolutely thread-safe, but in the worst case we get invalid result for one build
@@ -70,11 +91,11 @@ public class DiskUsageThread extends AsyncPeriodicWork {
                     try {
 
                         while (buildIterator.hasNext()) {
-                            calculateDiskUsageForBuild(buildIterator.next());
+                            stats.addBuild(calculateDiskUsageForBuild(buildIterator.next()));
                         }
 
                         //Assign workspace size to the last build
-                        calculateWorkspaceDiskUsage(project);
+                        calculateWorkspaceDiskUsage(project, stats);
 
                     } catch (Exception ex) {
                         logger.log(Level.WARNING, "Error when recording disk usage for " + project.getName(), ex);
@@ -84,7 +105,104 @@ public class DiskUsageThread extends AsyncPeriodicWork {
         }
     }
 
-    private static void calculateDiskUsageForBuild(AbstractBuild build)
+    /**
+     * Measures builds that are not in the index yet or have changed since, and the workspaces of the projects that have built since they were last measured.
+     * Workspaces are measured concurrently, so that a slow slave doesn't hold the others.
+     */
+    private void executeIncremental(ScanStatistics stats) throws IOException, InterruptedException {
+        DiskUsageIndex index = DiskUsageIndex.get();
+        List<Future<?>> workspaces = new ArrayList<Future<?>>();
+
+        for (Object item : getProjects()) {
+            if (item instanceof AbstractProject) {
+                AbstractProject project = (AbstractProject) item;
+                if (!addProperty(project)) {
+                    break;
+                }
+
+                //Builds are normally measured when they complete, this catches up with the others
+                Set<Integer> buildNumbers = new HashSet<Integer>();
+                for (AbstractBuild build : (List<AbstractBuild>) project.getBuilds()) {
+                    buildNumbers.add(build.getNumber());
+                    if (!build.isBuilding() && !index.isUpToDate(build)) {
+                        try {
+                            long measured = System.currentTimeMillis();
+                            long size = DiskUsageCallable.getFileSize(build.getRootDir());
+                            index.putBuild(build, size, measured);
+                            stats.addBuild(size);
+                            if (build.getAction(BuildDiskUsageAction.class) == null) {
+                                //built before the plugin was installed, the action shows the size from the index
+                                build.addAction(new BuildDiskUsageAction(build, 0, 0));
+                                build.save();
+                            }
+                        } catch (IOException ex) {
+                            logger.log(Level.WARNING, "Error when recording disk usage for " + build, ex);
+                        }
+                    }
+                }
+                index.retainBuilds(project, buildNumbers);
+
+                AbstractBuild lastBuild = (AbstractBuild) project.getLastBuild();
+                if (!project.isBuilding() && (lastBuild != null)
+                        && !Integer.valueOf(lastBuild.getNumber()).equals(index.getWorkspaceBuild(project))) {
+                    FilePath workspace = project.getSomeWorkspace();
+                    //slave might be offline...
+                    if (workspace != null) {
+                        workspaces.add(getWorkspaceExecutor().submit(
+                                new WorkspaceTask(project, lastBuild.getNumber(), workspace, stats)));
+                    }
+                }
+            }
+        }
+
+        for (Future<?> f : workspaces) {
+            try {
+                f.get();
+            } catch (ExecutionException ex) {
+                logger.log(Level.WARNING, "Error when recording workspace disk usage", ex.getCause());
+            }
+        }
+
+        index.save();
+    }
+
+    private static synchronized ExecutorService getWorkspaceExecutor() {
+        if (workspaceExecutor == null) {
+            workspaceExecutor = Executors.newFixedThreadPool(WORKSPACE_THREADS, new DaemonThreadFactory());
+        }
+        return workspaceExecutor;
+    }
+
+    private static List getProjects() {
+        List items = Hudson.getInstance().getItems();
+
+        //Include nested projects as well
+        //TODO fix MatrixProject and use getAllJobs()
+        for (TopLevelItem item : Hudson.getInstance().getItems()) {
+            if(item instanceof ItemGroup) {
+                items.addAll(((ItemGroup)item).getItems());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * @return false if the property couldn't be added
+     */
+    private boolean addProperty(AbstractProject project) {
+        if (project.getAction(ProjectDiskUsageAction.class) == null) {
+            try {
+                project.addProperty(new DiskUsageProperty());
+                project.save();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Error when adding disk usage property for " + project.getName(), ex);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long calculateDiskUsageForBuild(AbstractBuild build)
             throws IOException {
 
         //Build disk usage has to be always recalculated to be kept up-to-date 
@@ -99,9 +217,10 @@ public class DiskUsageThread extends AsyncPeriodicWork {
         }
 
         build.save();
+        return buildSize;
     }
     
-    private static void calculateWorkspaceDiskUsage(AbstractProject project) throws IOException, InterruptedException {
+    private static void calculateWorkspaceDiskUsage(AbstractProject project, ScanStatistics stats) throws IOException, InterruptedException {
         AbstractBuild lastBuild = (AbstractBuild) project.getLastBuild();
         if (lastBuild != null) {
             BuildDiskUsageAction bdua = lastBuild.getAction(BuildDiskUsageAction.class);
@@ -113,11 +232,81 @@ public class DiskUsageThread extends AsyncPeriodicWork {
             //slave might be offline...
             if ((workspace != null) && (bdua.diskUsage.wsUsage <= 0)) {
                 bdua.diskUsage.wsUsage = workspace.act(new DiskUsageCallable(workspace));
+                stats.addWorkspace(bdua.diskUsage.wsUsage);
                 lastBuild.save();
             }
         }
     }
 
+    /**
+     * Measures a workspace for the index.
+     */
+    private static final class WorkspaceTask implements java.util.concurrent.Callable<Void> {
+        private final AbstractProject project;
+        private final int buildNumber;
+        private final FilePath workspace;
+        private final ScanStatistics stats;
+
+        WorkspaceTask(AbstractProject project, int buildNumber, FilePath workspace, ScanStatistics stats) {
+            this.project = project;
+            this.buildNumber = buildNumber;
+            this.workspace = workspace;
+            this.stats = stats;
+        }
+
+        public Void call() throws IOException, InterruptedException {
+            long size = workspace.act(new DiskUsageCallable(workspace));
+            DiskUsageIndex.get().putWorkspace(project, buildNumber, size);
+            stats.addWorkspace(size);
+            return null;
+        }
+    }
+
+    /**
+     * What a scan measured, and how fast.
+     */
+    public static final class ScanStatistics {
+        private final long start = System.currentTimeMillis();
+        private volatile long end;
+        private final AtomicInteger builds = new AtomicInteger();
+        private final AtomicInteger workspaces = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+
+        void addBuild(long size) {
+            builds.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+
+        void addWorkspace(long size) {
+            workspaces.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+
+        public int getBuilds() {
+            return builds.get();
+        }
+
+        public int getWorkspaces() {
+            return workspaces.get();
+        }
+
+        public String getSizeString() {
+            return DiskUsage.getSizeString(bytes.get());
+        }
+
+        public String getDurationString() {
+            return Util.getTimeSpanString(end - start);
+        }
+
+        /**
+         * @return Measured size per second
+         */
+        public String getThroughputString() {
+            long duration = Math.max(1, end - start);
+            return DiskUsage.getSizeString(bytes.get() * 1000 / duration) + "/s";
+        }
+    }
+
     /**
      * A {@link Callable} which computes disk usage of remote file object
      */
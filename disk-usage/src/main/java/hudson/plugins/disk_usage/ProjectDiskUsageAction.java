@@ -54,6 +54,10 @@ public class ProjectDiskUsageAction extends DiskUsageAction {
      * @return Disk usage for all builds
      */
     public DiskUsage getDiskUsage() {
+        if ((project != null) && DiskUsageIndex.isEnabled()) {
+            return DiskUsageIndex.get().getDiskUsage(project);
+        }
+
         DiskUsage du = new DiskUsage(0, 0);
 
         if (project != null) {
@@ -107,11 +111,19 @@ public class ProjectDiskUsageAction extends DiskUsageAction {
 
         List<Object[]> usages = new ArrayList<Object[]>();
         long maxValue = 0;
+        boolean incremental = DiskUsageIndex.isEnabled();
         //First iteration just to get scale of the y-axis
         for (AbstractBuild build : project.getBuilds()) {
-            BuildDiskUsageAction dua = build.getAction(BuildDiskUsageAction.class);
-            if (dua != null) {
-                DiskUsage usage = dua.getDiskUsage();
+            DiskUsage usage = null;
+            if (incremental) {
+                usage = DiskUsageIndex.get().getDiskUsage(build);
+            } else {
+                BuildDiskUsageAction dua = build.getAction(BuildDiskUsageAction.class);
+                if (dua != null) {
+                    usage = dua.getDiskUsage();
+                }
+            }
+            if (usage != null) {
                 maxValue = Math.max(maxValue, Math.max(usage.wsUsage, usage.getBuildUsage()));
                 usages.add(new Object[]{build, usage.wsUsage, usage.getBuildUsage()});
             }
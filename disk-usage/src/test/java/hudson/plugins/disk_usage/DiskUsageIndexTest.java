@@ -0,0 +1,102 @@
+package hudson.plugins.disk_usage;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import java.util.Arrays;
+import java.util.Collections;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+public class DiskUsageIndexTest extends HudsonTestCase {
+
+    public void testBuildsAndWorkspaces() throws Exception {
+        FreeStyleProject project = createFreeStyleProject();
+        FreeStyleBuild first = project.scheduleBuild2(0).get();
+        FreeStyleBuild second = project.scheduleBuild2(0).get();
+
+        DiskUsageIndex index = new DiskUsageIndex();
+        assertNull(index.getDiskUsage(first));
+        index.putBuild(first, 100, System.currentTimeMillis());
+        index.putBuild(second, 200, System.currentTimeMillis());
+        index.putWorkspace(project, first.getNumber(), 1000);
+
+        assertEquals(300, index.getDiskUsage(project).getBuildUsage());
+        assertEquals(1000, index.getDiskUsage(project).getWsUsage());
+        assertEquals(200, index.getDiskUsage(second).getBuildUsage());
+        //the workspace wasn't measured after the second build
+        assertEquals(1000, index.getDiskUsage(second).getWsUsage());
+        assertEquals(Integer.valueOf(first.getNumber()), index.getWorkspaceBuild(project));
+    }
+
+    public void testRetainBuilds() throws Exception {
+        FreeStyleProject project = createFreeStyleProject();
+        FreeStyleBuild first = project.scheduleBuild2(0).get();
+        FreeStyleBuild second = project.scheduleBuild2(0).get();
+
+        DiskUsageIndex index = new DiskUsageIndex();
+        index.putBuild(first, 100, System.currentTimeMillis());
+        index.putBuild(second, 200, System.currentTimeMillis());
+        index.putWorkspace(project, first.getNumber(), 1000);
+        index.retainBuilds(project, Collections.singleton(second.getNumber()));
+
+        assertNull(index.getDiskUsage(first));
+        assertEquals(200, index.getDiskUsage(project).getBuildUsage());
+        //the last workspace size is kept, even though its build is gone
+        assertEquals(1000, index.getDiskUsage(project).getWsUsage());
+    }
+
+    public void testChangedBuildIsMeasuredAgain() throws Exception {
+        FreeStyleProject project = createFreeStyleProject();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        DiskUsageIndex index = new DiskUsageIndex();
+        assertFalse(index.isUpToDate(build));
+        long measured = System.currentTimeMillis();
+        assertTrue(build.getRootDir().setLastModified(measured - 1000));
+        index.putBuild(build, 100, measured);
+        assertTrue(index.isUpToDate(build));
+
+        //e.g. its artifacts have been deleted
+        assertTrue(build.getRootDir().setLastModified(measured + 1000));
+        assertFalse(index.isUpToDate(build));
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        FreeStyleProject project = createFreeStyleProject();
+        FreeStyleBuild first = project.scheduleBuild2(0).get();
+        FreeStyleBuild second = project.scheduleBuild2(0).get();
+        long measured = System.currentTimeMillis();
+        first.getRootDir().setLastModified(measured - 1000);
+
+        DiskUsageIndex index = new DiskUsageIndex();
+        index.putBuild(first, 100, measured);
+        index.putBuild(second, 200, measured);
+        index.putWorkspace(project, second.getNumber(), 1000);
+        index.retainBuilds(project, Arrays.asList(first.getNumber(), second.getNumber()));
+        index.save();
+
+        DiskUsageIndex loaded = DiskUsageIndex.load();
+        assertNotSame(index, loaded);
+        assertEquals(300, loaded.getDiskUsage(project).getBuildUsage());
+        assertEquals(1000, loaded.getDiskUsage(project).getWsUsage());
+        assertEquals(100, loaded.getDiskUsage(first).getBuildUsage());
+        assertEquals(Integer.valueOf(second.getNumber()), loaded.getWorkspaceBuild(project));
+        assertTrue(loaded.isUpToDate(first));
+    }
+
+    public void testBuildActionReadsTheIndex() throws Exception {
+        hudson.getDescriptorByType(DiskUsageProperty.DiskUsageDescriptor.class).setIncremental(true);
+        FreeStyleProject project = createFreeStyleProject();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        BuildDiskUsageAction action = build.getAction(BuildDiskUsageAction.class);
+        assertNotNull(action);
+        //the build is measured once finalized
+        DiskUsageIndex index = DiskUsageIndex.get();
+        for (int i = 0; index.getDiskUsage(build) == null; i++) {
+            assertTrue("build not measured", i < 100);
+            Thread.sleep(100);
+        }
+        assertTrue(action.getDiskUsage().getBuildUsage() > 0);
+        assertEquals(index.getDiskUsage(build).getBuildUsage(), action.getDiskUsage().getBuildUsage());
+    }
+}
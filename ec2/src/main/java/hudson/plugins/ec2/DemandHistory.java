@@ -0,0 +1,63 @@
+package hudson.plugins.ec2;
+
+import java.util.Calendar;
+
+/**
+ * Executors a {@link SlaveTemplate} needed, by hour of the day.
+ *
+ * <p>
+ * Each sample is the number of busy executors plus the number of queued builds that could run
+ * on the template. The peak of each hour is folded into the average of that hour of the previous
+ * days, so that the burst seen every morning is predicted before the queue fills up again.
+ */
+final class DemandHistory {
+    /**
+     * Weight of the last day in the average.
+     */
+    private static final double WEIGHT = 0.3;
+
+    private final double[] average = new double[24];
+    private final boolean[] known = new boolean[24];
+
+    /**
+     * Hour of the day being sampled, -1 if none yet.
+     */
+    private int hour = -1;
+    private int peak;
+
+    /**
+     * Records the demand at the given time.
+     */
+    synchronized void sample(Calendar now, int demand) {
+        int h = now.get(Calendar.HOUR_OF_DAY);
+        if(h!=hour) {
+            fold();
+            hour = h;
+            peak = 0;
+        }
+        peak = Math.max(peak,demand);
+    }
+
+    private void fold() {
+        if(hour<0)  return;
+        if(known[hour])
+            average[hour] = average[hour]*(1-WEIGHT) + peak*WEIGHT;
+        else
+            average[hour] = peak;
+        known[hour] = true;
+    }
+
+    /**
+     * Predicts the executors needed at the given time.
+     *
+     * <p>
+     * An instance takes a while to boot, so this looks at the next hour, too.
+     */
+    synchronized int predict(Calendar now) {
+        int h = now.get(Calendar.HOUR_OF_DAY);
+        double p = Math.max(average[h],average[(h+1)%24]);
+        if(h==hour)
+            p = Math.max(p,peak);
+        return (int)Math.ceil(p);
+    }
+}
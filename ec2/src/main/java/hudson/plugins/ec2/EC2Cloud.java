@@ -4,8 +4,6 @@ import com.xerox.amazonws.ec2.EC2Exception;
 import com.xerox.amazonws.ec2.InstanceType;
 import com.xerox.amazonws.ec2.Jec2;
 import com.xerox.amazonws.ec2.KeyPairInfo;
-import com.xerox.amazonws.ec2.ReservationDescription;
-import com.xerox.amazonws.ec2.ReservationDescription.Instance;
 import hudson.model.Computer;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
@@ -40,6 +38,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.jets3t.service.Jets3tProperties;
@@ -62,6 +61,7 @@ public abstract class EC2Cloud extends Cloud {
     public final int instanceCap;
     private final List<SlaveTemplate> templates;
     private transient KeyPairInfo usableKeyPair;
+    private transient InstanceStateCache instanceStates;
 
     protected EC2Cloud(String id, String accessId, String secretKey, String privateKey, String instanceCapStr, List<SlaveTemplate> templates) {
         super(id);
@@ -116,6 +116,19 @@ public abstract class EC2Cloud extends Cloud {
         return null;
     }
 
+    /**
+     * Gets the {@link SlaveTemplate} the given computer was launched from.
+     * Several templates may use the same AMI, so the slave's settings have to match as well.
+     */
+    public SlaveTemplate getTemplate(EC2Computer c) throws EC2Exception {
+        String ami = c.describeInstance().getImageId();
+        EC2Slave s = c.getNode();
+        for (SlaveTemplate t : templates)
+            if(t.ami.equals(ami) && (s==null || t.isTemplateOf(s)))
+                return t;
+        return null;
+    }
+
     /**
      * Gets {@link SlaveTemplate} that has the matching {@link Label}.
      */
@@ -135,6 +148,15 @@ public abstract class EC2Cloud extends Cloud {
         return usableKeyPair;
     }
 
+    /**
+     * Gets the cached state of the instances of this cloud.
+     */
+    public synchronized InstanceStateCache getInstanceStates() {
+        if(instanceStates==null)
+            instanceStates = new InstanceStateCache(this);
+        return instanceStates;
+    }
+
     /**
      * Counts the number of instances in EC2 currently running.
      *
@@ -142,14 +164,7 @@ public abstract class EC2Cloud extends Cloud {
      * This includes those instances that may be started outside Hudson.
      */
     public int countCurrentEC2Slaves() throws EC2Exception {
-        int n=0;
-        for (ReservationDescription r : connect().describeInstances(Collections.<String>emptyList())) {
-            for (Instance i : r.getInstances()) {
-                if(!i.isTerminated())
-                    n++;
-            }
-        }
-        return n;
+        return getInstanceStates().countLiveInstances();
     }
 
     /**
@@ -192,22 +207,45 @@ public abstract class EC2Cloud extends Cloud {
         }
     }
 
+    /**
+     * Provisions the instances needed for the workload in one EC2 request.
+     *
+     * <p>
+     * Each {@link PlannedNode} waits for the shared request, then connects its own slave.
+     */
     public Collection<PlannedNode> provision(Label label, int excessWorkload) {
         try {
 
             final SlaveTemplate t = getTemplate(label);
 
-            List<PlannedNode> r = new ArrayList<PlannedNode>();
-            for( ; excessWorkload>0; excessWorkload-- ) {
-                if(countCurrentEC2Slaves()>=instanceCap)
-                    break;      // maxed out
+            int capacity = instanceCap-countCurrentEC2Slaves();
+            int n = 0;
+            for( ; excessWorkload>0 && n<capacity; excessWorkload-=t.getNumExecutors() )
+                n++;
+            if(n==0)
+                return Collections.emptyList();     // maxed out
+
+            final int count = n;
+            final Future<List<EC2Slave>> batch = Computer.threadPoolForRemoting.submit(new Callable<List<EC2Slave>>() {
+                public List<EC2Slave> call() throws Exception {
+                    // TODO: record the output somewhere
+                    List<EC2Slave> slaves = t.provision(new StreamTaskListener(System.out),count);
+                    for (EC2Slave s : slaves)
+                        Hudson.getInstance().addNode(s);
+                    return slaves;
+                }
+            });
 
+            List<PlannedNode> r = new ArrayList<PlannedNode>();
+            for( int i=0; i<count; i++ ) {
+                final int index = i;
                 r.add(new PlannedNode(t.getDisplayName(),
                         Computer.threadPoolForRemoting.submit(new Callable<Node>() {
                             public Node call() throws Exception {
-                                // TODO: record the output somewhere
-                                EC2Slave s = t.provision(new StreamTaskListener(System.out));
-                                Hudson.getInstance().addNode(s);
+                                List<EC2Slave> slaves = batch.get();
+                                if(index>=slaves.size())
+                                    throw new EC2Exception("EC2 started "+slaves.size()+" of the "+count+" requested instances");
+                                EC2Slave s = slaves.get(index);
                                 // EC2 instances may have a long init script. If we declare
                                 // the provisioning complete by returning without the connect
                                 // operation, NodeProvisioner may decide that it still wants
@@ -2,7 +2,6 @@ package hudson.plugins.ec2;
 
 import com.xerox.amazonws.ec2.EC2Exception;
 import com.xerox.amazonws.ec2.Jec2;
-import com.xerox.amazonws.ec2.ReservationDescription;
 import com.xerox.amazonws.ec2.ReservationDescription.Instance;
 import hudson.Util;
 import hudson.slaves.SlaveComputer;
@@ -11,7 +10,6 @@ import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.StaplerResponse;
 
 import java.io.IOException;
-import java.util.Collections;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -60,7 +58,8 @@ public class EC2Computer extends SlaveComputer {
      * Gets the current state of the instance.
      *
      * <p>
-     * Unlike {@link #describeInstance()}, this method always return the current status by calling EC2.
+     * Unlike {@link #describeInstance()}, this method returns the state last described by EC2 for all the
+     * instances of the cloud, which is at most {@link InstanceStateCache#TTL} old.
      */
     public InstanceState getState() throws EC2Exception {
         ec2InstanceDescription=_describeInstance();
@@ -81,8 +80,11 @@ public class EC2Computer extends SlaveComputer {
         return Util.getTimeSpanString(getUptime());
     }
 
-    private ReservationDescription.Instance _describeInstance() throws EC2Exception {
-        return EC2Cloud.get().connect().describeInstances(Collections.<String>singletonList(getNode().getInstanceId())).get(0).getInstances().get(0);
+    private Instance _describeInstance() throws EC2Exception {
+        Instance i = EC2Cloud.get().getInstanceStates().get(getNode().getInstanceId());
+        if(i==null)
+            throw new EC2Exception("No such EC2 instance: "+getNode().getInstanceId());
+        return i;
     }
 
     /**
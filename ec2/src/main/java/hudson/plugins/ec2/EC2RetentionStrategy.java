@@ -1,10 +1,12 @@
 package hudson.plugins.ec2;
 
+import com.xerox.amazonws.ec2.EC2Exception;
 import hudson.model.Descriptor;
 import hudson.slaves.RetentionStrategy;
 import hudson.util.TimeUnit2;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -19,16 +21,30 @@ public class EC2RetentionStrategy extends RetentionStrategy<EC2Computer> {
 
     public synchronized long check(EC2Computer c) {
         if (c.isIdle() && !disabled) {
-            // TODO: really think about the right strategy here
             final long idleMilliseconds = System.currentTimeMillis() - c.getIdleStartMilliseconds();
-            if (idleMilliseconds > TimeUnit2.MINUTES.toMillis(30)) {
-                LOGGER.info("Disconnecting "+c.getName());
-                c.getNode().terminate();
+            try {
+                SlaveTemplate t = EC2Cloud.get().getTemplate(c);
+                long timeout = t!=null ? t.getIdleTerminationMillis() : IDLE_TIMEOUT;
+                if (idleMilliseconds > timeout
+                 && (t==null || !t.alignToBillingHour || isEndOfBillingHour(c.getUptime()))
+                 && (t==null || !t.isWarmPoolEnabled() || t.getWarmPool().release(c.getInstanceId()))) {
+                    LOGGER.info("Disconnecting "+c.getName());
+                    c.getNode().terminate();
+                }
+            } catch (EC2Exception e) {
+                LOGGER.log(Level.WARNING,"Failed to check the EC2 instance "+c.getName(),e);
             }
         }
         return 1;
     }
 
+    /**
+     * EC2 bills each started hour in full, so an idle instance might as well be kept until the hour is almost over.
+     */
+    /*package*/ static boolean isEndOfBillingHour(long uptime) {
+        return uptime%BILLING_HOUR >= BILLING_HOUR-BILLING_MARGIN;
+    }
+
     /**
      * Try to connect to it ASAP.
      */
@@ -48,4 +64,17 @@ public class EC2RetentionStrategy extends RetentionStrategy<EC2Computer> {
     private static final Logger LOGGER = Logger.getLogger(EC2RetentionStrategy.class.getName());
 
     public static boolean disabled = Boolean.getBoolean(EC2RetentionStrategy.class.getName()+".disabled");
+
+    /**
+     * How long an instance may stay idle, unless its {@link SlaveTemplate} says otherwise.
+     */
+    public static final long IDLE_TIMEOUT = TimeUnit2.MINUTES.toMillis(30);
+
+    private static final long BILLING_HOUR = TimeUnit2.HOURS.toMillis(1);
+
+    /**
+     * The retention strategy checks once a minute, so this leaves a few chances to terminate
+     * an idle instance before the next hour is billed.
+     */
+    private static final long BILLING_MARGIN = TimeUnit2.MINUTES.toMillis(5);
 }
@@ -82,8 +82,10 @@ public final class EC2Slave extends Slave {
      */
     public void terminate() {
         try {
-            Jec2 ec2 = EC2Cloud.get().connect();
+            EC2Cloud cloud = EC2Cloud.get();
+            Jec2 ec2 = cloud.connect();
             ec2.terminateInstances(Collections.singletonList(getInstanceId()));
+            cloud.getInstanceStates().invalidate();
             LOGGER.info("Terminated EC2 instance: "+getInstanceId());
             Hudson.getInstance().removeNode(this);
         } catch (EC2Exception e) {
@@ -0,0 +1,297 @@
+package hudson.plugins.ec2;
+
+import com.xerox.amazonws.ec2.EC2Exception;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.slaves.Cloud;
+import hudson.util.LogTaskListener;
+import hudson.util.TimeUnit2;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps idle instances of the {@link SlaveTemplate}s that ask for it, so that builds start
+ * without waiting for an instance to boot.
+ *
+ * <p>
+ * Once a minute, the demand of each template (busy executors and queued builds) is recorded in
+ * its {@link DemandHistory}, and instances are launched up to
+ * {@link SlaveTemplate#getWarmTarget(Calendar, int, DemandHistory)}. {@link EC2RetentionStrategy}
+ * asks {@link Pool#release(String)} before it terminates an idle instance, so the pool isn't shrunk below that.
+ *
+ * <p>
+ * The demand history and the statistics are kept in memory only, and start over when the
+ * templates are reconfigured.
+ */
+@Extension
+public class EC2WarmPool extends PeriodicWork {
+    /**
+     * {@link Pool}s of each template. Templates sharing an AMI may still differ in
+     * instance type, labels or init script, so each gets its own pool.
+     * Reconfiguring the cloud replaces its templates, and the pools of the old ones go away with them.
+     */
+    private final Map<SlaveTemplate,Pool> pools = new WeakHashMap<SlaveTemplate,Pool>();
+
+    public long getRecurrencePeriod() {
+        return TimeUnit2.MINUTES.toMillis(1);
+    }
+
+    public Pool getPool(SlaveTemplate t) {
+        synchronized (pools) {
+            Pool p = pools.get(t);
+            if(p==null)
+                pools.put(t,p=new Pool());
+            return p;
+        }
+    }
+
+    protected void doRun() {
+        Calendar now = Calendar.getInstance();
+        for (Cloud c : Hudson.getInstance().clouds) {
+            if (c instanceof EC2Cloud)
+                maintain((EC2Cloud)c, now);
+        }
+    }
+
+    private void maintain(final EC2Cloud cloud, Calendar now) {
+        // what the slaves of each template are doing
+        Map<SlaveTemplate,int[]> usage = new HashMap<SlaveTemplate,int[]>();
+        for (Computer c : Hudson.getInstance().getComputers()) {
+            if (!(c instanceof EC2Computer))
+                continue;
+            EC2Computer ec = (EC2Computer)c;
+            SlaveTemplate t;
+            try {
+                t = cloud.getTemplate(ec);
+            } catch (EC2Exception e) {
+                continue;   // being terminated
+            }
+            if(t==null)
+                continue;
+            int[] u = usage.get(t);
+            if(u==null)
+                usage.put(t,u=new int[2]);
+            if(ec.isIdle())
+                u[0]++;
+            else
+                u[1]+=ec.countBusy();
+            if(ec.isOnline())
+                getPool(t).online(ec.getInstanceId());
+        }
+
+        Queue.Item[] queued = Hudson.getInstance().getQueue().getItems();
+
+        for (final SlaveTemplate t : cloud.getTemplates()) {
+            final Pool p = getPool(t);
+            int[] u = usage.get(t);
+            int idle = u==null ? 0 : u[0];
+            int busy = u==null ? 0 : u[1];
+
+            int waiting = 0;
+            for (Queue.Item i : queued) {
+                if(i instanceof Queue.BuildableItem && cloud.getTemplate(i.task.getAssignedLabel())==t)
+                    waiting++;
+            }
+            p.demand.sample(now,busy+waiting);
+
+            if(!t.isWarmPoolEnabled()) {
+                p.update(0,idle);
+                continue;
+            }
+
+            int target = t.getWarmTarget(now,busy,p.demand);
+            int n = p.update(target,idle);
+            if(n<=0)
+                continue;
+            try {
+                n = Math.min(n,cloud.instanceCap-cloud.countCurrentEC2Slaves());
+            } catch (EC2Exception e) {
+                LOGGER.log(Level.WARNING,"Failed to count the # of live instances on EC2",e);
+                continue;
+            }
+            if(n<=0)
+                continue;
+
+            final int count = n;
+            p.launching(count);
+            Computer.threadPoolForRemoting.submit(new Runnable() {
+                public void run() {
+                    try {
+                        List<EC2Slave> slaves = t.provision(new LogTaskListener(LOGGER,Level.FINE),count);
+                        for (EC2Slave s : slaves) {
+                            p.launched(s.getInstanceId());
+                            Hudson.getInstance().addNode(s);
+                        }
+                        LOGGER.info("Launched "+slaves.size()+" warm instances of "+t.getDisplayName());
+                    } catch (EC2Exception e) {
+                        LOGGER.log(Level.WARNING,"Failed to launch warm instances of "+t.getDisplayName(),e);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING,"Failed to launch warm instances of "+t.getDisplayName(),e);
+                    } finally {
+                        p.launching(-count);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Warm pool of a {@link SlaveTemplate}, and how much waiting it saved.
+     */
+    public static final class Pool {
+        final DemandHistory demand = new DemandHistory();
+
+        /**
+         * Idle instances to keep, and idle instances there are, as of the last check.
+         */
+        private int target, idle;
+
+        /**
+         * Instances being launched by the pool.
+         */
+        private int launching;
+
+        /**
+         * Instances launched by the pool that haven't run a build yet, with the time they were launched,
+         * or -1 once they are online.
+         */
+        private final Map<String,Long> warm = new HashMap<String,Long>();
+
+        private int launched, used, booted;
+        private long bootMillis;
+
+        /**
+         * Records the state of the pool.
+         *
+         * @return the number of instances to launch.
+         */
+        synchronized int update(int target, int idle) {
+            this.target = target;
+            this.idle = idle;
+            return target-idle-launching;
+        }
+
+        synchronized void launching(int n) {
+            launching += n;
+        }
+
+        synchronized void launched(String instanceId) {
+            warm.put(instanceId,System.currentTimeMillis());
+            launched++;
+        }
+
+        synchronized void online(String instanceId) {
+            Long t = warm.get(instanceId);
+            if(t!=null && t>=0) {
+                bootMillis += System.currentTimeMillis()-t;
+                booted++;
+                warm.put(instanceId,-1L);
+            }
+        }
+
+        /**
+         * Called when a build starts on an instance.
+         */
+        synchronized void used(String instanceId) {
+            if(warm.remove(instanceId)!=null)
+                used++;
+        }
+
+        /**
+         * Asks if an idle instance may be terminated. If so, it's no longer counted in the pool.
+         */
+        synchronized boolean release(String instanceId) {
+            if(idle<=target)
+                return false;
+            idle--;
+            warm.remove(instanceId);
+            return true;
+        }
+
+        public synchronized int getTarget() {
+            return target;
+        }
+
+        public synchronized int getIdle() {
+            return idle;
+        }
+
+        /**
+         * Number of instances launched ahead of the demand.
+         */
+        public synchronized int getLaunched() {
+            return launched;
+        }
+
+        /**
+         * Number of builds that started on an instance launched ahead of the demand.
+         */
+        public synchronized int getUsed() {
+            return used;
+        }
+
+        /**
+         * Average time it took for an instance to be online after it was launched.
+         */
+        public synchronized long getAverageBootMillis() {
+            return booted==0 ? 0 : bootMillis/booted;
+        }
+
+        /**
+         * Estimated waiting saved: each build started on a warm instance would have waited for one to boot.
+         */
+        public synchronized long getSavedMillis() {
+            return used*getAverageBootMillis();
+        }
+
+        public String getSavedString() {
+            return Util.getTimeSpanString(getSavedMillis());
+        }
+    }
+
+    public static EC2WarmPool get() {
+        return PeriodicWork.all().get(EC2WarmPool.class);
+    }
+
+    /**
+     * Notices builds that start on warm instances.
+     */
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run> {
+        public RunListenerImpl() {
+            super(Run.class);
+        }
+
+        @Override
+        public void onStarted(Run r, TaskListener listener) {
+            Executor e = Executor.currentExecutor();
+            if(e==null || !(e.getOwner() instanceof EC2Computer))
+                return;
+            EC2Computer c = (EC2Computer)e.getOwner();
+            try {
+                SlaveTemplate t = EC2Cloud.get().getTemplate(c);
+                if(t!=null)
+                    get().getPool(t).used(c.getInstanceId());
+            } catch (EC2Exception x) {
+                LOGGER.log(Level.FINE,"Failed to find the template of "+c.getName(),x);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(EC2WarmPool.class.getName());
+}
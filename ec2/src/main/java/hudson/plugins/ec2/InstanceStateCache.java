@@ -0,0 +1,197 @@
+package hudson.plugins.ec2;
+
+import com.xerox.amazonws.ec2.EC2Exception;
+import com.xerox.amazonws.ec2.ReservationDescription;
+import com.xerox.amazonws.ec2.ReservationDescription.Instance;
+import hudson.util.TimeUnit2;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * The instances of an {@link EC2Cloud}, as last described by EC2.
+ *
+ * <p>
+ * Provisioning, capacity counting and {@link EC2Computer}s all read from here, so that a burst of
+ * requests results in one unfiltered {@code DescribeInstances} call per {@link #TTL} instead of one
+ * call per request and per computer.
+ *
+ * <p>
+ * Instances launched by Hudson are recorded right away, because EC2 may not describe them for a
+ * little while, and counting them would otherwise let provisioning go over the instance cap.
+ */
+public final class InstanceStateCache {
+    /**
+     * Where the descriptions come from. {@link EC2Cloud} describes all the instances of its account.
+     */
+    interface Source {
+        List<ReservationDescription> describeInstances() throws EC2Exception;
+    }
+
+    private final Source source;
+
+    private final long ttl;
+
+    /**
+     * Last described instances, by instance ID. Never modified, replaced on refresh.
+     */
+    private Map<String,Instance> instances = Collections.emptyMap();
+
+    /**
+     * Instances launched by Hudson that EC2 hasn't described yet, with the time they were launched.
+     */
+    private final Map<String,Launched> launched = new HashMap<String,Launched>();
+
+    /**
+     * Instances looked up and not described by EC2 even after describing the instances again.
+     * They are not described again for them until the next scheduled refresh, so that polling
+     * a terminated instance doesn't call EC2 every time.
+     */
+    private final Set<String> missing = new HashSet<String>();
+
+    /**
+     * When {@link #instances} was fetched, 0 if it needs to be fetched.
+     */
+    private long fetched;
+
+    InstanceStateCache(final EC2Cloud cloud) {
+        this(new Source() {
+            public List<ReservationDescription> describeInstances() throws EC2Exception {
+                return cloud.connect().describeInstances(Collections.<String>emptyList());
+            }
+        }, TTL);
+    }
+
+    InstanceStateCache(Source source, long ttl) {
+        this.source = source;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Gets all the instances, including the terminated ones EC2 still reports.
+     */
+    public synchronized Collection<Instance> getInstances() throws EC2Exception {
+        refreshIfStale();
+        return instances.values();
+    }
+
+    /**
+     * Gets an instance.
+     *
+     * <p>
+     * If the instance isn't known, the instances are described again once, as it may have been
+     * started since. If it's still unknown, it's reported as such until the next scheduled refresh.
+     *
+     * @return null if EC2 doesn't know this instance.
+     */
+    public synchronized Instance get(String instanceId) throws EC2Exception {
+        boolean refreshed = refreshIfStale();
+        Instance i = instances.get(instanceId);
+        if (i==null && !refreshed && !missing.contains(instanceId)) {
+            refresh();
+            i = instances.get(instanceId);
+        }
+        if (i==null)
+            missing.add(instanceId);
+        return i;
+    }
+
+    /**
+     * Counts the instances that are not terminated.
+     *
+     * <p>
+     * This includes those instances that may be started outside Hudson.
+     */
+    public synchronized int countLiveInstances() throws EC2Exception {
+        refreshIfStale();
+        int n=0;
+        for (Instance i : instances.values()) {
+            if(!i.isTerminated())
+                n++;
+        }
+        return n;
+    }
+
+    /**
+     * Records instances just launched by Hudson.
+     */
+    public synchronized void launched(Collection<Instance> launchedInstances) {
+        Map<String,Instance> m = new HashMap<String,Instance>(instances);
+        long now = System.currentTimeMillis();
+        for (Instance i : launchedInstances) {
+            m.put(i.getInstanceId(),i);
+            missing.remove(i.getInstanceId());
+            launched.put(i.getInstanceId(),new Launched(i,now));
+        }
+        instances = Collections.unmodifiableMap(m);
+    }
+
+    /**
+     * Makes the next read describe the instances again, for example after an instance has been terminated.
+     */
+    public synchronized void invalidate() {
+        fetched = 0;
+    }
+
+    /**
+     * @return true if the instances have been described again.
+     */
+    private boolean refreshIfStale() throws EC2Exception {
+        if (fetched!=0 && System.currentTimeMillis()-fetched<ttl)
+            return false;
+        refresh();
+        missing.clear();
+        return true;
+    }
+
+    private void refresh() throws EC2Exception {
+        Map<String,Instance> m = new HashMap<String,Instance>();
+        for (ReservationDescription r : source.describeInstances()) {
+            for (Instance i : r.getInstances())
+                m.put(i.getInstanceId(),i);
+        }
+
+        long now = System.currentTimeMillis();
+        for (Iterator<Launched> itr = launched.values().iterator(); itr.hasNext();) {
+            Launched l = itr.next();
+            if (m.containsKey(l.instance.getInstanceId()) || now-l.time>LAUNCH_GRACE) {
+                itr.remove();
+            } else {
+                m.put(l.instance.getInstanceId(),l.instance);
+            }
+        }
+
+        instances = Collections.unmodifiableMap(m);
+        fetched = now;
+        LOGGER.fine("Described "+m.size()+" EC2 instances");
+    }
+
+    private static final class Launched {
+        private final Instance instance;
+        private final long time;
+
+        private Launched(Instance instance, long time) {
+            this.instance = instance;
+            this.time = time;
+        }
+    }
+
+    /**
+     * How long the instance descriptions are used before EC2 is asked again.
+     */
+    public static long TTL = Long.getLong(InstanceStateCache.class.getName()+".ttl",TimeUnit2.SECONDS.toMillis(10));
+
+    /**
+     * How long an instance launched by Hudson is counted while EC2 doesn't describe it.
+     */
+    private static final long LAUNCH_GRACE = TimeUnit2.MINUTES.toMillis(5);
+
+    private static final Logger LOGGER = Logger.getLogger(InstanceStateCache.class.getName());
+}
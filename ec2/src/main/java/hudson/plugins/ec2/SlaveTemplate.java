@@ -16,12 +16,16 @@ import hudson.model.Node;
 import hudson.Extension;
 import hudson.Util;
 import hudson.util.FormValidation;
+import hudson.util.TimeUnit2;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -43,12 +47,35 @@ public class SlaveTemplate implements Describable<SlaveTemplate> {
     public final String numExecutors;
     public final String remoteAdmin;
     public final String rootCommandPrefix;
+    /**
+     * Number of idle instances to keep running during {@link #warmHours}, so that builds don't wait for
+     * an instance to boot. Empty for none.
+     */
+    public final String minIdleInstances;
+    /**
+     * Hours of the day the warm pool is kept, like "7-19". Empty for all day.
+     */
+    public final String warmHours;
+    /**
+     * Also keep as many idle instances as the demand seen at this time of the day calls for.
+     */
+    public final boolean predictDemand;
+    /**
+     * Minutes an instance may stay idle before it's terminated. Empty for the default.
+     */
+    public final String idleTerminationMinutes;
+    /**
+     * Only terminate idle instances toward the end of the hour they have been billed for.
+     */
+    public final boolean alignToBillingHour;
     protected transient EC2Cloud parent;
 
     private transient /*almost final*/ Set<Label> labelSet;
+    private transient /*almost final*/ boolean[] warmHoursSet;
 
     @DataBoundConstructor
-    public SlaveTemplate(String ami, String remoteFS, InstanceType type, String labelString, String description, String initScript, String userData, String numExecutors, String remoteAdmin, String rootCommandPrefix) {
+    public SlaveTemplate(String ami, String remoteFS, InstanceType type, String labelString, String description, String initScript, String userData, String numExecutors, String remoteAdmin, String rootCommandPrefix,
+                         String minIdleInstances, String warmHours, boolean predictDemand, String idleTerminationMinutes, boolean alignToBillingHour) {
         this.ami = ami;
         this.remoteFS = remoteFS;
         this.type = type;
@@ -59,8 +86,17 @@ public class SlaveTemplate implements Describable<SlaveTemplate> {
         this.numExecutors = Util.fixNull(numExecutors).trim();
         this.remoteAdmin = remoteAdmin;
         this.rootCommandPrefix = rootCommandPrefix;
+        this.minIdleInstances = Util.fixNull(minIdleInstances).trim();
+        this.warmHours = Util.fixNull(warmHours).trim();
+        this.predictDemand = predictDemand;
+        this.idleTerminationMinutes = Util.fixNull(idleTerminationMinutes).trim();
+        this.alignToBillingHour = alignToBillingHour;
         readResolve(); // initialize
     }
+
+    public SlaveTemplate(String ami, String remoteFS, InstanceType type, String labelString, String description, String initScript, String userData, String numExecutors, String remoteAdmin, String rootCommandPrefix) {
+        this(ami, remoteFS, type, labelString, description, initScript, userData, numExecutors, remoteAdmin, rootCommandPrefix, null, null, false, null, false);
+    }
     
     public EC2Cloud getParent() {
         return parent;
@@ -89,6 +125,60 @@ public class SlaveTemplate implements Describable<SlaveTemplate> {
     public String getRootCommandPrefix() {
         return rootCommandPrefix;
     }
+
+    public int getMinIdleInstances() {
+        try {
+            return Integer.parseInt(Util.fixNull(minIdleInstances));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public long getIdleTerminationMillis() {
+        try {
+            return TimeUnit2.MINUTES.toMillis(Integer.parseInt(Util.fixNull(idleTerminationMinutes)));
+        } catch (NumberFormatException e) {
+            return EC2RetentionStrategy.IDLE_TIMEOUT;
+        }
+    }
+
+    /**
+     * Does this template keep idle instances ahead of the demand?
+     */
+    public boolean isWarmPoolEnabled() {
+        return getMinIdleInstances()>0 || predictDemand;
+    }
+
+    /**
+     * Is the warm pool kept at the given time of the day?
+     */
+    public boolean isWarmTime(Calendar now) {
+        return warmHoursSet[now.get(Calendar.HOUR_OF_DAY)];
+    }
+
+    /**
+     * Computes the number of idle instances to keep at the given time.
+     *
+     * @param busyExecutors
+     *      Executors of this template currently running builds.
+     */
+    /*package*/ int getWarmTarget(Calendar now, int busyExecutors, DemandHistory demand) {
+        if(!isWarmTime(now))
+            return 0;
+        int n = getMinIdleInstances();
+        if(predictDemand) {
+            int e = getNumExecutors();
+            n = Math.max(n,(Math.max(0,demand.predict(now)-busyExecutors)+e-1)/e);
+        }
+        return n;
+    }
+
+    /**
+     * Gets the warm pool of this template, with its statistics.
+     */
+    public EC2WarmPool.Pool getWarmPool() {
+        return EC2WarmPool.get().getPool(this);
+    }
     
     /**
      * Does this contain the given label?
@@ -100,22 +190,51 @@ public class SlaveTemplate implements Describable<SlaveTemplate> {
         return l==null || labelSet.contains(l);
     }
 
+    /**
+     * Was the given slave created from this template?
+     */
+    /*package*/ boolean isTemplateOf(EC2Slave s) {
+        return Util.fixNull(description).equals(Util.fixNull(s.getNodeDescription()))
+            && Util.fixNull(labels).equals(Util.fixNull(s.getLabelString()))
+            && Util.fixNull(initScript).equals(Util.fixNull(s.initScript))
+            && getNumExecutors()==s.getNumExecutors();
+    }
+
     /**
      * Provisions a new EC2 slave.
      *
      * @return always non-null. This needs to be then added to {@link Hudson#addNode(Node)}.
      */
     public EC2Slave provision(TaskListener listener) throws EC2Exception, IOException {
+        return provision(listener,1).get(0);
+    }
+
+    /**
+     * Provisions new EC2 slaves with a single EC2 request.
+     *
+     * <p>
+     * EC2 may start fewer instances than requested, if it doesn't have the capacity for all of them.
+     *
+     * @return always non-empty. These need to be then added to {@link Hudson#addNode(Node)}.
+     */
+    public List<EC2Slave> provision(TaskListener listener, int count) throws EC2Exception, IOException {
         PrintStream logger = listener.getLogger();
         Jec2 ec2 = getParent().connect();
 
         try {
-            logger.println("Launching "+ami);
+            logger.println("Launching "+count+" instances of "+ami);
             KeyPairInfo keyPair = parent.getPrivateKey().find(ec2);
             if(keyPair==null)
                 throw new EC2Exception("No matching keypair found on EC2. Is the EC2 private key a valid one?");
-            Instance inst = ec2.runInstances(ami, 1, 1, Collections.<String>emptyList(), userData, keyPair.getKeyName(), type).getInstances().get(0);
-            return newSlave(inst);
+            List<Instance> instances = ec2.runInstances(ami, 1, count, Collections.<String>emptyList(), userData, keyPair.getKeyName(), type).getInstances();
+            if(instances.isEmpty())
+                throw new EC2Exception("EC2 didn't start any instance of "+ami);
+            parent.getInstanceStates().launched(instances);
+
+            List<EC2Slave> slaves = new ArrayList<EC2Slave>(instances.size());
+            for (Instance inst : instances)
+                slaves.add(newSlave(inst));
+            return slaves;
         } catch (FormException e) {
             throw new AssertionError(); // we should have discovered all configuration issues upfront
         }
@@ -147,9 +266,54 @@ public class SlaveTemplate implements Describable<SlaveTemplate> {
      */
     protected Object readResolve() {
         labelSet = Label.parse(labels);
+        try {
+            warmHoursSet = parseHours(warmHours);
+        } catch (IllegalArgumentException e) {
+            warmHoursSet = parseHours(null);
+        }
         return this;
     }
 
+    /**
+     * Parses hour ranges like "7-12,13-19" into the hours of the day they cover.
+     * The end of a range is exclusive, and a range may wrap around midnight, like "22-6", so "0-24" is all day.
+     *
+     * @param hours
+     *      null or empty for all day.
+     * @throws IllegalArgumentException
+     *      if the ranges are malformed.
+     */
+    /*package*/ static boolean[] parseHours(String hours) {
+        boolean[] r = new boolean[24];
+        if(Util.fixEmptyAndTrim(hours)==null) {
+            Arrays.fill(r,true);
+            return r;
+        }
+        for (String range : hours.split(",")) {
+            String[] t = range.trim().split("-");
+            if(t.length!=2)
+                throw new IllegalArgumentException("Expected a range like 7-19 but got "+range.trim());
+            int from = parseHour(t[0]), to = parseHour(t[1]);
+            int h = from;
+            do {
+                r[h] = true;
+                h = (h+1)%24;
+            } while (h!=to);
+        }
+        return r;
+    }
+
+    private static int parseHour(String s) {
+        try {
+            int h = Integer.parseInt(s.trim());
+            if(0<=h && h<=24)
+                return h%24;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Not an hour of the day: "+s.trim());
+    }
+
     public Descriptor<SlaveTemplate> getDescriptor() {
         return Hudson.getInstance().getDescriptor(getClass());
     }
@@ -170,6 +334,27 @@ public class SlaveTemplate implements Describable<SlaveTemplate> {
             return p;
         }
 
+        public FormValidation doCheckMinIdleInstances(@QueryParameter String value) {
+            if(Util.fixEmptyAndTrim(value)==null)
+                return FormValidation.ok();
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckIdleTerminationMinutes(@QueryParameter String value) {
+            if(Util.fixEmptyAndTrim(value)==null)
+                return FormValidation.ok();
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        public FormValidation doCheckWarmHours(@QueryParameter String value) {
+            try {
+                parseHours(value);
+                return FormValidation.ok();
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error(e.getMessage());
+            }
+        }
+
         /***
          * Check that the AMI requested is available in the cloud and can be used.
          */
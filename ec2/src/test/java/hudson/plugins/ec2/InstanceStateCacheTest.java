@@ -0,0 +1,66 @@
+package hudson.plugins.ec2;
+
+import com.xerox.amazonws.ec2.EC2Exception;
+import com.xerox.amazonws.ec2.ReservationDescription;
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.List;
+
+public class InstanceStateCacheTest extends TestCase {
+    private int calls;
+
+    private final InstanceStateCache.Source source = new InstanceStateCache.Source() {
+        public List<ReservationDescription> describeInstances() throws EC2Exception {
+            calls++;
+            return Collections.emptyList();
+        }
+    };
+
+    public void testOneCallWithinTtl() throws Exception {
+        InstanceStateCache cache = new InstanceStateCache(source, 60000);
+        for (int i=0; i<10; i++) {
+            assertEquals(0,cache.countLiveInstances());
+            assertTrue(cache.getInstances().isEmpty());
+        }
+        assertEquals(1,calls);
+    }
+
+    public void testInvalidate() throws Exception {
+        InstanceStateCache cache = new InstanceStateCache(source, 60000);
+        cache.countLiveInstances();
+        cache.invalidate();
+        cache.countLiveInstances();
+        cache.countLiveInstances();
+        assertEquals(2,calls);
+    }
+
+    public void testNoCaching() throws Exception {
+        InstanceStateCache cache = new InstanceStateCache(source, 0);
+        cache.countLiveInstances();
+        cache.countLiveInstances();
+        cache.countLiveInstances();
+        assertEquals(3,calls);
+    }
+
+    public void testUnknownInstance() throws Exception {
+        InstanceStateCache cache = new InstanceStateCache(source, 60000);
+        cache.countLiveInstances();
+        assertNull(cache.get("i-12345678"));
+        assertEquals("an unknown instance is described again once",2,calls);
+        assertNull(cache.get("i-12345678"));
+        assertEquals("and then remembered as unknown",2,calls);
+
+        assertNull(cache.get("i-87654321"));
+        assertEquals(3,calls);
+        assertNull(cache.get("i-12345678"));
+        assertNull(cache.get("i-87654321"));
+        assertEquals(3,calls);
+
+        cache.invalidate();
+        assertNull(cache.get("i-12345678"));
+        assertEquals("until the next scheduled refresh",4,calls);
+        assertNull(cache.get("i-12345678"));
+        assertEquals(4,calls);
+    }
+}
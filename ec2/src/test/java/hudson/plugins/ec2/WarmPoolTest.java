@@ -0,0 +1,71 @@
+package hudson.plugins.ec2;
+
+import hudson.util.TimeUnit2;
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+
+public class WarmPoolTest extends TestCase {
+    public void testParseHours() {
+        boolean[] h = SlaveTemplate.parseHours("7-12, 13-19");
+        assertFalse(h[6]);
+        assertTrue(h[7]);
+        assertTrue(h[11]);
+        assertFalse(h[12]);
+        assertTrue(h[18]);
+        assertFalse(h[19]);
+
+        h = SlaveTemplate.parseHours("22-2");
+        assertTrue(h[23]);
+        assertTrue(h[0]);
+        assertFalse(h[2]);
+        assertFalse(h[21]);
+
+        h = SlaveTemplate.parseHours("");
+        for (boolean b : h)
+            assertTrue(b);
+
+        try {
+            SlaveTemplate.parseHours("7");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            SlaveTemplate.parseHours("7-25");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testPrediction() {
+        DemandHistory d = new DemandHistory();
+        // busy mornings for two days
+        for (int day=1; day<=2; day++) {
+            d.sample(at(day,7),0);
+            d.sample(at(day,8),10);
+            d.sample(at(day,8),4);
+            d.sample(at(day,9),2);
+        }
+        d.sample(at(3,6),0);
+
+        // at 7, the burst of 8 is coming
+        assertEquals(10,d.predict(at(3,7)));
+        assertEquals(0,d.predict(at(3,5)));
+    }
+
+    public void testBillingHour() {
+        assertFalse(EC2RetentionStrategy.isEndOfBillingHour(TimeUnit2.MINUTES.toMillis(30)));
+        assertTrue(EC2RetentionStrategy.isEndOfBillingHour(TimeUnit2.MINUTES.toMillis(57)));
+        assertFalse(EC2RetentionStrategy.isEndOfBillingHour(TimeUnit2.MINUTES.toMillis(61)));
+        assertTrue(EC2RetentionStrategy.isEndOfBillingHour(TimeUnit2.MINUTES.toMillis(119)));
+    }
+
+    private static Calendar at(int day, int hour) {
+        Calendar c = Calendar.getInstance();
+        c.clear();
+        c.set(2010,Calendar.MARCH,day,hour,0);
+        return c;
+    }
+}
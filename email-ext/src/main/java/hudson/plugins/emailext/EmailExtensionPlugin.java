@@ -69,6 +69,12 @@ public class EmailExtensionPlugin extends Plugin {
 		addEmailTriggerPlugin(FixedTrigger.DESCRIPTOR);
 	}
 	
+	@Override
+	public void postInitialize() throws Exception {
+		// deliver the e-mails that were still queued when Hudson stopped
+		MailQueue.resume();
+	}
+	
 	private void addEmailContentPlugin(EmailContent content) {
 		try {
 			ContentBuilder.addEmailContentType(content);
@@ -8,6 +8,7 @@ import hudson.model.BuildListener;
 import hudson.model.Hudson;
 import hudson.model.Result;
 import hudson.model.User;
+import hudson.plugins.emailext.plugins.BuildLogScan;
 import hudson.plugins.emailext.plugins.ContentBuilder;
 import hudson.plugins.emailext.plugins.EmailTrigger;
 import hudson.plugins.emailext.plugins.EmailTriggerDescriptor;
@@ -214,9 +215,15 @@ public class ExtendedEmailPublisher extends Notifier {
 			return true;
 		}
 		
-		for(String triggerName :triggered.keySet()) {
-			listener.getLogger().println("Sending email for trigger: " + triggerName);
-			sendMail(triggered.get(triggerName).getEmail(), build, listener);
+		// The log tokens are computed once for all the emails
+		BuildLogScan.open(build);
+		try {
+			for(String triggerName :triggered.keySet()) {
+				listener.getLogger().println("Sending email for trigger: " + triggerName);
+				sendMail(triggered.get(triggerName).getEmail(), build, listener);
+			}
+		} finally {
+			BuildLogScan.close(build);
 		}
 		
 		return true;
@@ -231,7 +238,11 @@ public class ExtendedEmailPublisher extends Notifier {
 				for (Address a : allRecipients)
 					buf.append(' ').append(a);
 				listener.getLogger().println(buf);
-				Transport.send(msg);
+				if (DESCRIPTOR.getAsyncDelivery()) {
+					queueMail(msg, listener);
+				} else {
+					Transport.send(msg);
+				}
 				if (build.getAction(MailMessageIdAction.class) == null)
 					build.addAction(new MailMessageIdAction(msg.getMessageID()));
 				return true;
@@ -247,18 +258,37 @@ public class ExtendedEmailPublisher extends Notifier {
 		return false;
 	}
 
+	private void queueMail(MimeMessage msg, BuildListener listener) throws MessagingException {
+		try {
+			MailQueue.get().add(msg);
+			listener.getLogger().println("Email queued for delivery");
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Could not queue email, sending it now.", e);
+			Transport.send(msg);
+		}
+	}
+
+	/**
+	 * JavaMail session of the SMTP server used to send the e-mails.
+	 */
+	static Session createSession() {
+		// If not overriding global settings, use the Mailer class to create a session
+		if (!ExtendedEmailPublisher.DESCRIPTOR.getOverrideGlobalSettings()) {
+			return Mailer.descriptor().createSession();
+		}
+		return ExtendedEmailPublisher.DESCRIPTOR.createSession();
+	}
+
 	private MimeMessage createMail(EmailType type, AbstractBuild<?,?> build, BuildListener listener) throws MessagingException {
 		boolean overrideGlobalSettings = ExtendedEmailPublisher.DESCRIPTOR.getOverrideGlobalSettings();
 
-		MimeMessage msg;
+		MimeMessage msg = new MimeMessage(createSession());
 		
-		// If not overriding global settings, use the Mailer class to create a session and set the from address
+		// If not overriding global settings, use the Mailer class to set the from address
 		// Else we'll do it ourselves
 		if (!overrideGlobalSettings) {
-			msg = new MimeMessage(Mailer.descriptor().createSession());
 			msg.setFrom(new InternetAddress(Mailer.descriptor().getAdminAddress()));
 		} else {
-			msg = new MimeMessage(ExtendedEmailPublisher.DESCRIPTOR.createSession());
 			msg.setFrom(new InternetAddress(ExtendedEmailPublisher.DESCRIPTOR.getAdminAddress()));
 		}
 
@@ -433,6 +463,11 @@ public class ExtendedEmailPublisher extends Notifier {
 		private String defaultBody;
 
 		private boolean overrideGlobalSettings;
+
+		/**
+		 * If true, the e-mails are queued and delivered in the background.
+		 */
+		private boolean asyncDelivery;
 		
 		@Override
 		public String getDisplayName() {
@@ -546,6 +581,18 @@ public class ExtendedEmailPublisher extends Notifier {
 			return overrideGlobalSettings;
 		}
 
+		public boolean getAsyncDelivery() {
+			return asyncDelivery;
+		}
+
+		public void setAsyncDelivery(boolean asyncDelivery) {
+			this.asyncDelivery = asyncDelivery;
+		}
+
+		public MailQueue getMailQueue() {
+			return MailQueue.get();
+		}
+
 		public boolean isApplicable(Class<? extends AbstractProject> jobType) {
 			return true;
                 }
@@ -636,6 +683,8 @@ public class ExtendedEmailPublisher extends Notifier {
 			defaultBody = nullify(req.getParameter("ext_mailer_default_body"));
 			
 			overrideGlobalSettings = req.getParameter("ext_mailer_override_global_settings") != null;
+
+			asyncDelivery = req.getParameter("ext_mailer_async_delivery") != null;
 			
 			save();
 			return super.configure(req, formData);
@@ -0,0 +1,418 @@
+package hudson.plugins.emailext;
+
+import hudson.model.Hudson;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers e-mails in the background, so that a slow or unreachable SMTP server
+ * does not hold the builds.
+ *
+ * <p>
+ * Each e-mail is written to a spool directory before it is queued, and removed
+ * from it once delivered, so that the e-mails still queued when Hudson stops are
+ * delivered after the restart. A few workers deliver the e-mails, each of them
+ * sending all the e-mails waiting in the queue over a single SMTP connection.
+ * The workers are started when the first e-mail is queued.
+ * Failed deliveries are retried later, waiting twice as long after each failure.
+ */
+public final class MailQueue {
+
+	private static final Logger LOGGER = Logger.getLogger(MailQueue.class.getName());
+
+	/** Name of the spool directory in HUDSON_HOME. */
+	static final String SPOOL_DIR = "email-ext-spool";
+
+	/** Name of the directory, in the spool, of the e-mails that could not be delivered. */
+	static final String FAILED_DIR = "failed";
+
+	private static final String EXTENSION = ".eml";
+
+	/** Number of SMTP connections used at the same time. */
+	static final int WORKERS = Integer.getInteger(MailQueue.class.getName() + ".workers", 2);
+
+	/** Maximum number of e-mails sent over one SMTP connection. */
+	static final int BATCH_SIZE = Integer.getInteger(MailQueue.class.getName() + ".batchSize", 50);
+
+	/** Number of delivery attempts before an e-mail is given up. */
+	static final int MAX_ATTEMPTS = Integer.getInteger(MailQueue.class.getName() + ".maxAttempts", 8);
+
+	/** Delay before the first retry, in milliseconds. */
+	static final long RETRY_DELAY = Long.getLong(MailQueue.class.getName() + ".retryDelay", 30 * 1000L);
+
+	private static MailQueue instance;
+
+	private final File spoolDir;
+
+	private final DelayQueue<Delivery> queue = new DelayQueue<Delivery>();
+
+	// guarded by this
+	private final List<Thread> workers = new ArrayList<Thread>();
+
+	private volatile boolean stopped;
+
+	private long sequence;
+
+	// statistics, guarded by this
+	private int inFlight;
+	private long delivered;
+	private long failed;
+	private long retried;
+	private long totalLatency;
+	private long maxLatency;
+
+	/**
+	 * An e-mail waiting in the queue.
+	 */
+	private static final class Delivery implements Delayed {
+		private final MimeMessage message;
+		private final File file;
+		private final long queued;
+		private final long sequence;
+		private int attempts;
+		private long notBefore;
+
+		Delivery(MimeMessage message, File file, long queued, long sequence) {
+			this.message = message;
+			this.file = file;
+			this.queued = queued;
+			this.sequence = sequence;
+		}
+
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(notBefore - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		public int compareTo(Delayed o) {
+			Delivery that = (Delivery) o;
+			if (notBefore != that.notBefore) {
+				return notBefore < that.notBefore ? -1 : 1;
+			}
+			return sequence < that.sequence ? -1 : (sequence == that.sequence ? 0 : 1);
+		}
+	}
+
+	private MailQueue(File spoolDir) {
+		this.spoolDir = spoolDir;
+	}
+
+	/**
+	 * Returns the queue of the current Hudson instance. The first time, the
+	 * e-mails left in the spool are queued again, and only then are the workers
+	 * started.
+	 */
+	public static synchronized MailQueue get() {
+		File spoolDir = new File(Hudson.getInstance().getRootDir(), SPOOL_DIR);
+		if (instance == null || !instance.spoolDir.equals(spoolDir)) {
+			if (instance != null) {
+				instance.stop();
+			}
+			instance = new MailQueue(spoolDir);
+			instance.loadSpool();
+			if (!instance.queue.isEmpty()) {
+				instance.start();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Queues the e-mails left in the spool when Hudson stopped, if there are any.
+	 */
+	static void resume() {
+		String[] names = new File(Hudson.getInstance().getRootDir(), SPOOL_DIR).list(new SpoolFilter());
+		if (names != null && names.length > 0) {
+			get();
+		}
+	}
+
+	/**
+	 * Queues an e-mail. The e-mail is in the spool when this method returns, and
+	 * its headers, the Message-ID in particular, are final.
+	 *
+	 * @throws IOException if the e-mail could not be written to the spool
+	 */
+	public void add(MimeMessage message) throws IOException, MessagingException {
+		message.saveChanges();
+
+		if (!spoolDir.isDirectory() && !spoolDir.mkdirs()) {
+			throw new IOException("Could not create " + spoolDir);
+		}
+		long now = System.currentTimeMillis();
+		long seq;
+		synchronized (this) {
+			seq = sequence++;
+		}
+		File file = new File(spoolDir, String.format("%013d-%06d%s", now, seq % 1000000, EXTENSION));
+		File tmp = new File(spoolDir, file.getName() + ".tmp");
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+		try {
+			message.writeTo(out);
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException("Could not rename " + tmp + " to " + file);
+		}
+
+		queue.add(new Delivery(message, file, now, seq));
+		start();
+	}
+
+	private void loadSpool() {
+		String[] names = spoolDir.list(new SpoolFilter());
+		if (names == null || names.length == 0) {
+			return;
+		}
+		Arrays.sort(names);
+		LOGGER.info("Queuing " + names.length + " e-mails left in " + spoolDir);
+
+		Session session = ExtendedEmailPublisher.createSession();
+		for (String name : names) {
+			File file = new File(spoolDir, name);
+			try {
+				InputStream in = new BufferedInputStream(new FileInputStream(file));
+				try {
+					queue.add(new Delivery(new MimeMessage(session, in), file, file.lastModified(), sequence++));
+				} finally {
+					in.close();
+				}
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Could not read the e-mail " + file, e);
+				moveToFailed(file);
+			}
+		}
+	}
+
+	/**
+	 * Starts the workers, unless they are already running.
+	 */
+	private synchronized void start() {
+		if (stopped || !workers.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < WORKERS; i++) {
+			Thread worker = new Thread("email-ext mail delivery #" + (i + 1)) {
+				@Override
+				public void run() {
+					work();
+				}
+			};
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	private synchronized void stop() {
+		stopped = true;
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+	}
+
+	private void work() {
+		while (!stopped) {
+			LinkedList<Delivery> batch = new LinkedList<Delivery>();
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(batch, BATCH_SIZE - 1);
+			int size = batch.size();
+			synchronized (this) {
+				inFlight += size;
+			}
+			try {
+				deliver(batch);
+			} catch (RuntimeException e) {
+				// the e-mails already delivered or rescheduled are no longer in the batch
+				for (Delivery d : batch) {
+					retry(d, e);
+				}
+			} finally {
+				synchronized (this) {
+					inFlight -= size;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends the e-mails over one connection. Each e-mail is either delivered or
+	 * scheduled for a retry, and then removed from the batch, so that the e-mails
+	 * left in the batch if this method fails have not been delivered.
+	 */
+	private void deliver(LinkedList<Delivery> batch) {
+		Transport transport;
+		try {
+			transport = ExtendedEmailPublisher.createSession().getTransport("smtp");
+			transport.connect();
+		} catch (MessagingException e) {
+			while (!batch.isEmpty()) {
+				retry(batch.removeFirst(), e);
+			}
+			return;
+		}
+
+		try {
+			while (!batch.isEmpty()) {
+				Delivery d = batch.getFirst();
+				try {
+					transport.sendMessage(d.message, d.message.getAllRecipients());
+				} catch (MessagingException e) {
+					retry(batch.removeFirst(), e);
+					if (!transport.isConnected()) {
+						// the other e-mails have not been tried, send them over a new connection
+						while (!batch.isEmpty()) {
+							queue.add(batch.removeFirst());
+						}
+						return;
+					}
+					continue;
+				}
+				delivered(batch.removeFirst());
+			}
+		} finally {
+			try {
+				transport.close();
+			} catch (MessagingException e) {
+				LOGGER.log(Level.FINE, "Could not close the SMTP connection", e);
+			}
+		}
+	}
+
+	private void delivered(Delivery d) {
+		if (!d.file.delete()) {
+			LOGGER.warning("Could not delete " + d.file + ", the e-mail will be sent again after a restart");
+		}
+		long latency = System.currentTimeMillis() - d.queued;
+		synchronized (this) {
+			delivered++;
+			totalLatency += latency;
+			maxLatency = Math.max(maxLatency, latency);
+		}
+	}
+
+	private void retry(Delivery d, Exception e) {
+		d.attempts++;
+		if (d.attempts >= MAX_ATTEMPTS) {
+			LOGGER.log(Level.WARNING, "Giving up on the e-mail " + d.file.getName() + " after " + d.attempts
+					+ " attempts", e);
+			moveToFailed(d.file);
+			synchronized (this) {
+				failed++;
+			}
+			return;
+		}
+
+		long delay = RETRY_DELAY << Math.min(d.attempts - 1, 16);
+		LOGGER.log(Level.INFO, "Could not deliver the e-mail " + d.file.getName() + ", retrying in "
+				+ delay / 1000 + "s", e);
+		d.notBefore = System.currentTimeMillis() + delay;
+		queue.add(d);
+		synchronized (this) {
+			retried++;
+		}
+	}
+
+	private void moveToFailed(File file) {
+		File failedDir = new File(spoolDir, FAILED_DIR);
+		failedDir.mkdirs();
+		if (!file.renameTo(new File(failedDir, file.getName()))) {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Waits until every e-mail of the queue is either delivered or given up.
+	 *
+	 * @return false if e-mails are still queued after the timeout
+	 */
+	public boolean awaitEmpty(long timeout) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		synchronized (this) {
+			while (getLength() > 0) {
+				long left = end - System.currentTimeMillis();
+				if (left <= 0) {
+					return false;
+				}
+				// e-mails are added without holding the lock, check again every second
+				wait(Math.min(left, 1000));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Number of e-mails waiting for their delivery, retries included.
+	 */
+	public synchronized int getLength() {
+		return queue.size() + inFlight;
+	}
+
+	/**
+	 * Number of e-mails delivered since Hudson started.
+	 */
+	public synchronized long getDelivered() {
+		return delivered;
+	}
+
+	/**
+	 * Number of e-mails given up since Hudson started.
+	 */
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Number of failed delivery attempts that were retried since Hudson started.
+	 */
+	public synchronized long getRetried() {
+		return retried;
+	}
+
+	/**
+	 * Average time between the queuing and the delivery of an e-mail, in milliseconds.
+	 */
+	public synchronized long getAverageLatency() {
+		return delivered == 0 ? 0 : totalLatency / delivered;
+	}
+
+	/**
+	 * Longest time between the queuing and the delivery of an e-mail, in milliseconds.
+	 */
+	public synchronized long getMaxLatency() {
+		return maxLatency;
+	}
+
+	private static final class SpoolFilter implements FilenameFilter {
+		public boolean accept(File dir, String name) {
+			return name.endsWith(EXTENSION);
+		}
+	}
+}
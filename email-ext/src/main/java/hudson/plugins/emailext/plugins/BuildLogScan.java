@@ -0,0 +1,312 @@
+package hudson.plugins.emailext.plugins;
+
+import hudson.model.AbstractBuild;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the log of a build for the tokens showing parts of it.
+ *
+ * <p>
+ * While the e-mails of a build are being sent (see {@link #open} and
+ * {@link #close}), the content of a log token is computed once and reused by
+ * every e-mail, and the log tokens of a text are computed together, in a single
+ * pass over the log. Only the lines the tokens ask for are kept in memory. When
+ * the tokens only need the end of the log, the log is read backwards from its
+ * end, and the lines before are just counted.
+ */
+public final class BuildLogScan {
+
+	/**
+	 * A token showing a part of the log.
+	 */
+	public interface LogContent extends EmailContent {
+
+		/**
+		 * Creates the extractor computing the content of the token with these arguments.
+		 */
+		Extractor createExtractor(Map<String, ?> args);
+	}
+
+	/**
+	 * Computes the content of a log token from the lines of the log.
+	 */
+	public static abstract class Extractor {
+
+		/**
+		 * Number of lines at the end of the log this extractor needs, or 0 if it
+		 * needs the lines from the beginning of the log.
+		 */
+		public int getTailLines() {
+			return 0;
+		}
+
+		/**
+		 * Whether {@link #getResult} needs the number of lines of the whole log.
+		 * If not, the log is only read as long as an extractor needs its lines.
+		 */
+		public boolean needsLineCount() {
+			return true;
+		}
+
+		/**
+		 * Receives the next line of the log. An extractor with {@link #getTailLines()}
+		 * only receives the last lines of the log.
+		 *
+		 * @return false if no more lines are needed
+		 */
+		public abstract boolean accept(String line);
+
+		/**
+		 * Returns the content of the token.
+		 *
+		 * @param lineCount number of lines of the whole log
+		 */
+		public abstract String getResult(int lineCount);
+	}
+
+	/** Scans of the builds whose e-mails are being sent. */
+	private static final Map<AbstractBuild<?, ?>, BuildLogScan> SCANS = new HashMap<AbstractBuild<?, ?>, BuildLogScan>();
+
+	private final File logFile;
+
+	/** Content of the tokens already computed, by token and arguments. */
+	private final Map<String, String> results = new HashMap<String, String>();
+
+	/** Tokens to compute in the next pass. */
+	private final Map<String, Extractor> pending = new LinkedHashMap<String, Extractor>();
+
+	private BuildLogScan(File logFile) {
+		this.logFile = logFile;
+	}
+
+	/**
+	 * Starts sending the e-mails of a build: until {@link #close} is called, the
+	 * content of the log tokens is reused.
+	 */
+	public static void open(AbstractBuild<?, ?> build) {
+		synchronized (SCANS) {
+			SCANS.put(build, new BuildLogScan(build.getLogFile()));
+		}
+	}
+
+	/**
+	 * Forgets the content of the log tokens of a build.
+	 */
+	public static void close(AbstractBuild<?, ?> build) {
+		synchronized (SCANS) {
+			SCANS.remove(build);
+		}
+	}
+
+	private static BuildLogScan get(AbstractBuild<?, ?> build) {
+		synchronized (SCANS) {
+			return SCANS.get(build);
+		}
+	}
+
+	/**
+	 * Computes the log tokens found in a text together, so that the log is read
+	 * once for all of them. Does nothing if the e-mails of the build are not being
+	 * sent.
+	 */
+	public static void prepare(AbstractBuild<?, ?> build, Map<LogContent, List<Map<String, ?>>> tokens)
+			throws IOException {
+		BuildLogScan scan = get(build);
+		if (scan == null) {
+			return;
+		}
+		synchronized (scan) {
+			for (Map.Entry<LogContent, List<Map<String, ?>>> entry : tokens.entrySet()) {
+				for (Map<String, ?> args : entry.getValue()) {
+					String key = key(entry.getKey(), args);
+					if (!scan.results.containsKey(key) && !scan.pending.containsKey(key)) {
+						scan.pending.put(key, entry.getKey().createExtractor(args));
+					}
+				}
+			}
+			scan.run();
+		}
+	}
+
+	/**
+	 * Returns the content of a log token, reading the log only if it was not
+	 * computed yet for the e-mails being sent.
+	 */
+	public static String getContent(AbstractBuild<?, ?> build, LogContent content, Map<String, ?> args)
+			throws IOException {
+		BuildLogScan scan = get(build);
+		if (scan == null) {
+			scan = new BuildLogScan(build.getLogFile());
+		}
+		String key = key(content, args);
+		synchronized (scan) {
+			if (!scan.results.containsKey(key)) {
+				scan.pending.put(key, content.createExtractor(args));
+				scan.run();
+			}
+			return scan.results.get(key);
+		}
+	}
+
+	private static String key(LogContent content, Map<String, ?> args) {
+		return content.getToken() + new TreeMap<String, Object>(args);
+	}
+
+	/**
+	 * Computes the pending tokens.
+	 */
+	private void run() throws IOException {
+		if (pending.isEmpty()) {
+			return;
+		}
+		try {
+			boolean tailOnly = true;
+			int tailLines = 0;
+			for (Extractor extractor : pending.values()) {
+				tailOnly &= extractor.getTailLines() > 0;
+				tailLines = Math.max(tailLines, extractor.getTailLines());
+			}
+			if (tailOnly) {
+				readTail(tailLines);
+			} else {
+				readAll(tailLines);
+			}
+		} finally {
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Reads the whole log, keeping the last lines in a ring buffer for the
+	 * extractors that need the end of the log.
+	 */
+	private void readAll(int tailLines) throws IOException {
+		List<Extractor> active = new ArrayList<Extractor>();
+		boolean needsLineCount = tailLines > 0;
+		for (Extractor extractor : pending.values()) {
+			if (extractor.getTailLines() == 0) {
+				active.add(extractor);
+			}
+			needsLineCount |= extractor.needsLineCount();
+		}
+
+		String[] ring = new String[tailLines];
+		int lineCount = 0;
+		BufferedReader reader = new BufferedReader(new FileReader(logFile));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null && (needsLineCount || !active.isEmpty())) {
+				for (int i = active.size() - 1; i >= 0; i--) {
+					if (!active.get(i).accept(line)) {
+						active.remove(i);
+					}
+				}
+				if (ring.length > 0) {
+					ring[lineCount % ring.length] = line;
+				}
+				lineCount++;
+			}
+		} finally {
+			reader.close();
+		}
+
+		for (Extractor extractor : pending.values()) {
+			int lines = Math.min(extractor.getTailLines(), lineCount);
+			for (int i = lineCount - lines; i < lineCount; i++) {
+				extractor.accept(ring[i % ring.length]);
+			}
+		}
+		putResults(lineCount);
+	}
+
+	/**
+	 * Reads the last lines of the log from its end, and counts the lines before.
+	 */
+	private void readTail(int tailLines) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(logFile, "r");
+		try {
+			long length = raf.length();
+			byte[] buffer = new byte[8192];
+
+			// Find the beginning of the last lines, the line separator ending
+			// the log does not start a new line. Lines end with '\n', '\r' or
+			// "\r\n" as for BufferedReader.readLine().
+			long start = 0;
+			int separators = 0;
+			long position = length;
+			int next = -1;
+			search:
+			while (position > 0) {
+				int len = (int) Math.min(buffer.length, position);
+				position -= len;
+				raf.seek(position);
+				raf.readFully(buffer, 0, len);
+				for (int i = len - 1; i >= 0; i--) {
+					boolean separator = buffer[i] == '\n' || (buffer[i] == '\r' && next != '\n');
+					next = buffer[i];
+					if (separator && position + i != length - 1 && ++separators == tailLines) {
+						start = position + i + 1;
+						break search;
+					}
+				}
+			}
+
+			int lineCount = 0;
+			int previous = -1;
+			raf.seek(0);
+			for (long left = start; left > 0;) {
+				int len = raf.read(buffer, 0, (int) Math.min(buffer.length, left));
+				if (len < 0) {
+					break;
+				}
+				for (int i = 0; i < len; i++) {
+					if (buffer[i] == '\r' || (buffer[i] == '\n' && previous != '\r')) {
+						lineCount++;
+					}
+					previous = buffer[i];
+				}
+				left -= len;
+			}
+
+			byte[] tail = new byte[(int) (length - start)];
+			raf.seek(start);
+			raf.readFully(tail);
+			List<String> lines = new ArrayList<String>();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(tail)));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+			lineCount += lines.size();
+
+			for (Extractor extractor : pending.values()) {
+				int from = Math.max(lines.size() - extractor.getTailLines(), 0);
+				for (String l : lines.subList(from, lines.size())) {
+					extractor.accept(l);
+				}
+			}
+			putResults(lineCount);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void putResults(int lineCount) {
+		for (Map.Entry<String, Extractor> entry : pending.entrySet()) {
+			results.put(entry.getKey(), entry.getValue().getResult(lineCount));
+		}
+	}
+}
@@ -9,9 +9,12 @@ import hudson.plugins.emailext.Util;
 import hudson.tasks.Mailer;
 import hudson.tasks.Publisher;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -66,10 +69,37 @@ public class ContentBuilder {
 								 .replaceAll(DEFAULT_BODY, Matcher.quoteReplacement(ExtendedEmailPublisher.DESCRIPTOR.getDefaultBody()))
 								 .replaceAll(DEFAULT_SUBJECT, Matcher.quoteReplacement(ExtendedEmailPublisher.DESCRIPTOR.getDefaultSubject()));
 						
+		prepareLogTokens(newText, build);
 		newText = replaceTokensWithContent(newText, publisher, type, build);
 		return newText;
 	}
 	
+	/**
+	 * Computes the log tokens of the text in a single pass over the log.
+	 */
+	private static void prepareLogTokens(String text, AbstractBuild<?, ?> build) {
+		Map<BuildLogScan.LogContent, List<Map<String, ?>>> tokens = new LinkedHashMap<BuildLogScan.LogContent, List<Map<String, ?>>>();
+		Tokenizer tokenizer = new Tokenizer(text);
+		while (tokenizer.find()) {
+			EmailContent content = EMAIL_CONTENT_TYPE_MAP.get(tokenizer.getTokenName());
+			if (content instanceof BuildLogScan.LogContent) {
+				List<Map<String, ?>> argsList = tokens.get(content);
+				if (argsList == null) {
+					argsList = new ArrayList<Map<String, ?>>();
+					tokens.put((BuildLogScan.LogContent) content, argsList);
+				}
+				argsList.add(tokenizer.getArgs());
+			}
+		}
+		if (!tokens.isEmpty()) {
+			try {
+				BuildLogScan.prepare(build, tokens);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Could not read the log of " + build, e);
+			}
+		}
+	}
+	
 	private static <P extends AbstractProject<P, B>, B extends AbstractBuild<P, B>>
 	String replaceTokensWithContent(String origText, ExtendedEmailPublisher publisher, EmailType type, AbstractBuild<P, B> build) {
 		StringBuffer sb = new StringBuffer();
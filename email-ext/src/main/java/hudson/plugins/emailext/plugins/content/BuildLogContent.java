@@ -4,9 +4,10 @@ import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.plugins.emailext.EmailType;
 import hudson.plugins.emailext.ExtendedEmailPublisher;
-import hudson.plugins.emailext.plugins.EmailContent;
+import hudson.plugins.emailext.plugins.BuildLogScan;
 import hudson.tasks.Mailer;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -18,7 +19,7 @@ import java.util.logging.Logger;
  * 
  * @author dvrzalik
  */
-public class BuildLogContent implements EmailContent {
+public class BuildLogContent implements BuildLogScan.LogContent {
 	
 	private static final Logger LOGGER = Logger.getLogger(Mailer.class.getName());
 
@@ -50,21 +51,46 @@ public class BuildLogContent implements EmailContent {
 	String getContent(AbstractBuild<P, B> build, ExtendedEmailPublisher publisher,
 			EmailType emailType, Map<String, ?> args) {
 		
-		StringBuffer buffer = new StringBuffer();
-		// getLog() chokes and dies if called with a number <= 0.
-		int maxLines = Math.max(Args.get(args, MAX_LINES_ARG_NAME, MAX_LINES_DEFAULT_VALUE), 1);
 		try {
-			List<String> lines = build.getLog(maxLines);
-			for(String line: lines) {
-				//TODO: show file links the same way as MailSender
-				buffer.append(line);
-				buffer.append('\n');
-			}
+			return BuildLogScan.getContent(build, this, args);
 		} catch (IOException ex) {
 			LOGGER.log(Level.SEVERE, null, ex);
+			return "";
 		}
-		
-		return buffer.toString();
+	}
+
+	public BuildLogScan.Extractor createExtractor(Map<String, ?> args) {
+		// Same output as build.getLog(maxLines), which chokes and dies if called with a number <= 0.
+		final int maxLines = Math.max(Args.get(args, MAX_LINES_ARG_NAME, MAX_LINES_DEFAULT_VALUE), 1);
+		return new BuildLogScan.Extractor() {
+			private final List<String> lines = new ArrayList<String>();
+
+			@Override
+			public int getTailLines() {
+				return maxLines;
+			}
+
+			@Override
+			public boolean accept(String line) {
+				lines.add(line);
+				return true;
+			}
+
+			@Override
+			public String getResult(int lineCount) {
+				if (lineCount > maxLines) {
+					// This format comes from hudson.model.Run.getLog(maxLines).
+					lines.set(0, "[...truncated " + (lineCount - (maxLines - 1)) + " lines...]");
+				}
+				StringBuffer buffer = new StringBuffer();
+				for(String line: lines) {
+					//TODO: show file links the same way as MailSender
+					buffer.append(line);
+					buffer.append('\n');
+				}
+				return buffer.toString();
+			}
+		};
 	}
 
 	public boolean hasNestedContent() {
@@ -28,18 +28,15 @@ import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.plugins.emailext.EmailType;
 import hudson.plugins.emailext.ExtendedEmailPublisher;
-import hudson.plugins.emailext.plugins.EmailContent;
+import hudson.plugins.emailext.plugins.BuildLogScan;
 import hudson.tasks.Mailer;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.Queue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -49,7 +46,7 @@ import java.util.regex.Pattern;
  *
  * @author krwalker@stellarscience.com
  */
-public class BuildLogRegexContent implements EmailContent {
+public class BuildLogRegexContent implements BuildLogScan.LogContent {
 	
 	private static final Logger LOGGER = Logger.getLogger(Mailer.class.getName());
 
@@ -121,84 +118,95 @@ public class BuildLogRegexContent implements EmailContent {
 	String getContent(AbstractBuild<P, B> build, ExtendedEmailPublisher publisher,
 			EmailType emailType, Map<String, ?> args) {
 		//LOGGER.log(Level.INFO, TOKEN + " getContent");
+		try {
+			return BuildLogScan.getContent(build, this, args);
+		} catch (IOException ex) {
+			LOGGER.log(Level.SEVERE, null, ex);
+			return "";
+		}
+	}
+
+	public BuildLogScan.Extractor createExtractor(Map<String, ?> args) {
 		final String regex = Args.get(args, REGEX_ARG_NAME, REGEX_DEFAULT_VALUE);
 		final int contextLinesBefore = Args.get(args, LINES_BEFORE_ARG_NAME, LINES_BEFORE_DEFAULT_VALUE);
 		final int contextLinesAfter = Args.get(args, LINES_AFTER_ARG_NAME, LINES_AFTER_DEFAULT_VALUE);
 		final int maxMatches = Args.get(args, MAX_MATCHES_ARG_NAME, MAX_MATCHES_DEFAULT_VALUE);
 		final boolean showTruncatedLines = Args.get(args, SHOW_TRUNCATED_LINES_ARG_NAME, SHOW_TRUNCATED_LINES_DEFAULT_VALUE);
 		final Pattern pattern = Pattern.compile(regex);
-		final StringBuffer buffer = new StringBuffer();
-		try {
-			final BufferedReader reader = new BufferedReader(new FileReader(build.getLogFile()));
-			try {
-				int numLinesTruncated = 0;
-				int numMatches = 0;
-				int numLinesStillNeeded = 0;
-				Queue<String> linesBefore = new LinkedList<String>();
-				String line = null;
-				while ((line = reader.readLine()) != null) {
-					// Remove any lines before that are no longer needed.
-					while (linesBefore.size() > contextLinesBefore) {
-						linesBefore.remove();
-						++numLinesTruncated;
+		return new BuildLogScan.Extractor() {
+			private final StringBuffer buffer = new StringBuffer();
+			private final Matcher matcher = pattern.matcher("");
+			// Ring buffer of the possible lines before.
+			private final String[] linesBefore = new String[contextLinesBefore];
+			private int firstLineBefore = 0;
+			private int numLinesBefore = 0;
+			private int numLinesTruncated = 0;
+			private int numMatches = 0;
+			private int numLinesStillNeeded = 0;
+			private int numLinesRead = 0;
+
+			@Override
+			public boolean needsLineCount() {
+				return showTruncatedLines;
+			}
+
+			@Override
+			public boolean accept(String line) {
+				++numLinesRead;
+				if (matcher.reset(line).find()) {
+					// The current line matches.
+					if (showTruncatedLines == true && numLinesTruncated > 0) {
+						// Append information about truncated lines.
+						appendLinesTruncated(buffer, numLinesTruncated);
+						numLinesTruncated = 0;
 					}
-					if (pattern.matcher(line).find()) {
-						// The current line matches.
-						if (showTruncatedLines == true && numLinesTruncated > 0) {
-							// Append information about truncated lines.
-							appendLinesTruncated(buffer, numLinesTruncated);
-							numLinesTruncated = 0;
-						}
-						// Append all the linesBefore.
-						while (linesBefore.size() > 0) {
-							append(buffer, linesBefore.remove());
-						}
-						// Append the current line.
+					// Append all the linesBefore.
+					for (int i = 0; i < numLinesBefore; i++) {
+						append(buffer, linesBefore[(firstLineBefore + i) % linesBefore.length]);
+					}
+					numLinesBefore = 0;
+					// Append the current line.
+					append(buffer, line);
+					++numMatches;
+					// Set up to add numLinesStillNeeded
+					numLinesStillNeeded = contextLinesAfter;
+				} else {
+					// The current line did not match.
+					if (numLinesStillNeeded > 0) {
+						// Append this line as a line after.
 						append(buffer, line);
-						++numMatches;
-						// Set up to add numLinesStillNeeded
-						numLinesStillNeeded = contextLinesAfter;
+						--numLinesStillNeeded;
+					} else if (linesBefore.length == 0) {
+						++numLinesTruncated;
 					} else {
-						// The current line did not match.
-						if (numLinesStillNeeded > 0) {
-							// Append this line as a line after.
-							append(buffer, line);
-							--numLinesStillNeeded;
-						} else {
-							// Store this line as a possible line before.
-							linesBefore.offer(line);
+						// Store this line as a possible line before, removing
+						// the oldest one if it is no longer needed.
+						if (numLinesBefore == linesBefore.length) {
+							firstLineBefore = (firstLineBefore + 1) % linesBefore.length;
+							--numLinesBefore;
+							++numLinesTruncated;
 						}
-					}
-					if (maxMatches != 0 && numMatches >= maxMatches && numLinesStillNeeded == 0) {
-						break;
+						linesBefore[(firstLineBefore + numLinesBefore) % linesBefore.length] = line;
+						++numLinesBefore;
 					}
 				}
+				return maxMatches == 0 || numMatches < maxMatches || numLinesStillNeeded > 0;
+			}
+
+			@Override
+			public String getResult(int lineCount) {
 				if (showTruncatedLines == true) {
-					// Count the rest of the lines.
-					// Include any lines in linesBefore.
-					while (linesBefore.size() > 0) {
-						linesBefore.remove();
-						++numLinesTruncated;
-					}
-					if (line != null) {
-						// Include the rest of the lines that haven't been read in.
-						while ((line = reader.readLine()) != null) {
-							++numLinesTruncated;
-						}
-					}
-					if (numLinesTruncated > 0) {
-						appendLinesTruncated(buffer, numLinesTruncated);
+					// Count the rest of the lines, including any lines in linesBefore
+					// and the lines that haven't been read.
+					int truncated = numLinesTruncated + numLinesBefore + (lineCount - numLinesRead);
+					if (truncated > 0) {
+						appendLinesTruncated(buffer, truncated);
 					}
 				}
-			} finally {
-				reader.close();
+				//LOGGER.log(Level.INFO, "${BUILD_LOG_REGEX,...}:\n" + buffer.toString());
+				return buffer.toString();
 			}
-		} catch (IOException ex) {
-			LOGGER.log(Level.SEVERE, null, ex);
-		}
-		
-		//LOGGER.log(Level.INFO, "${BUILD_LOG_REGEX,...}:\n" + buffer.toString());
-		return buffer.toString();
+		};
 	}
 
 	public boolean hasNestedContent() {
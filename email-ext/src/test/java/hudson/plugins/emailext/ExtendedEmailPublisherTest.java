@@ -9,11 +9,13 @@ import hudson.plugins.emailext.plugins.trigger.FixedTrigger;
 import hudson.plugins.emailext.plugins.trigger.PreBuildTrigger;
 import hudson.plugins.emailext.plugins.trigger.StillFailingTrigger;
 import hudson.plugins.emailext.plugins.trigger.SuccessTrigger;
+import hudson.tasks.MailMessageIdAction;
 import net.sf.json.JSONObject;
 import org.jvnet.hudson.test.FailureBuilder;
 import org.jvnet.hudson.test.HudsonTestCase;
 import org.jvnet.mock_javamail.Mailbox;
 
+import java.io.File;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.*;
@@ -249,6 +251,36 @@ public class ExtendedEmailPublisherTest
                     containsString( "charset=utf-8" ) );
     }
 
+    public void testAsyncDeliveryShouldSendEmailInTheBackground()
+        throws Exception
+    {
+        SuccessTrigger trigger = new SuccessTrigger();
+        addEmailType( trigger );
+        publisher.getConfiguredTriggers().add( trigger );
+
+        ExtendedEmailPublisher.DESCRIPTOR.setAsyncDelivery( true );
+        try
+        {
+            FreeStyleBuild build = project.scheduleBuild2( 0 ).get();
+            assertBuildStatusSuccess( build );
+
+            assertThat( "Email should have been queued, so we should see it in the logs.", build.getLog( 100 ),
+                        hasItems( "Email queued for delivery" ) );
+            MailQueue queue = MailQueue.get();
+            assertTrue( "Queued email should have been delivered.", queue.awaitEmpty( 10000 ) );
+            assertEquals( 1, Mailbox.get( "ashlux@gmail.com" ).size() );
+            assertEquals( 1, queue.getDelivered() );
+            assertNotNull( build.getAction( MailMessageIdAction.class ) );
+
+            String[] spooled = new File( hudson.getRootDir(), MailQueue.SPOOL_DIR ).list();
+            assertEquals( "Delivered email should have been removed from the spool.", 0, spooled.length );
+        }
+        finally
+        {
+            ExtendedEmailPublisher.DESCRIPTOR.setAsyncDelivery( false );
+        }
+    }
+
     public void testNewInstance_shouldGetBasicInformation()
         throws Exception
     {
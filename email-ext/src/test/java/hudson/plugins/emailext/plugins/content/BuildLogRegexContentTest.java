@@ -0,0 +1,112 @@
+package hudson.plugins.emailext.plugins.content;
+
+import hudson.model.Build;
+import hudson.plugins.emailext.plugins.BuildLogScan;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings({"unchecked"})
+public class BuildLogRegexContentTest {
+    private BuildLogRegexContent buildLogRegexContent;
+
+    private Build build;
+
+    private File logFile;
+
+    private Map<String, Object> args;
+
+    @Before
+    public void setUp() throws IOException {
+        buildLogRegexContent = new BuildLogRegexContent();
+
+        logFile = File.createTempFile("log", ".txt");
+        build = mock(Build.class);
+        when(build.getLogFile()).thenReturn(logFile);
+
+        args = new HashMap<String, Object>();
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    @Test
+    public void shouldShowMatchingLinesWithContext() throws IOException {
+        writeLog("line 1\nline 2\nerror 3\nline 4\nline 5\nline 6\n");
+        args.put("linesBefore", 1);
+        args.put("linesAfter", 1);
+
+        assertEquals("[...truncated 1 lines...]\nline 2\nerror 3\nline 4\n[...truncated 2 lines...]\n",
+                buildLogRegexContent.getContent(build, null, null, args));
+    }
+
+    @Test
+    public void shouldCountUnreadLinesAfterMaxMatches() throws IOException {
+        writeLog("error 1\nerror 2\nline 3\nline 4\n");
+        args.put("maxMatches", 1);
+
+        assertEquals("error 1\n[...truncated 3 lines...]\n", buildLogRegexContent.getContent(build, null, null, args));
+    }
+
+    @Test
+    public void shouldShowEndOfTheLog() throws IOException {
+        writeLog("line 1\nline 2\nline 3\nline 4\n");
+        args.put("maxLines", 3);
+
+        assertEquals("[...truncated 2 lines...]\nline 3\nline 4\n",
+                new BuildLogContent().getContent(build, null, null, args));
+    }
+
+    @Test
+    public void shouldShowEndOfTheLogWithCarriageReturns() throws IOException {
+        writeLog("line 1\rline 2\rline 3\rline 4\r");
+        args.put("maxLines", 3);
+
+        assertEquals("[...truncated 2 lines...]\nline 3\nline 4\n",
+                new BuildLogContent().getContent(build, null, null, args));
+    }
+
+    @Test
+    public void shouldShowEndOfTheLogWithMixedSeparators() throws IOException {
+        writeLog("line 1\r\nline 2\rline 3\nline 4\r\nline 5\r\n");
+        args.put("maxLines", 3);
+
+        assertEquals("[...truncated 3 lines...]\nline 4\nline 5\n",
+                new BuildLogContent().getContent(build, null, null, args));
+    }
+
+    @Test
+    public void shouldReuseContentWhileEmailsAreSent() throws IOException {
+        writeLog("error 1\n");
+        BuildLogScan.open(build);
+        try {
+            assertEquals("error 1\n", buildLogRegexContent.getContent(build, null, null, args));
+            writeLog("error 1\nerror 2\n");
+            assertEquals("error 1\n", buildLogRegexContent.getContent(build, null, null, args));
+        } finally {
+            BuildLogScan.close(build);
+        }
+        assertEquals("error 1\nerror 2\n", buildLogRegexContent.getContent(build, null, null, args));
+    }
+
+    private void writeLog(String content) throws IOException {
+        FileWriter writer = new FileWriter(logFile);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.kohsuke.stapler.StaplerResponse;
 import java.io.IOException;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Reports that have children.
@@ -19,21 +21,50 @@ public abstract class AggregatedReport<
 
     private final Map<String, CHILD> children = new TreeMap<String, CHILD>();
 
+    /**
+     * Non-null while the children of a report built from an {@link EmmaReportIndex} are not materialized yet.
+     */
+    private ChildrenLoader<SELF> loader;
+
+    /**
+     * Materializes the children of a report on first access.
+     */
+    interface ChildrenLoader<SELF> {
+        void load(SELF report) throws IOException;
+    }
+
     public void add(CHILD child) {
         children.put(child.getName(),child);
         this.hasClassCoverage();
     }
 
-    public Map<String,CHILD> getChildren() {
+    public synchronized Map<String,CHILD> getChildren() {
+        if (loader != null) {
+            ChildrenLoader<SELF> l = loader;
+            loader = null;
+            try {
+                l.load((SELF)this);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to load the coverage of " + getName(), e);
+            }
+            for (CHILD c : children.values())
+                c.setParent((SELF)this);
+        }
         return children;
     }
 
+    /*package*/ void setChildrenLoader(ChildrenLoader<SELF> loader) {
+        this.loader = loader;
+    }
+
     protected void setParent(PARENT p) {
         super.setParent(p);
         for (CHILD c : children.values())
             c.setParent((SELF)this);
     }
 
+    private static final Logger LOGGER = Logger.getLogger(AggregatedReport.class.getName());
+
     public CHILD getDynamic(String token, StaplerRequest req, StaplerResponse rsp ) throws IOException {
         return getChildren().get(token);
     }
@@ -163,7 +163,15 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
             return; // up to date
 
         DataSetBuilder<String,NumberOnlyBuildLabel> dsb = new DataSetBuilder<String,NumberOnlyBuildLabel>();
+        populateTrend(dsb);
 
+        ChartUtil.generateGraph(req,rsp,createChart(dsb.build()),400,200);
+    }
+
+    /**
+     * Adds the coverage of this object and its previous results to the trend graph data.
+     */
+    protected void populateTrend(DataSetBuilder<String,NumberOnlyBuildLabel> dsb) {
         for( CoverageObject<SELF> a=this; a!=null; a=a.getPreviousResult() ) {
             NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(a.getBuild());
             dsb.add( a.clazz.getPercentageFloat(), "class", label);
@@ -172,8 +180,6 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
             if(a.line!=null)
                 dsb.add( a.line.getPercentageFloat(), "line", label);
         }
-
-        ChartUtil.generateGraph(req,rsp,createChart(dsb.build()),400,200);
     }
     
     public Api getApi() {
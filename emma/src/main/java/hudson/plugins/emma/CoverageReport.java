@@ -1,7 +1,9 @@
 package hudson.plugins.emma;
 
 import hudson.model.AbstractBuild;
+import hudson.util.DataSetBuilder;
 import hudson.util.IOException2;
+import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 import org.apache.commons.digester.Digester;
 import org.xml.sax.SAXException;
 
@@ -44,6 +46,37 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
         setParent(null);
     }
 
+    /**
+     * Builds the report from its {@link EmmaReportIndex}: packages and source files come straight from
+     * the index, and the classes of a source file are parsed from the report the first time they're needed.
+     */
+    /*package*/ CoverageReport(EmmaBuildAction action, final EmmaReportIndex index) throws IOException {
+        this(action);
+        EmmaReportIndex.addCoverage(this, index.getCoverage());
+        for (final EmmaReportIndex.PackageEntry p : index.getPackages().values()) {
+            PackageReport pkg = new PackageReport();
+            pkg.setName(p.name);
+            EmmaReportIndex.addCoverage(pkg, p.coverage);
+            pkg.setChildrenLoader(new ChildrenLoader<PackageReport>() {
+                public void load(PackageReport pkg) throws IOException {
+                    for (final EmmaReportIndex.SourceFileEntry s : p.sourceFiles.values()) {
+                        SourceFileReport src = new SourceFileReport();
+                        src.setName(s.name);
+                        EmmaReportIndex.addCoverage(src, s.coverage);
+                        src.setChildrenLoader(new ChildrenLoader<SourceFileReport>() {
+                            public void load(SourceFileReport src) throws IOException {
+                                index.loadClasses(s, src);
+                            }
+                        });
+                        pkg.add(src);
+                    }
+                }
+            });
+            add(pkg);
+        }
+        setParent(null);
+    }
+
     @Override
     public CoverageReport getPreviousResult() {
         EmmaBuildAction prev = action.getPreviousResult();
@@ -53,19 +86,31 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
             return null;
     }
 
+    /**
+     * The project level trend comes from the {@link CoverageTrendIndex}, without loading the previous reports.
+     */
+    @Override
+    protected void populateTrend(DataSetBuilder<String,NumberOnlyBuildLabel> dsb) {
+        action.populateTrend(dsb);
+    }
+
     @Override
     public AbstractBuild<?,?> getBuild() {
         return action.owner;
     }
 
+    private Digester createDigester() {
+        return createDigester(this);
+    }
+
     /**
      * Creates a configured {@link Digester} instance for parsing report XML.
      */
-    private Digester createDigester() {
+    /*package*/ static Digester createDigester(Object root) {
         Digester digester = new Digester();
-        digester.setClassLoader(getClass().getClassLoader());
+        digester.setClassLoader(CoverageReport.class.getClassLoader());
 
-        digester.push(this);
+        digester.push(root);
 
         digester.addObjectCreate( "*/package", PackageReport.class);
         digester.addSetNext(      "*/package","add");
@@ -0,0 +1,278 @@
+package hudson.plugins.emma;
+
+import hudson.model.AbstractProject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-project index of the overall coverage ratios of each build.
+ *
+ * <p>
+ * Trend graphs and health reports read this single small file instead of walking the build history and loading
+ * (possibly re-parsing) the coverage report of every build. The index is appended to at publish time, one line
+ * per build:
+ * <pre>
+ * &lt;build number> &lt;metric>=&lt;numerator>/&lt;denominator> ...
+ * </pre>
+ * If a build is recorded more than once, the last line wins.
+ */
+public final class CoverageTrendIndex {
+    /**
+     * Name of the index file in the project directory.
+     */
+    public static final String FILE_NAME = "emma-trend.txt";
+
+    /**
+     * Weak keys, so deleted projects are forgotten. The indices don't refer back to their project.
+     */
+    private static final Map<AbstractProject<?, ?>, CoverageTrendIndex> INDICES
+            = new WeakHashMap<AbstractProject<?, ?>, CoverageTrendIndex>();
+
+    private final File file;
+    private long lastModified = -1;
+    private long length = -1;
+    /**
+     * Entries by build number, newest first.
+     */
+    private TreeMap<Integer, Entry> entries;
+
+    /**
+     * Gets the index of the given project.
+     */
+    public static CoverageTrendIndex of(AbstractProject<?, ?> project) {
+        File file = new File(project.getRootDir(), FILE_NAME);
+        synchronized (INDICES) {
+            CoverageTrendIndex index = INDICES.get(project);
+            // a renamed project has a new root directory
+            if (index == null || !index.file.equals(file)) {
+                index = new CoverageTrendIndex(file);
+                INDICES.put(project, index);
+            }
+            return index;
+        }
+    }
+
+    /*package*/ CoverageTrendIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Whether the index has been created yet.
+     */
+    public synchronized boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Gets all the entries, newest build first.
+     */
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<Entry>(load().values());
+    }
+
+    /**
+     * Gets the entries of the given build and the builds before it, newest first.
+     */
+    public synchronized List<Entry> getEntriesUpTo(int buildNumber) {
+        return new ArrayList<Entry>(load().tailMap(buildNumber).values());
+    }
+
+    /**
+     * Gets the entry of the given build.
+     *
+     * @return null if the build was not recorded.
+     */
+    public synchronized Entry get(int buildNumber) {
+        return load().get(buildNumber);
+    }
+
+    /**
+     * Appends the ratios of a build to the index.
+     */
+    public synchronized void record(Entry entry) throws IOException {
+        Writer w = new BufferedWriter(new FileWriter(file, true));
+        try {
+            entry.write(w);
+        } finally {
+            w.close();
+        }
+        if (entries != null) {
+            entries.put(entry.buildNumber, entry);
+            lastModified = file.lastModified();
+            length = file.length();
+        }
+    }
+
+    /**
+     * Appends the ratios of a build to the index, seeding the index from the build history first if it doesn't
+     * exist yet. Both happen under the index lock, so concurrent builds don't both seed the index.
+     */
+    public synchronized void record(Entry entry, History history) throws IOException {
+        if (!file.exists()) {
+            rewrite(history.getEntries());
+        }
+        record(entry);
+    }
+
+    /**
+     * Replaces the whole index, typically to seed it from the existing build history.
+     */
+    public synchronized void rewrite(Collection<Entry> all) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer w = new BufferedWriter(new FileWriter(tmp));
+        try {
+            List<Entry> sorted = new ArrayList<Entry>(all);
+            Collections.sort(sorted, new Comparator<Entry>() {
+                public int compare(Entry a, Entry b) {
+                    return a.buildNumber - b.buildNumber;
+                }
+            });
+            for (Entry e : sorted) {
+                e.write(w);
+            }
+        } finally {
+            w.close();
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Failed to replace " + file);
+            }
+        }
+        entries = null;
+    }
+
+    private TreeMap<Integer, Entry> load() {
+        if (entries != null && file.lastModified() == lastModified && file.length() == length) {
+            return entries;
+        }
+        TreeMap<Integer, Entry> loaded = new TreeMap<Integer, Entry>(Collections.reverseOrder());
+        lastModified = file.lastModified();
+        length = file.length();
+        if (file.exists()) {
+            try {
+                BufferedReader r = new BufferedReader(new FileReader(file));
+                try {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        Entry e = Entry.parse(line);
+                        if (e != null) {
+                            loaded.put(e.buildNumber, e);
+                        }
+                    }
+                } finally {
+                    r.close();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read " + file, e);
+            }
+        }
+        entries = loaded;
+        return entries;
+    }
+
+    /**
+     * The ratios of the builds recorded before the index was created.
+     */
+    public interface History {
+        Collection<Entry> getEntries();
+    }
+
+    /**
+     * The overall coverage ratios of one build.
+     */
+    public static final class Entry {
+        private final int buildNumber;
+        private final Map<String, float[]> ratios = new LinkedHashMap<String, float[]>();
+
+        public Entry(int buildNumber) {
+            this.buildNumber = buildNumber;
+        }
+
+        public int getBuildNumber() {
+            return buildNumber;
+        }
+
+        public Entry put(String metric, float numerator, float denominator) {
+            ratios.put(metric, new float[]{numerator, denominator});
+            return this;
+        }
+
+        public Set<String> getMetrics() {
+            return Collections.unmodifiableSet(ratios.keySet());
+        }
+
+        public boolean has(String metric) {
+            return ratios.containsKey(metric);
+        }
+
+        public float getNumerator(String metric) {
+            float[] r = ratios.get(metric);
+            return r == null ? 0 : r[0];
+        }
+
+        public float getDenominator(String metric) {
+            float[] r = ratios.get(metric);
+            return r == null ? 0 : r[1];
+        }
+
+        public float getPercentageFloat(String metric) {
+            float denominator = getDenominator(metric);
+            return denominator == 0 ? 0 : (100 * getNumerator(metric) / denominator);
+        }
+
+        private void write(Writer w) throws IOException {
+            w.write(String.valueOf(buildNumber));
+            for (Map.Entry<String, float[]> r : ratios.entrySet()) {
+                w.write(' ');
+                w.write(r.getKey());
+                w.write('=');
+                w.write(Float.toString(r.getValue()[0]));
+                w.write('/');
+                w.write(Float.toString(r.getValue()[1]));
+            }
+            w.write('\n');
+        }
+
+        /*package*/ static Entry parse(String line) {
+            String[] tokens = line.trim().split(" ");
+            try {
+                Entry e = new Entry(Integer.parseInt(tokens[0]));
+                for (int i = 1; i < tokens.length; i++) {
+                    int eq = tokens[i].indexOf('=');
+                    int slash = tokens[i].indexOf('/', eq);
+                    if (eq < 0 || slash < 0) {
+                        continue;
+                    }
+                    e.put(tokens[i].substring(0, eq),
+                            Float.parseFloat(tokens[i].substring(eq + 1, slash)),
+                            Float.parseFloat(tokens[i].substring(slash + 1)));
+                }
+                return e;
+            } catch (NumberFormatException e) {
+                // a partially written line, e.g. after a crash
+                return null;
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(CoverageTrendIndex.class.getName());
+}
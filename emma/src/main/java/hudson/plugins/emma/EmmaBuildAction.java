@@ -6,8 +6,10 @@ import hudson.model.HealthReport;
 import hudson.model.HealthReportingAction;
 import hudson.model.Result;
 import hudson.util.IOException2;
+import hudson.util.DataSetBuilder;
 import hudson.util.NullStream;
 import hudson.util.StreamTaskListener;
+import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 
 import org.jvnet.localizer.Localizable;
 import org.kohsuke.stapler.StaplerProxy;
@@ -20,6 +22,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -171,13 +175,26 @@ public final class EmmaBuildAction extends CoverageObject<EmmaBuildAction> imple
         	
         	// Get the list of report files stored for this build
             FilePath[] reports = getEmmaReports(reportFolder);
-            InputStream[] streams = new InputStream[reports.length];
-            for (int i=0; i<reports.length; i++) {
-            	streams[i] = reports[i].read();
+
+            // Generate the report, lazily from the index when possible
+            CoverageReport r = null;
+            if (reportFolder.isDirectory()) {
+                File[] files = new File[reports.length];
+                for (int i=0; i<reports.length; i++) {
+                    files[i] = new File(reports[i].getRemote());
+                }
+                EmmaReportIndex index = EmmaReportIndex.of(reportFolder, files);
+                if (index != null) {
+                    r = new CoverageReport(this, index);
+                }
+            }
+            if (r == null) {
+                InputStream[] streams = new InputStream[reports.length];
+                for (int i=0; i<reports.length; i++) {
+                    streams[i] = reports[i].read();
+                }
+                r = new CoverageReport(this, streams);
             }
-            
-            // Generate the report
-            CoverageReport r = new CoverageReport(this, streams);
 
             if(rule!=null) {
                 // we change the report so that the FAILED flag is set correctly
@@ -218,6 +235,59 @@ public final class EmmaBuildAction extends CoverageObject<EmmaBuildAction> imple
         }
     }
 
+    private static final String[] TREND_METRICS = {"class", "block", "method", "line"};
+
+    private CoverageTrendIndex.Entry toTrendEntry() {
+        CoverageTrendIndex.Entry entry = new CoverageTrendIndex.Entry(owner.getNumber());
+        Ratio[] ratios = {clazz, block, method, line};
+        for (int i = 0; i < ratios.length; i++) {
+            if (ratios[i] != null) {
+                entry.put(TREND_METRICS[i], ratios[i].getNumerator(), ratios[i].getDenominator());
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Records the overall ratios of this build in the project's {@link CoverageTrendIndex},
+     * seeding the index from the build history the first time.
+     */
+    /*package*/ void recordTrend() throws IOException {
+        CoverageTrendIndex.of(owner.getProject()).record(toTrendEntry(), new CoverageTrendIndex.History() {
+            public Collection<CoverageTrendIndex.Entry> getEntries() {
+                List<CoverageTrendIndex.Entry> history = new ArrayList<CoverageTrendIndex.Entry>();
+                for (AbstractBuild<?,?> b = owner.getPreviousBuild(); b != null; b = b.getPreviousBuild()) {
+                    EmmaBuildAction a = b.getAction(EmmaBuildAction.class);
+                    if (a != null) {
+                        history.add(a.toTrendEntry());
+                    }
+                }
+                return history;
+            }
+        });
+    }
+
+    @Override
+    protected void populateTrend(DataSetBuilder<String,NumberOnlyBuildLabel> dsb) {
+        CoverageTrendIndex index = CoverageTrendIndex.of(owner.getProject());
+        if (!index.exists()) {
+            super.populateTrend(dsb);
+            return;
+        }
+        for (CoverageTrendIndex.Entry e : index.getEntriesUpTo(owner.getNumber())) {
+            AbstractBuild<?,?> b = owner.getProject().getBuildByNumber(e.getBuildNumber());
+            if (b == null || (b != owner && b.getResult() == Result.FAILURE)) {
+                continue;
+            }
+            NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(b);
+            for (String metric : TREND_METRICS) {
+                if (e.has(metric)) {
+                    dsb.add(e.getPercentageFloat(metric), metric, label);
+                }
+            }
+        }
+    }
+
     /**
      * Constructs the object from emma XML report files.
      * See <a href="http://emma.sourceforge.net/coverage_sample_c/coverage.xml">an example XML file</a>.
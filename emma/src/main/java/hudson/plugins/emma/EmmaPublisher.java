@@ -128,6 +128,11 @@ public class EmmaPublisher extends Recorder {
         logger.println("Emma: " + action.getBuildHealth().getDescription());
 
         build.getActions().add(action);
+        try {
+            action.recordTrend();
+        } catch (IOException e) {
+            e.printStackTrace(listener.error("Emma: unable to record the coverage trend"));
+        }
 
         if (action.getResult().isFailed()) {
             logger.println("Emma: code coverage enforcement failed. Setting Build to unstable.");
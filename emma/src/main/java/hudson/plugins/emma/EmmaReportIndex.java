@@ -0,0 +1,640 @@
+package hudson.plugins.emma;
+
+import hudson.util.IOException2;
+import org.apache.commons.digester.Digester;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Packed index of the emma XML reports of a build.
+ *
+ * <p>
+ * The index keeps the coverage values down to the source file level, plus the byte range of every
+ * <tt>&lt;srcfile></tt> element in the report it came from. This allows {@link CoverageReport} to
+ * materialize the package and source file levels without parsing the reports, and to parse only the
+ * section of the report that belongs to one source file when its classes are displayed.
+ */
+final class EmmaReportIndex {
+    /**
+     * Name of the index file, stored next to the reports in the build directory.
+     */
+    static final String FILE_NAME = "index.dat";
+
+    private static final int VERSION = 1;
+
+    private final File folder;
+    private final List<ReportFile> reports = new ArrayList<ReportFile>();
+    private final List<String[]> coverage = new ArrayList<String[]>();
+    private final Map<String, PackageEntry> packages = new LinkedHashMap<String, PackageEntry>();
+
+    private EmmaReportIndex(File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Loads the index of the given reports, creating (or recreating) it if it's missing or out of date.
+     *
+     * @return null if the reports have a structure the index cannot represent, in which case the reports
+     *      have to be parsed completely.
+     */
+    static EmmaReportIndex of(File folder, File[] reportFiles) {
+        File file = new File(folder, FILE_NAME);
+        if (file.exists()) {
+            try {
+                EmmaReportIndex index = read(folder, file);
+                if (index.isUpToDate(reportFiles)) {
+                    return index;
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Discarding unreadable index " + file, e);
+            }
+        }
+        try {
+            EmmaReportIndex index = new EmmaReportIndex(folder);
+            for (File reportFile : reportFiles) {
+                if (!index.scan(reportFile)) {
+                    return null;
+                }
+            }
+            index.write(file);
+            return index;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to index " + folder, e);
+            return null;
+        }
+    }
+
+    /**
+     * Coverage values of the whole report, as (type, value) pairs.
+     */
+    List<String[]> getCoverage() {
+        return coverage;
+    }
+
+    Map<String, PackageEntry> getPackages() {
+        return packages;
+    }
+
+    /**
+     * Parses the section of the report that holds the given source file and adds its classes to the report.
+     */
+    void loadClasses(SourceFileEntry src, SourceFileReport target) throws IOException {
+        ReportFile report = reports.get(src.report);
+        byte[] fragment = new byte[(int) (src.end - src.start)];
+        RandomAccessFile raf = new RandomAccessFile(new File(folder, report.name), "r");
+        try {
+            raf.seek(src.start);
+            raf.readFully(fragment);
+        } finally {
+            raf.close();
+        }
+
+        // the srcfile element is parsed into a scratch package, so its own coverage isn't counted twice
+        PackageReport scratch = new PackageReport();
+        Digester digester = CoverageReport.createDigester(scratch);
+        InputSource in = new InputSource(new ByteArrayInputStream(fragment));
+        in.setEncoding(report.encoding);
+        try {
+            digester.parse(in);
+        } catch (SAXException e) {
+            throw new IOException2("Failed to parse " + src.name + " in " + report.name, e);
+        }
+        for (SourceFileReport parsed : scratch.getChildren().values()) {
+            for (ClassReport clazz : parsed.getChildren().values()) {
+                target.add(clazz);
+            }
+        }
+    }
+
+    private boolean isUpToDate(File[] reportFiles) {
+        if (reportFiles.length != reports.size()) {
+            return false;
+        }
+        for (int i = 0; i < reportFiles.length; i++) {
+            ReportFile r = reports.get(i);
+            if (!reportFiles[i].getName().equals(r.name) || reportFiles[i].length() != r.length
+                    || reportFiles[i].lastModified() != r.lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scans one report, without building any object tree.
+     *
+     * @return false if the report contains classes outside of a source file, or cannot be scanned
+     *      (see {@link TagScanner}).
+     */
+    private boolean scan(File reportFile) throws IOException {
+        int reportIndex = reports.size();
+        ReportFile report = new ReportFile(reportFile.getName(), reportFile.length(), reportFile.lastModified());
+        reports.add(report);
+
+        TagScanner scanner = new TagScanner(new BufferedInputStream(new FileInputStream(reportFile)));
+        try {
+            List<String> open = new ArrayList<String>();
+            PackageEntry pkg = null;
+            SourceFileEntry src = null;
+            while (scanner.next()) {
+                String tag = scanner.name;
+                if (scanner.kind == TagScanner.END) {
+                    if (tag.equals("srcfile") && src != null && pkg != null) {
+                        src.end = scanner.end;
+                        pkg.sourceFiles.put(src.name, src);
+                        src = null;
+                    } else if (tag.equals("package")) {
+                        pkg = null;
+                    }
+                    if (!open.isEmpty()) {
+                        open.remove(open.size() - 1);
+                    }
+                    continue;
+                }
+
+                if (tag.equals("coverage")) {
+                    String owner = innermostReport(open);
+                    String[] value = {scanner.attribute("type"), scanner.attribute("value")};
+                    if (owner == null) {
+                        coverage.add(value);
+                    } else if (owner.equals("package") && pkg != null) {
+                        pkg.coverage.add(value);
+                    } else if (owner.equals("srcfile") && src != null) {
+                        src.coverage.add(value);
+                    }
+                } else if (tag.equals("package")) {
+                    pkg = new PackageEntry(scanner.attribute("name"));
+                    // same as the digester: a package seen again in a later report replaces the earlier one
+                    packages.put(pkg.name, pkg);
+                } else if (tag.equals("srcfile")) {
+                    src = new SourceFileEntry(scanner.attribute("name"), reportIndex, scanner.start);
+                    if (scanner.kind == TagScanner.EMPTY) {
+                        src.end = scanner.end;
+                        if (pkg != null) {
+                            pkg.sourceFiles.put(src.name, src);
+                        }
+                        src = null;
+                    }
+                } else if (tag.equals("class") && src == null) {
+                    return false;
+                }
+                if (scanner.kind == TagScanner.START) {
+                    open.add(tag);
+                } else if (tag.equals("package")) {
+                    pkg = null;
+                }
+            }
+            if (scanner.unsupported != null) {
+                LOGGER.fine("Cannot index " + reportFile + ": " + scanner.unsupported);
+                return false;
+            }
+            report.encoding = scanner.encoding;
+            return true;
+        } finally {
+            scanner.close();
+        }
+    }
+
+    /**
+     * Finds the element the digester would attach a &lt;coverage> to.
+     */
+    private static String innermostReport(List<String> open) {
+        for (int i = open.size() - 1; i >= 0; i--) {
+            String name = open.get(i);
+            if (name.equals("package") || name.equals("srcfile") || name.equals("class") || name.equals("method")) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(reports.size());
+            for (ReportFile r : reports) {
+                out.writeUTF(r.name);
+                out.writeUTF(r.encoding);
+                out.writeLong(r.length);
+                out.writeLong(r.lastModified);
+            }
+            writeCoverage(out, coverage);
+            out.writeInt(packages.size());
+            for (PackageEntry p : packages.values()) {
+                out.writeUTF(p.name);
+                writeCoverage(out, p.coverage);
+                out.writeInt(p.sourceFiles.size());
+                for (SourceFileEntry s : p.sourceFiles.values()) {
+                    out.writeUTF(s.name);
+                    writeCoverage(out, s.coverage);
+                    out.writeInt(s.report);
+                    out.writeLong(s.start);
+                    out.writeLong(s.end);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        file.delete();
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to create " + file);
+        }
+    }
+
+    private static EmmaReportIndex read(File folder, File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unsupported index version");
+            }
+            EmmaReportIndex index = new EmmaReportIndex(folder);
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                ReportFile r = new ReportFile(in.readUTF(), 0, 0);
+                r.encoding = in.readUTF();
+                r.length = in.readLong();
+                r.lastModified = in.readLong();
+                index.reports.add(r);
+            }
+            readCoverage(in, index.coverage);
+            n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                PackageEntry p = new PackageEntry(in.readUTF());
+                readCoverage(in, p.coverage);
+                int m = in.readInt();
+                for (int j = 0; j < m; j++) {
+                    String name = in.readUTF();
+                    List<String[]> values = new ArrayList<String[]>();
+                    readCoverage(in, values);
+                    SourceFileEntry s = new SourceFileEntry(name, in.readInt(), in.readLong());
+                    s.end = in.readLong();
+                    s.coverage.addAll(values);
+                    p.sourceFiles.put(s.name, s);
+                }
+                index.packages.put(p.name, p);
+            }
+            return index;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeCoverage(DataOutputStream out, List<String[]> values) throws IOException {
+        out.writeInt(values.size());
+        for (String[] v : values) {
+            out.writeUTF(v[0]);
+            out.writeUTF(v[1]);
+        }
+    }
+
+    private static void readCoverage(DataInputStream in, List<String[]> values) throws IOException {
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            values.add(new String[]{in.readUTF(), in.readUTF()});
+        }
+    }
+
+    /**
+     * Adds (type, value) coverage pairs to a report, as the digester does with &lt;coverage> elements.
+     */
+    static void addCoverage(AbstractReport<?, ?> report, List<String[]> values) throws IOException {
+        for (String[] v : values) {
+            CoverageElement e = new CoverageElement();
+            e.setType(v[0]);
+            e.setValue(v[1]);
+            report.addCoverage(e);
+        }
+    }
+
+    private static final class ReportFile {
+        private final String name;
+        private String encoding = "UTF-8";
+        private long length;
+        private long lastModified;
+
+        private ReportFile(String name, long length, long lastModified) {
+            this.name = name;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    static final class PackageEntry {
+        final String name;
+        final List<String[]> coverage = new ArrayList<String[]>();
+        final Map<String, SourceFileEntry> sourceFiles = new LinkedHashMap<String, SourceFileEntry>();
+
+        private PackageEntry(String name) {
+            this.name = name;
+        }
+    }
+
+    static final class SourceFileEntry {
+        final String name;
+        final List<String[]> coverage = new ArrayList<String[]>();
+        private final int report;
+        private final long start;
+        private long end;
+
+        private SourceFileEntry(String name, int report, long start) {
+            this.name = name;
+            this.report = report;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Minimal tokenizer that reports the elements of an XML document with their byte offsets.
+     * Text, CDATA sections, comments, processing instructions and the document type declaration are
+     * skipped, which is fine for emma reports as all their data is in attributes.
+     *
+     * <p>
+     * Offsets are counted in bytes, so only UTF-8 and the single byte encodings based on ASCII are
+     * supported. Other documents, and documents that may declare their own entities, are reported as
+     * {@link #unsupported} and have to be parsed completely.
+     */
+    private static final class TagScanner {
+        static final int START = 0, END = 1, EMPTY = 2;
+
+        private final InputStream in;
+        private long pos;
+        private boolean started;
+        private final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+        private String encoding = "UTF-8";
+        /**
+         * Why the document cannot be indexed, null as long as it can.
+         */
+        private String unsupported;
+
+        int kind;
+        String name;
+        long start;
+        long end;
+
+        TagScanner(InputStream in) {
+            this.in = in;
+        }
+
+        private int read() throws IOException {
+            int c = in.read();
+            if (c >= 0) {
+                pos++;
+            }
+            return c;
+        }
+
+        String attribute(String name) {
+            return attributes.get(name);
+        }
+
+        /**
+         * Advances to the next start, end or empty element tag.
+         *
+         * @return false at the end of the document, or as soon as it turns out to be unsupported.
+         */
+        boolean next() throws IOException {
+            if (!started) {
+                started = true;
+                checkEncoding();
+            }
+            while (unsupported == null) {
+                int c;
+                do {
+                    c = read();
+                    if (c < 0) {
+                        return false;
+                    }
+                } while (c != '<');
+                start = pos - 1;
+                attributes.clear();
+
+                c = read();
+                if (c == '!') {
+                    skipDeclaration();
+                    continue;
+                }
+                if (c == '?') {
+                    skipProcessingInstruction();
+                    continue;
+                }
+                if (c == '/') {
+                    kind = END;
+                    c = read();
+                } else {
+                    kind = START;
+                }
+                c = readName(c);
+                name = buf.toString(encoding);
+                c = readAttributes(c);
+                if (c < 0) {
+                    throw new IOException("Unexpected end of document in <" + name + ">");
+                }
+                end = pos;
+                return unsupported == null;
+            }
+            return false;
+        }
+
+        /**
+         * Rejects documents in UTF-16, UTF-32 or EBCDIC, detected from their first bytes.
+         */
+        private void checkEncoding() throws IOException {
+            byte[] b = new byte[2];
+            in.mark(b.length);
+            int n = 0, len;
+            while (n < b.length && (len = in.read(b, n, b.length - n)) > 0) {
+                n += len;
+            }
+            in.reset();
+            if (n == 2 && (b[0] == 0 || b[1] == 0 || (b[0] & 0xFF) == 0xFE || (b[0] & 0xFF) == 0xFF
+                    || (b[0] == 0x4C && b[1] == 0x6F))) {
+                unsupported = "not an ASCII based encoding";
+            }
+        }
+
+        private int readName(int c) throws IOException {
+            buf.reset();
+            while (c >= 0 && c != '>' && c != '/' && c != '?' && c != '=' && !Character.isWhitespace(c)) {
+                buf.write(c);
+                c = read();
+            }
+            return c;
+        }
+
+        private int readAttributes(int c) throws IOException {
+            while (c >= 0 && c != '>') {
+                if (c == '/' && kind == START) {
+                    kind = EMPTY;
+                } else if (!Character.isWhitespace(c) && c != '?') {
+                    c = readName(c);
+                    String attr = buf.toString(encoding);
+                    while (c >= 0 && c != '"' && c != '\'' && c != '>') {
+                        c = read();
+                    }
+                    if (c == '"' || c == '\'') {
+                        int quote = c;
+                        buf.reset();
+                        while ((c = read()) >= 0 && c != quote) {
+                            // attribute value normalization
+                            buf.write(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+                        }
+                        attributes.put(attr, unescape(buf.toString(encoding)));
+                    } else {
+                        continue;
+                    }
+                }
+                c = read();
+            }
+            return c;
+        }
+
+        /**
+         * Skips a comment, a CDATA section or the document type declaration, after the "&lt;!".
+         */
+        private void skipDeclaration() throws IOException {
+            int c = read();
+            if (c == '-') {
+                read();
+                skipPast("-->");
+            } else if (c == '[') {
+                skipPast("CDATA[");
+                skipPast("]]>");
+            } else {
+                int quote = 0;
+                while ((c = read()) >= 0 && (c != '>' || quote != 0)) {
+                    if (quote == 0 && c == '[') {
+                        unsupported = "the document type declaration has an internal subset";
+                        return;
+                    }
+                    if (c == '"' || c == '\'') {
+                        quote = quote == 0 ? c : (quote == c ? 0 : quote);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Skips a processing instruction after the "&lt;?", taking the encoding from the XML declaration.
+         */
+        private void skipProcessingInstruction() throws IOException {
+            int c = readName(read());
+            if (!buf.toString("US-ASCII").equals("xml")) {
+                skipPast("?>");
+                return;
+            }
+            kind = START;
+            readAttributes(c);
+            String declared = attribute("encoding");
+            if (declared != null) {
+                if (isSupported(declared)) {
+                    encoding = declared;
+                } else {
+                    unsupported = "unsupported encoding " + declared;
+                }
+            }
+        }
+
+        private void skipPast(String terminator) throws IOException {
+            byte[] last = new byte[terminator.length()];
+            int n = 0, c;
+            while ((c = read()) >= 0) {
+                System.arraycopy(last, 1, last, 0, last.length - 1);
+                last[last.length - 1] = (byte) c;
+                if (++n >= last.length && new String(last, "US-ASCII").equals(terminator)) {
+                    return;
+                }
+            }
+            throw new IOException("Unexpected end of document, expected " + terminator);
+        }
+
+        private static boolean isSupported(String encoding) {
+            try {
+                Charset charset = Charset.forName(encoding);
+                if (charset.name().equals("UTF-8")) {
+                    return true;
+                }
+                String markup = "<>/?!=\"'&#;[]-";
+                return charset.newEncoder().maxBytesPerChar() == 1
+                        && Arrays.equals(markup.getBytes(charset.name()), markup.getBytes("US-ASCII"));
+            } catch (Exception e) {
+                // illegal or unknown charset name, or a charset that can only decode
+                return false;
+            }
+        }
+
+        /**
+         * Replaces the predefined entities and the character references.
+         */
+        private String unescape(String s) {
+            if (s.indexOf('&') < 0) {
+                return s;
+            }
+            StringBuilder b = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                int semicolon = s.indexOf(';', i);
+                if (c != '&' || semicolon < 0) {
+                    b.append(c);
+                    continue;
+                }
+                String ref = s.substring(i + 1, semicolon);
+                try {
+                    if (ref.startsWith("#x")) {
+                        b.appendCodePoint(Integer.parseInt(ref.substring(2), 16));
+                    } else if (ref.startsWith("#")) {
+                        b.appendCodePoint(Integer.parseInt(ref.substring(1)));
+                    } else if (ref.equals("lt")) {
+                        b.append('<');
+                    } else if (ref.equals("gt")) {
+                        b.append('>');
+                    } else if (ref.equals("amp")) {
+                        b.append('&');
+                    } else if (ref.equals("quot")) {
+                        b.append('"');
+                    } else if (ref.equals("apos")) {
+                        b.append('\'');
+                    } else {
+                        unsupported = "reference to the entity " + ref;
+                        return s;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // also thrown by appendCodePoint for an invalid code point
+                    unsupported = "invalid character reference &" + ref + ";";
+                    return s;
+                }
+                i = semicolon;
+            }
+            return b.toString();
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(EmmaReportIndex.class.getName());
+}
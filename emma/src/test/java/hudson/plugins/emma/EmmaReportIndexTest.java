@@ -0,0 +1,173 @@
+package hudson.plugins.emma;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Compares reports built lazily from {@link EmmaReportIndex} with fully parsed ones.
+ */
+public class EmmaReportIndexTest extends AbstractEmmaTestBase {
+    private File folder;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folder = File.createTempFile("emma", "index");
+        folder.delete();
+        folder.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : folder.listFiles()) {
+            f.delete();
+        }
+        folder.delete();
+        super.tearDown();
+    }
+
+    private File copy(String resource) throws Exception {
+        File target = new File(folder, resource);
+        InputStream in = getClass().getResourceAsStream(resource);
+        OutputStream out = new FileOutputStream(target);
+        try {
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) > 0) {
+                out.write(buf, 0, len);
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+        return target;
+    }
+
+    private void assertSameReport(AbstractReport<?,?> expected, AbstractReport<?,?> actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertRatio(actual.getClassCoverage(), expected.getClassCoverage().getNumerator(), expected.getClassCoverage().getDenominator());
+        assertRatio(actual.getMethodCoverage(), expected.getMethodCoverage().getNumerator(), expected.getMethodCoverage().getDenominator());
+        assertRatio(actual.getBlockCoverage(), expected.getBlockCoverage().getNumerator(), expected.getBlockCoverage().getDenominator());
+        assertRatio(actual.getLineCoverage(), expected.getLineCoverage().getNumerator(), expected.getLineCoverage().getDenominator());
+        if (expected instanceof AggregatedReport) {
+            Map<String, ? extends AbstractReport<?,?>> e = ((AggregatedReport<?,?,?>) expected).getChildren();
+            Map<String, ? extends AbstractReport<?,?>> a = ((AggregatedReport<?,?,?>) actual).getChildren();
+            assertEquals(e.keySet(), a.keySet());
+            for (String name : e.keySet()) {
+                assertSameReport(e.get(name), a.get(name));
+            }
+        }
+    }
+
+    public void testIndexedReportMatchesParsedReport() throws Exception {
+        File[] files = {copy("coverage.xml"), copy("coverageh.xml")};
+        CoverageReport parsed = new CoverageReport(null,
+                getClass().getResourceAsStream("coverage.xml"),
+                getClass().getResourceAsStream("coverageh.xml"));
+
+        EmmaReportIndex index = EmmaReportIndex.of(folder, files);
+        assertNotNull(index);
+        assertTrue(new File(folder, EmmaReportIndex.FILE_NAME).exists());
+        assertSameReport(parsed, new CoverageReport(null, index));
+
+        // and once more from the index file written to disk
+        assertSameReport(parsed, new CoverageReport(null, EmmaReportIndex.of(folder, files)));
+    }
+
+    public void testClassesAreLoadedOnDemand() throws Exception {
+        File[] files = {copy("coverageh.xml")};
+        CoverageReport r = new CoverageReport(null, EmmaReportIndex.of(folder, files));
+
+        PackageReport pkg = r.getChildren().get("org.apache.hupa.client.validation");
+        assertRatio(pkg.getLineCoverage(), 9, 27);
+        SourceFileReport src = pkg.getChildren().get("EmailListValidator.java");
+        assertRatio(src.getLineCoverage(), 9, 18);
+        assertSame(pkg, src.getParent());
+
+        ClassReport clz = src.getChildren().get("EmailListValidator");
+        assertRatio(clz.getLineCoverage(), 9, 18);
+        assertSame(src, clz.getParent());
+        MethodReport mth = clz.getChildren().get("isValidAddress (String): boolean");
+        assertRatio(mth.getLineCoverage(), 1, 1);
+    }
+
+    private static final String REPORT_BODY =
+            "<report>\n"
+            + "  <stats><![CDATA[ <srcfile name=\"not a tag\"> ]]></stats>\n"
+            + "  <data>\n"
+            + "    <all name=\"all classes\">\n"
+            + "      <coverage type=\"class, %\" value=\"100% (1/1)\"/>\n"
+            + "      <coverage type=\"method, %\" value=\"50%  (1/2)\"/>\n"
+            + "      <coverage type=\"block, %\" value=\"40%  (4/10)\"/>\n"
+            + "      <coverage type=\"line, %\" value=\"25%  (1/4)\"/>\n"
+            + "      <!-- a comment with > and <srcfile name=\"not a tag\"/> -->\n"
+            + "      <?generator emma > 2.0?>\n"
+            + "      <package name=\"org&#46;example\">\n"
+            + "        <coverage type=\"class, %\" value=\"100% (1/1)\"/>\n"
+            + "        <coverage type=\"method, %\" value=\"50%  (1/2)\"/>\n"
+            + "        <coverage type=\"block, %\" value=\"40%  (4/10)\"/>\n"
+            + "        <coverage type=\"line, %\" value=\"25%  (1/4)\"/>\n"
+            + "        <srcfile name=\"\u00c9t&#xE9;.java\">\n"
+            + "          <coverage type=\"class, %\" value=\"100% (1/1)\"/>\n"
+            + "          <coverage type=\"method, %\" value=\"50%  (1/2)\"/>\n"
+            + "          <coverage type=\"block, %\" value=\"40%  (4/10)\"/>\n"
+            + "          <coverage type=\"line, %\" value=\"25%  (1/4)\"/>\n"
+            + "          <class name=\"&#201;t&#233;\">\n"
+            + "            <coverage type=\"class, %\" value=\"100% (1/1)\"/>\n"
+            + "            <coverage type=\"method, %\" value=\"50%  (1/2)\"/>\n"
+            + "            <coverage type=\"block, %\" value=\"40%  (4/10)\"/>\n"
+            + "            <coverage type=\"line, %\" value=\"25%  (1/4)\"/>\n"
+            + "            <method name=\"a (): void\">\n"
+            + "              <coverage type=\"method, %\" value=\"100% (1/1)\"/>\n"
+            + "              <coverage type=\"block, %\" value=\"100% (4/4)\"/>\n"
+            + "              <coverage type=\"line, %\" value=\"100% (1/1)\"/>\n"
+            + "            </method>\n"
+            + "          </class>\n"
+            + "        </srcfile>\n"
+            + "      </package>\n"
+            + "    </all>\n"
+            + "  </data>\n"
+            + "</report>\n";
+
+    private File write(String name, String content, String encoding) throws Exception {
+        File target = new File(folder, name);
+        OutputStream out = new FileOutputStream(target);
+        try {
+            out.write(content.getBytes(encoding));
+        } finally {
+            out.close();
+        }
+        return target;
+    }
+
+    public void testMarkupThatIsNotAnElementIsSkipped() throws Exception {
+        String content = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                + "<!DOCTYPE report>\n"
+                + REPORT_BODY;
+        File[] files = {write("report.xml", content, "ISO-8859-1")};
+        CoverageReport parsed = new CoverageReport(null, new ByteArrayInputStream(content.getBytes("ISO-8859-1")));
+
+        EmmaReportIndex index = EmmaReportIndex.of(folder, files);
+        assertNotNull(index);
+        CoverageReport r = new CoverageReport(null, index);
+        assertSameReport(parsed, r);
+
+        PackageReport pkg = r.getChildren().get("org.example");
+        SourceFileReport src = pkg.getChildren().get("\u00c9t\u00e9.java");
+        ClassReport clz = src.getChildren().get("\u00c9t\u00e9");
+        assertRatio(clz.getLineCoverage(), 1, 4);
+        assertRatio(clz.getChildren().get("a (): void").getBlockCoverage(), 4, 4);
+    }
+
+    public void testReportsTheIndexCannotRepresentAreParsed() throws Exception {
+        File subset = write("subset.xml", "<!DOCTYPE report [<!ENTITY x \"y\">]>\n" + REPORT_BODY, "UTF-8");
+        assertNull(EmmaReportIndex.of(folder, new File[]{subset}));
+
+        File utf16 = write("utf16.xml", "<?xml version=\"1.0\" encoding=\"UTF-16\"?>\n" + REPORT_BODY, "UTF-16");
+        assertNull(EmmaReportIndex.of(folder, new File[]{utf16}));
+    }
+}
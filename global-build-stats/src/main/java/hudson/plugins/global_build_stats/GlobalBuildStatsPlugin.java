@@ -9,6 +9,7 @@ import hudson.model.ManagementLink;
 import hudson.model.TaskListener;
 import hudson.model.TopLevelItem;
 import hudson.model.listeners.RunListener;
+import hudson.plugins.global_build_stats.model.BuildResult;
 import hudson.plugins.global_build_stats.model.BuildStatConfiguration;
 import hudson.plugins.global_build_stats.model.DateRange;
 import hudson.plugins.global_build_stats.model.HistoricScale;
@@ -20,14 +21,15 @@ import hudson.util.ShiftedCategoryAxis;
 import hudson.util.StackedAreaRenderer2;
 
 import java.awt.Color;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
 
@@ -54,15 +56,34 @@ import org.kohsuke.stapler.StaplerResponse;
  */
 public class GlobalBuildStatsPlugin extends Plugin {
 
+	private static final Logger LOGGER = Logger.getLogger(GlobalBuildStatsPlugin.class.getName());
+
+	// Only read from configurations saved by previous versions : job build results
+	// are now kept in the store, and moved there when the plugin starts
 	private List<JobBuildResult> jobBuildResults = new ArrayList<JobBuildResult>();
 	private List<BuildStatConfiguration> buildStatConfigs = new ArrayList<BuildStatConfiguration>();
 
+	private transient JobBuildResultStore store;
+
 	@Override
 	public void postInitialize() throws Exception {
 		super.postInitialize();
 		
 		// Reload plugin informations
 		this.load();
+		
+		if(!jobBuildResults.isEmpty()){
+			getStore().addAll(jobBuildResults);
+			jobBuildResults.clear();
+			save();
+		}
+	}
+	
+	public synchronized JobBuildResultStore getStore(){
+		if(store == null){
+			store = new JobBuildResultStore(new File(Hudson.getInstance().getRootDir(), "global-build-stats"));
+		}
+		return store;
 	}
 	
     @Extension
@@ -96,10 +117,10 @@ public class GlobalBuildStatsPlugin extends Plugin {
     		super.onCompleted(r, listener);
     		
     		GlobalBuildStatsPlugin plugin = Hudson.getInstance().getPlugin(GlobalBuildStatsPlugin.class);
-    		plugin.addBuild(r);
     		try {
-				plugin.save();
+				plugin.getStore().add(JobBuildResultFactory.INSTANCE.createJobBuildResult(r));
 			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to record build result of "+r, e);
 			}
     	}
     }
@@ -166,24 +187,23 @@ public class GlobalBuildStatsPlugin extends Plugin {
     }
     
     public void doRecordBuildInfos(StaplerRequest req, StaplerResponse res) throws ServletException, IOException {
-        jobBuildResults.clear();
+        List<JobBuildResult> results = new ArrayList<JobBuildResult>();
         
         //TODO fix MatrixProject and use getAllJobs()
         for (TopLevelItem item : Hudson.getInstance().getItems()) {
             if (item instanceof AbstractProject) {
-            	addBuildsFrom((AbstractProject) item);
+            	addBuildsFrom(results, (AbstractProject) item);
             }
         }
 
-    	save();
+    	getStore().reset(results);
     	
         res.forwardToPreviousPage(req);
     }
     
     public void doCreateChart(StaplerRequest req, StaplerResponse res) throws ServletException, IOException {
     	BuildStatConfiguration config = createBuildStatConfig(req);
-    	List<JobBuildResult> filteredJobBuildResults = createFilteredAndSortedBuildResults(config);
-        DataSetBuilder<String, DateRange> dsb = createDataSetBuilder(filteredJobBuildResults, config);
+        DataSetBuilder<String, DateRange> dsb = createDataSetBuilder(config);
     	
         ChartUtil.generateGraph(req, res, createChart(req, dsb.build(), config.getBuildStatTitle()), 
         		config.getBuildStatWidth(), config.getBuildStatHeight());
@@ -320,91 +340,43 @@ public class GlobalBuildStatsPlugin extends Plugin {
         return chart;
     }
     
-    private DataSetBuilder<String, DateRange> createDataSetBuilder(List<JobBuildResult> filteredJobBuildResults, 
-    			BuildStatConfiguration config){
+    private DataSetBuilder<String, DateRange> createDataSetBuilder(BuildStatConfiguration config) throws IOException {
         DataSetBuilder<String, DateRange> dsb = new DataSetBuilder<String, DateRange>();
         
-        if(filteredJobBuildResults.size() == 0){
+        if(getStore().isEmpty()){
         	return dsb;
         }
         
+        JobFilter jobFilter = JobFilterFactory.createJobFilter(config.getJobFilter());
     	Calendar d2 = new GregorianCalendar();
     	Calendar d1 = config.getHistoricScale().getPreviousStep(d2);
     	
-    	int nbSuccess=0, nbFailures=0, nbUnstables=0, nbAborted=0, nbNotBuild=0;
-    	int nbSteps = 0;
-    	Iterator<JobBuildResult> buildsIter = filteredJobBuildResults.iterator();
-    	JobBuildResult currentBuild = buildsIter.next();
-    	Calendar buildDate = currentBuild.getBuildDate();
-    	while(nbSteps != config.getHistoricLength()){
-        	// Finding range where the build resides
-        	while(nbSteps < config.getHistoricLength() && d1.after(buildDate)){
-        		DateRange range = new DateRange(d1, d2);
-        		//if((config.getShownBuildResults() & BuildResult.SUCCESS.code) != 0){
-        		dsb.add(nbSuccess, "success", range);
-        		//}
-    			dsb.add(nbFailures, "failures", range);
-    			dsb.add(nbUnstables, "unstables", range);
-    			dsb.add(nbAborted, "aborted", range);
-    			dsb.add(nbNotBuild, "not build", range);
-        		
-				d2 = (Calendar)d1.clone();
-				d1 = config.getHistoricScale().getPreviousStep(d2);
-				nbSuccess=0; nbFailures=0; nbUnstables=0; nbAborted=0; nbNotBuild=0;
-				nbSteps++;
-        	}
-        	
-        	// If no range found : stop the iteration !
-        	if(nbSteps != config.getHistoricLength() && currentBuild != null){
-        		nbSuccess += config.isSuccessShown()?currentBuild.getResult().getSuccessCount():0;
-        		nbFailures += config.isFailuresShown()?currentBuild.getResult().getFailureCount():0;
-        		nbUnstables += config.isUnstablesShown()?currentBuild.getResult().getUnstableCount():0;
-        		nbAborted += config.isAbortedShown()?currentBuild.getResult().getAbortedCount():0;
-        		nbNotBuild += config.isNotBuildShown()?currentBuild.getResult().getNotBuildCount():0;
-        		
-        		if(buildsIter.hasNext()){
-        			currentBuild = buildsIter.next();
-        			buildDate = currentBuild.getBuildDate();
-        		} else {
-        			currentBuild = null;
-        			buildDate = new GregorianCalendar(); buildDate.setTimeInMillis(1);
-        		}
-        	}
+    	for(int nbSteps=0; nbSteps<config.getHistoricLength(); nbSteps++){
+    		// Only the segments of the range are read
+    		int[] counts = getStore().count(d1, d2, jobFilter);
+    		
+    		DateRange range = new DateRange(d1, d2);
+    		dsb.add(config.isSuccessShown()?counts[BuildResult.SUCCESS.ordinal()]:0, "success", range);
+			dsb.add(config.isFailuresShown()?counts[BuildResult.FAILURE.ordinal()]:0, "failures", range);
+			dsb.add(config.isUnstablesShown()?counts[BuildResult.UNSTABLE.ordinal()]:0, "unstables", range);
+			dsb.add(config.isAbortedShown()?counts[BuildResult.ABORTED.ordinal()]:0, "aborted", range);
+			dsb.add(config.isNotBuildShown()?counts[BuildResult.NOT_BUILD.ordinal()]:0, "not build", range);
+			
+			d2 = (Calendar)d1.clone();
+			d1 = config.getHistoricScale().getPreviousStep(d2);
     	}
     	
         return dsb;
     }
-    
-    private List<JobBuildResult> createFilteredAndSortedBuildResults(BuildStatConfiguration config){
-    	List<JobBuildResult> filteredJobBuildResults = new ArrayList<JobBuildResult>();
-        for(JobBuildResult r : jobBuildResults){
-        	if(JobFilterFactory.createJobFilter(config.getJobFilter()).isJobApplicable(r.getJobName())){
-        		filteredJobBuildResults.add(r);
-        	}
-        }
-        
-        // Sorting on job results dates
-        Collections.sort(filteredJobBuildResults, Collections.reverseOrder(new Comparator<JobBuildResult>() {
-        	public int compare(JobBuildResult o1, JobBuildResult o2) {
-        		return o1.getBuildDate().compareTo(o2.getBuildDate());
-        	}
-		}));
-        
-        return filteredJobBuildResults;
-    }
     	
-	private void addBuildsFrom(AbstractProject project){
+	private void addBuildsFrom(List<JobBuildResult> results, AbstractProject project){
         List<AbstractBuild> builds = project.getBuilds();
         Iterator<AbstractBuild> buildIterator = builds.iterator();
 
         while (buildIterator.hasNext()) {
-        	addBuild(buildIterator.next());
+        	results.add(JobBuildResultFactory.INSTANCE.createJobBuildResult(buildIterator.next()));
         }
 	}
-	
-	private void addBuild(AbstractBuild build){
-    	jobBuildResults.add(JobBuildResultFactory.INSTANCE.createJobBuildResult(build));
-	}
 
 	public BuildStatConfiguration[] getBuildStatConfigs() {
 		return buildStatConfigs.toArray(new BuildStatConfiguration[]{});
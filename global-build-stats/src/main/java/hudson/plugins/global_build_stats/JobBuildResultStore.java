@@ -0,0 +1,392 @@
+package hudson.plugins.global_build_stats;
+
+import hudson.plugins.global_build_stats.model.BuildResult;
+import hudson.plugins.global_build_stats.model.JobBuildResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Job build results, stored on disk in one file per month (a "segment").
+ *
+ * Every build result is appended to the segment of its month as a small binary record,
+ * so recording a build never rewrites the other ones.
+ * Segments are only read when a chart covers their month, and the results they contain
+ * are then counted per day and per job : a chart only looks at single builds for the days
+ * cut by the bounds of its ranges.
+ */
+public class JobBuildResultStore {
+
+	private static final Logger LOGGER = Logger.getLogger(JobBuildResultStore.class.getName());
+
+	private static final String SEGMENT_EXTENSION = ".dat";
+
+	private File rootDir;
+
+	// Segments already read, by name ; they're read again if memory becomes short
+	private Map<String, SoftReference<Segment>> segments = new HashMap<String, SoftReference<Segment>>();
+
+	// Segments known to end with a complete record, which can be appended to as they are
+	private Set<String> checkedSegments = new HashSet<String>();
+
+	public JobBuildResultStore(File _rootDir){
+		this.rootDir = _rootDir;
+	}
+
+	public synchronized void add(JobBuildResult result) throws IOException {
+		Calendar month = getMonth(result.getBuildDate().getTimeInMillis());
+		DataOutputStream out = openSegment(month, true);
+		try {
+			try {
+				writeRecord(out, result);
+			} finally {
+				out.close();
+			}
+		} catch(IOException e){
+			// The record may have been partially written
+			checkedSegments.remove(getSegmentName(month));
+			throw e;
+		}
+
+		Segment segment = getLoadedSegment(month);
+		if(segment != null){
+			segment.add(result.getBuildDate().getTimeInMillis(), result.getResult(), result.getJobName());
+		}
+	}
+
+	public synchronized void addAll(List<JobBuildResult> results) throws IOException {
+		// Grouping results by segment, in order to open every segment only once
+		Map<String, List<JobBuildResult>> resultsBySegment = new TreeMap<String, List<JobBuildResult>>();
+		for(JobBuildResult r : results){
+			String segmentName = getSegmentName(getMonth(r.getBuildDate().getTimeInMillis()));
+			List<JobBuildResult> segmentResults = resultsBySegment.get(segmentName);
+			if(segmentResults == null){
+				segmentResults = new ArrayList<JobBuildResult>();
+				resultsBySegment.put(segmentName, segmentResults);
+			}
+			segmentResults.add(r);
+		}
+
+		for(List<JobBuildResult> segmentResults : resultsBySegment.values()){
+			Calendar month = getMonth(segmentResults.get(0).getBuildDate().getTimeInMillis());
+			DataOutputStream out = openSegment(month, true);
+			try {
+				try {
+					for(JobBuildResult r : segmentResults){
+						writeRecord(out, r);
+					}
+				} finally {
+					out.close();
+				}
+			} catch(IOException e){
+				// The last record may have been partially written
+				checkedSegments.remove(getSegmentName(month));
+				throw e;
+			}
+			// Will be read again when needed
+			segments.remove(getSegmentName(month));
+		}
+	}
+
+	/**
+	 * Replaces every stored result
+	 */
+	public synchronized void reset(List<JobBuildResult> results) throws IOException {
+		for(File segmentFile : listSegmentFiles()){
+			if(!segmentFile.delete()){
+				throw new IOException("Unable to delete "+segmentFile);
+			}
+		}
+		segments.clear();
+		checkedSegments.clear();
+		addAll(results);
+	}
+
+	public synchronized boolean isEmpty(){
+		return listSegmentFiles().length == 0;
+	}
+
+	/**
+	 * Counts the build results between from (included) and to (excluded) for jobs
+	 * accepted by the filter
+	 * @return Counts, indexed by BuildResult ordinal
+	 */
+	public synchronized int[] count(Calendar from, Calendar to, JobFilter filter) throws IOException {
+		int[] counts = new int[BuildResult.values().length];
+		long fromTime = from.getTimeInMillis(), toTime = to.getTimeInMillis();
+		Map<String, Boolean> applicableJobs = new HashMap<String, Boolean>();
+
+		Calendar month = getMonth(fromTime);
+		while(month.getTimeInMillis() < toTime){
+			Segment segment = getSegment(month);
+			if(segment != null){
+				for(Day day : segment.days){
+					if(day.end <= fromTime || toTime <= day.start){
+						continue;
+					}
+
+					if(fromTime <= day.start && day.end <= toTime){
+						// Whole day in the range : using its counts
+						for(Map.Entry<String, int[]> jobCounts : day.counts.entrySet()){
+							if(isJobApplicable(filter, jobCounts.getKey(), applicableJobs)){
+								for(int i=0; i<counts.length; i++){
+									counts[i] += jobCounts.getValue()[i];
+								}
+							}
+						}
+					} else {
+						for(Record r : day.records){
+							if(fromTime <= r.time && r.time < toTime && isJobApplicable(filter, r.jobName, applicableJobs)){
+								counts[r.result.ordinal()]++;
+							}
+						}
+					}
+				}
+			}
+			month.add(Calendar.MONTH, 1);
+		}
+
+		return counts;
+	}
+
+	private static boolean isJobApplicable(JobFilter filter, String jobName, Map<String, Boolean> applicableJobs){
+		Boolean applicable = applicableJobs.get(jobName);
+		if(applicable == null){
+			applicable = Boolean.valueOf(filter.isJobApplicable(jobName));
+			applicableJobs.put(jobName, applicable);
+		}
+		return applicable.booleanValue();
+	}
+
+	private Segment getLoadedSegment(Calendar month){
+		SoftReference<Segment> ref = segments.get(getSegmentName(month));
+		return ref==null?null:ref.get();
+	}
+
+	private Segment getSegment(Calendar month) throws IOException {
+		Segment segment = getLoadedSegment(month);
+		if(segment == null){
+			segment = readSegment(month);
+			if(segment != null){
+				segments.put(getSegmentName(month), new SoftReference<Segment>(segment));
+			}
+		}
+		return segment;
+	}
+
+	private Segment readSegment(Calendar month) throws IOException {
+		File segmentFile = getSegmentFile(month);
+		if(!segmentFile.exists()){
+			return null;
+		}
+
+		Segment segment = new Segment(month);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segmentFile)));
+		try {
+			while(true){
+				long time;
+				try {
+					time = in.readLong();
+				} catch(EOFException e){
+					break;
+				}
+				BuildResult result = getBuildResult(in.readByte());
+				in.readInt(); // build number, not used by charts
+				String jobName = in.readUTF();
+				if(result != null){
+					segment.add(time, result, jobName);
+				}
+			}
+		} catch(EOFException e){
+			// Last record was not completely written
+			LOGGER.warning("Ignoring truncated build result at the end of "+segmentFile);
+		} finally {
+			in.close();
+		}
+		return segment;
+	}
+
+	private DataOutputStream openSegment(Calendar month, boolean append) throws IOException {
+		if(!rootDir.exists() && !rootDir.mkdirs()){
+			throw new IOException("Unable to create "+rootDir);
+		}
+		if(append){
+			truncateIncompleteRecord(month);
+		}
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getSegmentFile(month), append)));
+	}
+
+	/**
+	 * Removes the last record of a segment if it was not completely written (because Hudson
+	 * was stopped while writing it for instance), so that the records appended after it are
+	 * read back properly
+	 */
+	private void truncateIncompleteRecord(Calendar month) throws IOException {
+		String segmentName = getSegmentName(month);
+		File segmentFile = getSegmentFile(month);
+		if(checkedSegments.contains(segmentName) || !segmentFile.exists()){
+			return;
+		}
+
+		long complete = 0;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segmentFile)));
+		try {
+			while(true){
+				// Time, result and build number, then the job name, as written by writeRecord()
+				if(in.skipBytes(RECORD_HEADER_SIZE) < RECORD_HEADER_SIZE){
+					break;
+				}
+				int jobNameSize = in.readUnsignedShort();
+				if(in.skipBytes(jobNameSize) < jobNameSize){
+					break;
+				}
+				complete += RECORD_HEADER_SIZE + 2 + jobNameSize;
+			}
+		} catch(EOFException e){
+			// Size of the job name was not completely written
+		} finally {
+			in.close();
+		}
+
+		if(complete < segmentFile.length()){
+			LOGGER.warning("Removing truncated build result at the end of "+segmentFile);
+			RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+			try {
+				file.setLength(complete);
+			} finally {
+				file.close();
+			}
+		}
+		checkedSegments.add(segmentName);
+	}
+
+	// Size of the time, result and build number of a record
+	private static final int RECORD_HEADER_SIZE = 8 + 1 + 4;
+
+	private static void writeRecord(DataOutputStream out, JobBuildResult result) throws IOException {
+		out.writeLong(result.getBuildDate().getTimeInMillis());
+		out.writeByte(result.getResult().code);
+		out.writeInt(result.getBuildNumber());
+		out.writeUTF(result.getJobName());
+	}
+
+	private static BuildResult getBuildResult(byte code){
+		for(BuildResult result : BuildResult.values()){
+			if(result.code == code){
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private File[] listSegmentFiles(){
+		File[] segmentFiles = rootDir.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SEGMENT_EXTENSION);
+			}
+		});
+		return segmentFiles==null?new File[0]:segmentFiles;
+	}
+
+	private File getSegmentFile(Calendar month){
+		return new File(rootDir, getSegmentName(month)+SEGMENT_EXTENSION);
+	}
+
+	private static String getSegmentName(Calendar month){
+		return String.format("%04d-%02d", month.get(Calendar.YEAR), month.get(Calendar.MONTH)+1);
+	}
+
+	private static Calendar getMonth(long time){
+		Calendar month = new GregorianCalendar();
+		month.setTimeInMillis(time);
+		month.set(Calendar.DAY_OF_MONTH, 1);
+		month.set(Calendar.HOUR_OF_DAY, 0);
+		month.set(Calendar.MINUTE, 0);
+		month.set(Calendar.SECOND, 0);
+		month.set(Calendar.MILLISECOND, 0);
+		return month;
+	}
+
+	private static class Segment {
+		private Day[] days;
+		// Sharing job names between records
+		private Map<String, String> jobNames = new HashMap<String, String>();
+
+		private Segment(Calendar month){
+			Calendar c = (Calendar)month.clone();
+			days = new Day[month.getActualMaximum(Calendar.DAY_OF_MONTH)];
+			for(int i=0; i<days.length; i++){
+				long start = c.getTimeInMillis();
+				c.add(Calendar.DAY_OF_MONTH, 1);
+				days[i] = new Day(start, c.getTimeInMillis());
+			}
+		}
+
+		private void add(long time, BuildResult result, String jobName){
+			String name = jobNames.get(jobName);
+			if(name == null){
+				name = jobName;
+				jobNames.put(name, name);
+			}
+			for(Day day : days){
+				if(day.start <= time && time < day.end){
+					day.add(time, result, name);
+					return;
+				}
+			}
+		}
+	}
+
+	private static class Day {
+		private long start, end;
+		private Map<String, int[]> counts = new HashMap<String, int[]>();
+		private List<Record> records = new ArrayList<Record>();
+
+		private Day(long _start, long _end){
+			this.start = _start;
+			this.end = _end;
+		}
+
+		private void add(long time, BuildResult result, String jobName){
+			int[] jobCounts = counts.get(jobName);
+			if(jobCounts == null){
+				jobCounts = new int[BuildResult.values().length];
+				counts.put(jobName, jobCounts);
+			}
+			jobCounts[result.ordinal()]++;
+			records.add(new Record(time, result, jobName));
+		}
+	}
+
+	private static class Record {
+		private long time;
+		private BuildResult result;
+		private String jobName;
+
+		private Record(long _time, BuildResult _result, String _jobName){
+			this.time = _time;
+			this.result = _result;
+			this.jobName = _jobName;
+		}
+	}
+}
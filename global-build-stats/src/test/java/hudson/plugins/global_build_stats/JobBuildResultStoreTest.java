@@ -0,0 +1,132 @@
+package hudson.plugins.global_build_stats;
+
+import hudson.plugins.global_build_stats.model.BuildResult;
+import hudson.plugins.global_build_stats.model.JobBuildResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import junit.framework.TestCase;
+
+public class JobBuildResultStoreTest extends TestCase {
+
+	private File rootDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		rootDir = File.createTempFile("build-results", "");
+		rootDir.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = rootDir.listFiles();
+		if(files != null){
+			for(File f : files){
+				f.delete();
+			}
+		}
+		rootDir.delete();
+	}
+
+	private static Calendar date(int day, int hour){
+		return new GregorianCalendar(2010, Calendar.MARCH, day, hour, 0);
+	}
+
+	private static JobBuildResult result(BuildResult result, String jobName, int buildNumber, Calendar date){
+		return new JobBuildResult(result, jobName, buildNumber, date);
+	}
+
+	private static int[] counts(int success, int failure, int unstable){
+		int[] counts = new int[BuildResult.values().length];
+		counts[BuildResult.SUCCESS.ordinal()] = success;
+		counts[BuildResult.FAILURE.ordinal()] = failure;
+		counts[BuildResult.UNSTABLE.ordinal()] = unstable;
+		return counts;
+	}
+
+	private static void assertCounts(int[] expected, int[] actual){
+		assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+	}
+
+	private File getSegmentFile(){
+		return new File(rootDir, "2010-03.dat");
+	}
+
+	public void testRoundTrip() throws IOException {
+		JobBuildResultStore store = new JobBuildResultStore(rootDir);
+		assertTrue(store.isEmpty());
+		store.add(result(BuildResult.SUCCESS, "job1", 1, date(1, 10)));
+		store.addAll(Arrays.asList(
+				result(BuildResult.FAILURE, "job1", 2, date(2, 10)),
+				result(BuildResult.UNSTABLE, "job2", 1, date(2, 12)),
+				result(BuildResult.SUCCESS, "job2", 2, date(3, 10))));
+		assertFalse(store.isEmpty());
+
+		// Read back from the disk
+		store = new JobBuildResultStore(rootDir);
+		assertCounts(counts(2, 1, 1), store.count(date(1, 0), date(4, 0), JobFilter.ALL));
+		// Range cutting days
+		assertCounts(counts(0, 1, 0), store.count(date(1, 11), date(2, 11), JobFilter.ALL));
+		assertCounts(counts(1, 0, 1), store.count(date(1, 0), date(4, 0), new JobFilter() {
+			public boolean isJobApplicable(String projectName) {
+				return "job2".equals(projectName);
+			}
+		}));
+	}
+
+	public void testTruncatedRecordIsIgnored() throws IOException {
+		JobBuildResultStore store = new JobBuildResultStore(rootDir);
+		store.add(result(BuildResult.SUCCESS, "job1", 1, date(1, 10)));
+		store.add(result(BuildResult.FAILURE, "job1", 2, date(2, 10)));
+		truncate(getSegmentFile(), 3);
+
+		store = new JobBuildResultStore(rootDir);
+		assertCounts(counts(1, 0, 0), store.count(date(1, 0), date(4, 0), JobFilter.ALL));
+	}
+
+	public void testAddAfterTruncatedRecord() throws IOException {
+		JobBuildResultStore store = new JobBuildResultStore(rootDir);
+		store.add(result(BuildResult.SUCCESS, "job1", 1, date(1, 10)));
+		store.add(result(BuildResult.FAILURE, "job1", 2, date(2, 10)));
+		long complete = getSegmentFile().length();
+		store.add(result(BuildResult.UNSTABLE, "job1", 3, date(2, 12)));
+		truncate(getSegmentFile(), 5);
+
+		store = new JobBuildResultStore(rootDir);
+		store.add(result(BuildResult.SUCCESS, "job2", 1, date(3, 10)));
+		store.addAll(Arrays.asList(result(BuildResult.UNSTABLE, "job2", 2, date(3, 12))));
+		assertTrue(getSegmentFile().length() > complete);
+
+		store = new JobBuildResultStore(rootDir);
+		assertCounts(counts(2, 1, 1), store.count(date(1, 0), date(4, 0), JobFilter.ALL));
+	}
+
+	public void testTruncatedJobNameSize() throws IOException {
+		JobBuildResultStore store = new JobBuildResultStore(rootDir);
+		store.add(result(BuildResult.SUCCESS, "job1", 1, date(1, 10)));
+		long complete = getSegmentFile().length();
+		store.add(result(BuildResult.FAILURE, "job1", 2, date(2, 10)));
+		// Only the first byte of the size of the job name is left
+		truncate(getSegmentFile(), getSegmentFile().length() - complete - (8 + 1 + 4 + 1));
+
+		store = new JobBuildResultStore(rootDir);
+		store.add(result(BuildResult.UNSTABLE, "job2", 1, date(3, 10)));
+
+		store = new JobBuildResultStore(rootDir);
+		assertCounts(counts(1, 0, 1), store.count(date(1, 0), date(4, 0), JobFilter.ALL));
+	}
+
+	private static void truncate(File file, long bytes) throws IOException {
+		RandomAccessFile f = new RandomAccessFile(file, "rw");
+		try {
+			f.setLength(f.length() - bytes);
+		} finally {
+			f.close();
+		}
+	}
+}
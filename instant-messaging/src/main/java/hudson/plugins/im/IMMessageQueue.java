@@ -0,0 +1,154 @@
+package hudson.plugins.im;
+
+import hudson.plugins.im.tools.ExceptionHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Sends the notifications of the {@link IMPublisher}s in the background,
+ * so that builds don't wait for the IM server.
+ *
+ * Messages queued for a target which is still waiting for a previous message
+ * are sent together as a single message.
+ * Messages sent over the same transport (Jabber, IRC, ...) are spaced by at least
+ * {@link #MIN_INTERVAL} milliseconds, so that the bot isn't kicked for flooding.
+ */
+public class IMMessageQueue {
+
+	private static final Logger LOGGER = Logger.getLogger(IMMessageQueue.class.getName());
+
+	/**
+	 * Minimum time between 2 messages sent over the same transport, in milliseconds.
+	 */
+	static final long MIN_INTERVAL = Long.getLong(IMMessageQueue.class.getName() + ".minInterval", 500L);
+
+	private static final IMMessageQueue INSTANCE = new IMMessageQueue();
+
+	/**
+	 * Messages waiting for a target of a transport.
+	 */
+	private static final class Pending {
+		private final IMPublisher publisher;
+		private final IMMessageTarget target;
+		private final List<String> texts = new ArrayList<String>();
+
+		Pending(IMPublisher publisher, IMMessageTarget target) {
+			this.publisher = publisher;
+			this.target = target;
+		}
+
+		/**
+		 * The transport, i.e. the descriptor of the publisher.
+		 */
+		Object getTransport() {
+			return this.publisher.getDescriptor();
+		}
+
+		String getText() {
+			StringBuilder sb = new StringBuilder();
+			for (String text : this.texts) {
+				if (sb.length() > 0) {
+					sb.append("\n");
+				}
+				sb.append(text);
+			}
+			return sb.toString();
+		}
+	}
+
+	/** by transport and target, in queuing order */
+	private final Map<List<Object>, Pending> pending = new LinkedHashMap<List<Object>, Pending>();
+
+	/** time of the last message sent over each transport */
+	private final Map<Object, Long> lastSent = new HashMap<Object, Long>();
+
+	private Thread senderThread;
+
+	public static IMMessageQueue getInstance() {
+		return INSTANCE;
+	}
+
+	private IMMessageQueue() {
+	}
+
+	/**
+	 * Queues a message which will be sent over the connection of the publisher.
+	 */
+	public synchronized void send(IMPublisher publisher, IMMessageTarget target, String text) {
+		List<Object> key = new ArrayList<Object>(2);
+		key.add(publisher.getDescriptor());
+		key.add(target);
+		Pending p = this.pending.get(key);
+		if (p == null) {
+			p = new Pending(publisher, target);
+			this.pending.put(key, p);
+		}
+		p.texts.add(text);
+
+		if (this.senderThread == null) {
+			this.senderThread = new Thread(new Runnable() {
+				public void run() {
+					sendMessages();
+				}
+			}, "IM-Message-Sender-Thread");
+			this.senderThread.setDaemon(true);
+			this.senderThread.start();
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Returns the number of targets with messages waiting to be sent.
+	 */
+	public synchronized int size() {
+		return this.pending.size();
+	}
+
+	private void sendMessages() {
+		try {
+			while (true) {
+				Pending next = take();
+				try {
+					next.publisher.getIMConnection().send(next.target, next.getText());
+				} catch (Throwable t) {
+					LOGGER.warning("There was an error sending notification to: " + next.target
+							+ "\n" + ExceptionHelper.dump(t));
+				}
+			}
+		} catch (InterruptedException e) {
+			LOGGER.info("Message sender thread interrupted");
+			synchronized (this) {
+				this.senderThread = null;
+			}
+		}
+	}
+
+	/**
+	 * Waits for the oldest message whose transport may be used again.
+	 */
+	private synchronized Pending take() throws InterruptedException {
+		while (true) {
+			long now = System.currentTimeMillis();
+			long wait = 0;
+			for (Iterator<Pending> it = this.pending.values().iterator(); it.hasNext();) {
+				Pending p = it.next();
+				Long last = this.lastSent.get(p.getTransport());
+				long allowed = last != null ? last.longValue() + MIN_INTERVAL : now;
+				if (allowed <= now) {
+					it.remove();
+					this.lastSent.put(p.getTransport(), Long.valueOf(now));
+					return p;
+				}
+				wait = wait == 0 ? allowed - now : Math.min(wait, allowed - now);
+			}
+			// wait == 0 means nothing is queued: wait for send()
+			wait(wait);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package hudson.plugins.im;
 
+import hudson.plugins.im.bot.JobStatusCache;
 
 public class IMPlugin {
 
@@ -13,6 +14,7 @@ public class IMPlugin {
     public void start() throws Exception {
     	this.busyListener = HudsonIsBusyListener.getInstance();
     	this.busyListener.addConnectionProvider(this.provider);
+    	JobStatusCache.getInstance().register();
     }
 
     public void stop() throws Exception {
@@ -31,6 +31,10 @@ import java.util.logging.Logger;
 
 /**
  * The actual Publisher that sends notification-Messages out to the clients.
+ * The messages are sent in the background by the {@link IMMessageQueue}, so a
+ * target counts as notified once its message is queued: a failure to send it
+ * later is only logged by the queue, and doesn't make the upstream committers
+ * get notified instead.
  * 
  * @author Uwe Schaefer
  * @author Christoph Kutzinski
@@ -257,10 +261,10 @@ public abstract class IMPublisher extends Notifier implements BuildStep
             	
             	for (IMMessageTarget target : calculateIMTargets(getCommitters(build), buildListener)) {
             		try {
-            			log(buildListener, "Sending notification to suspect: " + target.toString());
-            			getIMConnection().send(target, message);
+            			log(buildListener, "Queuing notification to suspect: " + target.toString());
+            			IMMessageQueue.getInstance().send(this, target, message);
             		} catch (final Throwable e) {
-            			log(buildListener, "There was an error sending suspect notification to: " + target.toString());
+            			log(buildListener, "There was an error queuing suspect notification to: " + target.toString());
             		}
             	}
             }
@@ -271,10 +275,10 @@ public abstract class IMPublisher extends Notifier implements BuildStep
             	
             	for (IMMessageTarget target : calculateIMTargets(getCulpritsOnly(build), buildListener)) {
             		try {
-            			log(buildListener, "Sending notification to culprit: " + target.toString());
-            			getIMConnection().send(target, message);
+            			log(buildListener, "Queuing notification to culprit: " + target.toString());
+            			IMMessageQueue.getInstance().send(this, target, message);
             		} catch (final Throwable e) {
-            			log(buildListener, "There was an error sending culprit notification to: " + target.toString());
+            			log(buildListener, "There was an error queuing culprit notification to: " + target.toString());
             		}
             	}
             }
@@ -286,11 +290,12 @@ public abstract class IMPublisher extends Notifier implements BuildStep
                 
                 for (IMMessageTarget target : calculateIMTargets(getCommitters(build), buildListener)) {
                     try {
-                        log(buildListener, "Sending notification to suspect: " + target.toString());
-                        getIMConnection().send(target, message);
+                        log(buildListener, "Queuing notification to suspect: " + target.toString());
+                        IMMessageQueue.getInstance().send(this, target, message);
+                        // queued, whether it's actually sent or not
                         committerNotified = true;
                     } catch (final Throwable e) {
-                        log(buildListener, "There was an error sending suspect notification to: " + target.toString());
+                        log(buildListener, "There was an error queuing suspect notification to: " + target.toString());
                     }
                 }
             }
@@ -306,10 +311,10 @@ public abstract class IMPublisher extends Notifier implements BuildStep
         	
         	for (IMMessageTarget target : calculateIMTargets(getCommitters(build), buildListener)) {
         		try {
-        			log(buildListener, "Sending notification to fixer: " + target.toString());
-        			getIMConnection().send(target, message);
+        			log(buildListener, "Queuing notification to fixer: " + target.toString());
+        			IMMessageQueue.getInstance().send(this, target, message);
         		} catch (final Throwable e) {
-        			log(buildListener, "There was an error sending fixer notification to: " + target.toString());
+        			log(buildListener, "There was an error queuing fixer notification to: " + target.toString());
         		}
         	}
         }
@@ -346,11 +351,12 @@ public abstract class IMPublisher extends Notifier implements BuildStep
 			        
 			        for (IMMessageTarget target : calculateIMTargets(committers, buildListener)) {
 			            try {
-			                log(buildListener, "Sending notification to upstream committer: " + target.toString());
-			                getIMConnection().send(target, message);
+			                log(buildListener, "Queuing notification to upstream committer: " + target.toString());
+			                IMMessageQueue.getInstance().send(this, target, message);
+			                // queued, whether it's actually sent or not
 			                committerNotified = true;
 			            } catch (final Throwable e) {
-			                log(buildListener, "There was an error sending upstream committer notification to: " + target.toString());
+			                log(buildListener, "There was an error queuing upstream committer notification to: " + target.toString());
 			            }
 			        }
 		        }
@@ -394,10 +400,10 @@ public abstract class IMPublisher extends Notifier implements BuildStep
 		for (IMMessageTarget target : calculateTargets())
 		{
 		    try {
-		        log(buildListener, "Sending notification to: " + target.toString());
-		        getIMConnection().send(target, msg);
+		        log(buildListener, "Queuing notification to: " + target.toString());
+		        IMMessageQueue.getInstance().send(this, target, msg);
 		    } catch (final Throwable t) {
-		        log(buildListener, "There was an error sending notification to: " + target.toString() + "\n" + ExceptionHelper.dump(t));
+		        log(buildListener, "There was an error queuing notification to: " + target.toString() + "\n" + ExceptionHelper.dump(t));
 		    }
 		}
 	}
@@ -431,9 +437,9 @@ public abstract class IMPublisher extends Notifier implements BuildStep
 					// only notify group chats
 					if (target instanceof GroupChatIMMessageTarget) {
 		                try {
-		                    getIMConnection().send(target, msg);
+		                    IMMessageQueue.getInstance().send(this, target, msg);
 		                } catch (final Throwable e) {
-		                    log(buildListener, "There was an error sending notification to: " + target.toString());
+		                    log(buildListener, "There was an error queuing notification to: " + target.toString());
 		                }
 					}
 	            }
@@ -8,6 +8,7 @@ import java.util.List;
 
 /**
  * Default {@link JobProvider} which directly accesses {@link Hudson#getInstance()}.
+ * The list of all jobs comes from the {@link JobStatusCache}.
  *
  * @author kutzi
  */
@@ -21,7 +22,7 @@ public class DefaultJobProvider implements JobProvider {
     @SuppressWarnings("unchecked")
     @Override
     public List<AbstractProject> getAllJobs() {
-        return Hudson.getInstance().getAllItems(AbstractProject.class);
+        return JobStatusCache.getInstance().getAllJobs();
     }
 
     @Override
@@ -5,7 +5,6 @@ import hudson.model.AbstractProject;
 import hudson.model.HealthReport;
 import hudson.plugins.im.tools.MessageHelper;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -28,16 +27,10 @@ public class HealthCommand extends AbstractMultipleJobCommand {
         }
         msg.append(": ");
 
-        AbstractBuild<?, ?> lastBuild = project.getLastBuild();
-        while ((lastBuild != null) && lastBuild.isBuilding()) {
-            lastBuild = lastBuild.getPreviousBuild();
-        }
+        AbstractBuild<?, ?> lastBuild = JobStatusCache.getInstance().getLastCompletedBuild(project);
         if (lastBuild != null) {
         	msg.append("Health [");
-        	List<HealthReport> reports = project.getBuildHealthReports();
-        	if (reports.isEmpty() ) {
-        		reports = Collections.singletonList(project.getBuildHealth());
-        	}
+        	List<HealthReport> reports = JobStatusCache.getInstance().getHealthReports(project);
 
         	int i = 1;
         	for (HealthReport health : reports) {
@@ -0,0 +1,240 @@
+package hudson.plugins.im.bot;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.HealthReport;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Status of the jobs as shown by the bot commands.
+ *
+ * Instead of going through the items and builds of Hudson on every command,
+ * the status of a job is computed the first time it's asked for, and then kept
+ * up to date by listening to build and item events.
+ * As long as the listeners are not registered (e.g. in tests), nothing is cached.
+ */
+public class JobStatusCache {
+
+	private static final Logger LOGGER = Logger.getLogger(JobStatusCache.class.getName());
+
+	private static final JobStatusCache INSTANCE = new JobStatusCache();
+
+	/**
+	 * Cached status of a job.
+	 */
+	private static final class JobStatus {
+		/** Last build which isn't building anymore, null if there is none */
+		private AbstractBuild<?, ?> lastCompletedBuild;
+		private boolean lastCompletedBuildKnown;
+
+		/** Health reports of the job, null if not computed yet */
+		private List<HealthReport> healthReports;
+	}
+
+	/**
+	 * The status refers to the builds, which refer to their job, so the entries
+	 * are removed explicitly when a job is deleted, renamed or reloaded.
+	 */
+	private final Map<AbstractProject<?, ?>, JobStatus> statuses = new HashMap<AbstractProject<?, ?>, JobStatus>();
+
+	/** All jobs of Hudson, null if they must be looked up again */
+	@SuppressWarnings("unchecked")
+	private List<AbstractProject> allJobs;
+
+	/** Incremented each time the jobs change */
+	private int jobsGeneration = 0;
+
+	private volatile boolean listening = false;
+
+	public static JobStatusCache getInstance() {
+		return INSTANCE;
+	}
+
+	private JobStatusCache() {
+	}
+
+	/**
+	 * Starts listening to build and item events, so that the status of the jobs can be cached.
+	 * Called once by each IM plugin, the listeners are only registered the first time.
+	 */
+	public synchronized void register() {
+		if (this.listening) {
+			return;
+		}
+		new RunListenerImpl().register();
+		new ItemListenerImpl().register();
+		this.listening = true;
+		LOGGER.fine("Job status cache registered");
+	}
+
+	/**
+	 * Returns the last build of the job which isn't building anymore.
+	 *
+	 * @return the build or null if the job has no finished build yet
+	 */
+	public synchronized AbstractBuild<?, ?> getLastCompletedBuild(AbstractProject<?, ?> project) {
+		JobStatus status = getStatus(project);
+		if (!status.lastCompletedBuildKnown) {
+			AbstractBuild<?, ?> lastBuild = project.getLastBuild();
+			while ((lastBuild != null) && lastBuild.isBuilding()) {
+				lastBuild = lastBuild.getPreviousBuild();
+			}
+			status.lastCompletedBuild = lastBuild;
+			status.lastCompletedBuildKnown = this.listening;
+			return lastBuild;
+		}
+		return status.lastCompletedBuild;
+	}
+
+	/**
+	 * Returns the health reports of the job, or the overall health if
+	 * the job has no specific health reports.
+	 */
+	public synchronized List<HealthReport> getHealthReports(AbstractProject<?, ?> project) {
+		JobStatus status = getStatus(project);
+		if (status.healthReports == null) {
+			List<HealthReport> reports = project.getBuildHealthReports();
+			if (reports.isEmpty()) {
+				reports = Collections.singletonList(project.getBuildHealth());
+			}
+			if (!this.listening) {
+				return reports;
+			}
+			status.healthReports = reports;
+		}
+		return status.healthReports;
+	}
+
+	/**
+	 * Returns all jobs of Hudson.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<AbstractProject> getAllJobs() {
+		List<AbstractProject> jobs;
+		int generation;
+		synchronized (this) {
+			jobs = this.allJobs;
+			generation = this.jobsGeneration;
+		}
+		if (jobs == null) {
+			// don't hold the lock while going through the items
+			jobs = Collections.unmodifiableList(new ArrayList<AbstractProject>(
+					Hudson.getInstance().getAllItems(AbstractProject.class)));
+			synchronized (this) {
+				if (this.listening && generation == this.jobsGeneration) {
+					this.allJobs = jobs;
+				}
+			}
+		}
+		return jobs;
+	}
+
+	private JobStatus getStatus(AbstractProject<?, ?> project) {
+		JobStatus status = this.statuses.get(project);
+		if (status == null) {
+			status = new JobStatus();
+			if (this.listening) {
+				this.statuses.put(project, status);
+			}
+		}
+		return status;
+	}
+
+	private synchronized void buildCompleted(Run<?, ?> run) {
+		if (run instanceof AbstractBuild<?, ?>) {
+			// the build is still 'building' until the listeners have been notified,
+			// so it wouldn't be found by getLastCompletedBuild yet
+			AbstractBuild<?, ?> build = (AbstractBuild<?, ?>) run;
+			JobStatus status = getStatus(build.getProject());
+			status.lastCompletedBuild = build;
+			status.lastCompletedBuildKnown = true;
+			status.healthReports = null;
+		}
+	}
+
+	private synchronized void buildDeleted(Run<?, ?> run) {
+		if (run instanceof AbstractBuild<?, ?>) {
+			// recomputed on next access
+			this.statuses.remove(((AbstractBuild<?, ?>) run).getProject());
+		}
+	}
+
+	private synchronized void jobsChanged() {
+		this.allJobs = null;
+		this.jobsGeneration++;
+	}
+
+	/**
+	 * Forgets the status of the item, and of the jobs it contains, like the
+	 * configurations of a matrix project.
+	 */
+	private synchronized void itemRemoved(Item item) {
+		for (Iterator<AbstractProject<?, ?>> it = this.statuses.keySet().iterator(); it.hasNext();) {
+			AbstractProject<?, ?> project = it.next();
+			if (project == item || project.getParent() == item) {
+				it.remove();
+			}
+		}
+		jobsChanged();
+	}
+
+	private synchronized void itemsReloaded() {
+		// the items have been replaced by new instances
+		this.statuses.clear();
+		jobsChanged();
+	}
+
+	@SuppressWarnings("unchecked")
+	private final class RunListenerImpl extends RunListener<Run> {
+
+		RunListenerImpl() {
+			super(Run.class);
+		}
+
+		@Override
+		public void onCompleted(Run r, TaskListener listener) {
+			buildCompleted(r);
+		}
+
+		@Override
+		public void onDeleted(Run r) {
+			buildDeleted(r);
+		}
+	}
+
+	private final class ItemListenerImpl extends ItemListener {
+
+		@Override
+		public void onCreated(Item item) {
+			jobsChanged();
+		}
+
+		@Override
+		public void onDeleted(Item item) {
+			itemRemoved(item);
+		}
+
+		@Override
+		public void onRenamed(Item item, String oldName, String newName) {
+			itemRemoved(item);
+		}
+
+		@Override
+		public void onLoaded() {
+			itemsReloaded();
+		}
+	}
+}
@@ -26,7 +26,7 @@ public class QueueCommand implements BotCommand {
 		if (items.length > 0) {
 			StringBuffer msg = new StringBuffer();
 			msg.append("Build queue:");
-			for (Item item : queue.getItems()) {
+			for (Item item : items) {
 				msg.append("\n- ")
 				.append(item.task.getName())
 				.append(": ").append(item.getWhy());
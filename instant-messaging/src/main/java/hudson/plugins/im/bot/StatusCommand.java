@@ -30,10 +30,7 @@ public class StatusCommand extends AbstractMultipleJobCommand {
         }
         msg.append(": ");
 
-        AbstractBuild<?, ?> lastBuild = project.getLastBuild();
-        while ((lastBuild != null) && lastBuild.isBuilding()) {
-            lastBuild = lastBuild.getPreviousBuild();
-        }
+        AbstractBuild<?, ?> lastBuild = JobStatusCache.getInstance().getLastCompletedBuild(project);
         if (lastBuild != null) {
             msg.append("last build: ").append(lastBuild.getNumber()).append(" (")
             	.append(lastBuild.getTimestampString()).append(" ago): ").append(lastBuild.getResult()).append(": ")
@@ -0,0 +1,98 @@
+package hudson.plugins.im;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test case for the {@link IMMessageQueue}.
+ */
+public class IMMessageQueueTest {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMessagesForSameTargetAreCoalesced() throws Exception {
+		RecordingConnection conn = new RecordingConnection();
+		IMPublisher publisher = mock(IMPublisher.class);
+		when(publisher.getDescriptor()).thenReturn(mock(BuildStepDescriptor.class));
+		when(publisher.getIMConnection()).thenReturn(conn);
+
+		IMMessageTarget first = new DefaultIMMessageTarget("first");
+		IMMessageTarget second = new DefaultIMMessageTarget("second");
+
+		IMMessageQueue queue = IMMessageQueue.getInstance();
+		synchronized (queue) {
+			// nothing is sent before all messages are queued
+			queue.send(publisher, first, "one");
+			queue.send(publisher, second, "two");
+			queue.send(publisher, first, "three");
+		}
+
+		List<String> sent = conn.waitForMessages(2);
+		assertEquals("first: one\nthree", sent.get(0));
+		assertEquals("second: two", sent.get(1));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMessagesOverSameTransportAreSpaced() throws Exception {
+		RecordingConnection conn = new RecordingConnection();
+		IMPublisher publisher = mock(IMPublisher.class);
+		when(publisher.getDescriptor()).thenReturn(mock(BuildStepDescriptor.class));
+		when(publisher.getIMConnection()).thenReturn(conn);
+
+		IMMessageQueue queue = IMMessageQueue.getInstance();
+		queue.send(publisher, new DefaultIMMessageTarget("first"), "one");
+		queue.send(publisher, new DefaultIMMessageTarget("second"), "two");
+
+		conn.waitForMessages(2);
+		assertTrue(conn.times.get(1) - conn.times.get(0) >= IMMessageQueue.MIN_INTERVAL - 10);
+	}
+
+	private static class RecordingConnection implements IMConnection {
+		private final List<String> messages = new ArrayList<String>();
+		private final List<Long> times = new ArrayList<Long>();
+
+		public synchronized void send(IMMessageTarget target, String text) throws IMException {
+			this.messages.add(target + ": " + text);
+			this.times.add(Long.valueOf(System.currentTimeMillis()));
+			notifyAll();
+		}
+
+		synchronized List<String> waitForMessages(int count) throws InterruptedException {
+			long end = System.currentTimeMillis() + 10000;
+			while (this.messages.size() < count && System.currentTimeMillis() < end) {
+				wait(100);
+			}
+			return new ArrayList<String>(this.messages);
+		}
+
+		public boolean connect() {
+			return true;
+		}
+
+		public boolean isConnected() {
+			return true;
+		}
+
+		public void close() {
+		}
+
+		public void setPresence(IMPresence presence, String statusMessage) throws IMException {
+		}
+
+		public void addConnectionListener(IMConnectionListener listener) {
+		}
+
+		public void removeConnectionListener(IMConnectionListener listener) {
+		}
+	}
+}
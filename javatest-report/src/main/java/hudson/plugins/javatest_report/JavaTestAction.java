@@ -39,6 +39,11 @@ import java.util.logging.Logger;
  * The actual test reports are isolated by {@link java.lang.ref.WeakReference}
  * so that it doesn't eat up too much memory.
  *
+ * <p>
+ * The report files are indexed by {@link ReportIndex} the first time they are
+ * loaded, normally when the results are recorded, so loading a {@link Report}
+ * afterwards only reads the suite summaries.
+ *
  * @author Kohsuke Kawaguchi
  */
 public class JavaTestAction extends AbstractTestResultAction<JavaTestAction> implements StaplerProxy {
@@ -90,12 +95,39 @@ public class JavaTestAction extends AbstractTestResultAction<JavaTestAction> imp
     }
 
     /**
-     * Loads a {@link hudson.tasks.junit.TestResult} from disk.
+     * Loads a {@link Report} from disk.
+     *
+     * <p>
+     * The index is written if there is none yet, which also covers the builds
+     * recorded before it existed. If the index can't be used, the report files are parsed as a whole.
      *
      * @param listener
      *      Can be null. If available, error reports should be sent there.
      */
     private Report load(BuildListener listener) {
+        File dataDir = getDataDir(owner);
+        try {
+            if(!ReportIndex.exists(dataDir))
+                ReportIndex.write(dataDir,listener);
+            Report r = new Report(this);
+            ReportIndex.read(dataDir,r);
+            return r;
+        } catch (IOException e) {
+            if(listener!=null)
+                e.printStackTrace(listener.error("Failed to index the test reports in "+dataDir));
+            else
+                JavaTestAction.logger.log(Level.WARNING, "Failed to use the test report index in "+dataDir,e);
+        }
+        return parse(listener);
+    }
+
+    /**
+     * Parses all the report files into a {@link Report}.
+     *
+     * @param listener
+     *      Can be null. If available, error reports should be sent there.
+     */
+    private Report parse(BuildListener listener) {
         Report r = new Report(this);
         File[] files = getDataDir(owner).listFiles();
         if(files==null) {
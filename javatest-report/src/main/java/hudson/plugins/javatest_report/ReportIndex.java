@@ -0,0 +1,348 @@
+/*
+ * The contents of this file are subject to the terms
+ * of the Common Development and Distribution License
+ * (the "License").  You may not use this file except
+ * in compliance with the License.
+ *
+ * You can obtain a copy of the license at
+ * https://jwsdp.dev.java.net/CDDLv1.0.html
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL
+ * HEADER in each file and include the License file at
+ * https://jwsdp.dev.java.net/CDDLv1.0.html  If applicable,
+ * add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your
+ * own identifying information: Portions Copyright [yyyy]
+ * [name of copyright owner]
+ */
+package hudson.plugins.javatest_report;
+
+import hudson.model.BuildListener;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Indexed form of the JavaTest results of a build, kept next to the report files.
+ *
+ * <p>
+ * The report files are parsed once by {@link ReportParser} when the results are recorded.
+ * The tests of each suite are appended to {@value #TESTS_FILE}, and the summary of the
+ * suite (its own data, its counts and where its tests are) goes to {@value #INDEX_FILE}.
+ * A {@link Report} can then be made of the summaries only, and the tests of a {@link Suite}
+ * are read the first time it is looked into.
+ */
+final class ReportIndex {
+    static final String INDEX_FILE = "suites.idx";
+    static final String TESTS_FILE = "tests.dat";
+
+    private static final int VERSION = 1;
+
+    private static final byte SUITE = 0;
+    private static final byte TEST = 1;
+    private static final byte TESTCASE = 2;
+    /**
+     * Marks the end of the entries of the index.
+     */
+    private static final byte END = -1;
+
+    private ReportIndex() {
+    }
+
+    /**
+     * Is there an index in this data directory?
+     */
+    static boolean exists(File dataDir) {
+        return new File(dataDir,INDEX_FILE).exists();
+    }
+
+    /**
+     * Parses the report files of the data directory and writes the index.
+     *
+     * <p>
+     * A report file that can't be parsed is reported and skipped, as {@link JavaTestAction} did.
+     * The index only replaces an older one once it has been fully written.
+     *
+     * @param listener
+     *      Can be null. If available, error reports should be sent there.
+     * @throws IOException
+     *      if the index can't be written.
+     */
+    static void write(File dataDir, BuildListener listener) throws IOException {
+        File[] files = dataDir.listFiles();
+        if(files==null)
+            throw new IOException("No test reports found in "+dataDir);
+
+        File testsTmp = new File(dataDir,TESTS_FILE+".tmp");
+        File indexTmp = new File(dataDir,INDEX_FILE+".tmp");
+        boolean written = false;
+        try {
+            final OutputStream tests = new BufferedOutputStream(new FileOutputStream(testsTmp));
+            final DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexTmp)));
+            try {
+                index.writeInt(VERSION);
+                final File testsFile = new File(dataDir,TESTS_FILE);
+                ReportParser.Sink sink = new ReportParser.Sink() {
+                    private long offset;
+
+                    public void add(TestObject<?> t) throws IOException {
+                        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                        writeChildren(new DataOutputStream(buf),t);
+                        buf.writeTo(tests);
+                        new Entry(testsFile,t,offset,buf.size()).write(index,t);
+                        offset += buf.size();
+                    }
+                };
+                for (File f : files) {
+                    if(!f.isFile() || !f.getName().endsWith(".xml"))
+                        continue;
+                    try {
+                        ReportParser.parse(f,sink);
+                    } catch (SAXException e) {
+                        if(listener!=null)
+                            e.printStackTrace(listener.error("Failed to parse "+f));
+                        else
+                            LOGGER.log(Level.WARNING, "Failed to load "+f,e);
+                    }
+                }
+                index.writeByte(END);
+            } finally {
+                tests.close();
+                index.close();
+            }
+
+            rename(testsTmp,new File(dataDir,TESTS_FILE));
+            rename(indexTmp,new File(dataDir,INDEX_FILE));
+            written = true;
+        } finally {
+            if(!written) {
+                testsTmp.delete();
+                indexTmp.delete();
+            }
+        }
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        to.delete();
+        if(!from.renameTo(to))
+            throw new IOException("Failed to rename "+from+" to "+to);
+    }
+
+    /**
+     * Adds the top-level objects of the index to a report. Suites are left unread.
+     *
+     * @throws IOException
+     *      if the index can't be read, nothing is added then.
+     */
+    static void read(File dataDir, Report report) throws IOException {
+        File testsFile = new File(dataDir,TESTS_FILE);
+        List<TestObject> objects = new ArrayList<TestObject>();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(dataDir,INDEX_FILE))));
+        try {
+            int version = in.readInt();
+            if(version!=VERSION)
+                throw new IOException("Unsupported index version "+version+" in "+dataDir);
+            byte kind;
+            while((kind=in.readByte())!=END) {
+                Entry e = new Entry(testsFile,kind,in);
+                TestObject t = newObject(e.kind);
+                readFields(in,t);
+                if(t instanceof Suite) {
+                    ((Suite)t).setUnread(e);
+                } else if(t instanceof TestCollection) {
+                    for (TestObject c : e.readChildren())
+                        ((TestCollection)t).add(c);
+                }
+                objects.add(t);
+            }
+        } finally {
+            in.close();
+        }
+        for (TestObject t : objects)
+            ((TestCollection)report).add(t);
+    }
+
+    /**
+     * Summary of a top-level object of the report, and where its children are.
+     */
+    static final class Entry {
+        private final File testsFile;
+        private final byte kind;
+        final int totalCount;
+        final int failCount;
+        final int skippedCount;
+        final int childCount;
+        private final long offset;
+        private final int length;
+
+        private Entry(File testsFile, TestObject<?> t, long offset, int length) {
+            this.testsFile = testsFile;
+            this.kind = kindOf(t);
+            this.totalCount = t.getTotalCount();
+            this.failCount = t.getFailCount();
+            this.skippedCount = t.getSkippedCount();
+            this.childCount = t instanceof TestCollection ? ((TestCollection)t).getChildren().size() : 0;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Reads the rest of the entry up to the fields of its object, which are left to {@link ReportIndex#readFields}.
+         */
+        private Entry(File testsFile, byte kind, DataInputStream in) throws IOException {
+            this.testsFile = testsFile;
+            this.kind = kind;
+            this.totalCount = in.readInt();
+            this.failCount = in.readInt();
+            this.skippedCount = in.readInt();
+            this.childCount = in.readInt();
+            this.offset = in.readLong();
+            this.length = in.readInt();
+        }
+
+        private void write(DataOutputStream out, TestObject<?> t) throws IOException {
+            out.writeByte(kind);
+            out.writeInt(totalCount);
+            out.writeInt(failCount);
+            out.writeInt(skippedCount);
+            out.writeInt(childCount);
+            out.writeLong(offset);
+            out.writeInt(length);
+            writeFields(out,t);
+        }
+
+        /**
+         * Reads the children of the object from {@value ReportIndex#TESTS_FILE}.
+         */
+        List<TestObject> readChildren() throws IOException {
+            byte[] buf = new byte[length];
+            RandomAccessFile file = new RandomAccessFile(testsFile,"r");
+            try {
+                file.seek(offset);
+                file.readFully(buf);
+            } finally {
+                file.close();
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf));
+            int size = in.readInt();
+            List<TestObject> children = new ArrayList<TestObject>(size);
+            for (int i=0; i<size; i++)
+                children.add(readObject(in));
+            return children;
+        }
+    }
+
+    private static byte kindOf(TestObject<?> t) {
+        if(t instanceof Suite)      return SUITE;
+        if(t instanceof Test)       return TEST;
+        return TESTCASE;
+    }
+
+    private static TestObject newObject(byte kind) throws IOException {
+        switch (kind) {
+        case SUITE:     return new Suite();
+        case TEST:      return new Test();
+        case TESTCASE:  return new TestCase();
+        default:        throw new IOException("Unknown test object kind "+kind);
+        }
+    }
+
+    private static void writeChildren(DataOutputStream out, TestObject<?> t) throws IOException {
+        if(!(t instanceof TestCollection)) {
+            out.writeInt(0);
+            return;
+        }
+        Collection<TestObject<?>> children = ((TestCollection)t).getChildren();
+        out.writeInt(children.size());
+        for (TestObject<?> c : children)
+            writeObject(out,c);
+    }
+
+    private static void writeObject(DataOutputStream out, TestObject<?> t) throws IOException {
+        out.writeByte(kindOf(t));
+        writeFields(out,t);
+        writeChildren(out,t);
+    }
+
+    private static TestObject readObject(DataInputStream in) throws IOException {
+        TestObject t = newObject(in.readByte());
+        readFields(in,t);
+        int size = in.readInt();
+        for (int i=0; i<size; i++)
+            ((TestCollection)t).add(readObject(in));
+        return t;
+    }
+
+    private static void writeFields(DataOutputStream out, TestObject<?> t) throws IOException {
+        writeString(out,t.getId());
+        writeString(out,t.getName());
+        writeString(out,t.getDescription());
+        out.writeByte(t.getStatus()==null ? -1 : t.getStatus().ordinal());
+        Map<String,String> attributes = t.getAttributes();
+        if(attributes==null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(attributes.size());
+            for (Map.Entry<String,String> e : attributes.entrySet()) {
+                writeString(out,e.getKey());
+                writeString(out,e.getValue());
+            }
+        }
+    }
+
+    private static void readFields(DataInputStream in, TestObject t) throws IOException {
+        String id = readString(in);
+        if(id!=null)    t.setId(id);
+        t.setName(readString(in));
+        t.setDescription(readString(in));
+        byte status = in.readByte();
+        if(status>=0)
+            t.setStatus(Status.values()[status]);
+        int size = in.readInt();
+        for (int i=0; i<size; i++)
+            t.addAttribute(readString(in),readString(in));
+    }
+
+    /**
+     * Unlike {@link DataOutputStream#writeUTF(String)}, this accepts null and long descriptions.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if(s==null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length<0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes,"UTF-8");
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ReportIndex.class.getName());
+}
@@ -0,0 +1,181 @@
+/*
+ * The contents of this file are subject to the terms
+ * of the Common Development and Distribution License
+ * (the "License").  You may not use this file except
+ * in compliance with the License.
+ *
+ * You can obtain a copy of the license at
+ * https://jwsdp.dev.java.net/CDDLv1.0.html
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL
+ * HEADER in each file and include the License file at
+ * https://jwsdp.dev.java.net/CDDLv1.0.html  If applicable,
+ * add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your
+ * own identifying information: Portions Copyright [yyyy]
+ * [name of copyright owner]
+ */
+package hudson.plugins.javatest_report;
+
+import hudson.util.IOException2;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser of the SQE report files.
+ *
+ * <p>
+ * It understands the same elements as the {@code Digester} rules of {@link Report#add(File)},
+ * but only keeps the test object being read and its ancestors. Each top-level object
+ * (normally a {@link Suite}) is handed to a {@link Sink} as soon as it is complete, so the
+ * memory used doesn't grow with the size of the report.
+ */
+final class ReportParser extends DefaultHandler {
+    /**
+     * Receives the top-level test objects of a report.
+     */
+    interface Sink {
+        void add(TestObject<?> t) throws IOException;
+    }
+
+    private static final SAXParserFactory FACTORY = SAXParserFactory.newInstance();
+
+    private final Sink sink;
+
+    /**
+     * Test objects being read, innermost last.
+     */
+    private final List<TestObject<?>> stack = new ArrayList<TestObject<?>>();
+
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Names of the open elements, innermost last.
+     */
+    private final List<String> elements = new ArrayList<String>();
+
+    private String attributeName;
+    private String attributeValue;
+
+    private IOException sinkError;
+
+    private ReportParser(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Parses a report file.
+     *
+     * @throws SAXException
+     *      if the file is not a well-formed report.
+     * @throws IOException
+     *      if the file can't be read, or if the sink fails.
+     */
+    static void parse(File reportXml, Sink sink) throws IOException, SAXException {
+        ReportParser handler = new ReportParser(sink);
+        try {
+            newParser().parse(reportXml, handler);
+        } catch (SAXException e) {
+            if(handler.sinkError!=null)
+                throw handler.sinkError;
+            throw e;
+        }
+    }
+
+    private static SAXParser newParser() throws IOException, SAXException {
+        try {
+            synchronized (FACTORY) {
+                return FACTORY.newSAXParser();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IOException2("Failed to create a parser",e);
+        }
+    }
+
+    private TestObject<?> top() {
+        return stack.isEmpty() ? null : stack.get(stack.size()-1);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) {
+        elements.add(qName);
+        text.setLength(0);
+
+        TestObject<?> t = null;
+        if(qName.equals("testsuite"))
+            t = new Suite();
+        else if(qName.equals("test"))
+            t = new Test();
+        else if(qName.equals("testcase"))
+            t = new TestCase();
+
+        if(t!=null) {
+            String v = atts.getValue("id");
+            if(v!=null)     t.setId(v);
+            v = atts.getValue("name");
+            if(v!=null)     t.setName(v);
+            v = atts.getValue("description");
+            if(v!=null)     t.setDescription(v);
+            stack.add(t);
+        } else if(qName.equals("status")) {
+            String v = atts.getValue("value");
+            if(v!=null && top()!=null)
+                top().setStatusString(v);
+        } else if(qName.equals("attribute")) {
+            attributeName = null;
+            attributeValue = null;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        text.append(ch,start,length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        String body = text.toString().trim();
+        text.setLength(0);
+        elements.remove(elements.size()-1);
+        boolean inAttribute = !elements.isEmpty() && elements.get(elements.size()-1).equals("attribute");
+
+        if(qName.equals("testsuite") || qName.equals("test") || qName.equals("testcase")) {
+            TestObject t = stack.remove(stack.size()-1);
+            TestCollection parent = (TestCollection)top();
+            if(parent!=null) {
+                parent.add(t);
+            } else {
+                try {
+                    sink.add(t);
+                } catch (IOException e) {
+                    sinkError = e;
+                    throw new SAXException(e);
+                }
+            }
+        } else if(inAttribute && qName.equals("name")) {
+            attributeName = body;
+        } else if(inAttribute && qName.equals("value")) {
+            attributeValue = body;
+        } else if(qName.equals("attribute")) {
+            if(attributeName!=null && top()!=null)
+                top().addAttribute(attributeName,attributeValue);
+        } else if(qName.equals("name")) {
+            if(top()!=null)
+                top().setName(body);
+        } else if(qName.equals("description")) {
+            if(top()!=null)
+                top().setDescription(body);
+        }
+    }
+}
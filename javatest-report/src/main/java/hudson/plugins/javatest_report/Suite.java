@@ -19,13 +19,110 @@
  */
 package hudson.plugins.javatest_report;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  * A {@link Suite} is a set of {@link Test}s.
  *
+ * <p>
+ * A suite loaded from the {@link ReportIndex} only knows its counts at first,
+ * and reads its tests the first time they are asked for.
+ *
  * @author Kohsuke Kawaguchi
  */
 public class Suite extends TestCollection<Suite,Test> {
+    /**
+     * Where the tests of this suite are, until they are read.
+     * Null for a suite that has been parsed, or whose tests have been read.
+     */
+    private volatile ReportIndex.Entry unread;
+
+    /*package*/ void setUnread(ReportIndex.Entry unread) {
+        this.unread = unread;
+    }
+
+    /**
+     * Reads the tests of this suite from the index, if this hasn't been done yet.
+     */
+    private synchronized void read() {
+        ReportIndex.Entry e = unread;
+        if(e==null)
+            return;
+        try {
+            for (TestObject t : e.readChildren())
+                super.add((Test)t);
+            unread = null;
+        } catch (IOException x) {
+            logger.log(Level.WARNING, "Failed to read the tests of the suite "+getId(),x);
+        }
+    }
+
     public String getChildTitle() {
         return "Test";
     }
+
+    @Override
+    public Collection<Test> getChildren() {
+        read();
+        return super.getChildren();
+    }
+
+    @Override
+    public int getChildCount() {
+        ReportIndex.Entry e = unread;
+        return e!=null ? e.childCount : super.getChildCount();
+    }
+
+    @Override
+    public Collection<Test> getFailedTests() {
+        read();
+        return super.getFailedTests();
+    }
+
+    @Override
+    public Collection<Test> getSkippedTests() {
+        read();
+        return super.getSkippedTests();
+    }
+
+    @Override
+    public int getTotalCount() {
+        ReportIndex.Entry e = unread;
+        return e!=null ? e.totalCount : super.getTotalCount();
+    }
+
+    @Override
+    public int getFailCount() {
+        ReportIndex.Entry e = unread;
+        return e!=null ? e.failCount : super.getFailCount();
+    }
+
+    @Override
+    public int getSkippedCount() {
+        ReportIndex.Entry e = unread;
+        return e!=null ? e.skippedCount : super.getSkippedCount();
+    }
+
+    @Override
+    public Test get(String id) {
+        read();
+        return super.get(id);
+    }
+
+    @Override
+    public String[] getPackages() {
+        read();
+        return super.getPackages();
+    }
+
+    @Override
+    public Package getPackageTests(String packageName) {
+        read();
+        return super.getPackageTests(packageName);
+    }
+
+    private static final Logger logger = Logger.getLogger(Suite.class.getName());
 }
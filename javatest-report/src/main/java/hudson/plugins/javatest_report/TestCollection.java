@@ -44,6 +44,13 @@ public abstract class TestCollection<
         return tests.values();
     }
 
+    /**
+     * Gets the number of children, without having to load them.
+     */
+    public int getChildCount() {
+        return getChildren().size();
+    }
+
     public Collection<C> getFailedTests() {
         return failedTests.values();
     }
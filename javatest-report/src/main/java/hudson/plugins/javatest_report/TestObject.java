@@ -182,6 +182,10 @@ public abstract class TestObject<S extends TestObject<S>>
             this.status = Status.FAIL;
     }
 
+    /*package*/ void setStatus(Status status) {
+        this.status = status;
+    }
+
     public void addAttribute(String name, String value) {
         if(attributes == null)
             attributes = new HashMap<String,String>();
@@ -190,6 +194,13 @@ public abstract class TestObject<S extends TestObject<S>>
             statusMessage = value;
     }
     
+    /**
+     * Optional attributes of this test, null if there is none.
+     */
+    /*package*/ Map<String,String> getAttributes() {
+        return attributes;
+    }
+
     public String getStatusMessage() {
         return statusMessage;
     }
@@ -0,0 +1,97 @@
+/*
+ * The contents of this file are subject to the terms
+ * of the Common Development and Distribution License
+ * (the "License").  You may not use this file except
+ * in compliance with the License.
+ *
+ * You can obtain a copy of the license at
+ * https://jwsdp.dev.java.net/CDDLv1.0.html
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL
+ * HEADER in each file and include the License file at
+ * https://jwsdp.dev.java.net/CDDLv1.0.html  If applicable,
+ * add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your
+ * own identifying information: Portions Copyright [yyyy]
+ * [name of copyright owner]
+ */
+package hudson.plugins.javatest_report;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class ReportIndexTest extends TestCase {
+    private File dataDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dataDir = File.createTempFile("java-test-result",null);
+        dataDir.delete();
+        dataDir.mkdirs();
+        copy(new File(getClass().getResource("/trial1.xml").toURI()),new File(dataDir,"report0.xml"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : dataDir.listFiles())
+            f.delete();
+        dataDir.delete();
+    }
+
+    public void testSameCountsAsDigester() throws Exception {
+        Report parsed = new Report(null);
+        parsed.add(new File(dataDir,"report0.xml"));
+
+        ReportIndex.write(dataDir,null);
+        Report indexed = new Report(null);
+        ReportIndex.read(dataDir,indexed);
+
+        assertEquals(parsed.getTotalCount(),indexed.getTotalCount());
+        assertEquals(parsed.getFailCount(),indexed.getFailCount());
+        assertEquals(parsed.getSkippedCount(),indexed.getSkippedCount());
+        assertEquals(parsed.getChildren().size(),indexed.getChildren().size());
+    }
+
+    public void testSuiteIsReadLazily() throws Exception {
+        ReportIndex.write(dataDir,null);
+        Report indexed = new Report(null);
+        ReportIndex.read(dataDir,indexed);
+
+        Suite suite = indexed.getChildren().iterator().next();
+        assertEquals(559,suite.getChildCount());
+        assertEquals(24,suite.getFailCount());
+
+        assertEquals(559,suite.getChildren().size());
+        assertEquals(559,suite.getTotalCount());
+        assertEquals(24,suite.getFailedTests().size());
+        Test test = suite.get("test.1");
+        assertEquals(Status.FAIL,test.getStatus());
+        assertEquals("com/sun/ts/tests/jaxws/api/javax_xml_ws/AsyncHandler/Client_HandleResponseXMLTest_from_standalone.jtr",
+                test.getStatusMessage());
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        InputStream in = new FileInputStream(from);
+        try {
+            OutputStream out = new FileOutputStream(to);
+            try {
+                byte[] buf = new byte[8192];
+                int len;
+                while((len=in.read(buf))>=0)
+                    out.write(buf,0,len);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ * Copyright 2010 Mirko Friedenhagen
+ */
+
+package hudson.plugins.jobConfigHistory;
+
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only index of the configuration changes of all jobs, one line per change.
+ *
+ * Listing all changes used to read the {@code history.xml} of every history entry of every job. The index is read
+ * backwards instead, from the most recent change, and only as far as the requested page. Renames are recorded with
+ * the old name, so that older changes are listed under the current name of their job.
+ */
+final class ChangeIndex {
+
+    /** Name of the index in {@code HUDSON_HOME}. */
+    static final String FILE_NAME = "config-history-index.txt";
+
+    /** Our logger. */
+    private static final Logger LOG = Logger.getLogger(ChangeIndex.class.getName());
+
+    /** Index of the current Hudson instance. */
+    private static ChangeIndex instance;
+
+    /** The index file. */
+    private final File file;
+
+    /**
+     * One change, as recorded in the index.
+     */
+    static final class Entry {
+
+        /** Timestamp of the change, see {@link ConfigHistoryListenerHelper#ID_FORMATTER}. */
+        private final String timestamp;
+
+        /** Name of the job. */
+        private final String job;
+
+        /** Name of the operation. */
+        private final String operation;
+
+        /** Id of the user. */
+        private final String userId;
+
+        /** Display name of the user. */
+        private final String user;
+
+        /** Former name of the job for a rename, null otherwise. */
+        private final String oldName;
+
+        /**
+         * @param timestamp see {@link Entry#timestamp}.
+         * @param job see {@link Entry#job}.
+         * @param operation see {@link Entry#operation}.
+         * @param userId see {@link Entry#userId}.
+         * @param user see {@link Entry#user}.
+         * @param oldName see {@link Entry#oldName}.
+         */
+        Entry(String timestamp, String job, String operation, String userId, String user, String oldName) {
+            this.timestamp = timestamp;
+            this.job = job;
+            this.operation = operation;
+            this.userId = userId;
+            this.user = user;
+            this.oldName = oldName;
+        }
+
+        /**
+         * Returns the timestamp of the change.
+         *
+         * @return timestamp in the format of {@link ConfigHistoryListenerHelper#ID_FORMATTER}
+         */
+        String getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the name of the job.
+         *
+         * @return name of the job, the current one when read from the index.
+         */
+        String getJob() {
+            return job;
+        }
+
+        /**
+         * Returns the description of the change.
+         *
+         * @return description as saved in {@code history.xml}.
+         */
+        HistoryDescr getHistoryDescr() {
+            return new HistoryDescr(user, userId, operation, timestamp);
+        }
+
+        /**
+         * Returns the line recording this entry in the index.
+         *
+         * @return line without separator.
+         */
+        String toLine() {
+            final StringBuilder line = new StringBuilder();
+            for (final String field : new String[] {timestamp, job, operation, userId, user}) {
+                line.append(escape(field)).append('\t');
+            }
+            return line.append(oldName == null ? "" : escape(oldName)).toString();
+        }
+
+        /**
+         * Parses a line of the index.
+         *
+         * @param line
+         *            without separator.
+         * @return the entry, or null if the line is not complete.
+         */
+        static Entry parse(final String line) {
+            final String[] fields = line.split("\t", -1);
+            if (fields.length < 6) {
+                return null;
+            }
+            return new Entry(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5].length() == 0 ? null
+                    : fields[5]);
+        }
+
+        /**
+         * Makes sure that a field does not break the line in the index.
+         *
+         * @param field
+         *            to escape.
+         * @return the field, with tabs and line separators replaced by spaces.
+         */
+        private static String escape(final String field) {
+            return field == null ? "" : field.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    /**
+     * Decides which entries are listed.
+     */
+    interface Filter {
+
+        /**
+         * @param entry
+         *            with the current name of its job.
+         * @return true if the entry should be listed.
+         */
+        boolean accept(Entry entry);
+    }
+
+    /**
+     * @param file
+     *            the index file.
+     */
+    ChangeIndex(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the index of the current Hudson instance. The first time, or if the index file has been deleted, the
+     * index is built from the history entries found in the jobs.
+     *
+     * @return the index.
+     */
+    static synchronized ChangeIndex get() {
+        final File file = new File(Hudson.getInstance().getRootDir(), FILE_NAME);
+        if (instance == null || !instance.file.equals(file) || !file.exists()) {
+            instance = new ChangeIndex(file);
+            if (!file.exists()) {
+                try {
+                    instance.rebuild();
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Could not build " + file, e);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Records a change.
+     *
+     * @param entry
+     *            the change.
+     * @throws IOException
+     *             if the index could not be written.
+     */
+    synchronized void append(final Entry entry) throws IOException {
+        final OutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write((entry.toLine() + "\n").getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Lists changes, from the most recent one.
+     *
+     * @param start
+     *            number of accepted entries to skip.
+     * @param count
+     *            maximum number of entries to return.
+     * @param filter
+     *            decides which entries are listed.
+     * @return the entries, with the current names of their jobs.
+     * @throws IOException
+     *             if the index could not be read.
+     */
+    synchronized List<Entry> list(final int start, final int count, final Filter filter) throws IOException {
+        final List<Entry> entries = new ArrayList<Entry>();
+        if (!file.exists()) {
+            return entries;
+        }
+        // old name -> current name, for the renames seen so far
+        final Map<String, String> renames = new HashMap<String, String>();
+        // Changes within the same second share their history entry, only the last one is listed
+        final Set<String> seen = new HashSet<String>();
+        int skipped = 0;
+        final ReverseLineReader reader = new ReverseLineReader(new RandomAccessFile(file, "r"));
+        try {
+            String line;
+            while (entries.size() < count && (line = reader.readLine()) != null) {
+                final Entry recorded = Entry.parse(line);
+                if (recorded == null) {
+                    continue;
+                }
+                final String job = renames.containsKey(recorded.job) ? renames.get(recorded.job) : recorded.job;
+                if (recorded.oldName != null) {
+                    renames.put(recorded.oldName, job);
+                }
+                final Entry entry = new Entry(recorded.timestamp, job, recorded.operation, recorded.userId,
+                        recorded.user, null);
+                if (!seen.add(job + '\t' + entry.timestamp) || !filter.accept(entry)) {
+                    continue;
+                }
+                if (skipped < start) {
+                    skipped++;
+                } else {
+                    entries.add(entry);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return entries;
+    }
+
+    /**
+     * Builds the index from the history entries of all jobs.
+     *
+     * @throws IOException
+     *             if the index could not be written.
+     */
+    private void rebuild() throws IOException {
+        LOG.info("Building " + file + " from the history of all jobs");
+        final List<Entry> entries = new ArrayList<Entry>();
+        @SuppressWarnings("unchecked")
+        final List<AbstractProject> projects = Hudson.getInstance().getItems(AbstractProject.class);
+        for (final AbstractProject<?, ?> project : projects) {
+            final File[] historyDirs = new File(project.getRootDir(), "config-history").listFiles();
+            if (historyDirs == null) {
+                continue;
+            }
+            for (final File historyDir : historyDirs) {
+                final XmlFile historyXml = new XmlFile(new File(historyDir, "history.xml"));
+                if (!historyXml.exists()) {
+                    continue;
+                }
+                final HistoryDescr histDescr = (HistoryDescr) historyXml.read();
+                entries.add(new Entry(histDescr.getTimestamp(), project.getName(), histDescr.getOperation(),
+                        histDescr.getUserID(), histDescr.getUser(), null));
+            }
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+            public int compare(Entry e1, Entry e2) {
+                return e1.timestamp.compareTo(e2.timestamp);
+            }
+        });
+
+        final File tmp = new File(file.getPath() + ".tmp");
+        final OutputStream out = new FileOutputStream(tmp);
+        try {
+            for (final Entry entry : entries) {
+                out.write((entry.toLine() + "\n").getBytes("UTF-8"));
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not rename " + tmp + " to " + file);
+        }
+    }
+
+    /**
+     * Reads the lines of a file from the last one.
+     */
+    private static final class ReverseLineReader {
+
+        /** The file. */
+        private final RandomAccessFile raf;
+
+        /** Bytes read from the file. */
+        private final byte[] buffer = new byte[8192];
+
+        /** Position in the file of the beginning of {@link #buffer}. */
+        private long position;
+
+        /** Number of bytes of {@link #buffer} not consumed yet. */
+        private int remaining;
+
+        /**
+         * @param raf
+         *            the file to read.
+         * @throws IOException
+         *             if the length of the file could not be read.
+         */
+        ReverseLineReader(final RandomAccessFile raf) throws IOException {
+            this.raf = raf;
+            this.position = raf.length();
+        }
+
+        /**
+         * Returns the previous non empty line.
+         *
+         * @return the line without separator, or null at the beginning of the file.
+         * @throws IOException
+         *             if reading fails.
+         */
+        String readLine() throws IOException {
+            final ByteArrayOutputStream reversed = new ByteArrayOutputStream();
+            while (true) {
+                if (remaining == 0) {
+                    if (position == 0) {
+                        break;
+                    }
+                    remaining = (int) Math.min(buffer.length, position);
+                    position -= remaining;
+                    raf.seek(position);
+                    raf.readFully(buffer, 0, remaining);
+                }
+                final byte b = buffer[--remaining];
+                if (b == '\n') {
+                    if (reversed.size() > 0) {
+                        break;
+                    }
+                } else {
+                    reversed.write(b);
+                }
+            }
+            if (reversed.size() == 0) {
+                return null;
+            }
+            // UTF-8 never uses '\n' in multi-byte sequences, so the line can just be reversed
+            final byte[] line = reversed.toByteArray();
+            for (int i = 0, j = line.length - 1; i < j; i++, j--) {
+                final byte tmp = line[i];
+                line[i] = line[j];
+                line[j] = tmp;
+            }
+            return new String(line, "UTF-8");
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @throws IOException
+         *             if closing fails.
+         */
+        void close() throws IOException {
+            raf.close();
+        }
+    }
+}
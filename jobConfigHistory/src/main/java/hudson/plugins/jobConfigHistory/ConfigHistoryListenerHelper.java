@@ -4,16 +4,12 @@
 
 package hudson.plugins.jobConfigHistory;
 
-import hudson.Util;
 import hudson.XmlFile;
 import hudson.model.AbstractProject;
 import hudson.model.Item;
 import hudson.model.User;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -98,11 +94,27 @@ public enum ConfigHistoryListenerHelper {
      *            for which we want to save the configuration.
      */
     public final void createNewHistoryEntry(final AbstractProject<?, ?> project) {
+        createNewHistoryEntry(project, null);
+    }
+
+    /**
+     * Creates a new backup of the job configuration and records it in the {@link ChangeIndex}.
+     *
+     * @param project
+     *            for which we want to save the configuration.
+     * @param oldName
+     *            former name of the project when it is renamed, null otherwise.
+     */
+    public final void createNewHistoryEntry(final AbstractProject<?, ?> project, final String oldName) {
         try {
+            // Get the index first, so that building it does not see this entry already.
+            final ChangeIndex index = ChangeIndex.get();
             final Calendar timestamp = new GregorianCalendar();
             final File timestampedDir = getRootDir(project, timestamp);
-            copyConfigFile(project.getConfigFile(), timestampedDir);
-            createHistoryXmlFile(timestamp, timestampedDir);
+            ConfigHistoryStorage.save(project.getConfigFile().getFile(), timestampedDir);
+            final HistoryDescr histDescr = createHistoryXmlFile(timestamp, timestampedDir);
+            index.append(new ChangeIndex.Entry(histDescr.getTimestamp(), project.getName(), histDescr.getOperation(),
+                    histDescr.getUserID(), histDescr.getUser(), oldName));
         } catch (IOException e) {
             throw new RuntimeException("Operation " + operation + " on " + project.getName() + " did not succeed", e);
         }
@@ -115,10 +127,11 @@ public enum ConfigHistoryListenerHelper {
      *            when the action did happen.
      * @param timestampedDir
      *            the directory where to save the history.
+     * @return the historical description.
      * @throws IOException
      *             if writing the history fails.
      */
-    private void createHistoryXmlFile(final Calendar timestamp, final File timestampedDir) throws IOException {
+    private HistoryDescr createHistoryXmlFile(final Calendar timestamp, final File timestampedDir) throws IOException {
         final User currentUser = getCurrentUser();
         final String user;
         final String userId;
@@ -134,6 +147,7 @@ public enum ConfigHistoryListenerHelper {
         final HistoryDescr myDescr = new HistoryDescr(user, userId, operation, getIdFormatter().format(
                 timestamp.getTime()));
         historyDescription.write(myDescr);
+        return myDescr;
     }
 
     /**
@@ -145,33 +159,6 @@ public enum ConfigHistoryListenerHelper {
         return User.current();
     }
 
-    /**
-     * Saves a copy of this project's {@code config.xml} into {@code timestampedDir}.
-     *
-     * @param currentConfig
-     *            which we want to copy.
-     * @param timestampedDir
-     *            the directory where to save the copy.
-     * @throws FileNotFoundException
-     *             if initiating the file holding the copy fails.
-     * @throws IOException
-     *             if writing the file holding the copy fails.
-     */
-    private void copyConfigFile(final XmlFile currentConfig, final File timestampedDir)
-            throws FileNotFoundException, IOException {
-        final FileOutputStream configCopy = new FileOutputStream(new File(timestampedDir, "config.xml"));
-        try {
-            final FileInputStream configOriginal = new FileInputStream(currentConfig.getFile());
-            try {
-                Util.copyStream(configOriginal, configCopy);
-            } finally {
-                configOriginal.close();
-            }
-        } finally {
-            configCopy.close();
-        }
-    }
-
     /**
      * Returns a simple formatter used for creating timestamped directories. We create this every time as
      * {@link SimpleDateFormat} is <b>not</b> threadsafe.
@@ -0,0 +1,341 @@
+/**
+ * Copyright 2010 Mirko Friedenhagen
+ */
+
+package hudson.plugins.jobConfigHistory;
+
+import hudson.XmlFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import bmsi.util.Diff;
+import bmsi.util.Diff.change;
+
+/**
+ * Stores the versions of a {@code config.xml} in the timestamped history directories.
+ *
+ * Most versions are saved as a compressed line delta ({@value #DELTA_FILE}) against the previous version, and
+ * rebuilt on demand. Every {@value #FULL_COPY_INTERVAL}th version, or when a delta would not save much, the whole
+ * file is copied ({@value #CONFIG_FILE}), so that rebuilding a version never applies more than
+ * {@value #FULL_COPY_INTERVAL} deltas. Directories of older versions of this plugin only hold full copies.
+ */
+final class ConfigHistoryStorage {
+
+    /** Name of a full copy. */
+    static final String CONFIG_FILE = "config.xml";
+
+    /** Name of a delta. */
+    static final String DELTA_FILE = "config.xml.delta.gz";
+
+    /** Maximum number of versions in a row saved as deltas plus one. */
+    static final int FULL_COPY_INTERVAL = 10;
+
+    /**
+     * Lines are handled as ISO-8859-1, which maps every byte to one char, so that versions are rebuilt byte for
+     * byte, whatever their encoding.
+     */
+    private static final String BYTES = "ISO-8859-1";
+
+    /**
+     * Only static methods.
+     */
+    private ConfigHistoryStorage() {
+        // Only static methods
+    }
+
+    /**
+     * Saves {@code currentConfig} as the version of {@code timestampedDir}.
+     *
+     * @param currentConfig
+     *            the configuration to save.
+     * @param timestampedDir
+     *            the directory of the new version.
+     * @throws IOException
+     *             if reading the previous version or writing the new one fails.
+     */
+    static void save(final File currentConfig, final File timestampedDir) throws IOException {
+        final byte[] current = readBytes(currentConfig);
+        // An earlier change within the same second may have left a version here.
+        deleteVersion(timestampedDir);
+        final File previousDir = getPreviousDir(timestampedDir);
+        if (previousDir != null) {
+            final int depth = getDepth(previousDir) + 1;
+            if (depth < FULL_COPY_INTERVAL) {
+                final byte[] delta = createDelta(previousDir.getName(), depth, read(previousDir), current);
+                if (delta.length < current.length / 2) {
+                    writeBytes(new File(timestampedDir, DELTA_FILE), delta);
+                    return;
+                }
+            }
+        }
+        writeBytes(new File(timestampedDir, CONFIG_FILE), current);
+    }
+
+    /**
+     * Returns the version of {@code config.xml} saved in {@code timestampedDir}.
+     *
+     * @param timestampedDir
+     *            the directory of the version.
+     * @return content of the {@code config.xml}.
+     * @throws IOException
+     *             if one of the files needed to rebuild the version could not be read.
+     */
+    static String readAsString(final File timestampedDir) throws IOException {
+        final File configFile = new File(timestampedDir, CONFIG_FILE);
+        if (configFile.exists()) {
+            return new XmlFile(configFile).asString();
+        }
+        // Hudson always writes config.xml in UTF-8
+        return new String(read(timestampedDir), "UTF-8");
+    }
+
+    /**
+     * Returns the raw content of the version saved in {@code timestampedDir}.
+     *
+     * @param timestampedDir
+     *            the directory of the version.
+     * @return content of the {@code config.xml}.
+     * @throws IOException
+     *             if one of the files needed to rebuild the version could not be read.
+     */
+    static byte[] read(final File timestampedDir) throws IOException {
+        final File configFile = new File(timestampedDir, CONFIG_FILE);
+        if (configFile.exists()) {
+            return readBytes(configFile);
+        }
+        final DataInputStream in = openDelta(timestampedDir);
+        try {
+            final File baseDir = new File(timestampedDir.getParentFile(), in.readUTF());
+            in.readInt(); // depth
+            final String[] baseLines = split(read(baseDir));
+            final StringBuilder result = new StringBuilder();
+            int baseLine = 0;
+            final int hunks = in.readInt();
+            for (int i = 0; i < hunks; i++) {
+                final int line0 = in.readInt();
+                final int deleted = in.readInt();
+                final int inserted = in.readInt();
+                for (; baseLine < line0; baseLine++) {
+                    appendLine(result, baseLines[baseLine]);
+                }
+                baseLine += deleted;
+                for (int j = 0; j < inserted; j++) {
+                    final byte[] line = new byte[in.readInt()];
+                    in.readFully(line);
+                    appendLine(result, new String(line, BYTES));
+                }
+            }
+            for (; baseLine < baseLines.length; baseLine++) {
+                appendLine(result, baseLines[baseLine]);
+            }
+            // a version has at least one line, drop the separator before the first one
+            return result.substring(1).getBytes(BYTES);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Appends a line, separating it from the previous one.
+     *
+     * @param result
+     *            the lines so far, the first line is preceded by a {@code '\n'}.
+     * @param line
+     *            the line to append.
+     */
+    private static void appendLine(final StringBuilder result, final String line) {
+        result.append('\n').append(line);
+    }
+
+    /**
+     * Computes the delta between two versions.
+     *
+     * @param baseName
+     *            name of the directory of the previous version.
+     * @param depth
+     *            number of deltas to apply to a full copy to rebuild the new version.
+     * @param base
+     *            the previous version.
+     * @param current
+     *            the new version.
+     * @return compressed delta.
+     * @throws IOException
+     *             never, we write to memory.
+     */
+    private static byte[] createDelta(final String baseName, final int depth, final byte[] base, final byte[] current)
+            throws IOException {
+        final String[] baseLines = split(base);
+        final String[] currentLines = split(current);
+        final List<change> hunks = new ArrayList<change>();
+        for (change hunk = new Diff(baseLines, currentLines).diff_2(false); hunk != null; hunk = hunk.link) {
+            hunks.add(hunk);
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes));
+        try {
+            out.writeUTF(baseName);
+            out.writeInt(depth);
+            out.writeInt(hunks.size());
+            for (final change hunk : hunks) {
+                out.writeInt(hunk.line0);
+                out.writeInt(hunk.deleted);
+                out.writeInt(hunk.inserted);
+                for (int i = hunk.line1; i < hunk.line1 + hunk.inserted; i++) {
+                    final byte[] line = currentLines[i].getBytes(BYTES);
+                    out.writeInt(line.length);
+                    out.write(line);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the number of deltas to apply to a full copy to rebuild the version of {@code timestampedDir}.
+     *
+     * @param timestampedDir
+     *            the directory of the version.
+     * @return 0 for a full copy.
+     * @throws IOException
+     *             if the delta could not be read.
+     */
+    private static int getDepth(final File timestampedDir) throws IOException {
+        if (new File(timestampedDir, CONFIG_FILE).exists()) {
+            return 0;
+        }
+        final DataInputStream in = openDelta(timestampedDir);
+        try {
+            in.readUTF();
+            return in.readInt();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Opens the delta saved in {@code timestampedDir}.
+     *
+     * @param timestampedDir
+     *            the directory of the version.
+     * @return a stream positioned at the beginning of the delta.
+     * @throws IOException
+     *             if the delta could not be opened.
+     */
+    private static DataInputStream openDelta(final File timestampedDir) throws IOException {
+        return new DataInputStream(new GZIPInputStream(new FileInputStream(new File(timestampedDir, DELTA_FILE))));
+    }
+
+    /**
+     * Returns the directory of the version before the one of {@code timestampedDir}.
+     *
+     * @param timestampedDir
+     *            the directory of the version.
+     * @return the directory, or null if there is no previous version.
+     */
+    private static File getPreviousDir(final File timestampedDir) {
+        final String name = timestampedDir.getName();
+        final File[] versionDirs = timestampedDir.getParentFile().listFiles(new FileFilter() {
+            public boolean accept(File dir) {
+                return dir.getName().compareTo(name) < 0
+                        && (new File(dir, CONFIG_FILE).exists() || new File(dir, DELTA_FILE).exists());
+            }
+        });
+        File previousDir = null;
+        if (versionDirs != null) {
+            for (final File dir : versionDirs) {
+                if (previousDir == null || dir.getName().compareTo(previousDir.getName()) > 0) {
+                    previousDir = dir;
+                }
+            }
+        }
+        return previousDir;
+    }
+
+    /**
+     * Removes the version saved in {@code timestampedDir}.
+     *
+     * @param timestampedDir
+     *            the directory of the version.
+     * @throws IOException
+     *             if one of the files could not be deleted.
+     */
+    private static void deleteVersion(final File timestampedDir) throws IOException {
+        for (final String name : new String[] {CONFIG_FILE, DELTA_FILE}) {
+            final File f = new File(timestampedDir, name);
+            if (f.exists() && !f.delete()) {
+                throw new IOException("Could not delete " + f);
+            }
+        }
+    }
+
+    /**
+     * Splits a version in lines, {@code '\n'} excluded.
+     *
+     * @param content
+     *            the version.
+     * @return the lines, the last one being empty when {@code content} ends with a line separator.
+     * @throws IOException
+     *             never, ISO-8859-1 is always supported.
+     */
+    private static String[] split(final byte[] content) throws IOException {
+        return new String(content, BYTES).split("\n", -1);
+    }
+
+    /**
+     * Reads a whole file.
+     *
+     * @param file
+     *            to read.
+     * @return the content.
+     * @throws IOException
+     *             if reading fails.
+     */
+    private static byte[] readBytes(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            final byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a whole file.
+     *
+     * @param file
+     *            to write.
+     * @param content
+     *            to write.
+     * @throws IOException
+     *             if writing fails.
+     */
+    private static void writeBytes(final File file, final byte[] content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -88,7 +88,7 @@ public abstract class JobConfigHistoryBaseAction implements Action {
      */
     public final String getFile() throws IOException {
         checkConfigurePermission();
-        return getConfigXml(getRequestParameter("file")).asString();
+        return getConfigXmlAsString(getRequestParameter("file"));
     }
 
     /**
@@ -122,6 +122,20 @@ public abstract class JobConfigHistoryBaseAction implements Action {
         return new XmlFile(new File(diffDir, "config.xml"));
     }
 
+    /**
+     * Returns the content of {@link JobConfigHistoryBaseAction#getConfigXml(String)}, rebuilding it when only a delta
+     * was saved.
+     *
+     * @param diffDir
+     *            timestamped history directory.
+     * @return content of the {@code config.xml}.
+     * @throws IOException
+     *             if the config file could not be read.
+     */
+    protected final String getConfigXmlAsString(final String diffDir) throws IOException {
+        return ConfigHistoryStorage.readAsString(getConfigXml(diffDir).getFile().getParentFile());
+    }
+
     /**
      * Returns the parameter named {@code parameterName} from current request.
      *
@@ -23,4 +23,7 @@ public final class JobConfigHistoryConsts {
     /** Path to the icon. */
     public static final String ICONFILENAME = "/plugin/jobConfigHistory/img/confighistory.png";
 
+    /** Number of entries on a page of the history of all jobs. */
+    public static final int PAGE_SIZE = 100;
+
 }
@@ -34,7 +34,7 @@ public final class JobConfigHistoryJobListener extends ItemListener {
     public void onRenamed(Item item, String oldName, String newName) {
         LOG.finest("In onRenamed for " + item + " oldName=" + oldName + ", newName=" + newName);
         if (item instanceof AbstractProject<?, ?>) {
-            ConfigHistoryListenerHelper.RENAMED.createNewHistoryEntry((AbstractProject<?, ?>) item);
+            ConfigHistoryListenerHelper.RENAMED.createNewHistoryEntry((AbstractProject<?, ?>) item, oldName);
         }
         LOG.finest("onRename for " + item + " done.");
 //        new Exception("STACKTRACE for double invocation").printStackTrace();
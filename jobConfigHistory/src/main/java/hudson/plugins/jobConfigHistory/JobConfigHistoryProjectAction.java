@@ -106,9 +106,9 @@ public class JobConfigHistoryProjectAction extends JobConfigHistoryBaseAction {
     public final String getDiffFile() throws IOException {
         checkConfigurePermission();
         final XmlFile configXml1 = getConfigXml(getRequestParameter("histDir1"));
-        final String[] configXml1Lines = configXml1.asString().split("\\n");
+        final String[] configXml1Lines = getConfigXmlAsString(getRequestParameter("histDir1")).split("\\n");
         final XmlFile configXml2 = getConfigXml(getRequestParameter("histDir2"));
-        final String[] configXml2Lines = configXml2.asString().split("\\n");
+        final String[] configXml2Lines = getConfigXmlAsString(getRequestParameter("histDir2")).split("\\n");
         return getDiff(configXml1.getFile(), configXml2.getFile(), configXml1Lines, configXml2Lines);
     }
 
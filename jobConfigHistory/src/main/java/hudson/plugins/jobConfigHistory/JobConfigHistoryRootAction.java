@@ -3,12 +3,14 @@ package hudson.plugins.jobConfigHistory;
 import hudson.Extension;
 import hudson.model.AbstractProject;
 import hudson.model.Hudson;
+import hudson.model.Item;
 import hudson.model.RootAction;
 import hudson.security.AccessControlled;
+import hudson.security.Permission;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -35,27 +37,69 @@ public class JobConfigHistoryRootAction extends JobConfigHistoryBaseAction imple
     }
 
     /**
-     * Returns the configuration history entries for all {@link AbstractProject}s in this Hudson instance.
+     * Returns one page of the configuration history entries for all {@link AbstractProject}s in this Hudson instance,
+     * starting at the entry given by the request parameter {@code start}.
      *
-     * @return list for all {@link AbstractProject}s.
+     * @return list for all {@link AbstractProject}s, most recent first.
      * @throws IOException
-     *             if one of the history entries might not be read.
+     *             if the {@link ChangeIndex} might not be read.
      */
     public final List<ConfigInfo> getConfigs() throws IOException {
+        return getConfigs(getStart(), getPageSize());
+    }
+
+    /**
+     * Returns configuration history entries for all {@link AbstractProject}s in this Hudson instance.
+     *
+     * @param start
+     *            number of entries to skip.
+     * @param count
+     *            maximum number of entries to return.
+     * @return list for all {@link AbstractProject}s, most recent first.
+     * @throws IOException
+     *             if the {@link ChangeIndex} might not be read.
+     */
+    public final List<ConfigInfo> getConfigs(final int start, final int count) throws IOException {
+        final Hudson hudson = Hudson.getInstance();
+        final List<ChangeIndex.Entry> entries = ChangeIndex.get().list(start, count, new ChangeIndex.Filter() {
+            public boolean accept(ChangeIndex.Entry entry) {
+                // Jobs deleted since, or the user may not see
+                final Item item = hudson.getItem(entry.getJob());
+                return item instanceof AbstractProject && item.hasPermission(Permission.CONFIGURE);
+            }
+        });
+        LOG.finest("getConfigs: " + entries.size() + " history items from " + start);
         final ArrayList<ConfigInfo> configs = new ArrayList<ConfigInfo>();
-        @SuppressWarnings("unchecked")
-        final List<AbstractProject> projects = Hudson.getInstance().getItems(AbstractProject.class);
-        for (final AbstractProject<?, ?> project : projects) {
-            LOG.finest("getConfigs: Getting configs for " + project.getName());
-            final JobConfigHistoryProjectAction action = new JobConfigHistoryProjectAction(project);
-            final List<ConfigInfo> jobConfigs = action.getConfigs();
-            LOG.finest("getConfigs: " + project.getName() + " has " + jobConfigs.size() + " history items");
-            configs.addAll(jobConfigs);
+        for (final ChangeIndex.Entry entry : entries) {
+            final AbstractProject<?, ?> project = (AbstractProject<?, ?>) hudson.getItem(entry.getJob());
+            final File historyDir = new File(new File(project.getRootDir(), "config-history"), entry.getTimestamp());
+            configs.add(ConfigInfo.create(project, historyDir, entry.getHistoryDescr()));
         }
-        Collections.sort(configs, ConfigInfoComparator.INSTANCE);
         return configs;
     }
 
+    /**
+     * Returns the number of the first entry of the page, given by the request parameter {@code start}.
+     *
+     * @return 0 for the most recent page.
+     */
+    public final int getStart() {
+        try {
+            return Math.max(0, Integer.parseInt(getRequestParameter("start")));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries on a page.
+     *
+     * @return number of entries.
+     */
+    public final int getPageSize() {
+        return JobConfigHistoryConsts.PAGE_SIZE;
+    }
+
     /**
      * {@inheritDoc}
      *
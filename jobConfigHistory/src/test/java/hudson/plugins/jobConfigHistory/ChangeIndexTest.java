@@ -0,0 +1,203 @@
+/**
+ * Copyright 2010 Mirko Friedenhagen
+ */
+
+package hudson.plugins.jobConfigHistory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ChangeIndexTest extends TestCase {
+
+    private static final ChangeIndex.Filter ALL = new ChangeIndex.Filter() {
+        public boolean accept(ChangeIndex.Entry entry) {
+            return true;
+        }
+    };
+
+    private File file;
+
+    private ChangeIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("config-history-index", ".txt");
+        file.delete();
+        index = new ChangeIndex(file);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        file.delete();
+    }
+
+    public void testNoIndex() throws IOException {
+        assertTrue(index.list(0, 10, ALL).isEmpty());
+    }
+
+    public void testMostRecentFirst() throws IOException {
+        append("2010-03-01_10-00-00", "job", "Created", null);
+        append("2010-03-01_10-00-01", "job", "Changed", null);
+        append("2010-03-01_10-00-02", "other", "Changed", null);
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(3, entries.size());
+        assertEntry(entries.get(0), "2010-03-01_10-00-02", "other");
+        assertEntry(entries.get(1), "2010-03-01_10-00-01", "job");
+        assertEntry(entries.get(2), "2010-03-01_10-00-00", "job");
+        final HistoryDescr descr = entries.get(2).getHistoryDescr();
+        assertEquals("Created", descr.getOperation());
+        assertEquals("user-id", descr.getUserID());
+        assertEquals("J\u00fcrgen", descr.getUser());
+        assertEquals("2010-03-01_10-00-00", descr.getTimestamp());
+    }
+
+    public void testLongIndexIsReadBackwards() throws IOException {
+        // many times the size of the buffer of the reader, with multi-byte characters across its boundaries
+        for (int i = 0; i < 1000; i++) {
+            append(String.format("2010-03-01_10-%02d-%02d", i / 60, i % 60), "job" + i, "Changed", null);
+        }
+        assertTrue(file.length() > 5 * 8192);
+        final List<ChangeIndex.Entry> entries = index.list(0, 2000, ALL);
+        assertEquals(1000, entries.size());
+        for (int i = 0; i < 1000; i++) {
+            final ChangeIndex.Entry entry = entries.get(999 - i);
+            assertEntry(entry, String.format("2010-03-01_10-%02d-%02d", i / 60, i % 60), "job" + i);
+            assertEquals("J\u00fcrgen", entry.getHistoryDescr().getUser());
+        }
+    }
+
+    public void testBlankAndIncompleteLinesAreSkipped() throws IOException {
+        append("2010-03-01_10-00-00", "job", "Created", null);
+        final FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            // an append interrupted halfway, then blank lines
+            out.write("\n\n2010-03-01_10-00-01\tjob\tChan".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(1, entries.size());
+        assertEntry(entries.get(0), "2010-03-01_10-00-00", "job");
+    }
+
+    public void testSeparatorsInFieldsDoNotBreakTheLine() throws IOException {
+        index.append(new ChangeIndex.Entry("2010-03-01_10-00-00", "job", "Changed", "id", "first\tsecond\nthird", null));
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(1, entries.size());
+        assertEquals("first second third", entries.get(0).getHistoryDescr().getUser());
+    }
+
+    public void testRenamedJobIsListedUnderItsCurrentName() throws IOException {
+        append("2010-03-01_10-00-00", "old", "Created", null);
+        append("2010-03-01_10-00-01", "old", "Changed", null);
+        append("2010-03-01_10-00-02", "new", "Renamed", "old");
+        append("2010-03-01_10-00-03", "new", "Changed", null);
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(4, entries.size());
+        for (final ChangeIndex.Entry entry : entries) {
+            assertEquals("new", entry.getJob());
+        }
+    }
+
+    public void testChainedRenames() throws IOException {
+        append("2010-03-01_10-00-00", "first", "Created", null);
+        append("2010-03-01_10-00-01", "second", "Renamed", "first");
+        append("2010-03-01_10-00-02", "second", "Changed", null);
+        append("2010-03-01_10-00-03", "third", "Renamed", "second");
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(4, entries.size());
+        for (final ChangeIndex.Entry entry : entries) {
+            assertEquals("third", entry.getJob());
+        }
+    }
+
+    public void testNewJobReusingAnOldName() throws IOException {
+        append("2010-03-01_10-00-00", "job", "Created", null);
+        append("2010-03-01_10-00-01", "renamed", "Renamed", "job");
+        append("2010-03-01_10-00-02", "job", "Created", null);
+        append("2010-03-01_10-00-03", "job", "Changed", null);
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(4, entries.size());
+        assertEntry(entries.get(0), "2010-03-01_10-00-03", "job");
+        assertEntry(entries.get(1), "2010-03-01_10-00-02", "job");
+        assertEntry(entries.get(2), "2010-03-01_10-00-01", "renamed");
+        assertEntry(entries.get(3), "2010-03-01_10-00-00", "renamed");
+    }
+
+    public void testNewJobReusingAnOldNameIsRenamedToo() throws IOException {
+        append("2010-03-01_10-00-00", "job", "Created", null);
+        append("2010-03-01_10-00-01", "first", "Renamed", "job");
+        append("2010-03-01_10-00-02", "job", "Created", null);
+        append("2010-03-01_10-00-03", "second", "Renamed", "job");
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(4, entries.size());
+        assertEntry(entries.get(0), "2010-03-01_10-00-03", "second");
+        assertEntry(entries.get(1), "2010-03-01_10-00-02", "second");
+        assertEntry(entries.get(2), "2010-03-01_10-00-01", "first");
+        assertEntry(entries.get(3), "2010-03-01_10-00-00", "first");
+    }
+
+    public void testSameSecondIsListedOnce() throws IOException {
+        append("2010-03-01_10-00-00", "job", "Created", null);
+        append("2010-03-01_10-00-00", "job", "Changed", null);
+        append("2010-03-01_10-00-00", "other", "Changed", null);
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(2, entries.size());
+        assertEntry(entries.get(0), "2010-03-01_10-00-00", "other");
+        assertEntry(entries.get(1), "2010-03-01_10-00-00", "job");
+        // the history entry holds the last change of the second
+        assertEquals("Changed", entries.get(1).getHistoryDescr().getOperation());
+    }
+
+    public void testSameSecondAcrossARename() throws IOException {
+        append("2010-03-01_10-00-00", "job", "Changed", null);
+        append("2010-03-01_10-00-00", "renamed", "Renamed", "job");
+        final List<ChangeIndex.Entry> entries = index.list(0, 10, ALL);
+        assertEquals(1, entries.size());
+        assertEntry(entries.get(0), "2010-03-01_10-00-00", "renamed");
+        assertEquals("Renamed", entries.get(0).getHistoryDescr().getOperation());
+    }
+
+    public void testPages() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            append("2010-03-01_10-00-0" + i, "job" + i, "Changed", null);
+        }
+        final List<ChangeIndex.Entry> page = index.list(3, 4, ALL);
+        assertEquals(4, page.size());
+        assertEntry(page.get(0), "2010-03-01_10-00-06", "job6");
+        assertEntry(page.get(3), "2010-03-01_10-00-03", "job3");
+        assertEquals(1, index.list(9, 4, ALL).size());
+        assertTrue(index.list(10, 4, ALL).isEmpty());
+    }
+
+    public void testPagesCountAcceptedEntriesOnly() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            append("2010-03-01_10-00-0" + i, "job" + i, "Changed", null);
+        }
+        final ChangeIndex.Filter even = new ChangeIndex.Filter() {
+            public boolean accept(ChangeIndex.Entry entry) {
+                return Integer.parseInt(entry.getJob().substring(3)) % 2 == 0;
+            }
+        };
+        final List<ChangeIndex.Entry> page = index.list(1, 2, even);
+        assertEquals(2, page.size());
+        assertEntry(page.get(0), "2010-03-01_10-00-06", "job6");
+        assertEntry(page.get(1), "2010-03-01_10-00-04", "job4");
+    }
+
+    private void append(final String timestamp, final String job, final String operation, final String oldName)
+            throws IOException {
+        index.append(new ChangeIndex.Entry(timestamp, job, operation, "user-id", "J\u00fcrgen", oldName));
+    }
+
+    private static void assertEntry(final ChangeIndex.Entry entry, final String timestamp, final String job) {
+        assertEquals(timestamp, entry.getTimestamp());
+        assertEquals(job, entry.getJob());
+    }
+}
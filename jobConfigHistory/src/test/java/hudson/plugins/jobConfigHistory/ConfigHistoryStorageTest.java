@@ -0,0 +1,97 @@
+/**
+ * Copyright 2010 Mirko Friedenhagen
+ */
+
+package hudson.plugins.jobConfigHistory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class ConfigHistoryStorageTest extends TestCase {
+
+    private File historyDir;
+
+    private File config;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        historyDir = File.createTempFile("config-history", "");
+        historyDir.delete();
+        historyDir.mkdirs();
+        config = new File(historyDir, "current.xml");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        deleteRecursively(historyDir);
+    }
+
+    public void testVersionsAreRebuilt() throws IOException {
+        final String[] versions = new String[15];
+        final StringBuilder content = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<project>\n");
+        for (int i = 0; i < 40; i++) {
+            content.append("  <property").append(i).append(">value</property").append(i).append(">\n");
+        }
+        content.append("</project>");
+        for (int i = 0; i < versions.length; i++) {
+            // change a line, add one, and end without a line separator once in a while
+            content.replace(60, 61, Integer.toString(i % 10));
+            content.insert(content.indexOf("</project>"), "  <description>" + i + " \u00e9t\u00e9</description>\r\n");
+            versions[i] = i % 4 == 0 ? content.toString() : content.toString() + "\n";
+            save(String.format("2010-03-01_10-00-%02d", i), versions[i]);
+        }
+        for (int i = 0; i < versions.length; i++) {
+            final File dir = new File(historyDir, String.format("2010-03-01_10-00-%02d", i));
+            assertEquals(versions[i], new String(ConfigHistoryStorage.read(dir), "UTF-8"));
+        }
+    }
+
+    public void testDeltasAreChainedUpToTheInterval() throws IOException {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        for (int i = 0; i < ConfigHistoryStorage.FULL_COPY_INTERVAL + 1; i++) {
+            content.append("added ").append(i).append('\n');
+            save("2010-03-01_10-00-" + (10 + i), content.toString());
+        }
+        assertTrue(new File(historyDir, "2010-03-01_10-00-10/" + ConfigHistoryStorage.CONFIG_FILE).exists());
+        for (int i = 1; i < ConfigHistoryStorage.FULL_COPY_INTERVAL; i++) {
+            assertTrue(new File(historyDir, "2010-03-01_10-00-" + (10 + i) + "/" + ConfigHistoryStorage.DELTA_FILE).exists());
+        }
+        assertTrue(new File(historyDir, "2010-03-01_10-00-20/" + ConfigHistoryStorage.CONFIG_FILE).exists());
+    }
+
+    public void testSameSecondOverwritesVersion() throws IOException {
+        save("2010-03-01_10-00-00", "first\nversion\n");
+        save("2010-03-01_10-00-00", "second\nversion\n");
+        assertEquals("second\nversion\n", new String(ConfigHistoryStorage.read(new File(historyDir, "2010-03-01_10-00-00")), "UTF-8"));
+    }
+
+    private void save(final String timestamp, final String content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(config);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        final File dir = new File(historyDir, timestamp);
+        dir.mkdirs();
+        ConfigHistoryStorage.save(config, dir);
+    }
+
+    private static void deleteRecursively(final File f) {
+        final File[] children = f.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2010 Mirko Friedenhagen
+ */
+
+package hudson.plugins.jobConfigHistory;
+
+import hudson.model.FreeStyleProject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jvnet.hudson.test.HudsonTestCase;
+
+public class JobConfigHistoryRootActionTest extends HudsonTestCase {
+
+    private JobConfigHistoryRootAction action;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        action = new JobConfigHistoryRootAction();
+    }
+
+    public void testPagesMakeUpTheWholeList() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            createFreeStyleProject("job" + i);
+        }
+        final List<ConfigInfo> configs = action.getConfigs(0, 1000);
+        final List<String> all = describe(configs);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(all + " should list job" + i, jobs(configs).contains("job" + i));
+        }
+        for (int i = 1; i < configs.size(); i++) {
+            assertTrue("most recent first: " + all, configs.get(i - 1).getDate().compareTo(configs.get(i).getDate()) >= 0);
+        }
+
+        final List<String> paged = new ArrayList<String>();
+        for (int start = 0; start < all.size(); start += 2) {
+            final List<ConfigInfo> page = action.getConfigs(start, 2);
+            assertTrue(page.size() <= 2);
+            paged.addAll(describe(page));
+        }
+        assertEquals(all, paged);
+        assertTrue(action.getConfigs(all.size(), 2).isEmpty());
+    }
+
+    public void testDeletedJobsAreNotListed() throws Exception {
+        createFreeStyleProject("kept");
+        createFreeStyleProject("deleted").delete();
+        final HashSet<String> jobs = jobs(action.getConfigs(0, 1000));
+        assertTrue(jobs.contains("kept"));
+        assertFalse(jobs.contains("deleted"));
+    }
+
+    public void testRenamedJobIsListedUnderItsNewName() throws Exception {
+        final FreeStyleProject project = createFreeStyleProject("oldname");
+        project.renameTo("newname");
+        final HashSet<String> jobs = jobs(action.getConfigs(0, 1000));
+        assertTrue(jobs.contains("newname"));
+        assertFalse(jobs.contains("oldname"));
+    }
+
+    public void testIndexIsRebuiltFromHistory() throws Exception {
+        createFreeStyleProject("job0");
+        createFreeStyleProject("job1");
+        final List<ConfigInfo> before = action.getConfigs(0, 1000);
+
+        final File index = new File(hudson.getRootDir(), ChangeIndex.FILE_NAME);
+        assertTrue(index.delete());
+        final List<ConfigInfo> after = action.getConfigs(0, 1000);
+        assertTrue(index.exists());
+        // changes within the same second may be listed in another order
+        assertEquals(new HashSet<String>(describe(before)), new HashSet<String>(describe(after)));
+    }
+
+    private static List<String> describe(final List<ConfigInfo> configs) {
+        final List<String> result = new ArrayList<String>();
+        for (final ConfigInfo config : configs) {
+            result.add(config.getDate() + " " + config.getJob() + " " + config.getOperation());
+        }
+        return result;
+    }
+
+    private static HashSet<String> jobs(final List<ConfigInfo> configs) {
+        final HashSet<String> result = new HashSet<String>();
+        for (final ConfigInfo config : configs) {
+            result.add(config.getJob());
+        }
+        return result;
+    }
+}
@@ -4,26 +4,42 @@
 
 package hudson.plugins.junitattachments;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
-import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
 
 import hudson.FilePath;
+import hudson.FilePath.FileCallable;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
+import hudson.remoting.RemoteOutputStream;
+import hudson.remoting.VirtualChannel;
 import hudson.tasks.junit.SuiteResult;
 import hudson.tasks.junit.TestResult;
 
 /**
  * This class is a helper for hudson.tasks.junit.TestDataPublisher.getTestData(AbstractBuild<?, ?>, Launcher,
  * BuildListener, TestResult).
+ * <p>
+ * Attachments are found by listing each report directory once, next to the workspace, and are sent to the master
+ * as a single tar stream rather than file by file.
  *
  * @author mfriedenhagen
  */
@@ -32,9 +48,15 @@ public class GetTestDataMethodObject {
     /** Our logger. */
     private static final Logger LOG = Logger.getLogger(GetTestDataMethodObject.class.getName());
 
+    /** suffix of the file holding the standard output and error of a test class. */
+    private static final String OUTPUT_SUFFIX = "-output.txt";
+
     /** the build to inspect. */
     private final AbstractBuild<?, ?> build;
 
+    /** the listener of the build, for the summary of the archived attachments. */
+    private final BuildListener listener;
+
     /** the test results associated with the build. */
     private final TestResult testResult;
 
@@ -47,12 +69,15 @@ public class GetTestDataMethodObject {
     /**
      * @param build
      *            see {@link GetTestDataMethodObject#build}
+     * @param listener
+     *            see {@link GetTestDataMethodObject#listener}
      * @param testResult
      *            see {@link GetTestDataMethodObject#testResult}
      */
     public GetTestDataMethodObject(AbstractBuild<?, ?> build, @SuppressWarnings("unused") Launcher launcher,
-            @SuppressWarnings("unused") BuildListener listener, TestResult testResult) {
+            BuildListener listener, TestResult testResult) {
         this.build = build;
+        this.listener = listener;
         this.testResult = testResult;
         attachments = new HashMap<String, List<String>>();
         reports = new HashMap<String, String>();
@@ -69,31 +94,41 @@ public class GetTestDataMethodObject {
      *
      */
     public Map<String, List<String>> getAttachments() throws IllegalStateException, IOException, InterruptedException {
+        final long start = System.currentTimeMillis();
         // build a map of className -> result xml file
         final FilePath attachmentsStorage = AttachmentPublisher.getAttachmentPath(build);
         getReports();
         LOG.fine("reports: " + reports);
-        for (Map.Entry<String, String> report : reports.entrySet()) {
-            final String className = report.getKey();
-            final FilePath target = attachmentsStorage.child(className);
-            attachFilesForReport(report, className, target);
-            attachStdInAndOut(report, className, target);
+        if (reports.isEmpty()) {
+            return attachments;
         }
-        return attachments;
-    }
 
-    private void attachFilesForReport(Map.Entry<String, String> report, final String className, final FilePath target)
-            throws IOException, InterruptedException {
-        final FilePath testDir = build.getWorkspace().child(report.getValue()).getParent().child(className);
-        if (testDir.exists()) {
-            target.mkdirs();
-            if (testDir.copyRecursiveTo(target) > 0) {
-                DirectoryScanner d = new DirectoryScanner();
-                d.setBasedir(target.getRemote());
-                d.scan();
-                attachments.put(className, Arrays.asList(d.getIncludedFiles()));
+        final File archive = File.createTempFile("junit-attachments", ".tgz", build.getRootDir());
+        try {
+            final Collected collected;
+            final OutputStream out = new FileOutputStream(archive);
+            try {
+                collected = build.getWorkspace().act(new Collect(reports, new RemoteOutputStream(out)));
+            } finally {
+                out.close();
+            }
+            if (collected.fileCount > 0) {
+                final InputStream in = new FileInputStream(archive);
+                try {
+                    attachmentsStorage.untarFrom(in, FilePath.TarCompression.GZIP);
+                } finally {
+                    in.close();
+                }
             }
+            attachments.putAll(collected.attachments);
+            listener.getLogger().println(
+                    "Archived " + collected.fileCount + " test attachments (" + collected.byteCount + " bytes) of "
+                            + attachments.size() + " test classes in " + (System.currentTimeMillis() - start)
+                            + " ms");
+        } finally {
+            archive.delete();
         }
+        return attachments;
     }
 
     /**
@@ -110,23 +145,138 @@ public class GetTestDataMethodObject {
         }
     }
 
-    private void attachStdInAndOut(Map.Entry<String, String> report, String className, FilePath target)
-            throws IOException, InterruptedException {
-        final FilePath stdInAndOut = build.getWorkspace().child(report.getValue()).getParent().child(
-                className + "-output.txt");
-        LOG.fine("stdInAndOut: " + stdInAndOut.absolutize());
-        if (stdInAndOut.exists()) {
-            target.mkdirs();
-            final FilePath stdInAndOutTarget = new FilePath(target, stdInAndOut.getName());
-            stdInAndOut.copyTo(stdInAndOutTarget);
-            if (attachments.containsKey(className)) {
-                final List<String> list = new ArrayList<String>(attachments.get(className));
-                list.add(stdInAndOutTarget.getName());
-                attachments.put(className, list);
-            } else {
-                attachments.put(className, Arrays.asList(stdInAndOutTarget.getName()));
+    /**
+     * What {@link Collect} found and sent.
+     */
+    static final class Collected implements Serializable {
+
+        /** map of class name and list of attachments. */
+        final Map<String, List<String>> attachments = new HashMap<String, List<String>>();
+
+        int fileCount;
+
+        long byteCount;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Runs where the workspace is. Lists every report directory once, matches its entries against the class names
+     * of the reports in it, and writes the matching files into one gzipped tar, laid out as in
+     * {@link AttachmentPublisher#getAttachmentPath(AbstractBuild)}:
+     * <ul>
+     * <li>the files under a directory named as the test class go to {@code className/},</li>
+     * <li>the file {@code className-output.txt} goes to {@code className/} too, last in the list.</li>
+     * </ul>
+     */
+    static final class Collect implements FileCallable<Collected> {
+
+        /** map of class name and result xml file. */
+        private final Map<String, String> reports;
+
+        private final OutputStream out;
+
+        Collect(Map<String, String> reports, OutputStream out) {
+            this.reports = new HashMap<String, String>(reports);
+            this.out = out;
+        }
+
+        public Collected invoke(File ws, VirtualChannel channel) throws IOException {
+            final Map<File, Set<String>> classNamesByDir = new HashMap<File, Set<String>>();
+            for (Map.Entry<String, String> report : reports.entrySet()) {
+                File file = new File(report.getValue());
+                if (!file.isAbsolute()) {
+                    file = new File(ws, report.getValue());
+                }
+                Set<String> classNames = classNamesByDir.get(file.getParentFile());
+                if (classNames == null) {
+                    classNames = new HashSet<String>();
+                    classNamesByDir.put(file.getParentFile(), classNames);
+                }
+                classNames.add(report.getKey());
             }
+
+            final Collected collected = new Collected();
+            final Map<String, File> outputs = new HashMap<String, File>();
+            final byte[] buf = new byte[8192];
+            final TarOutputStream tar = new TarOutputStream(new GZIPOutputStream(new BufferedOutputStream(out)));
+            tar.setLongFileMode(TarOutputStream.LONGFILE_GNU);
+            try {
+                for (Map.Entry<File, Set<String>> dir : classNamesByDir.entrySet()) {
+                    final File[] entries = dir.getKey().listFiles();
+                    if (entries == null) {
+                        continue;
+                    }
+                    final Set<String> classNames = dir.getValue();
+                    for (File entry : entries) {
+                        final String name = entry.getName();
+                        if (classNames.contains(name) && entry.isDirectory()) {
+                            final List<String> files = new ArrayList<String>();
+                            addDirectory(tar, entry, name + "/", "", files, collected, buf);
+                            if (!files.isEmpty()) {
+                                collected.attachments.put(name, files);
+                            }
+                        } else if (name.endsWith(OUTPUT_SUFFIX)
+                                && classNames.contains(name.substring(0, name.length() - OUTPUT_SUFFIX.length()))
+                                && entry.isFile()) {
+                            outputs.put(name.substring(0, name.length() - OUTPUT_SUFFIX.length()), entry);
+                        }
+                    }
+                }
+                for (Map.Entry<String, File> output : outputs.entrySet()) {
+                    final String className = output.getKey();
+                    final File file = output.getValue();
+                    addFile(tar, file, className + "/" + file.getName(), collected, buf);
+                    List<String> files = collected.attachments.get(className);
+                    if (files == null) {
+                        files = new ArrayList<String>(1);
+                        collected.attachments.put(className, files);
+                    }
+                    files.add(file.getName());
+                }
+            } finally {
+                tar.close();
+            }
+            return collected;
         }
+
+        private void addDirectory(TarOutputStream tar, File dir, String prefix, String path, List<String> files,
+                Collected collected, byte[] buf) throws IOException {
+            final File[] entries = dir.listFiles();
+            if (entries == null) {
+                return;
+            }
+            for (File entry : entries) {
+                final String name = path + entry.getName();
+                if (entry.isDirectory()) {
+                    addDirectory(tar, entry, prefix, name + "/", files, collected, buf);
+                } else {
+                    addFile(tar, entry, prefix + name, collected, buf);
+                    files.add(name);
+                }
+            }
+        }
+
+        private void addFile(TarOutputStream tar, File file, String name, Collected collected, byte[] buf)
+                throws IOException {
+            final TarEntry te = new TarEntry(file);
+            te.setName(name);
+            tar.putNextEntry(te);
+            final InputStream in = new FileInputStream(file);
+            try {
+                int len;
+                while ((len = in.read(buf)) >= 0) {
+                    tar.write(buf, 0, len);
+                }
+            } finally {
+                in.close();
+            }
+            tar.closeEntry();
+            collected.fileCount++;
+            collected.byteCount += te.getSize();
+        }
+
+        private static final long serialVersionUID = 1L;
     }
 
 }
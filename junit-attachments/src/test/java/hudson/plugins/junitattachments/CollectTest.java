@@ -0,0 +1,105 @@
+package hudson.plugins.junitattachments;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import hudson.Util;
+
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs {@link GetTestDataMethodObject.Collect} on a local workspace and checks the tar stream it sends.
+ */
+public class CollectTest extends TestCase {
+
+    private File ws;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ws = Util.createTempDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Util.deleteRecursive(ws);
+        super.tearDown();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(ws, path);
+        file.getParentFile().mkdirs();
+        FileWriter w = new FileWriter(file);
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+    }
+
+    public void testAttachmentsOfEveryReportDirectoryAreSentInOneStream() throws Exception {
+        write("reports/TEST-a.A.xml", "<testsuite/>");
+        write("reports/a.A/file", "12345");
+        write("reports/a.A/sub/deep", "1");
+        write("reports/a.A-output.txt", "out");
+        write("reports/unrelated/file", "x");
+        write("other/TEST-b.B.xml", "<testsuite/>");
+        write("other/b.B-output.txt", "bb");
+
+        Map<String, String> reports = new HashMap<String, String>();
+        reports.put("a.A", "reports/TEST-a.A.xml");
+        reports.put("b.B", new File(ws, "other/TEST-b.B.xml").getAbsolutePath());
+        reports.put("c.C", "reports/TEST-c.C.xml");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GetTestDataMethodObject.Collected collected = new GetTestDataMethodObject.Collect(reports, out).invoke(ws, null);
+
+        assertEquals(4, collected.fileCount);
+        assertEquals(11, collected.byteCount);
+        assertEquals(2, collected.attachments.size());
+        List<String> a = collected.attachments.get("a.A");
+        // the output file comes last
+        assertEquals("a.A-output.txt", a.get(2));
+        Collections.sort(a);
+        assertEquals("[a.A-output.txt, file, sub/deep]", a.toString());
+        assertEquals(Collections.singletonList("b.B-output.txt"), collected.attachments.get("b.B"));
+
+        Map<String, Long> entries = new HashMap<String, Long>();
+        TarInputStream tar = new TarInputStream(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        try {
+            TarEntry te;
+            while ((te = tar.getNextEntry()) != null) {
+                entries.put(te.getName(), te.getSize());
+            }
+        } finally {
+            tar.close();
+        }
+        List<String> names = new ArrayList<String>(entries.keySet());
+        Collections.sort(names);
+        assertEquals("[a.A/a.A-output.txt, a.A/file, a.A/sub/deep, b.B/b.B-output.txt]", names.toString());
+        assertEquals(Long.valueOf(5), entries.get("a.A/file"));
+    }
+
+    public void testNothingIsSentWithoutAttachments() throws Exception {
+        write("reports/TEST-a.A.xml", "<testsuite/>");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GetTestDataMethodObject.Collected collected = new GetTestDataMethodObject.Collect(
+                Collections.singletonMap("a.A", "reports/TEST-a.A.xml"), out).invoke(ws, null);
+
+        assertEquals(0, collected.fileCount);
+        assertTrue(collected.attachments.isEmpty());
+    }
+}
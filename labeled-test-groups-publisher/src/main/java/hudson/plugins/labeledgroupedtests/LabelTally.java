@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010, Yahoo!, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.labeledgroupedtests;
+
+import hudson.Util;
+
+import java.io.Serializable;
+
+/**
+ * The pass/fail/skip counts of one label in one build. These are computed when
+ * the results are published and stored with the build, so that trend graphs and
+ * summaries don't have to load the test results themselves.
+ */
+public class LabelTally implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String label;
+    private final int passCount;
+    private final int failCount;
+    private final int skipCount;
+    private final float duration;
+
+    public LabelTally(String label, int passCount, int failCount, int skipCount, float duration) {
+        this.label = label;
+        this.passCount = passCount;
+        this.failCount = failCount;
+        this.skipCount = skipCount;
+        this.duration = duration;
+    }
+
+    /**
+     * Tallies a group that has already been tallied.
+     */
+    public static LabelTally of(String label, LabeledTestResultGroup group) {
+        return new LabelTally(label, group.getPassCount(), group.getFailCount(), group.getSkipCount(), group.getDuration());
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getPassCount() {
+        return passCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public int getSkipCount() {
+        return skipCount;
+    }
+
+    public int getTotalCount() {
+        return passCount + failCount + skipCount;
+    }
+
+    public float getDuration() {
+        return duration;
+    }
+
+    public String getDurationString() {
+        return Util.getTimeSpanString((long) (duration * 1000));
+    }
+
+    @Override
+    public String toString() {
+        return label + ": " + passCount + "/" + failCount + "/" + skipCount;
+    }
+}
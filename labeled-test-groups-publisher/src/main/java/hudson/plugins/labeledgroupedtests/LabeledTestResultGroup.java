@@ -369,26 +369,39 @@ public class LabeledTestResultGroup extends MetaTabulatedResult {
         return sb.toString();
     }
 
-    public int getPassDiff() {
+    /**
+     * The counts of this label in the previous build, read from its action when
+     * possible so that its result group isn't loaded.
+     */
+    private LabelTally getPreviousTally() {
+        if (parent instanceof MetaLabeledTestResultGroup) {
+            return ((MetaLabeledTestResultGroup) parent).getPreviousTally(label);
+        }
         TestResult prev = getPreviousResult();
+        if (prev==null) return null;
+        return new LabelTally(label, prev.getPassCount(), prev.getFailCount(), prev.getSkipCount(), prev.getDuration());
+    }
+
+    public int getPassDiff() {
+        LabelTally prev = getPreviousTally();
         if (prev==null) return getPassCount();
         return getPassCount() - prev.getPassCount();
     }
 
     public int getSkipDiff() {
-        TestResult prev = getPreviousResult();
+        LabelTally prev = getPreviousTally();
         if (prev==null) return getSkipCount();
         return getSkipCount() - prev.getSkipCount();
     }
 
     public int getFailDiff() {
-        TestResult prev = getPreviousResult();
+        LabelTally prev = getPreviousTally();
         if (prev==null) return getFailCount();
         return getFailCount() - prev.getFailCount();
     }
 
     public int getTotalDiff() {
-        TestResult prev = getPreviousResult();
+        LabelTally prev = getPreviousTally();
         if (prev==null) return getTotalCount();
         return getTotalCount() - prev.getTotalCount();
     }
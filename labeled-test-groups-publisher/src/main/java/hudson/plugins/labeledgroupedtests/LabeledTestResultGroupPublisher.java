@@ -203,6 +203,8 @@ public class LabeledTestResultGroupPublisher extends Recorder implements Seriali
         
         resultGroup.tally();
 
+        LabeledTrendIndex.forProject(build.getProject()).record(build.getNumber(), action.getTallies());
+
         Result healthResult = determineBuildHealth(build, resultGroup);
         // Parsers can only decide to make the build worse than it currently is, never better.
         if (healthResult != null && healthResult.isWorseThan(build.getResult())) {
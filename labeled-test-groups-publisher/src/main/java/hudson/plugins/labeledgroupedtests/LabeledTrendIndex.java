@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010, Yahoo!, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.labeledgroupedtests;
+
+import com.thoughtworks.xstream.XStream;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.util.XStream2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Project level index of the label tallies of every build, so that a trend graph
+ * can be drawn without touching the test results of hundreds of builds.
+ * The index is kept in a file in the project directory, and updated when a
+ * build publishes its results. Builds published before the index existed are
+ * added the first time a trend graph needs them.
+ */
+public class LabeledTrendIndex {
+
+    static public final String INDEX_FILENAME = "labeledTestGroupsTrend.xml";
+
+    private static final Map<AbstractProject<?,?>, LabeledTrendIndex> INDEXES =
+            new WeakHashMap<AbstractProject<?,?>, LabeledTrendIndex>();
+
+    private final transient File file;
+
+    /**
+     * Tallies by label, by build number.
+     */
+    private final SortedMap<Integer, Map<String, LabelTally>> builds = new TreeMap<Integer, Map<String, LabelTally>>();
+
+    LabeledTrendIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the index of a project, loading it from disk the first time.
+     */
+    public static LabeledTrendIndex forProject(AbstractProject<?,?> project) {
+        synchronized (INDEXES) {
+            LabeledTrendIndex index = INDEXES.get(project);
+            if (index == null) {
+                index = load(new File(project.getRootDir(), INDEX_FILENAME));
+                INDEXES.put(project, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Loads an index file, an empty index is returned if the file doesn't exist.
+     */
+    public static LabeledTrendIndex load(File file) {
+        LabeledTrendIndex index = new LabeledTrendIndex(file);
+        XmlFile xmlFile = new XmlFile(XSTREAM, file);
+        if (xmlFile.exists()) {
+            try {
+                xmlFile.unmarshal(index);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to load " + file + ", it will be rebuilt", e);
+                index.builds.clear();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Records the tallies of a build, and saves the index.
+     */
+    public synchronized void record(int buildNumber, Map<String, LabelTally> tallies) {
+        builds.put(buildNumber, new LinkedHashMap<String, LabelTally>(tallies));
+        save();
+    }
+
+    /**
+     * Records the tallies of a build, without saving the index.
+     * Call {@link #save()} once done.
+     */
+    synchronized void put(int buildNumber, Map<String, LabelTally> tallies) {
+        builds.put(buildNumber, new LinkedHashMap<String, LabelTally>(tallies));
+    }
+
+    /**
+     * Forgets a build that no longer exists, without saving the index.
+     */
+    synchronized void remove(int buildNumber) {
+        builds.remove(buildNumber);
+    }
+
+    /**
+     * @return the tallies by label of the build, or null if the build isn't indexed
+     */
+    public synchronized Map<String, LabelTally> getTallies(int buildNumber) {
+        Map<String, LabelTally> tallies = builds.get(buildNumber);
+        return tallies == null ? null : Collections.unmodifiableMap(tallies);
+    }
+
+    public synchronized boolean contains(int buildNumber) {
+        return builds.containsKey(buildNumber);
+    }
+
+    public synchronized void save() {
+        try {
+            new XmlFile(XSTREAM, file).write(this);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save " + file, e);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(LabeledTrendIndex.class.getName());
+
+    private static final XStream XSTREAM = new XStream2();
+
+    static {
+        XSTREAM.alias("labeledTrendIndex", LabeledTrendIndex.class);
+        XSTREAM.alias("labelTally", LabelTally.class);
+    }
+}
@@ -49,9 +49,6 @@ import java.util.Collections;
 public class MetaLabeledTestResultGroup extends MetaTabulatedResult {
 
     protected Map<String, LabeledTestResultGroup> childrenByLabel;
-    protected transient Map<String, Collection<TestResult>> failedTestsByLabel;
-    protected transient Map<String, Collection<TestResult>> passedTestsByLabel;
-    protected transient Map<String, Collection<TestResult>> skippedTestsByLabel;
     protected transient Collection<TestResult> allFailedTests;
     protected transient Collection<TestResult> allPassedTests;
     protected transient Collection<TestResult> allSkippedTests;
@@ -78,9 +75,6 @@ public class MetaLabeledTestResultGroup extends MetaTabulatedResult {
      * Allow the object to rebuild its internal data structures when it is deserialized.
      */
     private Object readResolve() {
-        failedTestsByLabel = new HashMap<String, Collection<TestResult>>(10);
-        passedTestsByLabel = new HashMap<String, Collection<TestResult>>(10);
-        skippedTestsByLabel = new HashMap<String, Collection<TestResult>>(10);
         allPassedTests = new HashSet<TestResult>();
         allFailedTests  = new HashSet<TestResult>();
         allSkippedTests = new HashSet<TestResult>();
@@ -146,9 +140,6 @@ public class MetaLabeledTestResultGroup extends MetaTabulatedResult {
 
     public MetaLabeledTestResultGroup(MetaLabeledTestResultGroupAction parentAction, String description ) {
         childrenByLabel = new HashMap<String, LabeledTestResultGroup>(10);
-        failedTestsByLabel = new HashMap<String, Collection<TestResult>>(10);
-        passedTestsByLabel = new HashMap<String, Collection<TestResult>>(10);
-        skippedTestsByLabel = new HashMap<String, Collection<TestResult>>(10);
         allPassedTests = new HashSet<TestResult>();
         allFailedTests  = new HashSet<TestResult>();
         allSkippedTests = new HashSet<TestResult>();
@@ -210,7 +201,16 @@ public class MetaLabeledTestResultGroup extends MetaTabulatedResult {
 
     @Override
     public MetaLabeledTestResultGroup getPreviousResult() {
-        // TODO: consider caching
+        MetaLabeledTestResultGroupAction r = getPreviousAction();
+        if (r == null) return null;
+        return r.getResultAsTestResultGroup();
+    }
+
+    /**
+     * The action of the previous build that has labeled test results. Its counts
+     * are available without loading its result group.
+     */
+    public MetaLabeledTestResultGroupAction getPreviousAction() {
         if (parentAction == null) return null;
         AbstractBuild<?,?> b = parentAction.owner;
         while(true) {
@@ -219,30 +219,39 @@ public class MetaLabeledTestResultGroup extends MetaTabulatedResult {
                 return null;
             MetaLabeledTestResultGroupAction r = b.getAction(MetaLabeledTestResultGroupAction.class);
             if(r!=null)
-                return r.getResultAsTestResultGroup();
+                return r;
         }
     }
 
+    /**
+     * @return the counts of the label in the previous build, or null if there are none
+     */
+    public LabelTally getPreviousTally(String label) {
+        MetaLabeledTestResultGroupAction prev = getPreviousAction();
+        if (prev==null) return null;
+        return prev.getTally(label);
+    }
+
     public int getPassDiff() {
-        MetaLabeledTestResultGroup prev = getPreviousResult();
+        MetaLabeledTestResultGroupAction prev = getPreviousAction();
         if (prev==null) return getPassCount();
-        return getPassCount() - prev.getPassCount();  
+        return getPassCount() - (prev.getTotalCount() - prev.getFailCount() - prev.getSkipCount());
     }
 
     public int getSkipDiff() {
-        MetaLabeledTestResultGroup prev = getPreviousResult();
+        MetaLabeledTestResultGroupAction prev = getPreviousAction();
         if (prev==null) return getSkipCount();
         return getSkipCount() - prev.getSkipCount();
     }
 
     public int getFailDiff() {
-        MetaLabeledTestResultGroup prev = getPreviousResult();
+        MetaLabeledTestResultGroupAction prev = getPreviousAction();
         if (prev==null) return getFailCount();
         return getFailCount() - prev.getFailCount();
     }
 
     public int getTotalDiff() {
-        MetaLabeledTestResultGroup prev = getPreviousResult();
+        MetaLabeledTestResultGroupAction prev = getPreviousAction();
         if (prev==null) return getTotalCount();
         return getTotalCount() - prev.getTotalCount();         
     }
@@ -446,20 +455,8 @@ public class MetaLabeledTestResultGroup extends MetaTabulatedResult {
         return flattenedList;
     }
 
-    private void storeInCache(String label, Map<String, Collection<TestResult>> sameStatusCollection, TestResult r) {
-        if (sameStatusCollection.keySet().contains(label)) {
-            sameStatusCollection.get(label).add(r);
-        } else {
-            List<TestResult> newCollection = new ArrayList<TestResult>(Arrays.asList(r));
-            sameStatusCollection.put(label, newCollection);
-        }
-    }
-
     private void updateCache() {
-        failedTestsByLabel.clear();
-        skippedTestsByLabel.clear();
-        passedTestsByLabel.clear();
-        allFailedTests.clear();;
+        allFailedTests.clear();
         allPassedTests.clear();
         allSkippedTests.clear();
         passCount = 0;
@@ -478,13 +475,10 @@ public class MetaLabeledTestResultGroup extends MetaTabulatedResult {
             for (TestResult aResult : groupForThisLabel.getChildren()) {
                 durationAccum += aResult.getDuration();
                 if (aResult.isPassed()) {
-                    storeInCache(l, passedTestsByLabel, aResult);
                     allPassedTests.add(aResult);
                 } else if (aResult.getFailCount() > 0) {
-                    storeInCache(l, failedTestsByLabel, aResult);
                     allFailedTests.add(aResult);
                 } else {
-                    storeInCache(l, skippedTestsByLabel, aResult);
                     allSkippedTests.add(aResult);
                 }                
             }
@@ -41,6 +41,10 @@ import javax.rmi.CORBA.Util;
 import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,6 +63,12 @@ public class MetaLabeledTestResultGroupAction extends AbstractTestResultAction<M
     // whether we're populated yet? (This technique is borrowed from hudson core TestResultAction.) 
 
 
+    /**
+     * The counts of each label, so that trends and summaries don't need to load
+     * the result group. Null for builds published before they were kept.
+     */
+    private Map<String, LabelTally> tallies;
+
     /**
      * @deprecated use resultGroupReference instead.
      */
@@ -86,6 +96,7 @@ public class MetaLabeledTestResultGroupAction extends AbstractTestResultAction<M
         totalCount = r.getTotalCount();
         failCount = r.getFailCount();
         skipCount = r.getSkipCount();
+        tallies = tally(r);
 
         // persist the data
         try {
@@ -97,6 +108,40 @@ public class MetaLabeledTestResultGroupAction extends AbstractTestResultAction<M
         this.resultGroupReference = new WeakReference<MetaLabeledTestResultGroup>(r);
     }
 
+    private static Map<String, LabelTally> tally(MetaLabeledTestResultGroup r) {
+        Map<String, LabelTally> result = new LinkedHashMap<String, LabelTally>();
+        for (String label : r.getLabels()) {
+            result.put(label, LabelTally.of(label, r.getGroupByLabel(label)));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the counts of each label. For builds published before the counts were
+     * kept, the result group is loaded once to compute them.
+     */
+    public synchronized Map<String, LabelTally> getTallies() {
+        if (tallies == null) {
+            MetaLabeledTestResultGroup r = getResult();
+            if (r == null) {
+                return Collections.emptyMap();
+            }
+            tallies = tally(r);
+        }
+        return Collections.unmodifiableMap(tallies);
+    }
+
+    /**
+     * @return the counts of the label, or null if the label isn't used in this build
+     */
+    public LabelTally getTally(String label) {
+        return getTallies().get(label);
+    }
+
+    public Collection<String> getLabels() {
+        return getTallies().keySet();
+    }
+
     private XmlFile getDataFile() {
         return new XmlFile(XSTREAM, new File(owner.getRootDir(), RESULT_DATA_FILENAME));
     }
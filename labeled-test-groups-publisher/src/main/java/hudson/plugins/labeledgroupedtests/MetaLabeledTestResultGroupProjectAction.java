@@ -25,7 +25,6 @@ package hudson.plugins.labeledgroupedtests;
 
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
-import hudson.tasks.test.TestResult;
 import hudson.tasks.test.TestResultProjectAction;
 import hudson.tasks.test.AbstractTestResultAction;
 
@@ -33,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -55,8 +55,7 @@ public class MetaLabeledTestResultGroupProjectAction extends TestResultProjectAc
     public Collection<String> getLabels() {
         MetaLabeledTestResultGroupAction action = getLastTestResultAction();
         if (action != null) {
-            MetaLabeledTestResultGroup resultGroup = action.getResultAsTestResultGroup();
-            if (resultGroup != null) return resultGroup.getLabels();
+            return action.getLabels();
         }
         return Collections.EMPTY_LIST;
     }
@@ -79,54 +78,67 @@ public class MetaLabeledTestResultGroupProjectAction extends TestResultProjectAc
         return null;
     }
 
+    /**
+     * Draws the trend of a label from the project's {@link LabeledTrendIndex},
+     * so that the test results of the builds are never loaded. Builds missing
+     * from the index are added to it.
+     */
     public TrendGraph getTrendGraph(String label) {
         MetaLabeledTestResultGroupAction action = getLastTestResultAction();
         int MAX_HISTORY = 300; // totally arbitrary, yep
         boolean pretendLegacyResultsAreInThisLabel = label.equalsIgnoreCase("unit");
-        if (action != null) {
-            MetaLabeledTestResultGroup resultGroup = action.getResultAsTestResultGroup();
-            if (resultGroup != null) {
-                if (resultGroup.getLabels().contains(label)) {
-                    int lastBuildNumber = project.getLastBuild().getNumber();
-                    int firstBuildNumber = project.getFirstBuild().getNumber();
-                    if (lastBuildNumber - firstBuildNumber > MAX_HISTORY) {
-                        firstBuildNumber = lastBuildNumber - MAX_HISTORY;
-                    }
+        if (action != null && action.getLabels().contains(label)) {
+            int lastBuildNumber = project.getLastBuild().getNumber();
+            int firstBuildNumber = project.getFirstBuild().getNumber();
+            if (lastBuildNumber - firstBuildNumber > MAX_HISTORY) {
+                firstBuildNumber = lastBuildNumber - MAX_HISTORY;
+            }
 
-                    List<TestResult> history = new ArrayList<TestResult>(MAX_HISTORY);
-                    for (int buildNumber = firstBuildNumber; buildNumber <= lastBuildNumber; buildNumber++) {
-                        AbstractBuild<?,?> build = project.getBuildByNumber(buildNumber);
-                        if (build == null) continue;
-                        MetaLabeledTestResultGroupAction historicalAction = build.getAction(MetaLabeledTestResultGroupAction.class);
-                        if (historicalAction!=null) {
-                            MetaLabeledTestResultGroup historicalResultGroup = historicalAction.getResultAsTestResultGroup();
-                                if (historicalResultGroup==null) continue;
-                                if (resultGroup.getLabels().contains(label)) {
-                                    LabeledTestResultGroup group = historicalResultGroup.getGroupByLabel(label);
-                                    if (group == null) {
-                                        LOGGER.info("Couldn't find a group with label " + label + " for build " + buildNumber);
-                                        history.add(new LabeledTestResultGroup());
-                                    } else {
-                                        history.add(group);
-                                    }
-                                }
-                        } else if (pretendLegacyResultsAreInThisLabel) {
-                            // We're going to pretend that all legacy data should be marked as "unit",
-                            // so if we're building the "unit" graph, try to adapt the data for the graph.
-                            // See if we can find some TestResultAction, and use its historical data
-                            AbstractTestResultAction legacyAction = build.getAction(AbstractTestResultAction.class);
-                            if (legacyAction==null) continue;
-                            Object hopefullyAResult = legacyAction.getResult();
-                            if (hopefullyAResult instanceof TestResult) {
-                                TestResult result = (TestResult) hopefullyAResult;
-                                history.add(result);
-                            }                            
-                        }
+            LabeledTrendIndex index = LabeledTrendIndex.forProject(project);
+            boolean indexChanged = false;
+            List<TrendGraph.Point> history = new ArrayList<TrendGraph.Point>(MAX_HISTORY);
+            for (int buildNumber = firstBuildNumber; buildNumber <= lastBuildNumber; buildNumber++) {
+                AbstractBuild<?,?> build = project.getBuildByNumber(buildNumber);
+                if (build == null) {
+                    if (index.contains(buildNumber)) {
+                        index.remove(buildNumber);
+                        indexChanged = true;
                     }
-
-                    return new TrendGraph("/testReport/" + label, "count", history); 
+                    continue;
+                }
+                Map<String, LabelTally> tallies = index.getTallies(buildNumber);
+                if (tallies == null) {
+                    MetaLabeledTestResultGroupAction historicalAction = build.getAction(MetaLabeledTestResultGroupAction.class);
+                    if (historicalAction != null) {
+                        tallies = historicalAction.getTallies();
+                        index.put(buildNumber, tallies);
+                        indexChanged = true;
+                    }
+                }
+                if (tallies != null) {
+                    LabelTally tally = tallies.get(label);
+                    if (tally == null) {
+                        LOGGER.info("Couldn't find a group with label " + label + " for build " + buildNumber);
+                        tally = new LabelTally(label, 0, 0, 0, 0);
+                    }
+                    history.add(new TrendGraph.Point(build, tally));
+                } else if (pretendLegacyResultsAreInThisLabel) {
+                    // We're going to pretend that all legacy data should be marked as "unit",
+                    // so if we're building the "unit" graph, try to adapt the data for the graph.
+                    // See if we can find some TestResultAction, and use its counts
+                    AbstractTestResultAction legacyAction = build.getAction(AbstractTestResultAction.class);
+                    if (legacyAction==null) continue;
+                    int failCount = legacyAction.getFailCount();
+                    int skipCount = legacyAction.getSkipCount();
+                    int passCount = legacyAction.getTotalCount() - failCount - skipCount;
+                    history.add(new TrendGraph.Point(build, new LabelTally(label, passCount, failCount, skipCount, 0)));
                 }
             }
+            if (indexChanged) {
+                index.save();
+            }
+
+            return new TrendGraph("/testReport/" + label, "count", history);
         }
         LOGGER.warning("Couldn't find the right result group for a trend graph for label '" + label + "'");
         return null;
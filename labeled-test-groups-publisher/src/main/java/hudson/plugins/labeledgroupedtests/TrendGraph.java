@@ -23,7 +23,7 @@
  */
 package hudson.plugins.labeledgroupedtests;
 
-import hudson.tasks.test.TestResult;
+import hudson.model.AbstractBuild;
 import hudson.util.*;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
@@ -48,27 +48,27 @@ import java.io.IOException;
  */
 public class TrendGraph extends Graph {
     
-    protected final java.util.List<? extends TestResult> testResults;
+    protected final java.util.List<Point> points;
     private final String yLabel;
     private final String relativeUrl;
     private boolean failureOnly;
 
-    protected TrendGraph(String relativeUrl, String yLabel, java.util.List<? extends TestResult> testResults) {
+    protected TrendGraph(String relativeUrl, String yLabel, java.util.List<Point> points) {
         super(-1 /* timestamp */ ,500,200); // TODO: use a good timestamp, so we can take advantage of caching
         this.relativeUrl = relativeUrl;
         this.yLabel =  yLabel;
-        this.testResults = testResults;
+        this.points = points;
         this.failureOnly = false;
     }
 
     protected DataSetBuilder<String, ChartLabel> createDataSet() {
         DataSetBuilder<String, ChartLabel> data = new DataSetBuilder<String, ChartLabel>();
 
-        for (TestResult o: getList()) {
-            data.add(o.getFailCount(), "0Failed", new ChartLabel(o));
+        for (Point o: getList()) {
+            data.add(o.tally.getFailCount(), "0Failed", new ChartLabel(o));
             if (!failureOnly) {
-                data.add(o.getSkipCount(), "1Skipped", new ChartLabel(o));
-                data.add(o.getPassCount(), "2Passed", new ChartLabel(o));
+                data.add(o.tally.getSkipCount(), "1Skipped", new ChartLabel(o));
+                data.add(o.tally.getPassCount(), "2Passed", new ChartLabel(o));
 
             }
         }
@@ -90,8 +90,21 @@ public class TrendGraph extends Graph {
         super.doMap(req, rsp);
     }
 
-    public java.util.List<? extends TestResult> getList() {
-        return testResults;
+    public java.util.List<Point> getList() {
+        return points;
+    }
+
+    /**
+     * The counts of a label in one build of the trend.
+     */
+    public static class Point {
+        final AbstractBuild<?,?> build;
+        final LabelTally tally;
+
+        public Point(AbstractBuild<?,?> build, LabelTally tally) {
+            this.build = build;
+            this.tally = tally;
+        }
     }
 
     protected JFreeChart createGraph() {
@@ -169,31 +182,31 @@ public class TrendGraph extends Graph {
 }
 
 class ChartLabel implements Comparable<ChartLabel> {
-    TestResult o;
-    public ChartLabel(TestResult o) {
+    TrendGraph.Point o;
+    public ChartLabel(TrendGraph.Point o) {
         this.o = o;
     }
 
     public String getToolTipText() {
         StringBuilder sb = new StringBuilder();
-        sb.append(o.getOwner() != null ? "#" +  o.getOwner().getNumber() : "(#)" );
-        if (o.getDuration() != 0) {
-            sb.append(" ").append(o.getDurationString());
+        sb.append(o.build != null ? "#" +  o.build.getNumber() : "(#)" );
+        if (o.tally.getDuration() != 0) {
+            sb.append(" ").append(o.tally.getDurationString());
         }
         return sb.toString();
     }
 
     public String getURL() {
-        if (o==null||o.getOwner()==null) {
+        if (o==null||o.build==null) {
             return "";
         }
-        return String.valueOf(o.getOwner().number);
+        return String.valueOf(o.build.number);
     }
 
     /**
      * This implementation of compareTo might not be entirely
      * consistent with equals for cases where either object being
-     * compared has a null test object or owner.
+     * compared has a null build.
      * @see {http://java.sun.com/javase/6/docs/api/java/lang/Comparable.html}
      * @param that
      * @return
@@ -203,11 +216,11 @@ class ChartLabel implements Comparable<ChartLabel> {
             throw new NullPointerException();
         if (this.o == that.o)
             return 0;
-        if (that.o==null || that.o.getOwner()==null)
+        if (that.o==null || that.o.build==null)
             return 1;
-        if (this.o==null || this.o.getOwner()==null)
+        if (this.o==null || this.o.build==null)
             return -1;
-        return this.o.getOwner().number - that.o.getOwner().number;
+        return this.o.build.number - that.o.build.number;
     }
 
     @Override
@@ -230,10 +243,10 @@ class ChartLabel implements Comparable<ChartLabel> {
 
     @Override
     public String toString() {
-        if (o==null || o.getOwner()==null) 
+        if (o==null || o.build==null) 
             return "-";
-        String l = o.getOwner().getDisplayName();
-        String s = o.getOwner().getBuiltOnStr();
+        String l = o.build.getDisplayName();
+        String s = o.build.getBuiltOnStr();
         if (s != null)
             l += ' ' + s;
         return l;
@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010, Yahoo!, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.labeledandgroupedtests;
+
+import hudson.model.FreeStyleProject;
+import hudson.plugins.labeledgroupedtests.LabelTally;
+import hudson.plugins.labeledgroupedtests.LabeledTrendIndex;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Test that the label tallies of the builds are kept in the project's trend index
+ */
+public class TrendIndexTest extends HudsonTestCase {
+
+    public void testRecordAndReload() throws Exception {
+        FreeStyleProject project = createFreeStyleProject();
+        LabeledTrendIndex index = LabeledTrendIndex.forProject(project);
+        assertSame(index, LabeledTrendIndex.forProject(project));
+        assertNull(index.getTallies(1));
+
+        Map<String, LabelTally> tallies = new LinkedHashMap<String, LabelTally>();
+        tallies.put("unit", new LabelTally("unit", 25, 0, 0, 1.5f));
+        tallies.put("regression", new LabelTally("regression", 18, 1, 0, 12f));
+        index.record(1, tallies);
+        index.record(2, new LinkedHashMap<String, LabelTally>());
+
+        LabeledTrendIndex reloaded = LabeledTrendIndex.load(new File(project.getRootDir(), LabeledTrendIndex.INDEX_FILENAME));
+        assertTrue(reloaded.contains(1));
+        assertTrue(reloaded.contains(2));
+        assertFalse(reloaded.contains(3));
+        LabelTally regression = reloaded.getTallies(1).get("regression");
+        assertEquals(18, regression.getPassCount());
+        assertEquals(1, regression.getFailCount());
+        assertEquals(0, regression.getSkipCount());
+        assertEquals(19, regression.getTotalCount());
+        assertEquals(25, reloaded.getTallies(1).get("unit").getPassCount());
+        assertTrue(reloaded.getTallies(2).isEmpty());
+    }
+}
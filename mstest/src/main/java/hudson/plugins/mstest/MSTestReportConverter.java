@@ -7,11 +7,10 @@ import java.io.InputStream;
 import java.io.Serializable;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
+import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -19,6 +18,8 @@ import org.xml.sax.SAXException;
 
 /**
  * Transforms a MSTest report into a JUnit report. 
+ * The compiled XSL is shared by all conversions of the JVM, and each conversion streams the JUnit report straight to
+ * its file, so a converter can be used by several threads at once.
  */
 public class MSTestReportConverter implements  Serializable {
 
@@ -26,8 +27,7 @@ public class MSTestReportConverter implements  Serializable {
     private static final String JUNIT_OUTPUT_FILE_STR = "TEST-mstest.xml";
     public static final String MSTEST_TO_JUNIT_XSLFILE_STR = "mstest-to-junit.xsl";
 
-    private transient boolean xslIsInitialized;
-    private transient Transformer mstestTransformer;
+    private static Templates mstestTemplates;
 
     /**
      * Transform the MSTest TRX file into a junit XML file in the output path
@@ -42,26 +42,24 @@ public class MSTestReportConverter implements  Serializable {
     public void transform(InputStream mstestFileStream, File junitOutputPath) throws IOException, TransformerException,
             SAXException, ParserConfigurationException {
         
-        initialize();
-        
         File junitTargetFile = new File(junitOutputPath, JUNIT_OUTPUT_FILE_STR);
         FileOutputStream fileOutputStream = new FileOutputStream(junitTargetFile);
         try {
-            mstestTransformer.transform(new StreamSource(mstestFileStream), new StreamResult(fileOutputStream));
+            getTemplates().newTransformer().transform(new StreamSource(mstestFileStream), new StreamResult(fileOutputStream));
         } finally {
             fileOutputStream.close();
         }
 
     }
 
-    private void initialize() throws TransformerFactoryConfigurationError, TransformerConfigurationException,
-            ParserConfigurationException {
-        if (!xslIsInitialized) {
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            mstestTransformer = transformerFactory.newTransformer(new StreamSource(this.getClass().getResourceAsStream(MSTEST_TO_JUNIT_XSLFILE_STR)));
-                
-            xslIsInitialized = true;
+    /**
+     * Returns the compiled MSTest to JUnit XSL, it is compiled the first time it is used.
+     */
+    private static synchronized Templates getTemplates() throws TransformerConfigurationException {
+        if (mstestTemplates == null) {
+            mstestTemplates = TransformerFactory.newInstance().newTemplates(
+                    new StreamSource(MSTestReportConverter.class.getResourceAsStream(MSTEST_TO_JUNIT_XSLFILE_STR)));
         }
+        return mstestTemplates;
     }
 }
-
@@ -3,7 +3,15 @@ package hudson.plugins.nunit;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -20,6 +28,7 @@ import hudson.util.IOException2;
 
 /**
  * Class responsible for transforming NUnit to JUnit files and then run them all through the JUnit result archiver.
+ * The NUnit files are transformed in parallel, with one thread per processor.
  * 
  * @author Erik Ramfelt
  */
@@ -49,22 +58,10 @@ public class NUnitArchiver implements FilePath.FileCallable<Boolean>, Serializab
             File junitOutputPath = new File(ws, JUNIT_REPORTS_PATH);
             junitOutputPath.mkdirs();
     
-            for (String nunitFileName : nunitFiles) {
-                FileInputStream fileStream = new FileInputStream(new File(ws, nunitFileName));
-                try {
-                    unitReportTransformer.transform(fileStream, junitOutputPath);
-                } catch (TransformerException te) {
-                    throw new IOException2(
-                            "Could not transform the NUnit report. Please report this issue to the plugin author", te);
-                } catch (SAXException se) {
-                    throw new IOException2(
-                            "Could not transform the NUnit report. Please report this issue to the plugin author", se);
-                } catch (ParserConfigurationException pce) {
-                    throw new IOException2(
-                            "Could not initalize the XML parser. Please report this issue to the plugin author", pce);
-                } finally {
-                    fileStream.close();
-                }
+            if (nunitFiles.length == 1) {
+                transform(new File(ws, nunitFiles[0]), junitOutputPath);
+            } else {
+                transformInParallel(ws, nunitFiles, junitOutputPath);
             }
         } else {
             retValue = Boolean.FALSE;
@@ -73,6 +70,67 @@ public class NUnitArchiver implements FilePath.FileCallable<Boolean>, Serializab
         return retValue;
     }
 
+    /**
+     * Transforms the NUnit files with one thread per processor
+     * 
+     * @param ws the workspace
+     * @param nunitFiles the NUnit files, relative to the workspace
+     * @param junitOutputPath the output path to put all junit files
+     */
+    private void transformInParallel(File ws, String[] nunitFiles, final File junitOutputPath) throws IOException {
+        int nbThreads = Math.min(nunitFiles.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, nbThreads));
+        try {
+            List<Future<Object>> transformations = new ArrayList<Future<Object>>();
+            for (String nunitFileName : nunitFiles) {
+                final File nunitFile = new File(ws, nunitFileName);
+                transformations.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws IOException {
+                        transform(nunitFile, junitOutputPath);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> transformation : transformations) {
+                transformation.get();
+            }
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            throw new IOException2(
+                    "Could not transform the NUnit report. Please report this issue to the plugin author", ee.getCause());
+        } catch (InterruptedException ie) {
+            throw (IOException) new InterruptedIOException("Interrupted while transforming the NUnit reports").initCause(ie);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Transforms one NUnit file into JUnit files
+     * 
+     * @param nunitFile the NUnit file
+     * @param junitOutputPath the output path to put all junit files
+     */
+    private void transform(File nunitFile, File junitOutputPath) throws IOException {
+        FileInputStream fileStream = new FileInputStream(nunitFile);
+        try {
+            unitReportTransformer.transform(fileStream, junitOutputPath);
+        } catch (TransformerException te) {
+            throw new IOException2(
+                    "Could not transform the NUnit report. Please report this issue to the plugin author", te);
+        } catch (SAXException se) {
+            throw new IOException2(
+                    "Could not transform the NUnit report. Please report this issue to the plugin author", se);
+        } catch (ParserConfigurationException pce) {
+            throw new IOException2(
+                    "Could not initalize the XML parser. Please report this issue to the plugin author", pce);
+        } finally {
+            fileStream.close();
+        }
+    }
+
     /**
      * Return all NUnit report files
      * 
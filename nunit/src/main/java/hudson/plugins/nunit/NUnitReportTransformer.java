@@ -4,29 +4,35 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
+import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Transforms a NUnit report into seperate JUnit reports. The NUnit report can contain several test cases and the JUnit
  * report that is read by Hudson should only contain one. This class will split up one NUnit report into several JUnit
  * files.
+ * <p>
+ * The JUnit report is split while the XSL transformation produces it, so it is never written to a temporary file nor
+ * parsed again. The compiled XSL is shared by all transformations of the JVM, and the transformer can be used by
+ * several threads at once.
  * 
  */
 public class NUnitReportTransformer implements TestReportTransformer, Serializable {
@@ -38,13 +44,15 @@ public class NUnitReportTransformer implements TestReportTransformer, Serializab
     public static final String JUNIT_FILE_POSTFIX = ".xml";
     public static final String JUNIT_FILE_PREFIX = "TEST-";
 
-    private static final String TEMP_JUNIT_FILE_STR = "temp-junit.xml";
     public static final String NUNIT_TO_JUNIT_XSLFILE_STR = "nunit-to-junit.xsl";
 
-    private transient boolean xslIsInitialized;
-    private transient Transformer nunitTransformer;
-    private transient Transformer writerTransformer;
-    private transient DocumentBuilder xmlDocumentBuilder;
+    private static Templates nunitTemplates;
+
+    /**
+     * Files written by this transformer, so that test suites with the same name in different reports do not overwrite
+     * each other
+     */
+    private transient Set<File> junitFiles;
 
     /**
      * Transform the nunit file into several junit files in the output path
@@ -59,58 +67,145 @@ public class NUnitReportTransformer implements TestReportTransformer, Serializab
     public void transform(InputStream nunitFileStream, File junitOutputPath) throws IOException, TransformerException,
             SAXException, ParserConfigurationException {
         
-        initialize();
-        
-        File junitTargetFile = new File(junitOutputPath, TEMP_JUNIT_FILE_STR);
-        FileOutputStream fileOutputStream = new FileOutputStream(junitTargetFile);
+        JUnitSuiteSplitter splitter = new JUnitSuiteSplitter(junitOutputPath);
         try {
-            nunitTransformer.transform(new StreamSource(nunitFileStream), new StreamResult(fileOutputStream));
+            getTemplates().newTransformer().transform(new StreamSource(nunitFileStream), new SAXResult(splitter));
         } finally {
-            fileOutputStream.close();
+            splitter.close();
         }
-        splitJUnitFile(junitTargetFile, junitOutputPath);
-        junitTargetFile.delete();
     }
 
-    private void initialize() throws TransformerFactoryConfigurationError, TransformerConfigurationException,
-            ParserConfigurationException {
-        if (!xslIsInitialized) {
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            nunitTransformer = transformerFactory.newTransformer(new StreamSource(this.getClass().getResourceAsStream(NUNIT_TO_JUNIT_XSLFILE_STR)));
-            writerTransformer = transformerFactory.newTransformer();
-    
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            xmlDocumentBuilder = factory.newDocumentBuilder();
-            
-            xslIsInitialized = true;
+    /**
+     * Returns the compiled NUnit to JUnit XSL, it is compiled the first time it is used.
+     */
+    private static synchronized Templates getTemplates() throws TransformerConfigurationException {
+        if (nunitTemplates == null) {
+            nunitTemplates = TransformerFactory.newInstance().newTemplates(
+                    new StreamSource(NUnitReportTransformer.class.getResourceAsStream(NUNIT_TO_JUNIT_XSLFILE_STR)));
         }
+        return nunitTemplates;
     }
 
     /**
-     * Splits the junit file into several junit files in the output path
-     * 
-     * @param junitFile report containing one or more junit test suite tags
-     * @param junitOutputPath the path to put all junit files
-     * @throws IOException
-     * @throws SAXException
-     * @throws TransformerException
+     * Returns a file for the test suite that no other test suite has been written to.
      */
-    private void splitJUnitFile(File junitFile, File junitOutputPath) throws SAXException, IOException,
-            TransformerException {
-        Document document = xmlDocumentBuilder.parse(junitFile);
-
-        NodeList elementsByTagName = ((Element) document.getElementsByTagName("testsuites").item(0)).getElementsByTagName("testsuite");
-        for (int i = 0; i < elementsByTagName.getLength(); i++) {
-            Element element = (Element) elementsByTagName.item(i);
-            DOMSource source = new DOMSource(element);
-            String filename = JUNIT_FILE_PREFIX + element.getAttribute("name").replaceAll(ILLEGAL_FILE_CHARS_REGEX, "_") + JUNIT_FILE_POSTFIX;
-			File junitOutputFile = new File(junitOutputPath, filename);
-            FileOutputStream fileOutputStream = new FileOutputStream(junitOutputFile);
+    private synchronized File newJUnitFile(File junitOutputPath, String suiteName) {
+        if (junitFiles == null) {
+            junitFiles = new HashSet<File>();
+        }
+        String name = JUNIT_FILE_PREFIX + suiteName.replaceAll(ILLEGAL_FILE_CHARS_REGEX, "_");
+        File junitOutputFile = new File(junitOutputPath, name + JUNIT_FILE_POSTFIX);
+        for (int i = 1; !junitFiles.add(junitOutputFile); i++) {
+            junitOutputFile = new File(junitOutputPath, name + "-" + i + JUNIT_FILE_POSTFIX);
+        }
+        return junitOutputFile;
+    }
+
+    /**
+     * Writes each test suite tag found in the junit test suites tag into its own junit file in the output path
+     */
+    private class JUnitSuiteSplitter extends DefaultHandler {
+
+        private final File junitOutputPath;
+        private final SAXTransformerFactory writerFactory;
+        private final LinkedList<TransformerHandler> suiteWriters = new LinkedList<TransformerHandler>();
+        private final LinkedList<OutputStream> suiteStreams = new LinkedList<OutputStream>();
+        private int testSuitesDepth;
+
+        JUnitSuiteSplitter(File junitOutputPath) {
+            this.junitOutputPath = junitOutputPath;
+            this.writerFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            String name = nameOf(localName, qName);
+            if ("testsuites".equals(name)) {
+                testSuitesDepth++;
+            } else if (testSuitesDepth > 0 && "testsuite".equals(name)) {
+                String suiteName = attributes.getValue("name");
+                openSuite(newJUnitFile(junitOutputPath, suiteName == null ? "" : suiteName));
+            }
+            for (TransformerHandler writer : suiteWriters) {
+                writer.startElement(uri, localName, qName, attributes);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            for (TransformerHandler writer : suiteWriters) {
+                writer.endElement(uri, localName, qName);
+            }
+            String name = nameOf(localName, qName);
+            if ("testsuites".equals(name)) {
+                testSuitesDepth--;
+            } else if (testSuitesDepth > 0 && "testsuite".equals(name)) {
+                closeSuite();
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            for (TransformerHandler writer : suiteWriters) {
+                writer.characters(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            for (TransformerHandler writer : suiteWriters) {
+                writer.ignorableWhitespace(ch, start, length);
+            }
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            for (TransformerHandler writer : suiteWriters) {
+                writer.startPrefixMapping(prefix, uri);
+            }
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            for (TransformerHandler writer : suiteWriters) {
+                writer.endPrefixMapping(prefix);
+            }
+        }
+
+        private String nameOf(String localName, String qName) {
+            return localName == null || localName.length() == 0 ? qName : localName;
+        }
+
+        private void openSuite(File junitOutputFile) throws SAXException {
+            try {
+                FileOutputStream fileOutputStream = new FileOutputStream(junitOutputFile);
+                suiteStreams.add(fileOutputStream);
+                TransformerHandler writer = writerFactory.newTransformerHandler();
+                writer.setResult(new StreamResult(fileOutputStream));
+                writer.startDocument();
+                suiteWriters.add(writer);
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            } catch (TransformerConfigurationException tce) {
+                throw new SAXException(tce);
+            }
+        }
+
+        private void closeSuite() throws SAXException {
+            suiteWriters.removeLast().endDocument();
             try {
-                StreamResult result = new StreamResult(fileOutputStream);
-                writerTransformer.transform(source, result);
-            } finally {
-                fileOutputStream.close();
+                suiteStreams.removeLast().close();
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+
+        /**
+         * Closes the files of the test suites left open by a failed transformation
+         */
+        void close() throws IOException {
+            while (!suiteStreams.isEmpty()) {
+                suiteStreams.removeLast().close();
             }
         }
     }
@@ -50,6 +50,13 @@ public class NUnitReportTransformerTest extends AbstractWorkspaceTest implements
         assertJunitFiles(2);
     }
 
+    @Test
+    public void testSameTestSuitesInTwoReports() throws Exception {
+        transformer.transform(this.getClass().getResourceAsStream("NUnit.xml"), tempFilePath);
+        transformer.transform(this.getClass().getResourceAsStream("NUnit.xml"), tempFilePath);
+        assertJunitFiles(4);
+    }
+
     @Bug(5673)
     @Test
     public void testFilenameDoesNotContainInvalidChars() throws Exception {
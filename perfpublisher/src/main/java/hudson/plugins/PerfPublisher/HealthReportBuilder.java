@@ -3,7 +3,7 @@ package hudson.plugins.PerfPublisher;
 
 
 import hudson.model.HealthReport;
-import hudson.plugins.PerfPublisher.Report.ReportContainer;
+import hudson.plugins.PerfPublisher.Report.TestStatistics;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -47,7 +47,7 @@ public class HealthReportBuilder implements Serializable {
      *            annotations of the current build
      * @return the healthiness of a build
      */
-    public HealthReport computeHealth(HealthDescriptor healthDescriptor, final ReportContainer result) {
+    public HealthReport computeHealth(HealthDescriptor healthDescriptor, final TestStatistics result) {
         	double percentOfFailedTest = result.getPercentOfFailedTest();
         	int numberOfFailedTest = result.getNumberOfFailedTest();
         	
@@ -38,7 +38,24 @@ import org.xml.sax.helpers.DefaultHandler;
 
 public class ParserXml {
 
-	static class Analyse extends DefaultHandler {
+	/**
+	 * Receives the tests of a report as soon as they are parsed, so that the
+	 * whole report never has to be held in memory.
+	 */
+	public interface TestHandler {
+		/**
+		 * @param report the report being parsed, without its tests
+		 * @param test the parsed test
+		 */
+		void test(Report report, Test test) throws IOException;
+
+		/**
+		 * @param report the report that has been completely parsed, without its tests
+		 */
+		void endReport(Report report) throws IOException;
+	}
+
+	class Analyse extends DefaultHandler {
 		private Report report;
 		private StringBuffer buffer;
 		
@@ -155,6 +172,13 @@ public class ParserXml {
 			if (qName.equals("report") && f_report) {
 				buffer = new StringBuffer();
 				f_report = false;
+				if (handler != null) {
+					try {
+						handler.endReport(report);
+					} catch (IOException e) {
+						throw new SAXException(e);
+					}
+				}
 			} else if (qName.equals("start") && f_report && f_start) {
 				f_start = false;
 				buffer = new StringBuffer();
@@ -166,7 +190,16 @@ public class ParserXml {
 				buffer = new StringBuffer();
 			} else if (qName.equals("test") && f_report && f_test) {
 				f_test = false;
-				report.addTest(tmp_test);
+				if (handler != null) {
+					try {
+						handler.test(report, tmp_test);
+					} catch (IOException e) {
+						throw new SAXException(e);
+					}
+				} else {
+					report.addTest(tmp_test);
+				}
+				tmp_test = null;
 				buffer = new StringBuffer();
 			} else if (qName.equals("description") && f_report && f_test && f_description) {
 				f_description = false;
@@ -480,8 +513,9 @@ public class ParserXml {
 	}
 
 	// Attribute
-	private static Report resultat;
-	private static URI xml_path;
+	private Report resultat;
+	private URI xml_path;
+	private TestHandler handler;
 
 	/**
 	 * @param xml URI Path to the xml file
@@ -491,6 +525,18 @@ public class ParserXml {
 		xml_path = xml;
 	}
 
+	/**
+	 * Streams the tests to the given handler instead of collecting them into the
+	 * report returned by {@link #result()}.
+	 * 
+	 * @param xml URI Path to the xml file
+	 * @param handler receives the tests as they are parsed
+	 */
+	public ParserXml(final URI xml, final TestHandler handler) {
+		this(xml);
+		this.handler = handler;
+	}
+
 	/**
 	 * @throws ParserConfigurationException
 	 * @throws SAXException
@@ -502,7 +548,15 @@ public class ParserXml {
 		final SAXParserFactory fabrique = SAXParserFactory.newInstance();
 		final SAXParser parseur = fabrique.newSAXParser();
 		final DefaultHandler gestionnaire = new Analyse();
-		parseur.parse(new File(xml_path), gestionnaire);
+		try {
+			parseur.parse(new File(xml_path), gestionnaire);
+		} catch (SAXException e) {
+			if (e.getException() instanceof IOException) {
+				// the handler failed to store a test
+				throw (IOException) e.getException();
+			}
+			throw e;
+		}
 	}
 
 	/**
@@ -13,6 +13,8 @@ import hudson.plugins.PerfPublisher.Report.FileContainer;
 import hudson.plugins.PerfPublisher.Report.Report;
 import hudson.plugins.PerfPublisher.Report.ReportContainer;
 import hudson.plugins.PerfPublisher.Report.Test;
+import hudson.plugins.PerfPublisher.Report.TestIndex;
+import hudson.plugins.PerfPublisher.Report.TestStatistics;
 import hudson.util.ChartUtil;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
@@ -52,6 +54,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.net.URI;
 import java.util.ArrayList;
@@ -60,6 +63,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -73,7 +78,15 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 
 	private final AbstractBuild<?, ?> build;
 	private Report report;
-	private ReportContainer reports = new ReportContainer();
+	/**
+	 * All the tests, only stored by the builds recorded before the test
+	 * index. The other builds load them from the index when needed.
+	 */
+	private ReportContainer reports;
+	/** Global statistics, computed while parsing */
+	private TestStatistics statistics;
+	private transient WeakReference<ReportContainer> loadedReports;
+	private transient TestIndex testIndex;
 	private FileContainer reportsFiles = new FileContainer();
 	/** Parameters for the health report. */
 	private final HealthDescriptor healthDescriptor;
@@ -99,7 +112,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	private int numberOfDeletedTests = -1;
 	private double percentOfDeletedTests = -1;
 	private List<Test> executedTests;
-	private TrendReport trendReport;
+	private transient TrendReport trendReport;
 	private int numberOfSuccessStatusChangedTests = -1;
 	private int numberOfExecutionStatusChangedTests = -1;
 	private double percentOfSuccessStatusChangedTests = -1;
@@ -122,77 +135,101 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 			ArrayList<String> files, PrintStream logger,
 			HealthDescriptor healthDescriptor) {
 		this.build = build;
-		this.executedTests = new ArrayList<Test>();
+		this.statistics = new TestStatistics();
 		/**
 		 * Compute the healthDescription
 		 */
 		this.healthDescriptor = healthDescriptor;
 
-		for (int i = 0; i < files.size(); i++) {
-			String current_report = files.get(i);
-			URI is;
-			try {
-				is = build.getWorkspace().child(current_report).toURI();
-				
-				logger.println("[CapsAnalysis] Parsing du Report : "
-						+ current_report);
-				ReportReader rs = new ReportReader(is, logger);
-				report = rs.getReport();
-				report.setFile(current_report);
-				reports.addReport(report, false);
-				reports.addFile(current_report);
-			} catch (IOException e) {
-				logger.println("[CapsAnalysis] Impossible to analyse report "
-						+ current_report + ", file can't be read.");
-				build.setResult(Result.UNSTABLE);
-			} catch (InterruptedException e) {
-				logger.println("[CapsAnalysis] Impossible to analyse report "
-						+ current_report + ", file can't be read.");
-				build.setResult(Result.UNSTABLE);
+		/**
+		 * The tests are written to the index and accounted in the statistics
+		 * while they are parsed, they are never all held in memory.
+		 */
+		TestIndex.Writer writer;
+		try {
+			writer = TestIndex.create(build.getRootDir());
+		} catch (IOException e) {
+			throw new PerfPublisherParseException(
+					"[CapsAnalysis] Impossible to create the test index", e);
+		}
+		boolean indexed = false;
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				String current_report = files.get(i);
+				URI is;
+				IndexingHandler handler = new IndexingHandler(current_report, writer);
+				writer.mark();
+				try {
+					is = build.getWorkspace().child(current_report).toURI();
+
+					logger.println("[CapsAnalysis] Parsing du Report : "
+							+ current_report);
+					new ReportReader(is, logger, handler);
+					handler.commit();
+				} catch (IOException e) {
+					logger.println("[CapsAnalysis] Impossible to analyse report "
+							+ current_report + ", file can't be read.");
+					build.setResult(Result.UNSTABLE);
+				} catch (InterruptedException e) {
+					logger.println("[CapsAnalysis] Impossible to analyse report "
+							+ current_report + ", file can't be read.");
+					build.setResult(Result.UNSTABLE);
+				} catch (PerfPublisherParseException e) {
+					if (handler.writeError != null) {
+						// the index is broken, not the report
+						throw handler.writeError;
+					}
+					// only fully parsed reports are kept
+					writer.rollback();
+					logger.println("[CapsAnalysis] Impossible to analyse report "
+							+ current_report + ", file can't be parsed.");
+					build.setResult(Result.UNSTABLE);
+				}
+				if (healthDescriptor.getUnstableHealth() > 0
+						&& statistics.getNumberOfFailedTest() > healthDescriptor
+								.getUnstableHealth()) {
+					build.setResult(Result.UNSTABLE);
+					logger.println("[CapsAnalysis] Build status set to UNSTABLE (number of failed test greater than acceptable health level");
+				}
 			}
-			if (healthDescriptor.getUnstableHealth() > 0
-					&& reports.getNumberOfFailedTest() > healthDescriptor
-							.getUnstableHealth()) {
-				build.setResult(Result.UNSTABLE);
-				logger.println("[CapsAnalysis] Build status set to UNSTABLE (number of failed test greater than acceptable health level");
+			testIndex = writer.close();
+			indexed = true;
+		} catch (IOException e) {
+			throw new PerfPublisherParseException(
+					"[CapsAnalysis] Impossible to write the test index", e);
+		} finally {
+			if (!indexed) {
+				writer.abort();
 			}
 		}
-		/**
-		 * Compute Reports Stats
-		 */
-		logger.println("[CapsAnalysis] Compute global statistics...");
-		reports.computeStats();
 
 		logger
 				.println("[CapsAnalysis] [--------------------------------------------------]");
 		logger.println("[CapsAnalysis] Number of parsed files : "
-				+ reports.getNumberOfFiles());
+				+ statistics.getNumberOfFiles());
 		logger.println("[CapsAnalysis] Number of reports : "
-				+ reports.getNumberOfReports());
+				+ statistics.getNumberOfReports());
 		logger.println("[CapsAnalysis] Number of test : "
-				+ reports.getNumberOfTest());
+				+ statistics.getNumberOfTest());
 		logger.println("[CapsAnalysis] Number of executed test : "
-				+ reports.getNumberOfExecutedTest());
+				+ statistics.getNumberOfExecutedTest());
 		logger.println("[CapsAnalysis] Number of not executed test : "
-				+ reports.getNumberOfNotExecutedTest());
+				+ statistics.getNumberOfNotExecutedTest());
 		logger.println("[CapsAnalysis] Number of passed test : "
-				+ reports.getNumberOfPassedTest());
+				+ statistics.getNumberOfPassedTest());
 		logger.println("[CapsAnalysis] Number of failed test : "
-				+ reports.getNumberOfFailedTest());
+				+ statistics.getNumberOfFailedTest());
 
-		for (int i = 0; i < reports.getCategories().size(); i++) {
+		for (String category : statistics.getCategories()) {
 			logger
 					.println("[CapsAnalysis] ---------------------------------------------------");
-			logger.println("[CapsAnalysis] Category : "
-					+ reports.getCategories().get(i));
+			logger.println("[CapsAnalysis] Category : " + category);
 			logger.println("[CapsAnalysis]  - Number of test : "
-					+ reports.getReportOfThisCategorie(
-							reports.getCategories().get(i)).getNumberOfTest());
+					+ statistics.getNumberOfTestOfCategory(category));
 		}
 
-		for (int j = 0; j < reports.getNumberOfTest(); j++) {
-			logger.println("[CapsAnalysis] "
-					+ reports.getTests().get(j).getName());
+		for (String name : testIndex.getNames()) {
+			logger.println("[CapsAnalysis] " + name);
 		}
 
 		logger
@@ -202,32 +239,86 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 				.println("[CapsAnalysis] ---------------------------------------------------");
 		logger.println("[CapsAnalysis] Performance :");
 		logger.println("[CapsAnalysis]  - Worst Perfomance : "
-				+ getReports().getWorstPerformanceTestValue());
+				+ statistics.getWorstPerformanceTestValue());
 		logger.println("[CapsAnalysis]  - Best Perfomance : "
-				+ getReports().getBestPerformanceTestValue());
+				+ statistics.getBestPerformanceTestValue());
 		logger.println("[CapsAnalysis]  - Average Perfomance : "
-				+ getReports().getAverageOfPerformance());
+				+ statistics.getAverageOfPerformance());
 		logger.println("[CapsAnalysis] Execution Time :");
 		logger.println("[CapsAnalysis]  - Worst Execution Time : "
-				+ getReports().getWorstExecutionTimeTestValue());
+				+ statistics.getWorstExecutionTimeTestValue());
 		logger.println("[CapsAnalysis]  - Best Execution Time : "
-				+ getReports().getBestExecutionTimeTestValue());
+				+ statistics.getBestExecutionTimeTestValue());
 		logger.println("[CapsAnalysis]  - Average Execution Time : "
-				+ getReports().getAverageOfExecutionTime());
+				+ statistics.getAverageOfExecutionTime());
 		logger.println("[CapsAnalysis] Compile Time :");
 		logger.println("[CapsAnalysis]  - Worst Compile Time : "
-				+ getReports().getWorstCompileTimeTestValue());
+				+ statistics.getWorstCompileTimeTestValue());
 		logger.println("[CapsAnalysis]  - Best Compile Time : "
-				+ getReports().getBestCompileTimeTestValue());
+				+ statistics.getBestCompileTimeTestValue());
 		logger.println("[CapsAnalysis]  - Average Compile Time : "
-				+ getReports().getAverageOfCompileTime());
+				+ statistics.getAverageOfCompileTime());
 		logger
 				.println("[CapsAnalysis] [--------------------------------------------------]");
 	}
 
+	/**
+	 * Hands the parsed tests of a file to the index, and to the statistics
+	 * once the whole file has been parsed.
+	 */
+	private final class IndexingHandler implements ParserXml.TestHandler {
+		private final String file;
+		private final TestIndex.Writer writer;
+		private final TestStatistics fileStatistics = new TestStatistics();
+		private Report lastReport;
+		/**
+		 * Set if the index could not be written
+		 */
+		private IOException writeError;
+
+		IndexingHandler(String file, TestIndex.Writer writer) {
+			this.file = file;
+			this.writer = writer;
+		}
+
+		public void test(Report parsed, Test test) throws IOException {
+			parsed.setFile(file);
+			fileStatistics.add(parsed, test);
+			try {
+				writer.add(parsed, test);
+			} catch (IOException e) {
+				writeError = e;
+				throw e;
+			}
+		}
+
+		public void endReport(Report parsed) throws IOException {
+			parsed.setFile(file);
+			fileStatistics.addReport(parsed);
+			try {
+				writer.endReport(parsed);
+			} catch (IOException e) {
+				writeError = e;
+				throw e;
+			}
+			lastReport = parsed;
+		}
+
+		/**
+		 * Accounts for the file once it has been completely parsed.
+		 */
+		void commit() {
+			fileStatistics.addFile(file);
+			statistics.addAll(fileStatistics);
+			if (lastReport != null) {
+				report = lastReport;
+			}
+		}
+	}
+
 	public List<Test> getExecutedTests() {
 		if (this.executedTests == null || this.executedTests.size() == 0) {
-			this.executedTests = this.reports.getExecutedTests();
+			return getReports().getExecutedTests();
 		}
 		return this.executedTests;
 	}
@@ -240,8 +331,75 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 		return report;
 	}
 
-	public ReportContainer getReports() {
-		return reports;
+	/**
+	 * Gives all the tests of the build. Builds recorded with the test index
+	 * read them back from disk, so prefer {@link #getStatistics()} or
+	 * {@link #getTest(String)} when they are enough.
+	 * 
+	 * @return the reports
+	 */
+	public synchronized ReportContainer getReports() {
+		if (reports != null) {
+			return reports;
+		}
+		ReportContainer result = loadedReports == null ? null : loadedReports.get();
+		if (result == null) {
+			try {
+				result = getTestIndex().loadReports(getStatistics().getFiles());
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Failed to load the tests of " + build, e);
+				result = new ReportContainer();
+			}
+			loadedReports = new WeakReference<ReportContainer>(result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the global statistics of the build
+	 */
+	public synchronized TestStatistics getStatistics() {
+		if (statistics == null) {
+			// recorded before the statistics existed
+			statistics = TestStatistics.of(getReports());
+		}
+		return statistics;
+	}
+
+	/**
+	 * @return the sorted index of the tests of the build
+	 */
+	public synchronized TestIndex getTestIndex() {
+		if (testIndex == null) {
+			File dir = build.getRootDir();
+			try {
+				if (reports != null && !TestIndex.exists(dir)) {
+					// recorded before the index existed
+					testIndex = TestIndex.write(dir, reports);
+				} else {
+					testIndex = TestIndex.load(dir);
+				}
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Failed to load the test index of " + build, e);
+			}
+			if (testIndex == null) {
+				testIndex = TestIndex.empty();
+			}
+		}
+		return testIndex;
+	}
+
+	/**
+	 * @param name a test name
+	 * @return the first test with this name, or null
+	 */
+	public Test getTest(String name) {
+		try {
+			return getTestIndex().getTest(name);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to read test " + name + " of " + build, e);
+			return null;
+		}
 	}
 
 	public FileContainer getFiles() {
@@ -326,7 +484,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 		StringBuilder strbuilder = new StringBuilder();
 
 		strbuilder.append("Number of parsed files : <b>"
-				+ reports.getNumberOfFiles() + ".</b>");
+				+ getStatistics().getNumberOfFiles() + ".</b>");
 		strbuilder.append("<br />");
 		strbuilder.append("Number of executed tests : <b>"
 				+ this.getNumberOfExecutedTest() + ".</b>");
@@ -338,18 +496,11 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	public String getRegression() {
 
 		StringBuilder strb = new StringBuilder();
-		List<Test> regressions = new ArrayList<Test>();
 		if (this.getTrendReport() != null) {
-			List<Test> tmpTests = this.getTrendReport()
-					.getSuccessStatusChangedTests();
-			for (int i = 0; i < tmpTests.size(); i++) {
-				if (!tmpTests.get(i).isSuccessfull()) {
-					regressions.add(tmpTests.get(i));
-				}
-			}
-			if (!regressions.isEmpty()) {
+			int regressions = this.getTrendReport().getNumberOfRegressions();
+			if (regressions > 0) {
 				strb.append("<div class=\"warning_regression\">");
-				strb.append("This build has discovered " + regressions.size()
+				strb.append("This build has discovered " + regressions
 						+ " regression(s).");
 				strb.append("</div>");
 			}
@@ -406,7 +557,8 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 			PerfPublisherBuildAction ac = build
 					.getAction(PerfPublisherBuildAction.class);
 			if (ac != null) {
-				return new TrendReport(reports, ac.getReports());
+				return new TrendReport(getStatistics(), getTestIndex(), ac
+						.getStatistics(), ac.getTestIndex());
 			}
 		}
 		return null;
@@ -425,7 +577,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 		DefaultStatisticalCategoryDataset timeDS = new DefaultStatisticalCategoryDataset();
 		DataSetBuilder<String, Comparable> lengthDS = new DataSetBuilder<String, Comparable>();
 
-		for (Test test : report.getTests()) {
+		for (Test test : getReports().getReportOfThisFile(report.getFile()).getTests()) {
 			timeDS.add(test.getSuccess().getState(), test.getCompileTime()
 					.getMeasure(), "Report success state", test.getName());
 			lengthDS.add(test.getExecutionTime().getMeasure(),
@@ -484,41 +636,43 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 		Object resultat = null;
 		if (link.startsWith("testDetails.")) {
 			String testName = StringUtils.substringAfter(link, "testDetails.");
-			resultat = new TestDetails(getOwner(), reports.getTestWithName(Test
+			resultat = new TestDetails(getOwner(), getTest(Test
 					.ResolveTestNameInUrl(testName)));
 		} else if (link.startsWith("categoryDetails.")) {
 			int indiceCat = Integer.parseInt(StringUtils.substringAfter(link,
 					"categoryDetails."));
-			resultat = new CategoryDetails(getOwner(), reports
-					.getReportOfThisCategorie(reports.getCategories().get(
+			ReportContainer container = getReports();
+			resultat = new CategoryDetails(getOwner(), container
+					.getReportOfThisCategorie(container.getCategories().get(
 							indiceCat)));
 		} else if (link.startsWith("filesDetails.")) {
 			int indiceFil = Integer.parseInt(StringUtils.substringAfter(link,
 					"filesDetails."));
-			resultat = new FilesDetails(getOwner(), reports
-					.getReportOfThisFile(reports.getFiles().get(indiceFil)));
+			ReportContainer container = getReports();
+			resultat = new FilesDetails(getOwner(), container
+					.getReportOfThisFile(container.getFiles().get(indiceFil)));
 		} else if (link.startsWith("diff")) {
-			resultat = new DownloadDiff(getOwner(), reports);
+			resultat = new DownloadDiff(getOwner(), getReports());
 		} else if (link.startsWith("errorsDetails.")) {
 			String message = StringUtils.substringAfter(link, "errorsDetails.");
 			if (message.equals("all")) {
-				resultat = new ErrorsDetails(getOwner(), reports);
+				resultat = new ErrorsDetails(getOwner(), getReports());
 			} else {
-				resultat = new ErrorsDetails(getOwner(), reports);
+				resultat = new ErrorsDetails(getOwner(), getReports());
 			}
 		} else if (link.startsWith("validDetails.")) {
 			String message = StringUtils.substringAfter(link, "validDetails.");
 			if (message.equals("all")) {
-				resultat = new ValidDetails(getOwner(), reports);
+				resultat = new ValidDetails(getOwner(), getReports());
 			} else {
-				resultat = new ValidDetails(getOwner(), reports);
+				resultat = new ValidDetails(getOwner(), getReports());
 			}
 		} else if (link.startsWith("brokenDetails.")) {
 			String message = StringUtils.substringAfter(link, "brokenDetails.");
 			if (message.equals("all")) {
-				resultat = new BrokenDetails(getOwner(), reports);
+				resultat = new BrokenDetails(getOwner(), getReports());
 			} else {
-				resultat = new BrokenDetails(getOwner(), reports);
+				resultat = new BrokenDetails(getOwner(), getReports());
 			}
 		} else if (link.startsWith("newTestsDetails.")) {
 			String message = StringUtils.substringAfter(link,
@@ -557,16 +711,14 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 				AbstractBuild build1 = null;
 				AbstractBuild build2 = null;
 				AbstractBuild build3 = null;
-				ReportContainer report1 = null, report2 = null, report3 = null;
+				PerfPublisherBuildAction report1 = null, report2 = null, report3 = null;
 				if (!request.getParameter("build1").equals("none")) {
 					nb_build1 = Integer
 							.parseInt(request.getParameter("build1"));
 					build1 = build.getProject().getBuildByNumber(nb_build1);
 					PerfPublisherBuildAction ac = build1
 							.getAction(PerfPublisherBuildAction.class);
-					if (ac != null) {
-						report1 = ac.getReports();
-					}
+					report1 = ac;
 				}
 				if (!request.getParameter("build2").equals("none")) {
 					nb_build2 = Integer
@@ -574,9 +726,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 					build2 = build.getProject().getBuildByNumber(nb_build2);
 					PerfPublisherBuildAction ac2 = build2
 							.getAction(PerfPublisherBuildAction.class);
-					if (ac2 != null) {
-						report2 = ac2.getReports();
-					}
+					report2 = ac2;
 				}
 				if (!request.getParameter("build3").equals("none")) {
 					nb_build3 = Integer
@@ -584,9 +734,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 					build3 = build.getProject().getBuildByNumber(nb_build3);
 					PerfPublisherBuildAction ac3 = build3
 							.getAction(PerfPublisherBuildAction.class);
-					if (ac3 != null) {
-						report3 = ac3.getReports();
-					}
+					report3 = ac3;
 				}
 
 				resultat = new ReportsDiff(getOwner(), request, nb_build1,
@@ -617,7 +765,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 
 	public HealthReport getBuildHealth() {
 		return getHealthReportBuilder().computeHealth(healthDescriptor,
-				getReports());
+				getStatistics());
 	}
 
 	/**
@@ -632,7 +780,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public int getNumberOfTest() {
 		if (this.numberOfTest == -1 || this.numberOfTest == 0) {
-			this.numberOfTest = this.getReports().getNumberOfTest();
+			this.numberOfTest = this.getStatistics().getNumberOfTest();
 		}
 		return this.numberOfTest;
 	}
@@ -642,7 +790,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public int getNumberOfExecutedTest() {
 		if (this.numberOfExecutedTest == -1 || this.numberOfExecutedTest == 0) {
-			this.numberOfExecutedTest = this.getReports()
+			this.numberOfExecutedTest = this.getStatistics()
 					.getNumberOfExecutedTest();
 		}
 		return this.numberOfExecutedTest;
@@ -653,7 +801,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public double getPercentOfExecutedTest() {
 		if (this.percentOfExecutedTest == -1 || this.percentOfExecutedTest == 0) {
-			this.percentOfExecutedTest = this.getReports()
+			this.percentOfExecutedTest = this.getStatistics()
 					.getPercentOfExecutedTest();
 		}
 		return this.percentOfExecutedTest;
@@ -665,7 +813,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	public int getNumberOfNotExecutedTest() {
 		if (this.numberOfNotExecutedTest == -1
 				|| this.numberOfNotExecutedTest == 0) {
-			this.numberOfNotExecutedTest = this.getReports()
+			this.numberOfNotExecutedTest = this.getStatistics()
 					.getNumberOfNotExecutedTest();
 		}
 		return this.numberOfNotExecutedTest;
@@ -677,7 +825,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	public double getPercentOfNotExecutedTest() {
 		if (this.percentOfNotExecutedTest == -1
 				|| this.percentOfNotExecutedTest == 0) {
-			this.percentOfNotExecutedTest = this.getReports()
+			this.percentOfNotExecutedTest = this.getStatistics()
 					.getPercentOfNotExecutedTest();
 		}
 		return this.percentOfNotExecutedTest;
@@ -688,7 +836,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public int getNumberOfPassedTest() {
 		if (this.numberOfPassedTest == -1 || this.numberOfPassedTest == 0) {
-			this.numberOfPassedTest = this.getReports().getNumberOfPassedTest();
+			this.numberOfPassedTest = this.getStatistics().getNumberOfPassedTest();
 		}
 		return this.numberOfPassedTest;
 	}
@@ -698,7 +846,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public double getPercentOfPassedTest() {
 		if (this.percentOfPassedTest == -1 || this.percentOfPassedTest == 0) {
-			this.percentOfPassedTest = this.getReports()
+			this.percentOfPassedTest = this.getStatistics()
 					.getPercentOfPassedTest();
 		}
 		return this.percentOfPassedTest;
@@ -709,7 +857,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public int getNumberOfFailedTest() {
 		if (this.numberOfFailedTest == -1 || this.numberOfFailedTest == 0) {
-			this.numberOfFailedTest = this.getReports().getNumberOfFailedTest();
+			this.numberOfFailedTest = this.getStatistics().getNumberOfFailedTest();
 		}
 		return this.numberOfFailedTest;
 	}
@@ -719,7 +867,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public double getPercentOfFailedTest() {
 		if (this.percentOfFailedTest == -1 || this.percentOfFailedTest == 0) {
-			this.percentOfFailedTest = this.getReports()
+			this.percentOfFailedTest = this.getStatistics()
 					.getPercentOfFailedTest();
 		}
 		return this.percentOfFailedTest;
@@ -731,7 +879,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	public int getNumberOfCompileTimeTest() {
 		if (this.numberOfCompileTimeTest == -1
 				|| this.numberOfCompileTimeTest == 0) {
-			this.numberOfCompileTimeTest = this.getReports()
+			this.numberOfCompileTimeTest = this.getStatistics()
 					.getNumberOfCompileTimeTest();
 		}
 		return this.numberOfCompileTimeTest;
@@ -742,7 +890,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public double getAverageOfCompileTime() {
 		if (this.averageOfCompileTime == -1 || this.averageOfCompileTime == 0) {
-			this.averageOfCompileTime = this.getReports()
+			this.averageOfCompileTime = this.getStatistics()
 					.getAverageOfCompileTime();
 		}
 		return this.averageOfCompileTime;
@@ -754,7 +902,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	public int getNumberOfExecutionTimeTest() {
 		if (this.numberOfExecutionTimeTest == -1
 				|| this.numberOfExecutionTimeTest == 0) {
-			this.numberOfExecutionTimeTest = this.getReports()
+			this.numberOfExecutionTimeTest = this.getStatistics()
 					.getNumberOfExecutionTimeTest();
 		}
 		return this.numberOfExecutionTimeTest;
@@ -766,7 +914,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	public double getAverageOfExecutionTime() {
 		if (this.averageOfExecutionTime == -1
 				|| this.averageOfExecutionTime == 0) {
-			this.averageOfExecutionTime = this.getReports()
+			this.averageOfExecutionTime = this.getStatistics()
 					.getAverageOfExecutionTime();
 		}
 		return this.averageOfExecutionTime;
@@ -778,7 +926,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	public int getNumberOfPerformanceTest() {
 		if (this.numberOfPerformanceTest == -1
 				|| this.numberOfPerformanceTest == 0) {
-			this.numberOfPerformanceTest = this.getReports()
+			this.numberOfPerformanceTest = this.getStatistics()
 					.getNumberOfPerformanceTest();
 		}
 		return this.numberOfPerformanceTest;
@@ -789,7 +937,7 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 	 */
 	public double getAverageOfPerformance() {
 		if (this.averageOfPerformance == -1 || this.averageOfPerformance == 0) {
-			this.averageOfPerformance = this.getReports()
+			this.averageOfPerformance = this.getStatistics()
 					.getAverageOfPerformance();
 		}
 		return this.averageOfPerformance;
@@ -877,4 +1025,5 @@ public class PerfPublisherBuildAction extends AbstractPerfPublisherAction
 		return this.percentOfExecutionStatusChangedTests;
 	}
 
+	private static final Logger LOGGER = Logger.getLogger(PerfPublisherBuildAction.class.getName());
 }
@@ -163,14 +163,14 @@ public class PerfPublisherProjectAction extends AbstractPerfPublisherAction {
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getNumberOfFailedTest(), "Failed test",
 							new NumberOnlyBuildLabel(abstractBuild));
-					builder.add(action.getReports().getNumberOfPassedTest(),
+					builder.add(action.getStatistics().getNumberOfPassedTest(),
 							"Passed test", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getNumberOfNotExecutedTest(),
+					builder.add(action.getStatistics().getNumberOfNotExecutedTest(),
 							"Broken test", new NumberOnlyBuildLabel(
 									abstractBuild));
 					
@@ -221,14 +221,14 @@ public class PerfPublisherProjectAction extends AbstractPerfPublisherAction {
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports().getWorstPerformanceTestValue(),
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics().getWorstPerformanceTestValue(),
 							"Worst Performance", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getAverageOfPerformance(),
+					builder.add(action.getStatistics().getAverageOfPerformance(),
 							"Average Performance", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getBestPerformanceTestValue(), "Best Performance",
+					builder.add(action.getStatistics().getBestPerformanceTestValue(), "Best Performance",
 							new NumberOnlyBuildLabel(abstractBuild));
 				}
 			}
@@ -277,16 +277,16 @@ public class PerfPublisherProjectAction extends AbstractPerfPublisherAction {
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getWorstExecutionTimeTestValue(),
 							"Worst Execution Time", new NumberOnlyBuildLabel(
 									abstractBuild));
 					builder.add(
-							action.getReports().getAverageOfExecutionTime(),
+							action.getStatistics().getAverageOfExecutionTime(),
 							"Average Execution Time", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports()
+					builder.add(action.getStatistics()
 							.getBestExecutionTimeTestValue(),
 							"Best Execution Time", new NumberOnlyBuildLabel(
 									abstractBuild));
@@ -338,15 +338,15 @@ public class PerfPublisherProjectAction extends AbstractPerfPublisherAction {
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getWorstCompileTimeTestValue(),
 							"Worst Compile Time", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getAverageOfCompileTime(),
+					builder.add(action.getStatistics().getAverageOfCompileTime(),
 							"Average Compile Time", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports()
+					builder.add(action.getStatistics()
 							.getBestCompileTimeTestValue(),
 							"Best Compile Time", new NumberOnlyBuildLabel(
 									abstractBuild));
@@ -399,11 +399,11 @@ public class PerfPublisherProjectAction extends AbstractPerfPublisherAction {
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getNumberOfNotExecutedTest(), "Not executed test",
 							new NumberOnlyBuildLabel(abstractBuild));
-					builder.add(action.getReports().getNumberOfExecutedTest(),
+					builder.add(action.getStatistics().getNumberOfExecutedTest(),
 							"Executed test", new NumberOnlyBuildLabel(
 									abstractBuild));
 					
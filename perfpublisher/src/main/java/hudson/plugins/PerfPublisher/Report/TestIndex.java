@@ -0,0 +1,875 @@
+package hudson.plugins.PerfPublisher.Report;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk store of the tests of a build.
+ *
+ * The tests are written, as they are parsed, to a data file
+ * ({@link #DATA_FILE}) next to the build. A second file ({@link #INDEX_FILE})
+ * keeps the name, the status and the position of each test, sorted by name.
+ * Only this index is held in memory: a single test is read back with one
+ * seek, and two builds are compared by walking their sorted names side by
+ * side, without loading any test.
+ *
+ * The records of the data file are written field by field, see
+ * {@link #writeTest(DataOutput, Test)}, so the file does not depend on the
+ * Java serialization of the model classes.
+ */
+public class TestIndex {
+
+	public static final String DATA_FILE = "perfpublisher-tests.dat";
+	public static final String INDEX_FILE = "perfpublisher-tests.idx";
+
+	private static final int VERSION = 2;
+
+	/**
+	 * Record types of the data file
+	 */
+	private static final byte TEST_RECORD = 'T';
+	private static final byte REPORT_RECORD = 'R';
+
+	/**
+	 * Status flags of the index
+	 */
+	private static final byte EXECUTED = 1;
+	private static final byte SUCCESSFULL = 2;
+	private static final byte TIMED_OUT = 4;
+
+	private final File dataFile;
+	private final String[] names;
+	private final long[] offsets;
+	private final byte[] flags;
+
+	private TestIndex(File dataFile, String[] names, long[] offsets, byte[] flags) {
+		this.dataFile = dataFile;
+		this.names = names;
+		this.offsets = offsets;
+		this.flags = flags;
+	}
+
+	/**
+	 * @return an index without any test
+	 */
+	public static TestIndex empty() {
+		return new TestIndex(null, new String[0], new long[0], new byte[0]);
+	}
+
+	/**
+	 * @param dir the build directory
+	 * @return true if the build directory holds an index
+	 */
+	public static boolean exists(File dir) {
+		return new File(dir, INDEX_FILE).exists() && new File(dir, DATA_FILE).exists();
+	}
+
+	/**
+	 * Loads the index of a build.
+	 *
+	 * @param dir the build directory
+	 * @return the index, or null if the build has none
+	 * @throws IOException if the index can't be read
+	 */
+	public static TestIndex load(File dir) throws IOException {
+		if (!exists(dir)) {
+			return null;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(new File(dir, INDEX_FILE))));
+		try {
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported test index version " + version);
+			}
+			int size = in.readInt();
+			String[] names = new String[size];
+			long[] offsets = new long[size];
+			byte[] flags = new byte[size];
+			for (int i = 0; i < size; i++) {
+				names[i] = in.readUTF();
+				offsets[i] = in.readLong();
+				flags[i] = in.readByte();
+			}
+			return new TestIndex(new File(dir, DATA_FILE), names, offsets, flags);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Starts a new index, replacing the one of the build if any.
+	 *
+	 * @param dir the build directory
+	 * @return the writer to feed with the parsed tests
+	 * @throws IOException if the data file can't be created
+	 */
+	public static Writer create(File dir) throws IOException {
+		return new Writer(dir);
+	}
+
+	/**
+	 * Writes the index of an already loaded container, for the builds
+	 * recorded before the index existed.
+	 *
+	 * @param dir the build directory
+	 * @param container the reports of the build
+	 * @return the written index
+	 * @throws IOException if the index can't be written
+	 */
+	public static TestIndex write(File dir, ReportContainer container) throws IOException {
+		Writer writer = create(dir);
+		boolean done = false;
+		try {
+			for (Report report : container.getReports()) {
+				for (Test test : report.getTests()) {
+					writer.add(report, test);
+				}
+				writer.endReport(report);
+			}
+			done = true;
+		} finally {
+			if (!done) {
+				writer.abort();
+			}
+		}
+		return writer.close();
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * @return the names of the tests, sorted
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+
+	public String getName(int i) {
+		return names[i];
+	}
+
+	public boolean isExecuted(int i) {
+		return (flags[i] & EXECUTED) != 0;
+	}
+
+	public boolean isSuccessfull(int i) {
+		return (flags[i] & SUCCESSFULL) != 0;
+	}
+
+	public boolean isHasTimedOut(int i) {
+		return (flags[i] & TIMED_OUT) != 0;
+	}
+
+	/**
+	 * @param name a test name
+	 * @return the position of the first test with this name, or -1
+	 */
+	public int indexOf(String name) {
+		int low = 0;
+		int high = names.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (names[mid].compareTo(name) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low < names.length && names[low].equals(name)) {
+			return low;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param name a test name
+	 * @return the first test with this name, or null
+	 * @throws IOException if the test can't be read
+	 */
+	public Test getTest(String name) throws IOException {
+		int i = indexOf(name);
+		if (i < 0) {
+			return null;
+		}
+		return getTest(i);
+	}
+
+	/**
+	 * Reads one test from the data file.
+	 *
+	 * @param i the position of the test in the index
+	 * @return the test
+	 * @throws IOException if the test can't be read
+	 */
+	public Test getTest(int i) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(dataFile, "r");
+		try {
+			file.seek(offsets[i]);
+			file.readByte();
+			file.readInt();
+			byte[] data = new byte[file.readInt()];
+			file.readFully(data);
+			return readTest(recordOf(data));
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Reads the tests at the given positions, in the order of the data file.
+	 *
+	 * @param positions positions in the index
+	 * @return the tests
+	 * @throws IOException if a test can't be read
+	 */
+	public List<Test> getTests(List<Integer> positions) throws IOException {
+		List<Test> result = new ArrayList<Test>(positions.size());
+		if (positions.isEmpty()) {
+			return result;
+		}
+		Integer[] sorted = positions.toArray(new Integer[positions.size()]);
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return offsets[a] < offsets[b] ? -1 : (offsets[a] == offsets[b] ? 0 : 1);
+			}
+		});
+		RandomAccessFile file = new RandomAccessFile(dataFile, "r");
+		try {
+			for (Integer i : sorted) {
+				file.seek(offsets[i]);
+				file.readByte();
+				file.readInt();
+				byte[] data = new byte[file.readInt()];
+				file.readFully(data);
+				result.add(readTest(recordOf(data)));
+			}
+		} finally {
+			file.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Rebuilds the whole report graph of the build with one sequential read
+	 * of the data file. Only needed by the pages which browse every test.
+	 *
+	 * @param files the parsed files
+	 * @return the reports
+	 * @throws IOException if the data file can't be read
+	 */
+	public ReportContainer loadReports(List<String> files) throws IOException {
+		Map<Integer, Report> headers = new TreeMap<Integer, Report>();
+		Map<Integer, ArrayList<Test>> tests = new TreeMap<Integer, ArrayList<Test>>();
+		if (dataFile != null) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(dataFile)));
+			try {
+				while (true) {
+					byte type;
+					try {
+						type = in.readByte();
+					} catch (EOFException e) {
+						break;
+					}
+					Integer ordinal = in.readInt();
+					byte[] data = new byte[in.readInt()];
+					in.readFully(data);
+					if (type == REPORT_RECORD) {
+						headers.put(ordinal, readReport(recordOf(data)));
+					} else {
+						ArrayList<Test> list = tests.get(ordinal);
+						if (list == null) {
+							list = new ArrayList<Test>();
+							tests.put(ordinal, list);
+						}
+						list.add(readTest(recordOf(data)));
+					}
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		ReportContainer result = new ReportContainer();
+		for (Map.Entry<Integer, Report> header : headers.entrySet()) {
+			ArrayList<Test> list = tests.get(header.getKey());
+			if (list != null) {
+				header.getValue().setTests(list);
+			}
+			result.addReport(header.getValue(), false);
+		}
+		for (String file : files) {
+			result.addFile(file);
+		}
+		result.computeStats();
+		return result;
+	}
+
+	private static byte flagsOf(Test test) {
+		byte result = 0;
+		if (test.isExecuted()) {
+			result |= EXECUTED;
+		}
+		if (test.isSuccessfull()) {
+			result |= SUCCESSFULL;
+		}
+		if (test.isHasTimedOut()) {
+			result |= TIMED_OUT;
+		}
+		return result;
+	}
+
+	/*
+	 * Record format. The fields are written one by one in a fixed order.
+	 * Strings, lists and optional parts may be null: they are written with
+	 * a length of -1 or a presence flag.
+	 */
+
+	private static DataInput recordOf(byte[] data) {
+		return new DataInputStream(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Writes the header of a report, without its tests.
+	 */
+	static void writeReport(DataOutput out, Report report) throws IOException {
+		writeString(out, report.getName());
+		writeString(out, report.getCategorie());
+		writeString(out, report.getFile());
+		writeString(out, report.getStartDate());
+		writeString(out, report.getStartDateFormat());
+		writeString(out, report.getStartTime());
+		writeString(out, report.getStartTimeFormat());
+		writeString(out, report.getEndDate());
+		writeString(out, report.getEndDateFormat());
+		writeString(out, report.getEndTime());
+		writeString(out, report.getEndTimeFormat());
+	}
+
+	static Report readReport(DataInput in) throws IOException {
+		Report result = new Report();
+		result.setName(readString(in));
+		result.setCategorie(readString(in));
+		result.setFile(readString(in));
+		result.setStartDate(readString(in));
+		result.setStartDateFormat(readString(in));
+		result.setStartTime(readString(in));
+		result.setStartTimeFormat(readString(in));
+		result.setEndDate(readString(in));
+		result.setEndDateFormat(readString(in));
+		result.setEndTime(readString(in));
+		result.setEndTimeFormat(readString(in));
+		return result;
+	}
+
+	static void writeTest(DataOutput out, Test test) throws IOException {
+		writeString(out, test.getName());
+		writeString(out, test.getDescription());
+		writeString(out, test.getMessage());
+		out.writeBoolean(test.isExecuted());
+		out.writeBoolean(test.isSuccess());
+		out.writeBoolean(test.isCompileTime());
+		out.writeBoolean(test.isExecutionTime());
+		out.writeBoolean(test.isPerformance());
+
+		List<Target> targets = test.getTargets();
+		if (writeSize(out, targets)) {
+			for (Target target : targets) {
+				writeString(out, target.getName());
+				out.writeBoolean(Boolean.TRUE.equals(target.isThreaded()));
+			}
+		}
+		List<Source> sources = test.getSources();
+		if (writeSize(out, sources)) {
+			for (Source source : sources) {
+				writeString(out, source.getComment());
+				writeString(out, source.getPath());
+				writeString(out, source.getLanguage());
+				writeString(out, source.getSource());
+			}
+		}
+		writeDataSet(out, test.getDataSetIn());
+		writeDataSet(out, test.getDataSetOut());
+		List<CommandLine> commandLines = test.getCommandLine();
+		if (writeSize(out, commandLines)) {
+			for (CommandLine commandLine : commandLines) {
+				writeString(out, commandLine.getTime());
+				writeString(out, commandLine.getCommand());
+			}
+		}
+		List<Param> parameters = test.getParameters();
+		if (writeSize(out, parameters)) {
+			for (Param parameter : parameters) {
+				writeString(out, parameter.getName());
+				writeString(out, parameter.getValue());
+			}
+		}
+
+		Success success = test.getSuccess();
+		out.writeBoolean(success != null);
+		if (success != null) {
+			out.writeBoolean(success.isPassed());
+			out.writeFloat(success.getState());
+			out.writeBoolean(success.isHasTimedOut());
+		}
+		CompileTime compileTime = test.getCompileTime();
+		out.writeBoolean(compileTime != null);
+		if (compileTime != null) {
+			writeString(out, compileTime.getUnit());
+			out.writeDouble(compileTime.getMeasure());
+			out.writeBoolean(compileTime.isRelevant());
+		}
+		ExecutionTime executionTime = test.getExecutionTime();
+		out.writeBoolean(executionTime != null);
+		if (executionTime != null) {
+			writeString(out, executionTime.getUnit());
+			out.writeDouble(executionTime.getMeasure());
+			out.writeBoolean(executionTime.isRelevant());
+		}
+		Performance performance = test.getPerformance();
+		out.writeBoolean(performance != null);
+		if (performance != null) {
+			writeString(out, performance.getUnit());
+			out.writeDouble(performance.getMeasure());
+			out.writeBoolean(performance.isRelevant());
+		}
+
+		List<Log> logs = test.getLogs();
+		if (writeSize(out, logs)) {
+			for (Log log : logs) {
+				writeString(out, log.getName());
+				writeString(out, log.getLog());
+			}
+		}
+		writePlatform(out, test.getPlateforme());
+	}
+
+	static Test readTest(DataInput in) throws IOException {
+		Test result = new Test();
+		result.setName(readString(in));
+		result.setDescription(readString(in));
+		result.setMessage(readString(in));
+		result.setExecuted(in.readBoolean());
+		result.setIsSuccess(in.readBoolean());
+		result.setIsCompileTime(in.readBoolean());
+		result.setIsExecutionTime(in.readBoolean());
+		result.setIsPerformance(in.readBoolean());
+
+		int size = in.readInt();
+		ArrayList<Target> targets = size < 0 ? null : new ArrayList<Target>(size);
+		for (int i = 0; i < size; i++) {
+			targets.add(new Target(readString(in), in.readBoolean()));
+		}
+		result.setTargets(targets);
+		size = in.readInt();
+		ArrayList<Source> sources = size < 0 ? null : new ArrayList<Source>(size);
+		for (int i = 0; i < size; i++) {
+			Source source = new Source();
+			source.setComment(readString(in));
+			source.setPath(readString(in));
+			source.setLanguage(readString(in));
+			source.setSource(readString(in));
+			sources.add(source);
+		}
+		result.setSources(sources);
+		result.setDataSetIn(readDataSet(in));
+		result.setDataSetOut(readDataSet(in));
+		size = in.readInt();
+		ArrayList<CommandLine> commandLines = size < 0 ? null : new ArrayList<CommandLine>(size);
+		for (int i = 0; i < size; i++) {
+			CommandLine commandLine = new CommandLine();
+			commandLine.setTime(readString(in));
+			commandLine.setCommand(readString(in));
+			commandLines.add(commandLine);
+		}
+		result.setCommandLine(commandLines);
+		size = in.readInt();
+		ArrayList<Param> parameters = size < 0 ? null : new ArrayList<Param>(size);
+		for (int i = 0; i < size; i++) {
+			Param parameter = new Param();
+			parameter.setName(readString(in));
+			parameter.setValue(readString(in));
+			parameters.add(parameter);
+		}
+		result.setParameters(parameters);
+
+		Success success = null;
+		if (in.readBoolean()) {
+			success = new Success();
+			success.setPassed(in.readBoolean());
+			success.setState(in.readFloat());
+			success.setHasTimedOut(in.readBoolean());
+		}
+		result.setSuccess(success);
+		CompileTime compileTime = null;
+		if (in.readBoolean()) {
+			compileTime = new CompileTime();
+			compileTime.setUnit(readString(in));
+			compileTime.setMeasure(in.readDouble());
+			compileTime.setRelevant(in.readBoolean());
+		}
+		result.setCompileTime(compileTime);
+		ExecutionTime executionTime = null;
+		if (in.readBoolean()) {
+			executionTime = new ExecutionTime();
+			executionTime.setUnit(readString(in));
+			executionTime.setMeasure(in.readDouble());
+			executionTime.setRelevant(in.readBoolean());
+		}
+		result.setExecutionTime(executionTime);
+		Performance performance = null;
+		if (in.readBoolean()) {
+			performance = new Performance();
+			performance.setUnit(readString(in));
+			performance.setMeasure(in.readDouble());
+			performance.setRelevant(in.readBoolean());
+		}
+		result.setPerformance(performance);
+
+		size = in.readInt();
+		ArrayList<Log> logs = size < 0 ? null : new ArrayList<Log>(size);
+		for (int i = 0; i < size; i++) {
+			logs.add(new Log(readString(in), readString(in)));
+		}
+		result.setLogs(logs);
+		result.setPlateforme(readPlatform(in));
+		return result;
+	}
+
+	private static void writeDataSet(DataOutput out, DataSet dataSet) throws IOException {
+		out.writeBoolean(dataSet != null);
+		if (dataSet != null) {
+			writeString(out, dataSet.getPath());
+			writeString(out, dataSet.getType());
+		}
+	}
+
+	private static DataSet readDataSet(DataInput in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		DataSet result = new DataSet();
+		result.setPath(readString(in));
+		result.setType(readString(in));
+		return result;
+	}
+
+	private static void writePlatform(DataOutput out, Platform platform) throws IOException {
+		out.writeBoolean(platform != null);
+		if (platform == null) {
+			return;
+		}
+		writeString(out, platform.getName());
+		out.writeBoolean(platform.isRemote());
+		out.writeBoolean(platform.isCapspool());
+		writeString(out, platform.getOsType());
+		writeString(out, platform.getOsName());
+		writeString(out, platform.getOsVersion());
+		writeString(out, platform.getOsDistribution());
+		List<Hardware> hardwares = platform.getHardwares();
+		if (writeSize(out, hardwares)) {
+			for (Hardware hardware : hardwares) {
+				out.writeBoolean(hardware.isHwa());
+				writeString(out, hardware.getName());
+			}
+		}
+		List<Compiler> compilers = platform.getCompilers();
+		if (writeSize(out, compilers)) {
+			for (Compiler compiler : compilers) {
+				writeString(out, compiler.getName());
+				writeString(out, compiler.getVersion());
+				writeString(out, compiler.getPath());
+			}
+		}
+		Processor processor = platform.getProcessor();
+		out.writeBoolean(processor != null);
+		if (processor != null) {
+			writeString(out, processor.getProcArch());
+			writeString(out, processor.getProcFreq());
+			writeString(out, processor.getProcFreqUnit());
+			List<Core> cores = processor.getCores();
+			if (writeSize(out, cores)) {
+				for (Core core : cores) {
+					out.writeInt(core.getProc());
+					out.writeInt(core.getCoreid());
+					out.writeInt(core.getPhysid());
+				}
+			}
+		}
+	}
+
+	private static Platform readPlatform(DataInput in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		Platform result = new Platform();
+		result.setName(readString(in));
+		result.setRemote(in.readBoolean());
+		result.setCapspool(in.readBoolean());
+		result.setOsType(readString(in));
+		result.setOsName(readString(in));
+		result.setOsVersion(readString(in));
+		result.setOsDistribution(readString(in));
+		int size = in.readInt();
+		ArrayList<Hardware> hardwares = size < 0 ? null : new ArrayList<Hardware>(size);
+		for (int i = 0; i < size; i++) {
+			hardwares.add(new Hardware(in.readBoolean(), readString(in)));
+		}
+		result.setHardwares(hardwares);
+		size = in.readInt();
+		ArrayList<Compiler> compilers = size < 0 ? null : new ArrayList<Compiler>(size);
+		for (int i = 0; i < size; i++) {
+			compilers.add(new Compiler(readString(in), readString(in), readString(in)));
+		}
+		result.setCompilers(compilers);
+		Processor processor = null;
+		if (in.readBoolean()) {
+			processor = new Processor();
+			processor.setProcArch(readString(in));
+			processor.setProcFreq(readString(in));
+			processor.setProcFreqUnit(readString(in));
+			size = in.readInt();
+			ArrayList<Core> cores = size < 0 ? null : new ArrayList<Core>(size);
+			for (int i = 0; i < size; i++) {
+				cores.add(new Core(in.readInt(), in.readInt(), in.readInt()));
+			}
+			processor.setCores(cores);
+		}
+		result.setProcessor(processor);
+		return result;
+	}
+
+	/**
+	 * @return true if the list is not null, and its elements must follow
+	 */
+	private static boolean writeSize(DataOutput out, List<?> list) throws IOException {
+		out.writeInt(list == null ? -1 : list.size());
+		return list != null;
+	}
+
+	/**
+	 * Unlike {@link DataOutput#writeUTF(String)}, not limited to 64KB, the
+	 * logs and sources of a test can be longer.
+	 */
+	private static void writeString(DataOutput out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/**
+	 * Appends the tests to the data file while they are parsed, and writes
+	 * the sorted index when closed.
+	 */
+	public static final class Writer {
+
+		private final File dir;
+		private final FileOutputStream file;
+		private final DataOutputStream out;
+		private long position;
+
+		/**
+		 * Holds the current record until its length is known
+		 */
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final DataOutputStream record = new DataOutputStream(buffer);
+
+		private final Map<Report, Integer> ordinals = new IdentityHashMap<Report, Integer>();
+
+		private final ArrayList<Entry> entries = new ArrayList<Entry>();
+
+		/**
+		 * State at the last {@link #mark()}
+		 */
+		private long markedPosition;
+		private int markedEntries;
+		private int markedOrdinals;
+
+		private Writer(File dir) throws IOException {
+			this.dir = dir;
+			new File(dir, INDEX_FILE).delete();
+			this.file = new FileOutputStream(new File(dir, DATA_FILE));
+			this.out = new DataOutputStream(new BufferedOutputStream(file));
+		}
+
+		/**
+		 * Remembers what has been written so far, typically before a file is
+		 * parsed, so that its tests can be dropped if it turns out to be
+		 * broken.
+		 */
+		public void mark() {
+			markedPosition = position;
+			markedEntries = entries.size();
+			markedOrdinals = ordinals.size();
+		}
+
+		/**
+		 * Drops the tests and reports written since the last {@link #mark()}.
+		 *
+		 * @throws IOException if the data file can't be truncated
+		 */
+		public void rollback() throws IOException {
+			out.flush();
+			FileChannel channel = file.getChannel();
+			channel.truncate(markedPosition);
+			channel.position(markedPosition);
+			position = markedPosition;
+			entries.subList(markedEntries, entries.size()).clear();
+			for (Iterator<Integer> i = ordinals.values().iterator(); i.hasNext();) {
+				if (i.next() >= markedOrdinals) {
+					i.remove();
+				}
+			}
+		}
+
+		/**
+		 * @param report the report the test belongs to
+		 * @param test a parsed test
+		 * @throws IOException if the test can't be written
+		 */
+		public void add(Report report, Test test) throws IOException {
+			entries.add(new Entry(test.getName() == null ? "" : test.getName(), position, flagsOf(test)));
+			buffer.reset();
+			writeTest(record, test);
+			write(TEST_RECORD, ordinalOf(report));
+		}
+
+		/**
+		 * Writes the header of a report once all its tests are written.
+		 *
+		 * @param report a parsed report
+		 * @throws IOException if the header can't be written
+		 */
+		public void endReport(Report report) throws IOException {
+			buffer.reset();
+			writeReport(record, report);
+			write(REPORT_RECORD, ordinalOf(report));
+		}
+
+		/**
+		 * Ends the data file and writes the index.
+		 *
+		 * @return the index
+		 * @throws IOException if the index can't be written
+		 */
+		public TestIndex close() throws IOException {
+			out.close();
+
+			Collections.sort(entries);
+			int size = entries.size();
+			String[] names = new String[size];
+			long[] offsets = new long[size];
+			byte[] flags = new byte[size];
+			DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(new File(dir, INDEX_FILE))));
+			try {
+				index.writeInt(VERSION);
+				index.writeInt(size);
+				for (int i = 0; i < size; i++) {
+					Entry entry = entries.get(i);
+					names[i] = entry.name;
+					offsets[i] = entry.offset;
+					flags[i] = entry.flags;
+					index.writeUTF(entry.name);
+					index.writeLong(entry.offset);
+					index.writeByte(entry.flags);
+				}
+			} finally {
+				index.close();
+			}
+			return new TestIndex(new File(dir, DATA_FILE), names, offsets, flags);
+		}
+
+		/**
+		 * Drops an index which could not be completed.
+		 */
+		public void abort() {
+			try {
+				out.close();
+			} catch (IOException e) {
+				// nothing more to do, the file is deleted anyway
+			}
+			new File(dir, DATA_FILE).delete();
+		}
+
+		private int ordinalOf(Report report) {
+			Integer ordinal = ordinals.get(report);
+			if (ordinal == null) {
+				ordinal = ordinals.size();
+				ordinals.put(report, ordinal);
+			}
+			return ordinal;
+		}
+
+		private void write(byte type, int ordinal) throws IOException {
+			record.flush();
+			out.writeByte(type);
+			out.writeInt(ordinal);
+			out.writeInt(buffer.size());
+			buffer.writeTo(out);
+			position += 1 + 4 + 4 + buffer.size();
+		}
+	}
+
+	/**
+	 * An index line before sorting
+	 */
+	private static final class Entry implements Comparable<Entry> {
+		private final String name;
+		private final long offset;
+		private final byte flags;
+
+		Entry(String name, long offset, byte flags) {
+			this.name = name;
+			this.offset = offset;
+			this.flags = flags;
+		}
+
+		public int compareTo(Entry other) {
+			int result = name.compareTo(other.name);
+			if (result != 0) {
+				return result;
+			}
+			return offset < other.offset ? -1 : (offset == other.offset ? 0 : 1);
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package hudson.plugins.PerfPublisher.Report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Global statistics of the tests of a build, computed in a single pass while
+ * the reports are parsed.
+ *
+ * The getters have the same names and give the same results as the ones of
+ * {@link ReportContainer}, but this class does not keep any test, so it is
+ * small enough to be stored with the build.
+ */
+public class TestStatistics {
+
+	private int numberOfTest;
+	private int numberOfExecutedTest;
+	private int numberOfPassedTest;
+	private int numberOfFailedTest;
+	private int numberOfTrueFalseTest;
+
+	private final Measure compileTime = new Measure(false);
+	private final Measure executionTime = new Measure(false);
+	private final Measure performance = new Measure(true);
+
+	private final ArrayList<String> categories = new ArrayList<String>();
+	private final ArrayList<Integer> testsByCategory = new ArrayList<Integer>();
+	private final ArrayList<String> files = new ArrayList<String>();
+
+	/**
+	 * Computes the statistics of an already loaded container.
+	 *
+	 * @param container the reports
+	 * @return the statistics
+	 */
+	public static TestStatistics of(ReportContainer container) {
+		TestStatistics result = new TestStatistics();
+		for (Report report : container.getReports()) {
+			result.addReport(report);
+			for (Test test : report.getTests()) {
+				result.add(report, test);
+			}
+		}
+		for (String file : container.getFiles()) {
+			result.addFile(file);
+		}
+		return result;
+	}
+
+	/**
+	 * Round a double with n decimals
+	 *
+	 * @param a
+	 *            value to convert
+	 * @param n
+	 *            Number of decimals
+	 * @return the rounded number
+	 */
+	public static double floor(double a, int n) {
+		double p = Math.pow(10.0, n);
+		return Math.floor((a * p) + 0.5) / p;
+	}
+
+	/**
+	 * Registers the category of a report, even if it has no test.
+	 *
+	 * @param report the report
+	 */
+	public void addReport(Report report) {
+		categoryIndex(report.getCategorie());
+	}
+
+	/**
+	 * Accounts for one test.
+	 *
+	 * @param report the report the test belongs to
+	 * @param test the test
+	 */
+	public void add(Report report, Test test) {
+		int category = categoryIndex(report.getCategorie());
+		testsByCategory.set(category, testsByCategory.get(category) + 1);
+
+		numberOfTest++;
+		if (!test.isExecuted()) {
+			return;
+		}
+		numberOfExecutedTest++;
+		if (test.isSuccessfull()) {
+			numberOfPassedTest++;
+		} else {
+			numberOfFailedTest++;
+		}
+		if (test.isSuccess()) {
+			numberOfTrueFalseTest++;
+		}
+		if (test.isCompileTime() && test.getCompileTime().isRelevant()) {
+			compileTime.add(test.getName(), test.getCompileTime().getMeasure());
+		}
+		if (test.isExecutionTime() && test.getExecutionTime().isRelevant()) {
+			executionTime.add(test.getName(), test.getExecutionTime().getMeasure());
+		}
+		if (test.isPerformance() && test.getPerformance().isRelevant()) {
+			performance.add(test.getName(), test.getPerformance().getMeasure());
+		}
+	}
+
+	/**
+	 * @param file a parsed file
+	 */
+	public void addFile(String file) {
+		files.add(file);
+	}
+
+	/**
+	 * Accounts for the tests and files of other statistics, as if they had
+	 * been added after the ones of these statistics.
+	 *
+	 * @param other the statistics to add
+	 */
+	public void addAll(TestStatistics other) {
+		numberOfTest += other.numberOfTest;
+		numberOfExecutedTest += other.numberOfExecutedTest;
+		numberOfPassedTest += other.numberOfPassedTest;
+		numberOfFailedTest += other.numberOfFailedTest;
+		numberOfTrueFalseTest += other.numberOfTrueFalseTest;
+		compileTime.addAll(other.compileTime);
+		executionTime.addAll(other.executionTime);
+		performance.addAll(other.performance);
+		for (int i = 0; i < other.categories.size(); i++) {
+			int category = categoryIndex(other.categories.get(i));
+			testsByCategory.set(category, testsByCategory.get(category) + other.testsByCategory.get(i));
+		}
+		files.addAll(other.files);
+	}
+
+	/**
+	 * Categories are merged regardless of their case, as in
+	 * {@link ReportContainer#getReportOfThisCategorie(String)}.
+	 */
+	private int categoryIndex(String category) {
+		for (int i = 0; i < categories.size(); i++) {
+			String current = categories.get(i);
+			if (current == null ? category == null : current.equalsIgnoreCase(category)) {
+				return i;
+			}
+		}
+		categories.add(category);
+		testsByCategory.add(0);
+		return categories.size() - 1;
+	}
+
+	/**
+	 * The reports of a same category are merged into one, as in
+	 * {@link ReportContainer#addReport(Report)}.
+	 *
+	 * @return the number of reports of the container
+	 */
+	public int getNumberOfReports() {
+		return categories.size();
+	}
+
+	public int getNumberOfTest() {
+		return numberOfTest;
+	}
+
+	public int getNumberOfExecutedTest() {
+		return numberOfExecutedTest;
+	}
+
+	public int getNumberOfNotExecutedTest() {
+		return numberOfTest - numberOfExecutedTest;
+	}
+
+	public int getNumberOfPassedTest() {
+		return numberOfPassedTest;
+	}
+
+	public int getNumberOfFailedTest() {
+		return numberOfFailedTest;
+	}
+
+	public double getPercentOfExecutedTest() {
+		return floor(((double) numberOfExecutedTest / numberOfTest) * 100, 2);
+	}
+
+	public double getPercentOfNotExecutedTest() {
+		return floor(100 - getPercentOfExecutedTest(), 2);
+	}
+
+	public double getPercentOfPassedTest() {
+		return floor(((double) numberOfPassedTest / numberOfTrueFalseTest) * 100, 2);
+	}
+
+	public double getPercentOfFailedTest() {
+		return floor(((double) numberOfFailedTest / numberOfTrueFalseTest) * 100, 2);
+	}
+
+	public boolean isPercentOfFailedTestLowFifteen() {
+		return (getPercentOfFailedTest() < 15);
+	}
+
+	public boolean isPercentOfFailedTestSupFifteen() {
+		return (getPercentOfFailedTest() >= 15);
+	}
+
+	/**
+	 * COMPILE TIME STATISTICS
+	 */
+	public int getNumberOfCompileTimeTest() {
+		return compileTime.count;
+	}
+
+	public double getAverageOfCompileTime() {
+		return compileTime.getAverage();
+	}
+
+	public double getBestCompileTimeTestValue() {
+		return compileTime.bestValue;
+	}
+
+	public String getBestCompileTimeTestName() {
+		return compileTime.bestName;
+	}
+
+	public double getWorstCompileTimeTestValue() {
+		return compileTime.worstValue;
+	}
+
+	public String getWorstCompileTimeTestName() {
+		return compileTime.worstName;
+	}
+
+	/**
+	 * EXECUTION TIME STATISTICS
+	 */
+	public int getNumberOfExecutionTimeTest() {
+		return executionTime.count;
+	}
+
+	public double getAverageOfExecutionTime() {
+		return executionTime.getAverage();
+	}
+
+	public double getBestExecutionTimeTestValue() {
+		return executionTime.bestValue;
+	}
+
+	public String getBestExecutionTimeTestName() {
+		return executionTime.bestName;
+	}
+
+	public double getWorstExecutionTimeTestValue() {
+		return executionTime.worstValue;
+	}
+
+	public String getWorstExecutionTimeTestName() {
+		return executionTime.worstName;
+	}
+
+	/**
+	 * PERFORMANCE STATISTICS
+	 */
+	public int getNumberOfPerformanceTest() {
+		return performance.count;
+	}
+
+	public double getAverageOfPerformance() {
+		return performance.getAverage();
+	}
+
+	public double getBestPerformanceTestValue() {
+		return performance.bestValue;
+	}
+
+	public String getBestPerformanceTestName() {
+		return performance.bestName;
+	}
+
+	public double getWorstPerformanceTestValue() {
+		return performance.worstValue;
+	}
+
+	public String getWorstPerformanceTestName() {
+		return performance.worstName;
+	}
+
+	public List<String> getCategories() {
+		return Collections.unmodifiableList(categories);
+	}
+
+	/**
+	 * @param category a category, regardless of its case
+	 * @return the number of tests of the category
+	 */
+	public int getNumberOfTestOfCategory(String category) {
+		for (int i = 0; i < categories.size(); i++) {
+			String current = categories.get(i);
+			if (current == null ? category == null : current.equalsIgnoreCase(category)) {
+				return testsByCategory.get(i);
+			}
+		}
+		return 0;
+	}
+
+	public List<String> getFiles() {
+		return Collections.unmodifiableList(files);
+	}
+
+	public int getNumberOfFiles() {
+		return files.size();
+	}
+
+	/**
+	 * Running count, sum, best and worst of one kind of measure.
+	 */
+	private static final class Measure {
+		/**
+		 * True for performances, false for times.
+		 */
+		private final boolean higherIsBetter;
+		private int count;
+		private double sum;
+		private double bestValue;
+		private String bestName;
+		private double worstValue;
+		private String worstName;
+
+		Measure(boolean higherIsBetter) {
+			this.higherIsBetter = higherIsBetter;
+		}
+
+		/**
+		 * Ties are resolved as in {@link ReportContainer}: the last best
+		 * and the first worst test win.
+		 */
+		void add(String name, double value) {
+			if (count == 0
+					|| (higherIsBetter ? bestValue <= value : bestValue >= value)) {
+				bestValue = value;
+				bestName = name;
+			}
+			if (count == 0
+					|| (higherIsBetter ? worstValue > value : worstValue < value)) {
+				worstValue = value;
+				worstName = name;
+			}
+			sum += value;
+			count++;
+		}
+
+		/**
+		 * Same as adding the values of the other measure one by one.
+		 */
+		void addAll(Measure other) {
+			if (other.count == 0) {
+				return;
+			}
+			if (count == 0
+					|| (higherIsBetter ? bestValue <= other.bestValue : bestValue >= other.bestValue)) {
+				bestValue = other.bestValue;
+				bestName = other.bestName;
+			}
+			if (count == 0
+					|| (higherIsBetter ? worstValue > other.worstValue : worstValue < other.worstValue)) {
+				worstValue = other.worstValue;
+				worstName = other.worstName;
+			}
+			sum += other.sum;
+			count += other.count;
+		}
+
+		double getAverage() {
+			if (count != 0) {
+				return floor(sum / count, 2);
+			} else {
+				return 0;
+			}
+		}
+	}
+}
@@ -39,11 +39,28 @@ public class ReportReader {
 	 *             Thrown if the parsing fails.
 	 */
 	public ReportReader(URI is, PrintStream logger) {
+		this(is, logger, null);
+	}
+
+	/**
+	 * Construct a result reader which hands each test to a handler as soon
+	 * as it is parsed, instead of keeping it in the report.
+	 * 
+	 * @param is
+	 *            The input stream giving the out log file.
+	 * @param logger
+	 *            Logger to print messages to.
+	 * @param handler
+	 *            Receives the parsed tests, may be null.
+	 * @throws PerfPublisherParseException
+	 *             Thrown if the parsing fails.
+	 */
+	public ReportReader(URI is, PrintStream logger, ParserXml.TestHandler handler) {
 		hudsonConsoleWriter = logger;
-		parse(is);
+		parse(is, handler);
 	}
 
-	private void parse(URI is) {
+	private void parse(URI is, ParserXml.TestHandler handler) {
 		if (is == null) {
 			throw new PerfPublisherParseException("Empty input stream");
 		}
@@ -51,7 +68,7 @@ public class ReportReader {
 			report = new Report();
 		}		
 		try {
-			ParserXml parseur = new ParserXml(is);
+			ParserXml parseur = new ParserXml(is, handler);
 			parseur.parse();
 			report = parseur.result();
 		} catch (IOException e) {
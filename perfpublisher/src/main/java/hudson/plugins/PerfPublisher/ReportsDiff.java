@@ -27,8 +27,9 @@ import hudson.model.ModelObject;
 import hudson.model.AbstractBuild;
 import hudson.model.Result;
 import hudson.plugins.PerfPublisher.Report.Report;
-import hudson.plugins.PerfPublisher.Report.ReportContainer;
 import hudson.plugins.PerfPublisher.Report.Test;
+import hudson.plugins.PerfPublisher.Report.TestIndex;
+import hudson.plugins.PerfPublisher.Report.TestStatistics;
 import hudson.util.ChartUtil;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
@@ -47,11 +48,14 @@ public class ReportsDiff implements ModelObject {
 	private final AbstractBuild<?, ?> _owner;
 
 	/**
-	 * The 2 reports to compare
+	 * The 3 reports to compare
 	 */
-	private ReportContainer report1;
-	private ReportContainer report2;
-	private ReportContainer report3;
+	private TestStatistics report1;
+	private TestStatistics report2;
+	private TestStatistics report3;
+	private TestIndex index1;
+	private TestIndex index2;
+	private TestIndex index3;
 	/**
 	 * The 3 builds numbers
 	 */
@@ -74,17 +78,20 @@ public class ReportsDiff implements ModelObject {
 	 * @param owner
 	 * @param shortDiff activate or not the short display
 	 * @param nb_build1 number of the first build
-	 * @param report1 first report
+	 * @param report1 action of the first build
 	 * @param nb_build2 number of the second build
-	 * @param report2 second report
+	 * @param report2 action of the second build
 	 * @param nb_build3 number of the third build
-	 * @param report3 third report
+	 * @param report3 action of the third build
 	 */
-	public ReportsDiff(final AbstractBuild<?, ?> owner, StaplerRequest request, int nb_build1, ReportContainer report1, int nb_build2, ReportContainer report2, int nb_build3, ReportContainer report3) {
+	public ReportsDiff(final AbstractBuild<?, ?> owner, StaplerRequest request, int nb_build1, PerfPublisherBuildAction report1, int nb_build2, PerfPublisherBuildAction report2, int nb_build3, PerfPublisherBuildAction report3) {
 		this._owner = owner;
-		this.report1 = report1;
-		this.report2 = report2;
-		this.report3 = report3;
+		this.report1 = statisticsOf(report1);
+		this.report2 = statisticsOf(report2);
+		this.report3 = statisticsOf(report3);
+		this.index1 = indexOf(report1);
+		this.index2 = indexOf(report2);
+		this.index3 = indexOf(report3);
 		
 		this.nb_build1 = nb_build1;
 		this.nb_build2 = nb_build2;
@@ -111,6 +118,14 @@ public class ReportsDiff implements ModelObject {
 		
 	}
 	
+	private static TestStatistics statisticsOf(PerfPublisherBuildAction action) {
+		return action == null ? new TestStatistics() : action.getStatistics();
+	}
+
+	private static TestIndex indexOf(PerfPublisherBuildAction action) {
+		return action == null ? TestIndex.empty() : action.getTestIndex();
+	}
+
 	/**
 	 * Getter for the first build number
 	 * @return the first build number
@@ -135,45 +150,65 @@ public class ReportsDiff implements ModelObject {
 
 	/**
 	 * Getter for the first report
-	 * @return the first report
+	 * @return the statistics of the first report
 	 */
-	public ReportContainer getReport1() {
+	public TestStatistics getReport1() {
 		return this.report1;
 	}
-	/**
-	 * Getter for the tests list of the first report
-	 * @return all the tests from the first report
-	 */
-	public List<Test> getReport1Tests() {
-		return this.report1.getTests();
-	}
 	/**
 	 * Getter for the second report
-	 * @return the second report
+	 * @return the statistics of the second report
 	 */
-	public ReportContainer getReport2() {
+	public TestStatistics getReport2() {
 		return this.report2;
 	}
-	/**
-	 * Getter for the tests of the second report
-	 * @return all the tests from the second report
-	 */
-	public List<Test> getReport2Tests() {
-		return this.report2.getTests();
-	}
 	
 	/**
 	 * Getter for the third report
-	 * @return the third report
+	 * @return the statistics of the third report
 	 */	
-	public ReportContainer getReport3() {
+	public TestStatistics getReport3() {
 		return this.report3;
 	}
-	public List<Test> getReport3Tests() {
-		return this.report3.getTests();
+
+	/**
+	 * Gives the color and the link of the cell of a test
+	 * @param index index of the build
+	 * @param i position of the first test with this name, or -1
+	 * @param nb_build number of the build
+	 * @return the color and the text of the cell
+	 */
+	private static String[] cellOf(TestIndex index, int i, int nb_build) {
+		if (i == -1) {
+			return new String[] {"#fff", "-"};
+		}
+		String color;
+		if (!index.isExecuted(i)) {
+			color="grey";
+		} else {
+			if (index.isHasTimedOut(i)) {
+				color = "yellow";
+			} else {
+				if (index.isSuccessfull(i)) {
+					color="green";
+				} else { color="red"; }
+			}
+		}
+		String nameForUrl = index.getName(i).replace("/", "..");
+		return new String[] {color, "<a href=\"../../../"+nb_build+"/PerfPublisher/testDetails."+nameForUrl+"\">x</a>"};
+	}
+
+	/**
+	 * Moves past all the tests with the given name
+	 * @return the position of the next name
+	 */
+	private static int skip(TestIndex index, int i, String name) {
+		while (i < index.size() && index.getName(i).equals(name)) {
+			i++;
+		}
+		return i;
 	}
 
-	
 	public String getHtmlTestsDiff() {
 		String style="Threecolumn";
 		if (nb_build3==0) {
@@ -275,104 +310,52 @@ public class ReportsDiff implements ModelObject {
 		 * 	Get all the tests executed in the three builds
 		 * else 
 		 * 	Get all the changed status tests in the three builds
+		 * 
+		 * The three indexes are sorted by name, so they are walked side by
+		 * side and each name is met once, in order.
 		 */
-		ArrayList<Test> global_test = new ArrayList<Test>();
-		global_test.addAll(this.report1.getTests());
-		
-		for (int i=0; i<this.report2.getTests().size(); i++) {
-			boolean insert = true;
-			for (int j=0; j<global_test.size(); j++) {
-				if (global_test.get(j).getName().equals(this.report2.getTests().get(i).getName())) {
-					insert = false;
-				}
+		int i1 = 0;
+		int i2 = 0;
+		int i3 = 0;
+		while (i1 < index1.size() || i2 < index2.size() || i3 < index3.size()) {
+			String name = null;
+			if (i1 < index1.size()) {
+				name = index1.getName(i1);
 			}
-			if (insert) {
-				global_test.add(this.report2.getTests().get(i));
+			if (i2 < index2.size() && (name == null || index2.getName(i2).compareTo(name) < 0)) {
+				name = index2.getName(i2);
 			}
-		}
-		if (this.report3!=null) {
-			for (int i=0; i<this.report3.getTests().size(); i++) {
-				boolean insert = true;
-				for (int j=0; j<global_test.size(); j++) {
-					if (global_test.get(j).getName().equals(this.report3.getTests().get(i).getName())) {
-						insert = false;
-					}
-				}
-				if (insert) {
-					global_test.add(this.report3.getTests().get(i));
-				}
+			if (i3 < index3.size() && (name == null || index3.getName(i3).compareTo(name) < 0)) {
+				name = index3.getName(i3);
 			}
-		}
-		Collections.sort(global_test);
-		for (int i=0; i<global_test.size(); i++) {
+			int test1 = i1 < index1.size() && index1.getName(i1).equals(name) ? i1 : -1;
+			int test2 = i2 < index2.size() && index2.getName(i2).equals(name) ? i2 : -1;
+			int test3 = i3 < index3.size() && index3.getName(i3).equals(name) ? i3 : -1;
+			i1 = skip(index1, i1, name);
+			i2 = skip(index2, i2, name);
+			i3 = skip(index3, i3, name);
 			
-			
-			String color1="#fff";
-			String color2="#fff";
-			String color3="#fff";
-			String txt1="-";
-			String txt2="-";
-			String txt3="-";
-			
-			if (this.report1.getTestWithName(global_test.get(i).getName()) != null) {
-				Test test1 = this.report1.getTestWithName(global_test.get(i).getName());
-				txt1="<a href=\"../../../"+this.nb_build1+"/PerfPublisher/testDetails."+test1.getNameForUrl()+"\">x</a>";
-				if (!test1.isExecuted()) {
-					color1="grey";
-				} else {
-					if (test1.isHasTimedOut()) {
-						color1 = "yellow";
-					} else {
-						if (test1.isSuccessfull()) {
-							color1="green";
-						} else { color1="red"; }
-					}
-				}
-			}
-			
-			
-			if (this.report2.getTestWithName(global_test.get(i).getName()) != null) {
-				Test test2 = this.report2.getTestWithName(global_test.get(i).getName());
-				txt2="<a href=\"../../../"+this.nb_build2+"/PerfPublisher/testDetails."+test2.getNameForUrl()+"\">x</a>";
-				if (!test2.isExecuted()) {
-					color2="grey";
-				} else {
-					if (test2.isHasTimedOut()) {
-						color2 = "yellow";
-					} else {
-						if (test2.isSuccessfull()) {
-							color2="green";
-						} else { color2="red"; }
-					}
-				}
-			}
+			String[] cell1 = cellOf(index1, test1, nb_build1);
+			String[] cell2 = cellOf(index2, test2, nb_build2);
+			String[] cell3 = cellOf(index3, test3, nb_build3);
+			String color1=cell1[0];
+			String color2=cell2[0];
+			String color3=cell3[0];
+			String txt1=cell1[1];
+			String txt2=cell2[1];
+			String txt3=cell3[1];
 			
 			if (nb_build3!=0) {
-				if (this.report3.getTestWithName(global_test.get(i).getName()) != null) {
-					Test test3 = this.report3.getTestWithName(global_test.get(i).getName());
-					txt3="<a href=\"../../../"+this.nb_build3+"/PerfPublisher/testDetails."+test3.getNameForUrl()+"\">x</a>";
-					if (!test3.isExecuted()) {
-						color3="grey";
-					} else {
-						if (test3.isHasTimedOut()) {
-							color3 = "yellow";
-						} else {
-							if (test3.isSuccessfull()) {
-								color3="green";
-							} else { color3="red"; }
-						}
-					}
-				}
 				if (shortDiff && (color1!=color2 || color1!=color3 || color2!=color3)) {
 					strb.append("<div class=\"line\">");
-					strb.append("<div class=\"header\">"+global_test.get(i).getName()+"</div>");
+					strb.append("<div class=\"header\">"+name+"</div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color1+"\"> "+txt1+" </div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color2+"\"> "+txt2+" </div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color3+"\"> "+txt3+" </div>");
 					strb.append("</div>\n");
 				} else if (!shortDiff) {
 					strb.append("<div class=\"line\">");
-					strb.append("<div class=\"header\">"+global_test.get(i).getName()+"</div>");
+					strb.append("<div class=\"header\">"+name+"</div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color1+"\"> "+txt1+" </div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color2+"\"> "+txt2+" </div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color3+"\"> "+txt3+" </div>");
@@ -381,13 +364,13 @@ public class ReportsDiff implements ModelObject {
 			} else {
 				if (shortDiff && (color1!=color2)) {
 					strb.append("<div class=\"line\">");
-					strb.append("<div class=\"header\">"+global_test.get(i).getName()+"</div>");
+					strb.append("<div class=\"header\">"+name+"</div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color1+"\"> "+txt1+" </div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color2+"\"> "+txt2+" </div>");
 					strb.append("</div>\n");
 				} else if (!shortDiff) {
 					strb.append("<div class=\"line\">");
-					strb.append("<div class=\"header\">"+global_test.get(i).getName()+"</div>");
+					strb.append("<div class=\"header\">"+name+"</div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color1+"\"> "+txt1+" </div>");
 					strb.append("<div class=\""+style+"\" style=\"background-color:"+color2+"\"> "+txt2+" </div>");
 					strb.append("</div>\n");
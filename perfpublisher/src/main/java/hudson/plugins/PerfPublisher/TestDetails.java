@@ -20,6 +20,7 @@ import hudson.model.ModelObject;
 import hudson.model.AbstractBuild;
 import hudson.model.Result;
 import hudson.plugins.PerfPublisher.Report.Test;
+import hudson.plugins.PerfPublisher.Report.TestIndex;
 import hudson.util.ChartUtil;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
@@ -69,14 +70,15 @@ public class TestDetails implements ModelObject {
 			if (!abstractBuild.isBuilding()	&& abstractBuild.getResult().isBetterOrEqualTo(Result.SUCCESS)) {				
 				PerfPublisherBuildAction action = abstractBuild.getAction(PerfPublisherBuildAction.class);
 				
-				if (action!=null && action.getReport() != null) {
-					Test prev_test = action.getReports().getTestWithName(this.test.getName());
-					if (prev_test!=null) {
+				if (action!=null) {
+					TestIndex index = action.getTestIndex();
+					int prev_test = index.indexOf(this.test.getName());
+					if (prev_test!=-1) {
 						
-						if (!prev_test.isExecuted()) {
+						if (!index.isExecuted(prev_test)) {
 							color="orange";
 						} else {
-							if (prev_test.isSuccessfull() && prev_test.isExecuted()) {
+							if (index.isSuccessfull(prev_test) && index.isExecuted(prev_test)) {
 								color="blue";
 							} else {
 								color="red";
@@ -117,15 +119,13 @@ public class TestDetails implements ModelObject {
 							Result.SUCCESS)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReport() != null) {
-					for (int i = 0; i < action.getReports().getNumberOfTest(); i++) {
-						if (action.getReports().getTests().get(i).getName()
-								.equals(test.getName()) && action.getReports().getTests().get(i).isPerformance()) {
-							builder.add(action.getReports().getTests().get(i)
-									.getPerformance().getMeasure(),
-									"Performance", new NumberOnlyBuildLabel(
-											abstractBuild));
-						}
+				if (action!=null) {
+					Test build_test = action.getTest(test.getName());
+					if (build_test != null && build_test.isPerformance()) {
+						builder.add(build_test
+								.getPerformance().getMeasure(),
+								"Performance", new NumberOnlyBuildLabel(
+										abstractBuild));
 					}
 				}
 			}
@@ -178,15 +178,13 @@ public class TestDetails implements ModelObject {
 							Result.SUCCESS)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReport() != null) {
-					for (int i = 0; i < action.getReports().getNumberOfTest(); i++) {
-						if (action.getReports().getTests().get(i).getName()
-								.equals(test.getName()) && action.getReports().getTests().get(i).isExecutionTime()) {
-							builder.add(action.getReports().getTests().get(i)
-									.getExecutionTime().getMeasure(),
-									"Execution Time", new NumberOnlyBuildLabel(
-											abstractBuild));
-						}
+				if (action!=null) {
+					Test build_test = action.getTest(test.getName());
+					if (build_test != null && build_test.isExecutionTime()) {
+						builder.add(build_test
+								.getExecutionTime().getMeasure(),
+								"Execution Time", new NumberOnlyBuildLabel(
+										abstractBuild));
 					}
 				}
 			}
@@ -239,15 +237,13 @@ public class TestDetails implements ModelObject {
 							Result.SUCCESS)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReport() != null) {
-					for (int i = 0; i < action.getReports().getNumberOfTest(); i++) {
-						if (action.getReports().getTests().get(i).getName()
-								.equals(test.getName()) && action.getReports().getTests().get(i).isCompileTime()) {
-							builder.add(action.getReports().getTests().get(i)
-									.getCompileTime().getMeasure(),
-									"Compile Time", new NumberOnlyBuildLabel(
-											abstractBuild));
-						}
+				if (action!=null) {
+					Test build_test = action.getTest(test.getName());
+					if (build_test != null && build_test.isCompileTime()) {
+						builder.add(build_test
+								.getCompileTime().getMeasure(),
+								"Compile Time", new NumberOnlyBuildLabel(
+										abstractBuild));
 					}
 				}
 			}
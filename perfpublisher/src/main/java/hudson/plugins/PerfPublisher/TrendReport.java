@@ -1,29 +1,45 @@
 package hudson.plugins.PerfPublisher;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
-import hudson.plugins.PerfPublisher.Report.FileContainer;
-import hudson.plugins.PerfPublisher.Report.Report;
-import hudson.plugins.PerfPublisher.Report.ReportContainer;
-import hudson.plugins.PerfPublisher.Report.ResultContainer;
 import hudson.plugins.PerfPublisher.Report.Test;
+import hudson.plugins.PerfPublisher.Report.TestIndex;
+import hudson.plugins.PerfPublisher.Report.TestStatistics;
 
 /**
  * Class representation of trend between two reports
  * 
+ * The global trends are read from the statistics of the two builds. The new,
+ * deleted and changed tests are found with a single walk over the sorted
+ * indexes of the two builds, and only those tests are read from disk.
+ * 
  * @author Lapeluche
  * 
  */
 public class TrendReport {
 
-	private ReportContainer actualResult;
-	private ReportContainer oldResult;
+	private final TestStatistics actualResult;
+	private final TestStatistics oldResult;
+	private final TestIndex actualIndex;
+	private final TestIndex oldIndex;
 
-	public TrendReport(ReportContainer actualReport, ReportContainer oldReport) {
-		this.actualResult = actualReport;
-		this.oldResult = oldReport;
+	/**
+	 * Positions, in their own index, of the tests found by the walk
+	 */
+	private List<Integer> newTests;
+	private List<Integer> deletedTests;
+	private List<Integer> executionStatusChangedTests;
+	private List<Integer> successStatusChangedTests;
+	private int numberOfRegressions;
+
+	public TrendReport(TestStatistics actualResult, TestIndex actualIndex,
+			TestStatistics oldResult, TestIndex oldIndex) {
+		this.actualResult = actualResult;
+		this.actualIndex = actualIndex;
+		this.oldResult = oldResult;
+		this.oldIndex = oldIndex;
 	}
 
 	/**
@@ -41,35 +57,19 @@ public class TrendReport {
 	}
 
 	/**
-	 * @return the actual report
+	 * @return the actual statistics
 	 */
-	public ReportContainer getActualReportContainer() {
+	public TestStatistics getActualStatistics() {
 		return actualResult;
 	}
 
 	/**
-	 * @param actualReport
-	 *            the actual report
+	 * @return the old statistics
 	 */
-	public void setActualReportContainer(ReportContainer actualReportContainer) {
-		this.actualResult = actualReportContainer;
-	}
-
-	/**
-	 * @return the old report
-	 */
-	public ReportContainer getOldReport() {
+	public TestStatistics getOldStatistics() {
 		return oldResult;
 	}
 
-	/**
-	 * @param oldReport
-	 *            the old report
-	 */
-	public void setOldReport(ReportContainer oldReportContainer) {
-		this.oldResult = oldReportContainer;
-	}
-
 	/**
 	 * @return true if the number of test has increased
 	 */
@@ -275,19 +275,76 @@ public class TrendReport {
 				.getAverageOfPerformance());
 	}
 
-	public ArrayList<Test> getNewTests() {
-		ArrayList<Test> result = new ArrayList<Test>();
-		for (int i = 0; i < actualResult.getTests().size(); i++) {
-			if (oldResult.getTestWithName(actualResult.getTests().get(i)
-					.getName()) == null) {
-				result.add(actualResult.getTests().get(i));
+	/**
+	 * Walks the two sorted indexes side by side. A test is compared with the
+	 * first test of the same name of the old build.
+	 */
+	private synchronized void compare() {
+		if (newTests != null) {
+			return;
+		}
+		List<Integer> added = new ArrayList<Integer>();
+		List<Integer> deleted = new ArrayList<Integer>();
+		List<Integer> executionChanged = new ArrayList<Integer>();
+		List<Integer> successChanged = new ArrayList<Integer>();
+		int regressions = 0;
+
+		int i = 0;
+		int j = 0;
+		while (i < actualIndex.size() || j < oldIndex.size()) {
+			int cmp;
+			if (i == actualIndex.size()) {
+				cmp = 1;
+			} else if (j == oldIndex.size()) {
+				cmp = -1;
+			} else {
+				cmp = actualIndex.getName(i).compareTo(oldIndex.getName(j));
 			}
+			if (cmp < 0) {
+				added.add(i++);
+			} else if (cmp > 0) {
+				deleted.add(j++);
+			} else {
+				String name = oldIndex.getName(j);
+				for (; i < actualIndex.size() && actualIndex.getName(i).equals(name); i++) {
+					if (actualIndex.isExecuted(i) != oldIndex.isExecuted(j)) {
+						executionChanged.add(i);
+					}
+					if (actualIndex.isSuccessfull(i) != oldIndex.isSuccessfull(j)) {
+						successChanged.add(i);
+						if (!actualIndex.isSuccessfull(i)) {
+							regressions++;
+						}
+					}
+				}
+				while (j < oldIndex.size() && oldIndex.getName(j).equals(name)) {
+					j++;
+				}
+			}
+		}
+		this.deletedTests = deleted;
+		this.executionStatusChangedTests = executionChanged;
+		this.successStatusChangedTests = successChanged;
+		this.numberOfRegressions = regressions;
+		this.newTests = added;
+	}
+
+	private static List<Test> load(TestIndex index, List<Integer> positions) {
+		try {
+			return index.getTests(positions);
+		} catch (IOException e) {
+			throw new PerfPublisherParseException("Unable to read the tests of the build", e);
 		}
-		return result;
+	}
+
+	public List<Test> getNewTests() {
+		compare();
+		return load(actualIndex, newTests);
 	}
 
 	public int getNumberOfNewTests() {
-		return getNewTests().size();
+		compare();
+		return newTests.size();
 	}
 
 	public double getPercentOfNewTests() {
@@ -298,18 +355,13 @@ public class TrendReport {
 	}
 
 	public int getNumberOfDeletedTests() {
-		return getDeletedTests().size();
+		compare();
+		return deletedTests.size();
 	}
 
-	public ArrayList<Test> getDeletedTests() {
-		ArrayList<Test> result = new ArrayList<Test>();
-		for (int i = 0; i < oldResult.getTests().size(); i++) {
-			if (actualResult.getTestWithName(oldResult.getTests().get(i)
-					.getName()) == null) {
-				result.add(oldResult.getTests().get(i));
-			}
-		}
-		return result;
+	public List<Test> getDeletedTests() {
+		compare();
+		return load(oldIndex, deletedTests);
 	}
 
 	public double getPercentOfDeletedTests() {
@@ -319,28 +371,14 @@ public class TrendReport {
 		return floor(resultat, 2);
 	}
 
-	
-	
-	
-	
-	
-	
-
 	public List<Test> getExecutionStatusChangedTests() {
-		List<Test> result = new ArrayList<Test>();
-		for (int i = 0; i < actualResult.getTests().size(); i++) {
-			Test currentTest = actualResult.getTests().get(i);
-			Test oldTest = oldResult.getTestWithName(currentTest.getName());
-			if (oldTest != null) {
-				if (oldTest.isExecuted() != currentTest.isExecuted()) {
-					result.add(currentTest);
-				} 
-			}
-		}
-		return result;
+		compare();
+		return load(actualIndex, executionStatusChangedTests);
 	}
+
 	public int getNumberOfExecutionStatusChangedTests() {
-		return this.getExecutionStatusChangedTests().size();
+		compare();
+		return executionStatusChangedTests.size();
 	}
 
 	public double getPercentOfExecutionStatusChangedTests() {
@@ -349,21 +387,15 @@ public class TrendReport {
 				/ (double) actualResult.getNumberOfTest() * 100.0;
 		return floor(resultat, 2);
 	}
+
 	public List<Test> getSuccessStatusChangedTests() {
-		List<Test> result = new ArrayList<Test>();
-		for (int i = 0; i < actualResult.getTests().size(); i++) {
-			Test currentTest = actualResult.getTests().get(i);
-			Test oldTest = oldResult.getTestWithName(currentTest.getName());
-			if (oldTest != null) {
-				if (oldTest.isSuccessfull() != currentTest.isSuccessfull()) {
-					result.add(currentTest);
-				} 
-			}
-		}
-		return result;
+		compare();
+		return load(actualIndex, successStatusChangedTests);
 	}
+
 	public int getNumberOfSuccessStatusChangedTests() {
-		return this.getSuccessStatusChangedTests().size();
+		compare();
+		return successStatusChangedTests.size();
 	}
 
 	public double getPercentOfSuccessStatusChangedTests() {
@@ -373,4 +405,13 @@ public class TrendReport {
 		return floor(resultat, 2);
 	}
 
+	/**
+	 * @return the number of tests which succeeded in the old build and fail
+	 *         in this one
+	 */
+	public int getNumberOfRegressions() {
+		compare();
+		return numberOfRegressions;
+	}
+
 }
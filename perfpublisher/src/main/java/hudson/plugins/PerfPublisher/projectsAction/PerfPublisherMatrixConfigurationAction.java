@@ -167,14 +167,14 @@ public class PerfPublisherMatrixConfigurationAction extends AbstractPerfPublishe
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getNumberOfFailedTest(), "Failed test",
 							new NumberOnlyBuildLabel(abstractBuild));
-					builder.add(action.getReports().getNumberOfPassedTest(),
+					builder.add(action.getStatistics().getNumberOfPassedTest(),
 							"Passed test", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getNumberOfNotExecutedTest(),
+					builder.add(action.getStatistics().getNumberOfNotExecutedTest(),
 							"Broken test", new NumberOnlyBuildLabel(
 									abstractBuild));
 					
@@ -225,14 +225,14 @@ public class PerfPublisherMatrixConfigurationAction extends AbstractPerfPublishe
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports().getWorstPerformanceTestValue(),
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics().getWorstPerformanceTestValue(),
 							"Worst Performance", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getAverageOfPerformance(),
+					builder.add(action.getStatistics().getAverageOfPerformance(),
 							"Average Performance", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getBestPerformanceTestValue(), "Best Performance",
+					builder.add(action.getStatistics().getBestPerformanceTestValue(), "Best Performance",
 							new NumberOnlyBuildLabel(abstractBuild));
 				}
 			}
@@ -281,16 +281,16 @@ public class PerfPublisherMatrixConfigurationAction extends AbstractPerfPublishe
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getWorstExecutionTimeTestValue(),
 							"Worst Execution Time", new NumberOnlyBuildLabel(
 									abstractBuild));
 					builder.add(
-							action.getReports().getAverageOfExecutionTime(),
+							action.getStatistics().getAverageOfExecutionTime(),
 							"Average Execution Time", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports()
+					builder.add(action.getStatistics()
 							.getBestExecutionTimeTestValue(),
 							"Best Execution Time", new NumberOnlyBuildLabel(
 									abstractBuild));
@@ -342,15 +342,15 @@ public class PerfPublisherMatrixConfigurationAction extends AbstractPerfPublishe
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getWorstCompileTimeTestValue(),
 							"Worst Compile Time", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports().getAverageOfCompileTime(),
+					builder.add(action.getStatistics().getAverageOfCompileTime(),
 							"Average Compile Time", new NumberOnlyBuildLabel(
 									abstractBuild));
-					builder.add(action.getReports()
+					builder.add(action.getStatistics()
 							.getBestCompileTimeTestValue(),
 							"Best Compile Time", new NumberOnlyBuildLabel(
 									abstractBuild));
@@ -403,11 +403,11 @@ public class PerfPublisherMatrixConfigurationAction extends AbstractPerfPublishe
 							Result.UNSTABLE)) {
 				PerfPublisherBuildAction action = abstractBuild
 						.getAction(PerfPublisherBuildAction.class);
-				if (action!=null && action.getReports() != null) {
-					builder.add(action.getReports()
+				if (action!=null && action.getStatistics() != null) {
+					builder.add(action.getStatistics()
 							.getNumberOfNotExecutedTest(), "Not executed test",
 							new NumberOnlyBuildLabel(abstractBuild));
-					builder.add(action.getReports().getNumberOfExecutedTest(),
+					builder.add(action.getStatistics().getNumberOfExecutedTest(),
 							"Executed test", new NumberOnlyBuildLabel(
 									abstractBuild));
 					
@@ -0,0 +1,189 @@
+package hudson.plugins.PerfPublisher.Report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestIndexTest extends TestCase {
+
+	private File dir;
+
+	@Override
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("perfpublisher", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	public void testRoundTrip() throws IOException {
+		Report report = report("report", "perf");
+		report.setStartDate("2009-01-02");
+		report.setEndTimeFormat("HH:mm");
+		Test test = test("full", true);
+		test.setDescription("description");
+		test.addTarget(new Target("x86", true));
+		Source source = new Source();
+		source.setLanguage("C");
+		source.setSource("int main() {}");
+		test.addSource(source);
+		DataSet dataSet = new DataSet();
+		dataSet.setPath("in.dat");
+		test.setDataSetIn(dataSet);
+		Param param = new Param();
+		param.setName("threads");
+		param.setValue("4");
+		test.addParameter(param);
+		test.setIsPerformance(true);
+		test.getPerformance().setMeasure(12.5);
+		test.getPerformance().setUnit("GFlops");
+		test.getPerformance().setRelevant(true);
+		test.getSuccess().setState(42);
+		test.addLog(new Log("stdout", longString(70000)));
+		Platform platform = new Platform();
+		platform.setOsName("Linux");
+		platform.setRemote(true);
+		platform.addCompiler(new Compiler("gcc", "4.3", "/usr/bin/gcc"));
+		platform.getProcessor().addCore(new Core(0, 1, 2));
+		test.setPlateforme(platform);
+
+		TestIndex.Writer writer = TestIndex.create(dir);
+		writer.add(report, test);
+		writer.endReport(report);
+		writer.close();
+
+		Test read = TestIndex.load(dir).getTest("full");
+		assertEquals("description", read.getDescription());
+		assertNull(read.getMessage());
+		assertTrue(read.isExecuted());
+		assertTrue(read.isSuccessfull());
+		assertEquals(42f, read.getSuccess().getState());
+		assertEquals("x86", read.getTargets().get(0).getName());
+		assertTrue(read.getTargets().get(0).isThreaded());
+		assertEquals("int main() {}", read.getSources().get(0).getSource());
+		assertEquals("in.dat", read.getDataSetIn().getPath());
+		assertNull(read.getDataSetOut());
+		assertEquals("4", read.getParameters().get(0).getValue());
+		assertTrue(read.isPerformance());
+		assertEquals(12.5, read.getPerformance().getMeasure());
+		assertEquals("GFlops", read.getPerformance().getUnit());
+		assertTrue(read.getPerformance().isRelevant());
+		assertEquals(longString(70000), read.getLogs().get(0).getLog());
+		assertEquals("Linux", read.getPlateforme().getOsName());
+		assertTrue(read.getPlateforme().isRemote());
+		assertEquals("/usr/bin/gcc", read.getPlateforme().getCompilers().get(0).getPath());
+		assertEquals(2, read.getPlateforme().getProcessor().getCores().get(0).getPhysid());
+
+		ReportContainer container = TestIndex.load(dir).loadReports(Collections.singletonList("report.xml"));
+		assertEquals(1, container.getNumberOfReports());
+		Report readReport = container.getReports().get(0);
+		assertEquals("report", readReport.getName());
+		assertEquals("perf", readReport.getCategorie());
+		assertEquals("2009-01-02", readReport.getStartDate());
+		assertEquals("HH:mm", readReport.getEndTimeFormat());
+		assertEquals(1, readReport.getTests().size());
+	}
+
+	public void testNamesAreSorted() throws IOException {
+		Report report = report("report", "perf");
+		TestIndex.Writer writer = TestIndex.create(dir);
+		writer.add(report, test("b", false));
+		writer.add(report, test("c", true));
+		writer.add(report, test("a", true));
+		writer.endReport(report);
+		TestIndex index = writer.close();
+
+		assertEquals(Arrays.asList("a", "b", "c"), index.getNames());
+		assertEquals(index.getNames(), TestIndex.load(dir).getNames());
+		assertEquals(1, index.indexOf("b"));
+		assertEquals(-1, index.indexOf("d"));
+		assertTrue(index.isSuccessfull(0));
+		assertFalse(index.isSuccessfull(1));
+
+		List<Test> tests = index.getTests(Arrays.asList(2, 0));
+		assertEquals(2, tests.size());
+		assertNull(index.getTest("d"));
+	}
+
+	public void testRollbackDropsWhatFollowsTheMark() throws IOException {
+		Report kept = report("kept", "perf");
+		Report broken = report("broken", "unit");
+		Report last = report("last", "unit");
+
+		TestIndex.Writer writer = TestIndex.create(dir);
+		writer.mark();
+		writer.add(kept, test("a", true));
+		writer.endReport(kept);
+		writer.mark();
+		writer.add(broken, test("x", true));
+		writer.add(broken, test("y", true));
+		writer.rollback();
+		writer.mark();
+		writer.add(last, test("b", true));
+		writer.endReport(last);
+		writer.close();
+
+		TestIndex index = TestIndex.load(dir);
+		assertEquals(Arrays.asList("a", "b"), index.getNames());
+		assertEquals("b", index.getTest("b").getName());
+
+		ReportContainer container = index.loadReports(Collections.<String>emptyList());
+		assertEquals(2, container.getNumberOfReports());
+		assertEquals("kept", container.getReports().get(0).getName());
+		assertEquals("last", container.getReports().get(1).getName());
+		assertEquals("b", container.getReports().get(1).getTests().get(0).getName());
+	}
+
+	public void testWriteLoadedContainer() throws IOException {
+		Report report = report("report", "perf");
+		report.addTest(test("a", true));
+		ReportContainer container = new ReportContainer();
+		container.addReport(report, false);
+
+		assertFalse(TestIndex.exists(dir));
+		TestIndex.write(dir, container);
+		assertTrue(TestIndex.exists(dir));
+		assertEquals(Collections.singletonList("a"), TestIndex.load(dir).getNames());
+	}
+
+	public void testNoIndex() throws IOException {
+		assertNull(TestIndex.load(dir));
+		assertEquals(0, TestIndex.empty().size());
+		assertEquals(0, TestIndex.empty().loadReports(Collections.<String>emptyList()).getNumberOfReports());
+	}
+
+	static Report report(String name, String category) {
+		Report result = new Report();
+		result.setName(name);
+		result.setCategorie(category);
+		return result;
+	}
+
+	static Test test(String name, boolean passed) {
+		Test result = new Test();
+		result.setName(name);
+		result.setExecuted(true);
+		result.setIsSuccess(true);
+		result.getSuccess().setPassed(passed);
+		return result;
+	}
+
+	private static String longString(int length) {
+		StringBuilder result = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			result.append((char) ('a' + i % 26));
+		}
+		return result.toString();
+	}
+}
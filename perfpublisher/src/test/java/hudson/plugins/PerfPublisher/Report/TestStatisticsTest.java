@@ -0,0 +1,116 @@
+package hudson.plugins.PerfPublisher.Report;
+
+import static hudson.plugins.PerfPublisher.Report.TestIndexTest.report;
+import static hudson.plugins.PerfPublisher.Report.TestIndexTest.test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestStatisticsTest extends TestCase {
+
+	public void testCounts() {
+		Report report = report("report", "perf");
+		TestStatistics statistics = new TestStatistics();
+		statistics.addReport(report);
+		statistics.add(report, test("a", true));
+		statistics.add(report, test("b", false));
+		Test notExecuted = test("c", true);
+		notExecuted.setExecuted(false);
+		statistics.add(report, notExecuted);
+		statistics.addReport(report("other", "PERF"));
+		statistics.addFile("report.xml");
+
+		assertEquals(1, statistics.getNumberOfReports());
+		assertEquals(3, statistics.getNumberOfTest());
+		assertEquals(2, statistics.getNumberOfExecutedTest());
+		assertEquals(1, statistics.getNumberOfNotExecutedTest());
+		assertEquals(1, statistics.getNumberOfPassedTest());
+		assertEquals(1, statistics.getNumberOfFailedTest());
+		assertEquals(50.0, statistics.getPercentOfPassedTest());
+		assertEquals(Arrays.asList("perf"), statistics.getCategories());
+		assertEquals(3, statistics.getNumberOfTestOfCategory("Perf"));
+		assertEquals(1, statistics.getNumberOfFiles());
+	}
+
+	public void testBestAndWorst() {
+		Report report = report("report", "perf");
+		TestStatistics statistics = new TestStatistics();
+		statistics.add(report, timed("fast", 1));
+		statistics.add(report, timed("slow", 3));
+		statistics.add(report, timed("fast again", 1));
+
+		assertEquals(3, statistics.getNumberOfExecutionTimeTest());
+		assertEquals(1.67, statistics.getAverageOfExecutionTime());
+		assertEquals("fast again", statistics.getBestExecutionTimeTestName());
+		assertEquals(3.0, statistics.getWorstExecutionTimeTestValue());
+		assertEquals("slow", statistics.getWorstExecutionTimeTestName());
+	}
+
+	public void testAddAllIsTheSameAsAddingOneByOne() {
+		Report first = report("first", "perf");
+		Report second = report("second", "unit");
+
+		TestStatistics all = new TestStatistics();
+		all.addReport(first);
+		all.add(first, timed("a", 2));
+		all.add(first, test("b", false));
+		all.addFile("first.xml");
+		all.addReport(second);
+		all.add(second, timed("c", 5));
+		all.addFile("second.xml");
+
+		TestStatistics merged = new TestStatistics();
+		TestStatistics file = new TestStatistics();
+		file.addReport(first);
+		file.add(first, timed("a", 2));
+		file.add(first, test("b", false));
+		file.addFile("first.xml");
+		merged.addAll(file);
+		file = new TestStatistics();
+		file.addReport(second);
+		file.add(second, timed("c", 5));
+		file.addFile("second.xml");
+		merged.addAll(file);
+
+		assertEquals(all.getNumberOfReports(), merged.getNumberOfReports());
+		assertEquals(all.getNumberOfTest(), merged.getNumberOfTest());
+		assertEquals(all.getNumberOfFailedTest(), merged.getNumberOfFailedTest());
+		assertEquals(all.getCategories(), merged.getCategories());
+		assertEquals(all.getNumberOfTestOfCategory("unit"), merged.getNumberOfTestOfCategory("unit"));
+		assertEquals(all.getAverageOfExecutionTime(), merged.getAverageOfExecutionTime());
+		assertEquals(all.getBestExecutionTimeTestName(), merged.getBestExecutionTimeTestName());
+		assertEquals(all.getWorstExecutionTimeTestName(), merged.getWorstExecutionTimeTestName());
+		assertEquals(all.getFiles(), merged.getFiles());
+	}
+
+	public void testSameAsContainer() {
+		Report report = report("report", "perf");
+		report.addTest(timed("a", 2));
+		report.addTest(timed("b", 4));
+		Report sameCategory = report("same category", "PERF");
+		sameCategory.addTest(test("c", false));
+		Report other = report("other", "unit");
+		other.addTest(timed("d", 1));
+		ReportContainer container = new ReportContainer();
+		container.addReport(report, false);
+		container.addReport(sameCategory, false);
+		container.addReport(other, false);
+		container.computeStats();
+
+		TestStatistics statistics = TestStatistics.of(container);
+		assertEquals(container.getNumberOfReports(), statistics.getNumberOfReports());
+		assertEquals(container.getNumberOfTest(), statistics.getNumberOfTest());
+		assertEquals(container.getNumberOfFailedTest(), statistics.getNumberOfFailedTest());
+		assertEquals(container.getAverageOfExecutionTime(), statistics.getAverageOfExecutionTime());
+		assertEquals(container.getBestExecutionTimeTestName(), statistics.getBestExecutionTimeTestName());
+	}
+
+	private static Test timed(String name, double time) {
+		Test result = test(name, true);
+		result.setIsExecutionTime(true);
+		result.getExecutionTime().setMeasure(time);
+		result.getExecutionTime().setRelevant(true);
+		return result;
+	}
+}
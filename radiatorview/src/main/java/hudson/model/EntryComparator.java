@@ -13,8 +13,8 @@ final class EntryComparator implements Comparator<ViewEntry>
     public int compare(ViewEntry o1, ViewEntry o2)
     {
         // first compare by status
-        Result r1 = RadiatorView.getResult(o1.getJob());
-        Result r2 = RadiatorView.getResult(o2.getJob());
+        Result r1 = o1.getResult();
+        Result r2 = o2.getResult();
         if (r1 != null && r2 != null)
         {
             if (r1.isBetterThan(r2))
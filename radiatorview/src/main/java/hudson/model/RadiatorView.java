@@ -3,12 +3,18 @@ package hudson.model;
 import hudson.Extension;
 import hudson.Util;
 import hudson.model.Descriptor.FormException;
+import hudson.model.Queue.Task;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
 import hudson.util.FormValidation;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
@@ -19,6 +25,7 @@ import javax.servlet.ServletException;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
 /**
  * A configurable Radiator-Style job view suitable for use in extreme feedback
@@ -31,14 +38,35 @@ import org.kohsuke.stapler.StaplerRequest;
 public class RadiatorView extends ListView
 {
     /**
-     * Entries to be shown in the view.
+     * How long a client waits for an update before asking again, in
+     * milliseconds.
      */
-    private transient Collection<ViewEntry> entries;
+    private static final long UPDATE_TIMEOUT = 30 * 1000;
 
     /**
-     * Cache of location of jobs in the build queue.
+     * Incremented when a build starts, completes or is deleted, or when a job
+     * is created, renamed or deleted. Notified on {@link #VERSION_LOCK}.
      */
-    transient Map<hudson.model.Queue.Item, Integer> placeInQueue = new HashMap<hudson.model.Queue.Item, Integer>();
+    private static volatile long version;
+
+    private static final Object VERSION_LOCK = new Object();
+
+    /**
+     * Maximum number of cached models per view.
+     */
+    private static final int MAX_MODELS = 10;
+
+    /**
+     * Cached models, per list of jobs shown: users who may read different
+     * jobs see different models. The least recently used is dropped first.
+     */
+    private transient Map<List<Job>, Model> models;
+
+    /**
+     * Last version given to a model. A model gets a new version each time it
+     * is built, so that the version identifies what a client has seen.
+     */
+    private transient long lastModelVersion;
 
     /**
      * Colours to use in the view.
@@ -93,32 +121,201 @@ public class RadiatorView extends ListView
      */
     public Collection<ViewEntry> sortPassing(Collection<Job> jobs)
     {
-        return sort(jobs, true);
+        return getModel(jobs).getPassing();
     }
 
-    private Collection<ViewEntry> sort(Collection<Job> jobs, boolean successful)
+    /**
+     * Gets the sorted entries of the given jobs, built again only when
+     * something they show may have changed.
+     * 
+     * @param jobs
+     *            the jobs the current user may see.
+     * @return the model to show.
+     */
+    public synchronized Model getModel(Collection<Job> jobs)
     {
-        placeInQueue = new HashMap<hudson.model.Queue.Item, Integer>();
+        List<Job> jobList = (jobs != null) ? new ArrayList<Job>(jobs) : Collections.<Job> emptyList();
+        if (models == null)
+        {
+            models = new LinkedHashMap<List<Job>, Model>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Job>, Model> eldest)
+                {
+                    return size() > MAX_MODELS;
+                }
+            };
+        }
+        Model model = models.get(jobList);
+        List<Task> queue = getQueuedTasks();
+        if (model == null || !model.isUpToDate(queue))
+        {
+            model = buildModel(jobList, queue);
+            models.put(jobList, model);
+        }
+        return model;
+    }
+
+    private Model buildModel(List<Job> jobs, List<Task> queue)
+    {
+        // read first, a change while building is seen next time
+        long sourceVersion = version;
+
+        Map<Task, Integer> placeInQueue = new HashMap<Task, Integer>();
         int j = 1;
-        for (hudson.model.Queue.Item i : Hudson.getInstance().getQueue().getItems())
+        for (Task task : queue)
+        {
+            if (!placeInQueue.containsKey(task))
+            {
+                placeInQueue.put(task, j);
+            }
+            j++;
+        }
+
+        TreeSet<ViewEntry> failing = new TreeSet<ViewEntry>(new EntryComparator());
+        TreeSet<ViewEntry> passing = new TreeSet<ViewEntry>(new EntryComparator());
+        for (Job<?, ?> job : jobs)
+        {
+            ViewEntry entry = new ViewEntry(this, job, placeInQueue.get(job));
+            if (entry.getResult().isBetterOrEqualTo(Result.SUCCESS))
+            {
+                passing.add(entry);
+            }
+            else
+            {
+                failing.add(entry);
+            }
+        }
+        return new Model(failing, passing, sourceVersion, queue, ++lastModelVersion);
+    }
+
+    private static List<Task> getQueuedTasks()
+    {
+        List<Task> tasks = new ArrayList<Task>();
+        for (Queue.Item i : Hudson.getInstance().getQueue().getItems())
+        {
+            tasks.add(i.task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Sorted entries of a list of jobs, and what they were built from: the
+     * {@link RadiatorView#version} and the content of the build queue.
+     */
+    public static final class Model
+    {
+        private final Collection<ViewEntry> failing;
+
+        private final Collection<ViewEntry> passing;
+
+        private final long sourceVersion;
+
+        private final List<Task> queue;
+
+        private final long version;
+
+        Model(Collection<ViewEntry> failing, Collection<ViewEntry> passing, long sourceVersion,
+                List<Task> queue, long version)
+        {
+            this.failing = failing;
+            this.passing = passing;
+            this.sourceVersion = sourceVersion;
+            this.queue = queue;
+            this.version = version;
+        }
+
+        public Collection<ViewEntry> getFailing()
+        {
+            return failing;
+        }
+
+        public Collection<ViewEntry> getPassing()
+        {
+            return passing;
+        }
+
+        /**
+         * @return version of the model, to be passed to {@link RadiatorView#doUpdates}.
+         */
+        public long getVersion()
+        {
+            return version;
+        }
+
+        /**
+         * @return true if a job of the model is being built.
+         */
+        public boolean getBuilding()
         {
-            placeInQueue.put(i, j++);
+            return isBuilding(failing) || isBuilding(passing);
         }
 
-        if (jobs != null)
+        boolean isUpToDate(List<Task> queue)
         {
-            TreeSet<ViewEntry> ents = new TreeSet<ViewEntry>(new EntryComparator());
-            for (Job<?, ?> job : jobs)
+            return sourceVersion == RadiatorView.version && queue.equals(this.queue);
+        }
+
+        private static boolean isBuilding(Collection<ViewEntry> entries)
+        {
+            for (ViewEntry entry : entries)
             {
-                if (getResult(job).isBetterOrEqualTo(Result.SUCCESS) == successful)
+                if (entry.getBuilding())
                 {
-                    ents.add(new ViewEntry(this, job));
+                    return true;
                 }
             }
-            this.entries = ents;
-            return this.entries;
+            return false;
+        }
+    }
+
+    /**
+     * Only the model of the same jobs is compared, the models of the other
+     * users of the view are built independently.
+     */
+    private synchronized boolean hasChanged(List<Job> jobs, long since)
+    {
+        Model model = (models != null) ? models.get(jobs) : null;
+        return model == null || model.version != since || !model.isUpToDate(getQueuedTasks());
+    }
+
+    /**
+     * Waits until the view would show something else than the model of the
+     * given version, or for {@link #UPDATE_TIMEOUT} at most, so that an idle
+     * radiator only reloads when needed.
+     */
+    @SuppressWarnings("unchecked")
+    public void doUpdates(StaplerRequest req, StaplerResponse rsp, @QueryParameter long since)
+            throws IOException, InterruptedException
+    {
+        // the jobs the current user sees, as on the page
+        List<Job> jobs = new ArrayList<Job>((Collection) getItems());
+        long end = System.currentTimeMillis() + UPDATE_TIMEOUT;
+        boolean changed = hasChanged(jobs, since);
+        while (!changed && System.currentTimeMillis() < end)
+        {
+            long seen = version;
+            synchronized (VERSION_LOCK)
+            {
+                // the queue has no listener, check it every second
+                if (seen == version)
+                {
+                    VERSION_LOCK.wait(1000);
+                }
+            }
+            changed = hasChanged(jobs, since);
+        }
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print("{\"changed\":" + changed + "}");
+    }
+
+    private static void fireModelChanged()
+    {
+        synchronized (VERSION_LOCK)
+        {
+            version++;
+            VERSION_LOCK.notifyAll();
         }
-        return Collections.emptyList();
     }
 
     /**
@@ -137,6 +334,7 @@ public class RadiatorView extends ListView
         super.submit(req);
         this.showStable = Boolean.parseBoolean(req.getParameter("showStable"));
         this.showStableDetail = Boolean.parseBoolean(req.getParameter("showStableDetail"));
+        fireModelChanged();
     }
 
     public Boolean getShowStable()
@@ -151,7 +349,7 @@ public class RadiatorView extends ListView
 
     public Collection<ViewEntry> sortFailing(Collection<Job> jobs)
     {
-        return sort(jobs, false);
+        return getModel(jobs).getFailing();
     }
 
     /**
@@ -227,6 +425,67 @@ public class RadiatorView extends ListView
         }
     }
 
+    /**
+     * Invalidates the cached models when a build changes.
+     */
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run>
+    {
+        public RunListenerImpl()
+        {
+            super(Run.class);
+        }
+
+        @Override
+        public void onStarted(Run r, TaskListener listener)
+        {
+            fireModelChanged();
+        }
+
+        @Override
+        public void onCompleted(Run r, TaskListener listener)
+        {
+            fireModelChanged();
+        }
+
+        @Override
+        public void onFinalized(Run r)
+        {
+            fireModelChanged();
+        }
+
+        @Override
+        public void onDeleted(Run r)
+        {
+            fireModelChanged();
+        }
+    }
+
+    /**
+     * Invalidates the cached models when a job changes.
+     */
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener
+    {
+        @Override
+        public void onCreated(Item item)
+        {
+            fireModelChanged();
+        }
+
+        @Override
+        public void onDeleted(Item item)
+        {
+            fireModelChanged();
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName)
+        {
+            fireModelChanged();
+        }
+    }
+
     @Extension
     public static final class DescriptorImpl extends ViewDescriptor
     {
@@ -32,10 +32,19 @@ public final class ViewEntry
 
     private Boolean building = false;
 
-    private Boolean queued = false;
-
     private Integer queueNumber;
 
+    private Result result;
+
+    /**
+     * Computed on demand, as the entry is kept until something changes.
+     */
+    private AbstractTestResultAction<?> lastTests;
+
+    private String diff;
+
+    private String culprit;
+
     /**
      * If the build is stable.
      */
@@ -48,11 +57,14 @@ public final class ViewEntry
      *            the job to be represented
      * @param radiatorView
      *            TODO
+     * @param queueNumber
+     *            place of the job in the build queue, or null
      */
-    public ViewEntry(RadiatorView radiatorView, Job<?, ?> job)
+    public ViewEntry(RadiatorView radiatorView, Job<?, ?> job, Integer queueNumber)
     {
         this.radiatorView = radiatorView;
         this.job = job;
+        this.queueNumber = queueNumber;
         this.findStatus();
     }
 
@@ -77,7 +89,7 @@ public final class ViewEntry
      */
     public Boolean getQueued()
     {
-        return this.job.isInQueue();
+        return this.queueNumber != null;
     }
 
     /**
@@ -85,7 +97,15 @@ public final class ViewEntry
      */
     public Integer getQueueNumber()
     {
-        return this.radiatorView.placeInQueue.get(this.job.getQueueItem());
+        return this.queueNumber;
+    }
+
+    /**
+     * @return result of the last completed build
+     */
+    public Result getResult()
+    {
+        return this.result;
     }
 
     /**
@@ -156,13 +176,8 @@ public final class ViewEntry
      */
     public int getTestCount()
     {
-        Run<?, ?> run = this.job.getLastSuccessfulBuild();
-        if (run != null)
-        {
-            AbstractTestResultAction<?> tests = run.getAction(AbstractTestResultAction.class);
-            return tests != null ? tests.getTotalCount() : 0;
-        }
-        return 0;
+        AbstractTestResultAction<?> tests = getLastTests();
+        return tests != null ? tests.getTotalCount() : 0;
     }
 
     /**
@@ -170,13 +185,24 @@ public final class ViewEntry
      */
     public int getFailCount()
     {
-        Run<?, ?> run = this.job.getLastSuccessfulBuild();
-        if (run != null)
+        AbstractTestResultAction<?> tests = getLastTests();
+        return tests != null ? tests.getFailCount() : 0;
+    }
+
+    /**
+     * @return tests of the last successful build, or null
+     */
+    private synchronized AbstractTestResultAction<?> getLastTests()
+    {
+        if (this.lastTests == null)
         {
-            AbstractTestResultAction<?> tests = run.getAction(AbstractTestResultAction.class);
-            return tests != null ? tests.getFailCount() : 0;
+            Run<?, ?> run = this.job.getLastSuccessfulBuild();
+            if (run != null)
+            {
+                this.lastTests = run.getAction(AbstractTestResultAction.class);
+            }
         }
-        return 0;
+        return this.lastTests;
     }
 
     /**
@@ -191,7 +217,16 @@ public final class ViewEntry
      * @return difference between this job's last build successful tests and the
      *         previous'
      */
-    public String getDiff()
+    public synchronized String getDiff()
+    {
+        if (this.diff == null)
+        {
+            this.diff = computeDiff();
+        }
+        return this.diff;
+    }
+
+    private String computeDiff()
     {
         Run<?, ?> run = this.job.getLastSuccessfulBuild();
         if (run != null)
@@ -244,7 +279,16 @@ public final class ViewEntry
      * 
      * @return the culprit/responsible
      */
-    public String getCulprit()
+    public synchronized String getCulprit()
+    {
+        if (this.culprit == null)
+        {
+            this.culprit = computeCulprit();
+        }
+        return this.culprit;
+    }
+
+    private String computeCulprit()
     {
         Run<?, ?> run = this.job.getLastBuild();
         String culprit = " - ";
@@ -299,7 +343,7 @@ public final class ViewEntry
      */
     private void findStatus()
     {
-        Result result = radiatorView.getResult(job);
+        this.result = RadiatorView.getResult(job);
 
         this.stable = false;
         if (result.ordinal == Result.NOT_BUILT.ordinal)
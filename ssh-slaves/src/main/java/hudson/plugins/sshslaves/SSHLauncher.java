@@ -8,17 +8,21 @@ import java.io.StringWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.BufferedOutputStream;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.logging.Logger;
 import static java.util.logging.Level.FINE;
 import java.net.URL;
 
 import com.trilead.ssh2.Connection;
-import com.trilead.ssh2.SFTPv3Client;
 import com.trilead.ssh2.SFTPv3FileAttributes;
 import com.trilead.ssh2.Session;
 import com.trilead.ssh2.StreamGobbler;
@@ -43,6 +47,7 @@ import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.putty.PuTTYKey;
 import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.input.CountingInputStream;
 
 /**
  * A computer launcher that tries to start a linux slave by opening an SSH connection and trying to find java.
@@ -150,48 +155,30 @@ public class SSHLauncher extends ComputerLauncher {
      * {@inheritDoc}
      */
     public synchronized void launch(final SlaveComputer computer, final TaskListener listener) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        if (!LAUNCH_SLOTS.tryAcquire()) {
+            listener.getLogger().println(Messages.SSHLauncher_WaitingForLaunchSlot(getTimestamp(), MAX_PARALLEL_LAUNCHES));
+            LAUNCH_SLOTS.acquire();
+            start = logPhase(listener, "Waiting for a launch slot", start);
+        }
         connection = new Connection(host, port);
         try {
             openConnection(listener);
 
             verifyNoHeaderJunk(listener);
             reportEnvironment(listener);
-
-            String java = null;
-            List<String> tried = new ArrayList<String>();
-            outer:
-            for (JavaProvider provider : JavaProvider.all()) {
-                for (String javaCommand : provider.getJavas(computer, listener, connection)) {
-                    LOGGER.fine("Trying Java at "+javaCommand);
-                    try {
-                        tried.add(javaCommand);
-                        java = checkJavaVersion(listener, javaCommand);
-                        if (java != null) {
-                            break outer;
-                        }
-                    } catch (IOException e) {
-                        LOGGER.log(FINE, "Failed to check the Java version",e);
-                        // try the next one
-                    }
-                }
-            }
+            start = logPhase(listener, "Connection", start);
 
             final String workingDirectory = getWorkingDirectory(computer);
 
-            if (java == null) {
-                // attempt auto JDK installation
-                ByteArrayOutputStream buf = new ByteArrayOutputStream();
-                try {
-                    java = attemptToInstallJDK(listener, workingDirectory, buf);
-                } catch (IOException e) {
-                    throw new IOException2("Could not find any known supported java version in "+tried+", and we also failed to install JDK as a fallback",e);
-                }
-            }
-
+            String java = findJava(computer, listener, workingDirectory);
+            start = logPhase(listener, "Java discovery", start);
 
             copySlaveJar(listener, workingDirectory);
+            start = logPhase(listener, "slave.jar deployment", start);
 
             startSlave(computer, listener, java, workingDirectory);
+            logPhase(listener, "Slave start", start);
 
             PluginImpl.register(connection);
         } catch (RuntimeException e) {
@@ -203,9 +190,79 @@ public class SSHLauncher extends ComputerLauncher {
             connection.close();
             connection = null;
             listener.getLogger().println(Messages.SSHLauncher_ConnectionClosed(getTimestamp()));
+        } finally {
+            LAUNCH_SLOTS.release();
         }
     }
 
+    /**
+     * Reports how long a phase of the launch took.
+     *
+     * @return the time the next phase starts at.
+     */
+    private static long logPhase(TaskListener listener, String phase, long start) {
+        long now = System.currentTimeMillis();
+        listener.getLogger().println(Messages.SSHLauncher_PhaseTook(getTimestamp(), phase, now - start));
+        return now;
+    }
+
+    /**
+     * Finds a suitable Java on the slave, installing one if needed.
+     * <p>
+     * The Java found the last time this slave was launched is checked first, so that the providers don't have to be
+     * tried again on every reconnection.
+     *
+     * @return the command to run Java.
+     */
+    private String findJava(SlaveComputer computer, TaskListener listener, String workingDirectory)
+            throws IOException, InterruptedException {
+        final String nodeName = computer.getName();
+        String java = JAVA_CACHE.get(nodeName);
+        if (java != null) {
+            listener.getLogger().println(Messages.SSHLauncher_UsingCachedJava(getTimestamp(), java));
+            try {
+                if (checkJavaVersion(listener, java) != null) {
+                    return java;
+                }
+            } catch (IOException e) {
+                LOGGER.log(FINE, "The cached Java is no longer usable", e);
+            }
+            JAVA_CACHE.remove(nodeName);
+            java = null;
+        }
+
+        List<String> tried = new ArrayList<String>();
+        outer:
+        for (JavaProvider provider : JavaProvider.all()) {
+            for (String javaCommand : provider.getJavas(computer, listener, connection)) {
+                LOGGER.fine("Trying Java at "+javaCommand);
+                try {
+                    tried.add(javaCommand);
+                    java = checkJavaVersion(listener, javaCommand);
+                    if (java != null) {
+                        break outer;
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(FINE, "Failed to check the Java version",e);
+                    // try the next one
+                }
+            }
+        }
+
+        if (java == null) {
+            // attempt auto JDK installation
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            try {
+                java = attemptToInstallJDK(listener, workingDirectory, buf);
+            } catch (IOException e) {
+                throw new IOException2("Could not find any known supported java version in "+tried+", and we also failed to install JDK as a fallback",e);
+            }
+        }
+
+        JAVA_CACHE.put(nodeName, java);
+        return java;
+    }
+
     /**
      * Makes sure that SSH connection won't produce any unwanted text, which will interfere with sftp execution.
      */
@@ -329,14 +386,14 @@ public class SSHLauncher extends ComputerLauncher {
     }
 
     /**
-     * Method copies the slave jar to the remote system.
+     * Method copies the slave jar to the remote system, unless the same slave jar is already there.
      *
      * @param listener         The listener.
      * @param workingDirectory The directory into whihc the slave jar will be copied.
      *
      * @throws IOException If something goes wrong.
      */
-    private void copySlaveJar(TaskListener listener, String workingDirectory) throws IOException {
+    private void copySlaveJar(TaskListener listener, String workingDirectory) throws IOException, InterruptedException {
         String fileName = workingDirectory + "/slave.jar";
 
         listener.getLogger().println(Messages.SSHLauncher_StartingSFTPClient(getTimestamp()));
@@ -354,6 +411,11 @@ public class SSHLauncher extends ComputerLauncher {
                     throw new IOException(Messages.SSHLauncher_RemoteFSIsAFile(workingDirectory));
                 }
 
+                if (isSlaveJarUpToDate(sftpClient, fileName)) {
+                    listener.getLogger().println(Messages.SSHLauncher_SlaveJarUpToDate(getTimestamp()));
+                    return;
+                }
+
                 try {
                     // try to delete the file in case the slave we are copying is shorter than the slave
                     // that is already there
@@ -373,6 +435,8 @@ public class SSHLauncher extends ComputerLauncher {
                 } catch (Exception e) {
                     throw new IOException2(Messages.SSHLauncher_ErrorCopyingSlaveJar(), e);
                 }
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Exception e) {
                 throw new IOException2(Messages.SSHLauncher_ErrorCopyingSlaveJar(), e);
             }
@@ -383,6 +447,69 @@ public class SSHLauncher extends ComputerLauncher {
         }
     }
 
+    /**
+     * Checks whether the slave jar on the remote system is the one of this master, by comparing the sizes and then the
+     * MD5 checksums. The checksum is computed with whichever of {@code md5sum}, {@code digest} or {@code md5} the
+     * remote system has; if none of them works the slave jar is copied again.
+     *
+     * @param sftpClient The sftp client.
+     * @param fileName   The remote slave jar.
+     *
+     * @return {@code true} if the slave jar doesn't need to be copied.
+     */
+    private boolean isSlaveJarUpToDate(SFTPClient sftpClient, String fileName) throws IOException, InterruptedException {
+        SFTPv3FileAttributes fileAttributes = sftpClient._stat(fileName);
+        if (fileAttributes == null || !fileAttributes.isRegularFile() || fileAttributes.size == null) {
+            return false;
+        }
+        SlaveJar slaveJar = SlaveJar.get();
+        if (slaveJar == null || fileAttributes.size.longValue() != slaveJar.size) {
+            return false;
+        }
+        String file = "'" + fileName + "'";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        connection.exec("md5sum " + file + " 2>/dev/null || digest -a md5 " + file + " 2>/dev/null || md5 -q " + file
+                + " 2>/dev/null", out);
+        Matcher m = MD5_PATTERN.matcher(out.toString());
+        return m.find() && m.group().equalsIgnoreCase(slaveJar.md5);
+    }
+
+    /**
+     * Size and checksum of the slave jar of this master, computed once.
+     */
+    private static final class SlaveJar {
+        private static SlaveJar instance;
+
+        private final long size;
+        private final String md5;
+
+        private SlaveJar(long size, String md5) {
+            this.size = size;
+            this.md5 = md5;
+        }
+
+        /**
+         * @return null if the slave jar can't be read.
+         */
+        private static synchronized SlaveJar get() {
+            if (instance == null) {
+                InputStream in = Hudson.getInstance().servletContext.getResourceAsStream("/WEB-INF/slave.jar");
+                if (in == null) {
+                    return null;
+                }
+                try {
+                    CountingInputStream counter = new CountingInputStream(in);
+                    String md5 = Util.getDigestOf(counter);
+                    instance = new SlaveJar(counter.getByteCount(), md5);
+                } catch (IOException e) {
+                    LOGGER.log(FINE, "Failed to compute the checksum of slave.jar", e);
+                    return null;
+                }
+            }
+            return instance;
+        }
+    }
+
     private void reportEnvironment(TaskListener listener) throws IOException, InterruptedException {
         listener.getLogger().println(Messages._SSHLauncher_RemoteUserEnvironment(getTimestamp()));
         connection.exec("set",listener.getLogger());
@@ -478,25 +605,11 @@ public class SSHLauncher extends ComputerLauncher {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The slave jar is left on the remote system, so that the next launch can reuse it.
      */
     public synchronized void afterDisconnect(SlaveComputer slaveComputer, StreamTaskListener listener) {
-        String workingDirectory = getWorkingDirectory(slaveComputer);
-        String fileName = workingDirectory + "/slave.jar";
-
         if (connection != null) {
-
-            SFTPv3Client sftpClient = null;
-            try {
-                sftpClient = new SFTPv3Client(connection);
-                sftpClient.rm(fileName);
-            } catch (Exception e) {
-                e.printStackTrace(listener.error(Messages.SSHLauncher_ErrorDeletingFile(getTimestamp())));
-            } finally {
-                if (sftpClient != null) {
-                    sftpClient.close();
-                }
-            }
-
             connection.close();
             PluginImpl.unregister(connection);
             connection = null;
@@ -579,6 +692,21 @@ public class SSHLauncher extends ComputerLauncher {
         }
     }
 
+    /**
+     * How many slaves can be launched at the same time. When many slaves reconnect at once, for example after a
+     * restart of the master, the others wait for a slot instead of all opening their connections together.
+     */
+    public static final int MAX_PARALLEL_LAUNCHES = Integer.getInteger(SSHLauncher.class.getName() + ".maxParallelLaunches", 10);
+
+    private static final Semaphore LAUNCH_SLOTS = new Semaphore(MAX_PARALLEL_LAUNCHES, true);
+
+    /**
+     * The Java found on each slave, by node name.
+     */
+    private static final ConcurrentMap<String, String> JAVA_CACHE = new ConcurrentHashMap<String, String>();
+
+    private static final Pattern MD5_PATTERN = Pattern.compile("\\b[0-9a-fA-F]{32}\\b");
+
     private static final Logger LOGGER = Logger.getLogger(SSHLauncher.class.getName());
 
 //    static {
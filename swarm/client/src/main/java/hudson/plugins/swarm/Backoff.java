@@ -0,0 +1,58 @@
+package hudson.plugins.swarm;
+
+import java.util.Random;
+
+/**
+ * Computes how long to wait before the next attempt to join a master.
+ *
+ * <p>
+ * The delay doubles after each failed attempt, up to a maximum, and the actual wait is picked
+ * randomly below it. When many clients start together, for example after a power outage,
+ * their retries are then spread out instead of hitting the master all at once.
+ */
+public class Backoff {
+    private final long initial;
+    private final long max;
+    private final Random random = new Random();
+
+    /**
+     * Number of attempts that failed in a row.
+     */
+    private int failures;
+
+    /**
+     * @param initial
+     *      Delay after the first failure, in milliseconds.
+     * @param max
+     *      Upper bound of the delay, in milliseconds.
+     */
+    public Backoff(long initial, long max) {
+        this.initial = Math.max(1,initial);
+        this.max = Math.max(this.initial,max);
+    }
+
+    /**
+     * Records a failed attempt, and computes the delay before the next one.
+     *
+     * @param notBefore
+     *      Minimum delay requested by the master, in milliseconds, or 0.
+     */
+    public long next(long notBefore) {
+        long ceiling = initial;
+        for (int i=0; i<failures && ceiling<max; i++)
+            ceiling *= 2;
+        ceiling = Math.min(ceiling,max);
+        failures++;
+
+        // wait at least half of the ceiling, so that a client doesn't come right back
+        long delay = ceiling/2 + (long)(random.nextDouble()*(ceiling/2));
+        return Math.max(delay,notBefore + (long)(random.nextDouble()*initial));
+    }
+
+    /**
+     * Records a successful attempt.
+     */
+    public void reset() {
+        failures = 0;
+    }
+}
@@ -67,6 +67,12 @@ public class Client {
     @Option(name="-master",usage="Host name or IP address of the master. If this option is specified, auto-discovery will be skipped")
     public String master;
 
+    @Option(name="-retryInitial",usage="Seconds to wait after the first failed attempt to join the master. The wait doubles after each failure")
+    public int retryInitial = 10;
+
+    @Option(name="-retryMax",usage="Maximum number of seconds to wait between attempts to join the master")
+    public int retryMax = 300;
+
     @Option(name="-help",aliases="--help",usage="Show the help screen")
     public boolean help;
 
@@ -111,8 +117,11 @@ public class Client {
     public void run() throws InterruptedException {
         System.out.println("Discovering Hudson master");
 
+        Backoff backoff = new Backoff(retryInitial*1000L, retryMax*1000L);
+
         // wait until we get the ACK back
         while(true) {
+            long retryAfter = 0;
             try {
                 List<Candidate> candidates = new ArrayList<Candidate>();
                 for (DatagramPacket recv : discover()) {
@@ -151,6 +160,7 @@ public class Client {
 
                 // create a new swarm slave
                 createSwarmSlave();
+                backoff.reset();
                 connect();
             } catch (IOException e) {
                 e.printStackTrace();
@@ -160,11 +170,13 @@ public class Client {
                 System.out.println(e.getMessage());
                 if(e.getCause()!=null)
                     e.getCause().printStackTrace();
+                retryAfter = e.retryAfter;
             }
-            
+
             // retry
-            System.out.println("Retrying in 10 seconds");
-            Thread.sleep(10*1000);
+            long delay = backoff.next(retryAfter);
+            System.out.println("Retrying in "+(delay+999)/1000+" seconds");
+            Thread.sleep(delay);
         }
 
     }
@@ -173,6 +185,7 @@ public class Client {
      * Discovers Hudson running nearby.
      *
      * To give every nearby Hudson a fair chance, wait for some time until we hear all the responses.
+     * If the master is known, there's no one else to wait for, so its reply is used right away.
      */
     protected List<DatagramPacket> discover() throws IOException, InterruptedException, RetryException {
         sendBroadcast();
@@ -188,6 +201,8 @@ public class Client {
                 DatagramPacket recv = new DatagramPacket(new byte[2048], 2048);
                 socket.receive(recv);
                 responses.add(recv);
+                if(master!=null)
+                    return responses;
             } catch (SocketTimeoutException e) {
                 // timed out
                 if(responses.isEmpty()) {
@@ -208,16 +223,17 @@ public class Client {
         socket.send(packet);
     }
 
-    protected void connect() throws InterruptedException {
+    protected void connect() throws InterruptedException, RetryException {
         try {
             Launcher launcher = new Launcher();
             launcher.slaveJnlpURL = new URL(target.url+"/computer/"+name+"/slave-agent.jnlp");
             List<String> jnlpArgs = launcher.parseJnlpArguments();
             jnlpArgs.add("-noreconnect");
             Main.main(jnlpArgs.toArray(new String[jnlpArgs.size()]));
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
-            System.out.println("Failed to establish JNLP connection to "+target.url);
-            Thread.sleep(10*1000);
+            throw new RetryException("Failed to establish JNLP connection to "+target.url,e);
         }
     }
 
@@ -234,12 +250,27 @@ public class Client {
                 param("description",description)+
                 param("labels", labelStr.toString())+
                 "&secret=" + target.secret).openConnection();
+        if(con.getResponseCode()==HttpURLConnection.HTTP_UNAVAILABLE) {
+            // the master is busy admitting other slaves
+            throw new RetryException("Hudson is busy: "+con.getResponseMessage(),retryAfter(con));
+        }
         if(con.getResponseCode()!=200) {
             copy(con.getErrorStream(),System.out);
             throw new RetryException("Failed to create a slave on Hudson: "+con.getResponseCode()+" "+con.getResponseMessage());
         }
     }
 
+    /**
+     * Parses the Retry-After header, in seconds.
+     */
+    private static long retryAfter(HttpURLConnection con) {
+        try {
+            return Long.parseLong(con.getHeaderField("Retry-After").trim())*1000;
+        } catch (RuntimeException e) {
+            return 0;   // missing or a date
+        }
+    }
+
     private String param(String name, String value) throws UnsupportedEncodingException {
         if(value==null) return "";
         return "&"+name+"="+ URLEncoder.encode(value,"UTF-8");
@@ -6,11 +6,22 @@ package hudson.plugins.swarm;
  * @author Kohsuke Kawaguchi
  */
 public class RetryException extends Exception {
+    /**
+     * How long the master asked us to wait before retrying, in milliseconds, or 0.
+     */
+    public final long retryAfter;
+
     public RetryException(String message) {
+        this(message,0);
+    }
+
+    public RetryException(String message, long retryAfter) {
         super(message);
+        this.retryAfter = retryAfter;
     }
 
     public RetryException(String message, Throwable cause) {
         super(message, cause);
+        this.retryAfter = 0;
     }
 }
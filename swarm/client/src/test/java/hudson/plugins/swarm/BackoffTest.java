@@ -0,0 +1,42 @@
+package hudson.plugins.swarm;
+
+import junit.framework.TestCase;
+
+public class BackoffTest extends TestCase {
+    public void testDelayDoublesUpToTheMaximum() {
+        Backoff b = new Backoff(1000,10000);
+        long[] ceilings = {1000,2000,4000,8000,10000,10000};
+        for (long ceiling : ceilings) {
+            long delay = b.next(0);
+            assertTrue(delay+" < "+ceiling/2, delay>=ceiling/2);
+            assertTrue(delay+" > "+ceiling, delay<=ceiling);
+        }
+    }
+
+    public void testResetStartsOver() {
+        Backoff b = new Backoff(1000,60000);
+        for (int i=0; i<5; i++)
+            b.next(0);
+        b.reset();
+        long delay = b.next(0);
+        assertTrue(delay>=500 && delay<=1000);
+    }
+
+    public void testRetryAfterIsHonored() {
+        Backoff b = new Backoff(1000,10000);
+        for (int i=0; i<20; i++) {
+            long delay = b.next(30000);
+            // no sooner than asked, with at most the initial delay of jitter on top
+            assertTrue(delay+" < 30000", delay>=30000);
+            assertTrue(delay+" > 31000", delay<=31000);
+        }
+    }
+
+    public void testRetryAfterShorterThanTheBackoff() {
+        Backoff b = new Backoff(1000,10000);
+        for (int i=0; i<4; i++)
+            b.next(0);
+        long delay = b.next(100);
+        assertTrue(delay>=5000 && delay<=10000);
+    }
+}
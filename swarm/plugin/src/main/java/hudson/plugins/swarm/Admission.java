@@ -0,0 +1,231 @@
+package hudson.plugins.swarm;
+
+import hudson.model.Descriptor.FormException;
+import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.IOException2;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adds swarm slaves to Hudson in batches.
+ *
+ * <p>
+ * Adding a node saves the whole Hudson configuration, so when hundreds of swarm clients join at
+ * once, adding them one by one keeps the master busy writing the same file over and over.
+ * Instead, the slaves that asked to join are queued, and a single thread adds everything that's
+ * queued with one configuration change. Once the queue is full, clients are told to come back later.
+ */
+class Admission {
+    /**
+     * Maximum number of slaves waiting to be added.
+     */
+    public static int MAX_QUEUE = Integer.getInteger(Admission.class.getName()+".maxQueue",200);
+
+    /**
+     * Maximum number of slaves added in one configuration change.
+     */
+    public static int MAX_BATCH = Integer.getInteger(Admission.class.getName()+".maxBatch",50);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+
+    private final List<Ticket> queue = new ArrayList<Ticket>();
+
+    /**
+     * The batch {@link #executor} is adding right now.
+     */
+    private List<Ticket> adding = Collections.emptyList();
+
+    /**
+     * True while {@link #executor} has a batch to add.
+     */
+    private boolean scheduled;
+
+    /**
+     * A slave waiting to be added.
+     */
+    private static final class Ticket {
+        private final SwarmSlave slave;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IOException error;
+
+        private Ticket(SwarmSlave slave) {
+            this.slave = slave;
+        }
+    }
+
+    /**
+     * Creates the slave once its name is chosen.
+     */
+    interface SlaveFactory {
+        SwarmSlave create(String name) throws IOException, FormException;
+    }
+
+    /**
+     * Queues a slave and waits until it's added.
+     *
+     * <p>
+     * Swarm clients are often replicated VMs, and they may have the same name. If the name is taken
+     * by a node or by a slave waiting to be added, {@code '-'+suffix} is appended to it. If this
+     * still results in a duplicate, so be it: the slave replaces the other one.
+     *
+     * @return false if the queue is full, or if the slave couldn't be added within the timeout.
+     *      The slave isn't added then.
+     * @throws IOException
+     *      if the slave failed to be added.
+     */
+    boolean add(String name, String suffix, SlaveFactory factory, long timeout, TimeUnit unit) throws IOException, FormException {
+        Ticket t;
+        synchronized (this) {
+            if(queue.size()>=MAX_QUEUE)
+                return false;
+            if(isTaken(name))
+                name = name+'-'+suffix;
+            t = new Ticket(factory.create(name));
+            queue.add(t);
+            if(!scheduled) {
+                scheduled = true;
+                executor.submit(new Runnable() {
+                    public void run() {
+                        drain();
+                    }
+                });
+            }
+        }
+
+        boolean interrupted = false;
+        try {
+            if(!t.done.await(timeout,unit)) {
+                synchronized (this) {
+                    if(queue.remove(t))
+                        return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            synchronized (this) {
+                if(queue.remove(t)) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        // if it's being added right now, it's too late to back out
+        while(true) {
+            try {
+                t.done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+        if(t.error!=null)
+            throw t.error;
+        return true;
+    }
+
+    private boolean isTaken(String name) {
+        if(Hudson.getInstance().getNode(name)!=null)
+            return true;
+        for (Ticket t : queue)
+            if(t.slave.getNodeName().equals(name))
+                return true;
+        for (Ticket t : adding)
+            if(t.slave.getNodeName().equals(name))
+                return true;
+        return false;
+    }
+
+    /**
+     * Suggests how long a client turned away should wait, in seconds.
+     */
+    synchronized int getRetryAfter() {
+        return 1+queue.size()/MAX_BATCH;
+    }
+
+    /**
+     * Number of slaves waiting to be added.
+     */
+    synchronized int getQueueLength() {
+        return queue.size();
+    }
+
+    private void drain() {
+        while(true) {
+            List<Ticket> batch;
+            synchronized (this) {
+                adding = Collections.emptyList();
+                if(queue.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+                int n = Math.min(queue.size(),MAX_BATCH);
+                batch = new ArrayList<Ticket>(queue.subList(0,n));
+                queue.subList(0,n).clear();
+                adding = batch;
+            }
+            add(batch);
+        }
+    }
+
+    private void add(List<Ticket> batch) {
+        IOException error = null;
+        // these slaves are added on behalf of swarm clients that otherwise have no access to the system.
+        SecurityContextHolder.getContext().setAuthentication(ACL.SYSTEM);
+        try {
+            List<Node> slaves = new ArrayList<Node>(batch.size());
+            for (Ticket t : batch)
+                slaves.add(t.slave);
+            addNodes(slaves);
+            LOGGER.fine("Added "+batch.size()+" swarm slaves");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING,"Failed to add "+batch.size()+" swarm slaves",e);
+            error = e;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING,"Failed to add "+batch.size()+" swarm slaves",e);
+            error = new IOException2("Failed to add the slave",e);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        for (Ticket t : batch) {
+            t.error = error;
+            t.done.countDown();
+        }
+    }
+
+    /**
+     * Adds the given slaves to Hudson with a single configuration change.
+     */
+    void addNodes(List<Node> slaves) throws IOException {
+        Hudson hudson = Hudson.getInstance();
+        synchronized (hudson) {
+            // if a name is still a duplicate, the last one wins, as before
+            Map<String,Node> nodes = new LinkedHashMap<String,Node>();
+            for (Node n : hudson.getNodes())
+                nodes.put(n.getNodeName(),n);
+            for (Node n : slaves) {
+                nodes.remove(n.getNodeName());
+                nodes.put(n.getNodeName(),n);
+            }
+            hudson.setNodes(new ArrayList<Node>(nodes.values()));
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(Admission.class.getName());
+}
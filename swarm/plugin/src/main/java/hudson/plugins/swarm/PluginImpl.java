@@ -3,16 +3,14 @@ package hudson.plugins.swarm;
 import hudson.Plugin;
 import hudson.Util;
 import hudson.model.Descriptor.FormException;
-import hudson.model.Hudson;
-import hudson.model.Node;
-import hudson.security.ACL;
-import org.acegisecurity.context.SecurityContextHolder;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Exposes an entry point to add a new swarm slave.
@@ -20,11 +18,17 @@ import java.io.IOException;
  * @author Kohsuke Kawaguchi
  */
 public class PluginImpl extends Plugin {
+    private final Admission admission = new Admission();
+
     /**
      * Adds a new swarm slave.
+     *
+     * <p>
+     * The slave is queued with the other slaves joining at the same time, see {@link Admission}.
+     * If it can't be added shortly, the client is asked to retry later with a 503 response.
      */
-    public void doCreateSlave(StaplerRequest req, StaplerResponse rsp, @QueryParameter String name, @QueryParameter String description, @QueryParameter int executors,
-                              @QueryParameter String remoteFsRoot, @QueryParameter String labels, @QueryParameter String secret) throws IOException, FormException {
+    public void doCreateSlave(final StaplerRequest req, StaplerResponse rsp, @QueryParameter String name, @QueryParameter final String description, @QueryParameter final int executors,
+                              @QueryParameter final String remoteFsRoot, @QueryParameter final String labels, @QueryParameter String secret) throws IOException, FormException {
 
         // only allow nearby nodes to connect
         if(!UDPFragmentImpl.all().get(UDPFragmentImpl.class).secret.toString().equals(secret)) {
@@ -32,29 +36,24 @@ public class PluginImpl extends Plugin {
             return;
         }
 
-        // this is used by swarm clients that otherwise have no access to the system,
-        // so bypass the regular security check, and only rely on secret.
-        SecurityContextHolder.getContext().setAuthentication(ACL.SYSTEM);
-        try {
-            final Hudson hudson = Hudson.getInstance();
-
-            // try to make the name unique. Swarm clients are often repliated VMs, and they may have the same name.
-            if(hudson.getNode(name)!=null)
-                name = name+'-'+req.getRemoteAddr();
+        // the name is made unique by the admission, which knows the slaves that are still queued
+        Admission.SlaveFactory factory = new Admission.SlaveFactory() {
+            public SwarmSlave create(String name) throws IOException, FormException {
+                return new SwarmSlave(name, "Swarm slave from "+req.getRemoteHost()+" : "+description,
+                        remoteFsRoot, String.valueOf(executors), "swarm "+Util.fixNull(labels));
+            }
+        };
 
-            SwarmSlave slave = new SwarmSlave(name, "Swarm slave from "+req.getRemoteHost()+" : "+description,
-                    remoteFsRoot, String.valueOf(executors), "swarm "+Util.fixNull(labels));
+        if(admission.add(name, req.getRemoteAddr(), factory, ADMISSION_TIMEOUT, TimeUnit.SECONDS))
+            return;
 
-            // if this still results in a dupliate, so be it
-            synchronized (hudson) {
-                Node n = hudson.getNode(name);
-                if(n!=null) hudson.removeNode(n);
-                hudson.addNode(slave);
-            }
-        } catch (FormException e) {
-            e.printStackTrace();
-        } finally {
-            SecurityContextHolder.clearContext();
-        }
+        // too many slaves are joining right now. the client will retry
+        rsp.setHeader("Retry-After",String.valueOf(admission.getRetryAfter()));
+        rsp.sendError(SC_SERVICE_UNAVAILABLE,"Too many slaves are joining");
     }
+
+    /**
+     * How long a client waits for its slave to be added before it's asked to retry, in seconds.
+     */
+    public static int ADMISSION_TIMEOUT = Integer.getInteger(PluginImpl.class.getName()+".admissionTimeout",30);
 }
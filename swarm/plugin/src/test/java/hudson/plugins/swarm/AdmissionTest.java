@@ -0,0 +1,169 @@
+package hudson.plugins.swarm;
+
+import hudson.model.Descriptor.FormException;
+import hudson.model.Node;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionTest extends HudsonTestCase {
+    /**
+     * Sizes of the batches added so far.
+     */
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<Integer>());
+
+    /**
+     * Counted down when the first batch is being added, which then waits for {@link #resume}.
+     */
+    private final CountDownLatch adding = new CountDownLatch(1);
+    private final CountDownLatch resume = new CountDownLatch(1);
+
+    private final Admission admission = new Admission() {
+        @Override
+        void addNodes(List<Node> slaves) throws IOException {
+            batches.add(slaves.size());
+            adding.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            super.addNodes(slaves);
+        }
+    };
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+
+    @Override
+    protected void tearDown() throws Exception {
+        resume.countDown();
+        clients.shutdown();
+        super.tearDown();
+    }
+
+    private Future<Boolean> join(String name, long timeout) {
+        return join(name,"127.0.0.1",timeout);
+    }
+
+    private Future<Boolean> join(final String name, final String address, final long timeout) {
+        return clients.submit(new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                return admission.add(name,address,new Admission.SlaveFactory() {
+                    public SwarmSlave create(String name) throws IOException, FormException {
+                        return new SwarmSlave(name,"","/tmp","1","");
+                    }
+                },timeout,TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    private void waitForQueue(int length) throws InterruptedException {
+        for (int i=0; admission.getQueueLength()!=length; i++) {
+            assertTrue("queue length is "+admission.getQueueLength(), i<500);
+            Thread.sleep(10);
+        }
+    }
+
+    public void testSlavesJoiningTogetherAreAddedInOneBatch() throws Exception {
+        List<Future<Boolean>> joins = new ArrayList<Future<Boolean>>();
+        joins.add(join("slave0",30));
+        adding.await();
+        // these arrive while the first one is being added
+        for (int i=1; i<=5; i++)
+            joins.add(join("slave"+i,30));
+        waitForQueue(5);
+        resume.countDown();
+
+        for (Future<Boolean> f : joins)
+            assertTrue(f.get());
+        assertEquals(Integer.valueOf(1),batches.get(0));
+        assertEquals(Integer.valueOf(5),batches.get(1));
+        assertEquals(2,batches.size());
+        for (int i=0; i<=5; i++)
+            assertNotNull(hudson.getNode("slave"+i));
+    }
+
+    public void testSameNamesAreMadeUnique() throws Exception {
+        List<Future<Boolean>> joins = new ArrayList<Future<Boolean>>();
+        joins.add(join("twin","10.0.0.1",30));
+        adding.await();
+        // one name is being added, the other is queued in the same batch
+        joins.add(join("twin","10.0.0.2",30));
+        waitForQueue(1);
+        joins.add(join("twin","10.0.0.3",30));
+        waitForQueue(2);
+        resume.countDown();
+
+        for (Future<Boolean> f : joins)
+            assertTrue(f.get());
+        assertEquals(Integer.valueOf(2),batches.get(1));
+        assertNotNull(hudson.getNode("twin"));
+        assertNotNull(hudson.getNode("twin-10.0.0.2"));
+        assertNotNull(hudson.getNode("twin-10.0.0.3"));
+        assertEquals(3,hudson.getNodes().size());
+    }
+
+    public void testBatchSizeIsLimited() throws Exception {
+        int max = Admission.MAX_BATCH;
+        Admission.MAX_BATCH = 2;
+        try {
+            List<Future<Boolean>> joins = new ArrayList<Future<Boolean>>();
+            joins.add(join("slave0",30));
+            adding.await();
+            for (int i=1; i<=5; i++)
+                joins.add(join("slave"+i,30));
+            waitForQueue(5);
+            assertEquals(3,admission.getRetryAfter());
+            resume.countDown();
+
+            for (Future<Boolean> f : joins)
+                assertTrue(f.get());
+            assertEquals(4,batches.size());
+            assertEquals(Integer.valueOf(1),batches.get(3));
+        } finally {
+            Admission.MAX_BATCH = max;
+        }
+    }
+
+    public void testFullQueueTurnsSlavesAway() throws Exception {
+        int max = Admission.MAX_QUEUE;
+        Admission.MAX_QUEUE = 2;
+        try {
+            Future<Boolean> first = join("slave0",30);
+            adding.await();
+            Future<Boolean> second = join("slave1",30);
+            Future<Boolean> third = join("slave2",30);
+            waitForQueue(2);
+            assertFalse(join("slave3",30).get());
+            resume.countDown();
+
+            assertTrue(first.get());
+            assertTrue(second.get());
+            assertTrue(third.get());
+            assertNull(hudson.getNode("slave3"));
+        } finally {
+            Admission.MAX_QUEUE = max;
+        }
+    }
+
+    public void testSlaveNotAddedInTimeIsDropped() throws Exception {
+        Future<Boolean> first = join("slave0",30);
+        adding.await();
+        assertFalse(join("slave1",1).get());
+        assertEquals(0,admission.getQueueLength());
+        resume.countDown();
+
+        assertTrue(first.get());
+        assertEquals(1,batches.size());
+        assertNull(hudson.getNode("slave1"));
+    }
+}
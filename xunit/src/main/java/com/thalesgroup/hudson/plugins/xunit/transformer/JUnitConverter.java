@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Thales Corporate Services SAS                             *
+ * Author : Gregory Boissinot                                                   *
+ *                                                                              *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy *
+ * of this software and associated documentation files (the "Software"), to deal*
+ * in the Software without restriction, including without limitation the rights *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell    *
+ * copies of the Software, and to permit persons to whom the Software is        *
+ * furnished to do so, subject to the following conditions:                     *
+ *                                                                              *
+ * The above copyright notice and this permission notice shall be included in   *
+ * all copies or substantial portions of the Software.                          *
+ *                                                                              *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR   *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,     *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER       *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,*
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN    *
+ * THE SOFTWARE.                                                                *
+ *******************************************************************************/
+
+package com.thalesgroup.hudson.plugins.xunit.transformer;
+
+import hudson.util.IOException2;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Converts xUnit result files into JUnit files holding one test suite each.
+ * <p/>
+ * A result file is read once: it is parsed by the transformation itself, which also tells whether it is a
+ * well-formed file, and the JUnit document is split into test suites while it is produced, without being
+ * written to a temporary file and parsed again.
+ * <p/>
+ * Instances are thread safe, so the result files of a tool can be converted in parallel.
+ */
+public class JUnitConverter {
+
+    private static final String JUNIT_FILE_POSTFIX = ".xml";
+    private static final String JUNIT_FILE_PREFIX = "TEST-";
+
+    private final Templates templates;
+
+    private final File junitOutputDir;
+
+    private final SAXParserFactory parserFactory;
+
+    private final SAXTransformerFactory writerFactory;
+
+    /**
+     * @param templates      the compiled style sheet of the tool
+     * @param junitOutputDir the directory of the JUnit files
+     */
+    public JUnitConverter(Templates templates, File junitOutputDir) {
+        this.templates = templates;
+        this.junitOutputDir = junitOutputDir;
+        this.parserFactory = SAXParserFactory.newInstance();
+        this.parserFactory.setNamespaceAware(true);
+        this.writerFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
+    }
+
+    /**
+     * Converts a result file
+     *
+     * @param xunitFile the result file of the tool
+     * @return false if the result file is not a well-formed XML file, nothing is written then
+     * @throws TransformerException if the result file can't be converted
+     * @throws IOException          if the JUnit files can't be written
+     */
+    public boolean convert(File xunitFile) throws TransformerException, IOException {
+        ParseErrorFilter reader = new ParseErrorFilter(newReader());
+        Splitter splitter = new Splitter(String.valueOf(xunitFile.hashCode()));
+        boolean converted = false;
+        try {
+            templates.newTransformer().transform(
+                    new SAXSource(reader, new InputSource(xunitFile.toURI().toString())),
+                    new SAXResult(splitter));
+            converted = true;
+        }
+        catch (TransformerException te) {
+            if (reader.parseError != null) {
+                return false;
+            }
+            if (splitter.writeError != null) {
+                throw splitter.writeError;
+            }
+            throw te;
+        }
+        finally {
+            if (!converted) {
+                splitter.abort();
+            }
+        }
+        return true;
+    }
+
+    private XMLReader newReader() throws IOException {
+        try {
+            synchronized (parserFactory) {
+                return parserFactory.newSAXParser().getXMLReader();
+            }
+        }
+        catch (ParserConfigurationException pe) {
+            throw new IOException2("Problem on making the parser.", pe);
+        }
+        catch (SAXException se) {
+            throw new IOException2("Problem on making the parser.", se);
+        }
+    }
+
+    private TransformerHandler newWriter() throws TransformerConfigurationException {
+        synchronized (writerFactory) {
+            return writerFactory.newTransformerHandler();
+        }
+    }
+
+    /**
+     * Remembers why the result file could not be parsed
+     */
+    private static class ParseErrorFilter extends XMLFilterImpl {
+
+        private SAXParseException parseError;
+
+        private ParseErrorFilter(XMLReader parent) {
+            super(parent);
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            parseError = e;
+            throw e;
+        }
+
+        @Override
+        public void parse(InputSource input) throws SAXException, IOException {
+            try {
+                super.parse(input);
+            }
+            catch (SAXParseException e) {
+                parseError = e;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Receives the JUnit document. If its root is a 'testsuites' element, each 'testsuite' element is written
+     * to its own file, otherwise the whole document is written to one file.
+     */
+    private class Splitter extends DefaultHandler {
+
+        private final String key;
+
+        private TransformerHandler whole;
+
+        private boolean started;
+
+        private boolean split;
+
+        private final LinkedList<TransformerHandler> suites = new LinkedList<TransformerHandler>();
+
+        private final List<OutputStream> streams = new ArrayList<OutputStream>();
+
+        private final List<File> files = new ArrayList<File>();
+
+        private IOException writeError;
+
+        private Splitter(String key) {
+            this.key = key;
+        }
+
+        private TransformerHandler open(String name) throws SAXException {
+            File file = new File(junitOutputDir, JUNIT_FILE_PREFIX + name + JUNIT_FILE_POSTFIX);
+            try {
+                OutputStream out = new FileOutputStream(file);
+                streams.add(out);
+                files.add(file);
+                TransformerHandler handler = newWriter();
+                handler.setResult(new StreamResult(out));
+                handler.startDocument();
+                return handler;
+            }
+            catch (IOException ioe) {
+                writeError = ioe;
+                throw new SAXException(ioe);
+            }
+            catch (TransformerConfigurationException te) {
+                throw new SAXException(te);
+            }
+        }
+
+        private void close(TransformerHandler handler) throws SAXException {
+            handler.endDocument();
+            try {
+                streams.remove(streams.size() - 1).close();
+            }
+            catch (IOException ioe) {
+                writeError = ioe;
+                throw new SAXException(ioe);
+            }
+        }
+
+        private List<TransformerHandler> targets() {
+            if (whole != null) {
+                List<TransformerHandler> result = new ArrayList<TransformerHandler>(1);
+                result.add(whole);
+                return result;
+            }
+            return suites;
+        }
+
+        private String nameOf(String localName, String qName) {
+            return localName == null || localName.length() == 0 ? qName : localName;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            String name = nameOf(localName, qName);
+            if (!started) {
+                started = true;
+                split = "testsuites".equals(name);
+                if (!split) {
+                    whole = open("file" + key);
+                }
+            }
+            if (split && "testsuite".equals(name)) {
+                String suiteName = attributes.getValue("name");
+                suites.add(open(key + "-" + (suiteName == null ? "" : suiteName).hashCode()));
+            }
+            for (TransformerHandler handler : targets()) {
+                handler.startElement(uri, localName, qName, attributes);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            for (TransformerHandler handler : targets()) {
+                handler.endElement(uri, localName, qName);
+            }
+            if (split && "testsuite".equals(nameOf(localName, qName))) {
+                close(suites.removeLast());
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            for (TransformerHandler handler : targets()) {
+                handler.characters(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            for (TransformerHandler handler : targets()) {
+                handler.ignorableWhitespace(ch, start, length);
+            }
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            for (TransformerHandler handler : targets()) {
+                handler.startPrefixMapping(prefix, uri);
+            }
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            for (TransformerHandler handler : targets()) {
+                handler.endPrefixMapping(prefix);
+            }
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            if (whole != null) {
+                close(whole);
+                whole = null;
+            }
+        }
+
+        /**
+         * Closes and deletes the files of a failed conversion
+         */
+        private void abort() {
+            for (OutputStream out : streams) {
+                try {
+                    out.close();
+                }
+                catch (IOException ioe) {
+                    // deleted just below
+                }
+            }
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Thales Corporate Services SAS                             *
+ * Author : Gregory Boissinot                                                   *
+ *                                                                              *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy *
+ * of this software and associated documentation files (the "Software"), to deal*
+ * in the Software without restriction, including without limitation the rights *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell    *
+ * copies of the Software, and to permit persons to whom the Software is        *
+ * furnished to do so, subject to the following conditions:                     *
+ *                                                                              *
+ * The above copyright notice and this permission notice shall be included in   *
+ * all copies or substantial portions of the Software.                          *
+ *                                                                              *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR   *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,     *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER       *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,*
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN    *
+ * THE SOFTWARE.                                                                *
+ *******************************************************************************/
+
+package com.thalesgroup.hudson.plugins.xunit.transformer;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the compiled style sheets.
+ * <p/>
+ * The conversion runs where the workspace is, so the cache lives in the JVM of the master or of the slave
+ * and is shared by all the builds running there. Compiled {@link Templates} are thread safe; each conversion
+ * gets its own transformer from them.
+ */
+public final class XUnitTemplates {
+
+    private static final ConcurrentMap<String, Entry> CACHE = new ConcurrentHashMap<String, Entry>();
+
+    private XUnitTemplates() {
+    }
+
+    /**
+     * Gets the style sheet embedded with a xUnit type
+     *
+     * @param type the class of the type, the style sheet is looked up relative to it
+     * @param xsl  the name of the style sheet
+     * @return the compiled style sheet, null if there is no such style sheet
+     * @throws TransformerConfigurationException
+     *          if the style sheet can't be compiled
+     */
+    public static Templates getEmbedded(Class<?> type, String xsl) throws TransformerConfigurationException {
+        URL url = type.getResource(xsl);
+        if (url == null) {
+            return null;
+        }
+        return get(type.getName() + "#" + xsl, url, -1, -1);
+    }
+
+    /**
+     * Gets a style sheet of the workspace. It is compiled again when the file changes.
+     *
+     * @param xsl the style sheet file
+     * @return the compiled style sheet
+     * @throws TransformerConfigurationException
+     *          if the style sheet can't be compiled
+     */
+    public static Templates getFile(File xsl) throws TransformerConfigurationException {
+        URL url;
+        try {
+            url = xsl.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new TransformerConfigurationException(e);
+        }
+        return get(xsl.getAbsolutePath(), url, xsl.lastModified(), xsl.length());
+    }
+
+    private static Templates get(String key, URL url, long lastModified, long length)
+            throws TransformerConfigurationException {
+        Entry entry = CACHE.get(key);
+        if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+            return entry.templates;
+        }
+        Templates templates = TransformerFactory.newInstance().newTemplates(new StreamSource(url.toExternalForm()));
+        if (templates == null) {
+            throw new TransformerConfigurationException("Problem on making the tool transformer.");
+        }
+        CACHE.put(key, new Entry(templates, lastModified, length));
+        return templates;
+    }
+
+    /**
+     * Forgets all the compiled style sheets
+     */
+    static void clear() {
+        CACHE.clear();
+    }
+
+    private static final class Entry {
+        private final Templates templates;
+        private final long lastModified;
+        private final long length;
+
+        private Entry(Templates templates, long lastModified, long length) {
+            this.templates = templates;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
@@ -34,32 +34,23 @@ import hudson.remoting.VirtualChannel;
 import hudson.util.IOException2;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.types.FileSet;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.FactoryConfigurationError;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
+
+import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class XUnitTransformer implements FilePath.FileCallable<Boolean>, Serializable {
 
-    private static final String JUNIT_FILE_POSTFIX = ".xml";
-    private static final String JUNIT_FILE_PREFIX = "TEST-";
-
-
     private BuildListener listener;
     private long buildTime;
     private EnvVars env;
@@ -107,34 +98,26 @@ public class XUnitTransformer implements FilePath.FileCallable<Boolean>, Seriali
 
             boolean isInvoked = false;
 
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder xmlDocumentBuilder = factory.newDocumentBuilder();
-            Transformer writerTransformer = transformerFactory.newTransformer();
-
             for (XUnitType tool : types) {
                 if (!isEmpty(tool.getPattern())) {
                     isInvoked = true;
 
-                    InputStream is = null;
+                    Templates stylesheet;
                     File f = new File(ws, tool.getXsl());
                     if (!f.exists()) {
                         XUnitLog.log(listener, "[" + tool.getDescriptor().getDisplayName() + "] - Use the embedded style sheet.");
-                        is = tool.getClass().getResourceAsStream(tool.getXsl());
+                        stylesheet = XUnitTemplates.getEmbedded(tool.getClass(), tool.getXsl());
                     } else {
                         XUnitLog.log(listener, "[" + tool.getDescriptor().getDisplayName() + "] - Use the style sheet found into the workspace.");
-                        is = new FileInputStream(f);
+                        stylesheet = XUnitTemplates.getFile(f);
                     }
 
-                    if (is == null) {
+                    if (stylesheet == null) {
                         XUnitLog.log(listener, "The style sheet '" + tool.getXsl() + "' is not found for the xUnit tool '" + tool.getDescriptor().getDisplayName() + "'");
                         return false;
                     }
 
-                    boolean result = processTool(ws,
-                            transformerFactory, xmlDocumentBuilder, writerTransformer, tool,
-                            new StreamSource(is));
-                    is.close();
+                    boolean result = processTool(ws, tool, stylesheet);
 
                     if (!result) {
                         return result;
@@ -159,19 +142,6 @@ public class XUnitTransformer implements FilePath.FileCallable<Boolean>, Seriali
     }
 
 
-    private boolean validateXUnitResultFile(File fileXUnitReportFile)
-            throws FactoryConfigurationError {
-        try {
-            DocumentBuilder parser = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            parser.parse(fileXUnitReportFile);
-            return true;
-        }
-        catch (Exception e) {
-            return false;
-        }
-    }
-
-
     /**
      * /**
      * Collect reports from the given parentpath and the pattern, while
@@ -244,27 +214,19 @@ public class XUnitTransformer implements FilePath.FileCallable<Boolean>, Seriali
 
     /**
      * Processing the current test tool
+     * <p/>
+     * The result files are converted in parallel, the compiled style sheet being shared by the conversions.
      *
      * @param moduleRoot
-     * @param transformerFactory
-     * @param xmlDocumentBuilder
-     * @param writerTransformer
      * @param testTool
      * @param stylesheet
      * @throws TransformerException
      * @throws IOException
      * @throws InterruptedException
-     * @throws SAXException
-     * @throws ParserConfigurationException
      */
-    private boolean processTool(File moduleRoot, TransformerFactory transformerFactory, DocumentBuilder xmlDocumentBuilder, Transformer writerTransformer, XUnitType testTool, StreamSource stylesheet)
+    private boolean processTool(File moduleRoot, XUnitType testTool, Templates stylesheet)
             throws TransformerException, IOException, InterruptedException {
 
-        Transformer toolXMLTransformer = transformerFactory.newTransformer(stylesheet);
-        if (toolXMLTransformer == null) {
-            throw new InterruptedException("Problem on making the tool transformer.");
-        }
-
         String curPattern = testTool.getPattern();
         curPattern = curPattern.replaceAll("[\t\r\n]+", " ");
         curPattern = Util.replaceMacro(curPattern, this.env);
@@ -278,7 +240,10 @@ public class XUnitTransformer implements FilePath.FileCallable<Boolean>, Seriali
 
         XUnitLog.log(listener, "[" + testTool.getDescriptor().getDisplayName() + "] - Processing " + resultFiles.size() + " files with the pattern '" + testTool.getPattern() + "' relative to '" + moduleRoot + "'.");
 
-        boolean hasInvalidateFiles = false;
+        FilePath currentOutputDir = new FilePath(junitOutputPath, testTool.getDescriptor().getShortName());
+        final JUnitConverter converter = new JUnitConverter(stylesheet, new File(currentOutputDir.toURI()));
+
+        List<File> xunitFiles = new ArrayList<File>();
         for (String resultFile : resultFiles) {
 
             File resultFilePathFile = new File(moduleRoot, resultFile);
@@ -290,89 +255,67 @@ public class XUnitTransformer implements FilePath.FileCallable<Boolean>, Seriali
                 continue;
             }
 
+            xunitFiles.add(resultFilePathFile);
+        }
 
-            if (!validateXUnitResultFile(resultFilePathFile)) {
-
-                //register there are unvalid files
-                hasInvalidateFiles = true;
-
-                //Ignore unvalid files
-                XUnitLog.log(listener, "[WARNING] - The file '" + resultFilePathFile + "' is an invalid file. It has been ignored.");
-                continue;
-            }
-
-
-            FilePath currentOutputDir = new FilePath(junitOutputPath, testTool.getDescriptor().getShortName());
-            FilePath junitTargetFile = new FilePath(currentOutputDir, "file" + resultFilePathFile.hashCode());
+        if (xunitFiles.size() == 1) {
+            File resultFilePathFile = xunitFiles.get(0);
             try {
-                toolXMLTransformer.transform(new StreamSource(resultFilePathFile), new StreamResult(new File(junitTargetFile.toURI())));
-                processJUnitFile(xmlDocumentBuilder, writerTransformer, junitTargetFile, currentOutputDir);
+                if (!converter.convert(resultFilePathFile)) {
+                    ignoreInvalidFile(resultFilePathFile);
+                }
+                return true;
             }
             catch (TransformerException te) {
-                String msg = "[ERROR] - Couldn't convert the file '" + resultFilePathFile.getPath() + "' into a JUnit file.";
-                XUnitLog.log(listener, msg);
-                return false;
+                return conversionFailed(resultFilePathFile);
             }
-            catch (SAXException te) {
-                String msg = "[ERROR] - Couldn't split JUnit testsuites for the file '" + resultFile + "' into JUnit files with one testsuite.";
-                XUnitLog.log(listener, msg);
-                return false;
+        }
+
+        int nbThreads = Math.min(xunitFiles.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, nbThreads));
+        try {
+            List<Future<Boolean>> conversions = new ArrayList<Future<Boolean>>();
+            for (final File resultFilePathFile : xunitFiles) {
+                conversions.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        return converter.convert(resultFilePathFile);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < xunitFiles.size(); i++) {
+                File resultFilePathFile = xunitFiles.get(i);
+                try {
+                    if (!conversions.get(i).get()) {
+                        ignoreInvalidFile(resultFilePathFile);
+                    }
+                }
+                catch (ExecutionException ee) {
+                    if (ee.getCause() instanceof TransformerException) {
+                        return conversionFailed(resultFilePathFile);
+                    }
+                    if (ee.getCause() instanceof IOException) {
+                        throw (IOException) ee.getCause();
+                    }
+                    throw new IOException2("Problem on converting into JUnit reports.", ee.getCause());
+                }
             }
         }
+        finally {
+            executor.shutdownNow();
+        }
         return true;
     }
 
-
-    /**
-     * Processing the current junit file
-     *
-     * @param xmlDocumentBuilder
-     * @param writerTransformer
-     * @param junitFile
-     * @param junitOutputPath
-     * @throws SAXException
-     * @throws IOException
-     * @throws TransformerException
-     * @throws InterruptedException
-     * @throws ParserConfigurationException
-     */
-    private void processJUnitFile(DocumentBuilder xmlDocumentBuilder, Transformer writerTransformer, FilePath junitFile, FilePath junitOutputPath)
-            throws SAXException, IOException, TransformerException, InterruptedException {
-
-        Document document = xmlDocumentBuilder.parse(new File(junitFile.toURI()));
-        NodeList testsuitesNodeList = document.getElementsByTagName("testsuites");
-        if (testsuitesNodeList == null || testsuitesNodeList.getLength() == 0) {
-            junitFile.renameTo(new FilePath(junitFile.getParent(), JUNIT_FILE_PREFIX + junitFile.getName() + JUNIT_FILE_POSTFIX));
-            return;
-        }
-        splitJunitFile(writerTransformer, testsuitesNodeList, junitOutputPath);
+    private void ignoreInvalidFile(File resultFilePathFile) {
+        //Ignore unvalid files
+        XUnitLog.log(listener, "[WARNING] - The file '" + resultFilePathFile + "' is an invalid file. It has been ignored.");
     }
 
-    /**
-     * Segragate the current junit file
-     *
-     * @param writerTransformer
-     * @param testsuitesNodeList
-     * @param junitOutputPath
-     * @throws IOException
-     * @throws InterruptedException
-     * @throws TransformerException
-     */
-    private void splitJunitFile(Transformer writerTransformer, NodeList testsuitesNodeList, FilePath junitOutputPath) throws IOException, InterruptedException, TransformerException {
-        NodeList elementsByTagName = ((Element) testsuitesNodeList.item(0)).getElementsByTagName("testsuite");
-        for (int i = 0; i < elementsByTagName.getLength(); i++) {
-            Element element = (Element) elementsByTagName.item(i);
-            DOMSource source = new DOMSource(element);
-            String suiteName = element.getAttribute("name");
-            FilePath junitOutputFile = new FilePath(junitOutputPath, JUNIT_FILE_PREFIX + suiteName.hashCode() + JUNIT_FILE_POSTFIX);
-            FileOutputStream fileOutputStream = new FileOutputStream(new File(junitOutputFile.toURI()));
-            try {
-                StreamResult result = new StreamResult(fileOutputStream);
-                writerTransformer.transform(source, result);
-            } finally {
-                fileOutputStream.close();
-            }
-        }
+    private boolean conversionFailed(File resultFilePathFile) {
+        String msg = "[ERROR] - Couldn't convert the file '" + resultFilePathFile.getPath() + "' into a JUnit file.";
+        XUnitLog.log(listener, msg);
+        return false;
     }
 
 }
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Thales Corporate Services SAS                             *
+ * Author : Gregory Boissinot                                                   *
+ *                                                                              *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy *
+ * of this software and associated documentation files (the "Software"), to deal*
+ * in the Software without restriction, including without limitation the rights *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell    *
+ * copies of the Software, and to permit persons to whom the Software is        *
+ * furnished to do so, subject to the following conditions:                     *
+ *                                                                              *
+ * The above copyright notice and this permission notice shall be included in   *
+ * all copies or substantial portions of the Software.                          *
+ *                                                                              *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR   *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,     *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER       *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,*
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN    *
+ * THE SOFTWARE.                                                                *
+ *******************************************************************************/
+
+package com.thalesgroup.hudson.plugins.xunit.transformer;
+
+import com.thalesgroup.hudson.plugins.xunit.types.BoostTestType;
+import com.thalesgroup.hudson.plugins.xunit.types.NUnitType;
+import com.thalesgroup.hudson.plugins.xunit.types.XUnitXSLUtil;
+import hudson.FilePath;
+import org.custommonkey.xmlunit.Diff;
+import org.custommonkey.xmlunit.XMLUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.transform.Templates;
+import java.io.File;
+import java.io.FileWriter;
+
+public class JUnitConverterTest {
+
+    private File parentFile;
+    private File junitOutputDir;
+
+    @Before
+    public void initialize() throws Exception {
+        XMLUnit.setIgnoreWhitespace(true);
+        XMLUnit.setNormalizeWhitespace(true);
+        XMLUnit.setIgnoreComments(true);
+        parentFile = File.createTempFile("xunit", "converter");
+        parentFile.delete();
+        junitOutputDir = new File(parentFile, "junitOutput");
+        junitOutputDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        new FilePath(parentFile).deleteRecursive();
+    }
+
+    private File createResultFile(String content) throws Exception {
+        File reportFile = new File(parentFile, "report.xml");
+        FileWriter fw = new FileWriter(reportFile);
+        fw.write(content);
+        fw.close();
+        return reportFile;
+    }
+
+    private File[] junitFiles() {
+        return junitOutputDir.listFiles();
+    }
+
+    @Test
+    public void sameTemplatesForTheSameType() throws Exception {
+        Templates templates = XUnitTemplates.getEmbedded(NUnitType.class, "nunit-to-junit.xsl");
+        Assert.assertNotNull(templates);
+        Assert.assertSame(templates, XUnitTemplates.getEmbedded(NUnitType.class, "nunit-to-junit.xsl"));
+        Assert.assertNull(XUnitTemplates.getEmbedded(NUnitType.class, "unknown-to-junit.xsl"));
+    }
+
+    @Test
+    public void oneJUnitFileWithoutTestsuites() throws Exception {
+        JUnitConverter converter = new JUnitConverter(XUnitTemplates.getEmbedded(BoostTestType.class, "boosttest-to-junit.xsl"), junitOutputDir);
+        File resultFile = createResultFile(XUnitXSLUtil.readXmlAsString("boosttest/autotest/testlog.xml"));
+        Assert.assertTrue(converter.convert(resultFile));
+        File[] junitFiles = junitFiles();
+        Assert.assertEquals(1, junitFiles.length);
+        Assert.assertEquals("TEST-file" + resultFile.hashCode() + ".xml", junitFiles[0].getName());
+        Diff diff = new Diff(XUnitXSLUtil.readXmlAsString("boosttest/autotest/junit-result.xml"), new FilePath(junitFiles[0]).readToString());
+        Assert.assertTrue("The conversion did not work " + diff, diff.similar());
+    }
+
+    @Test
+    public void oneJUnitFileByTestsuite() throws Exception {
+        JUnitConverter converter = new JUnitConverter(XUnitTemplates.getEmbedded(NUnitType.class, "nunit-to-junit.xsl"), junitOutputDir);
+        File resultFile = createResultFile(XUnitXSLUtil.readXmlAsString("nunit/NUnit-multinamespace.xml"));
+        Assert.assertTrue(converter.convert(resultFile));
+        File[] junitFiles = junitFiles();
+        Assert.assertEquals(2, junitFiles.length);
+        for (File junitFile : junitFiles) {
+            Assert.assertTrue(junitFile.getName().startsWith("TEST-" + resultFile.hashCode() + "-"));
+            Assert.assertTrue(new FilePath(junitFile).readToString().contains("<testsuite "));
+        }
+    }
+
+    @Test
+    public void invalidFileIsIgnored() throws Exception {
+        JUnitConverter converter = new JUnitConverter(XUnitTemplates.getEmbedded(NUnitType.class, "nunit-to-junit.xsl"), junitOutputDir);
+        String content = XUnitXSLUtil.readXmlAsString("nunit/NUnit-multinamespace.xml");
+        File resultFile = createResultFile(content.substring(0, content.length() / 2));
+        Assert.assertFalse(converter.convert(resultFile));
+        Assert.assertEquals("No JUnit file is left for an invalid file", 0, junitFiles().length);
+    }
+
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Thales Corporate Services SAS                             *
+ * Author : Gregory Boissinot                                                   *
+ *                                                                              *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy *
+ * of this software and associated documentation files (the "Software"), to deal*
+ * in the Software without restriction, including without limitation the rights *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell    *
+ * copies of the Software, and to permit persons to whom the Software is        *
+ * furnished to do so, subject to the following conditions:                     *
+ *                                                                              *
+ * The above copyright notice and this permission notice shall be included in   *
+ * all copies or substantial portions of the Software.                          *
+ *                                                                              *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR   *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,     *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER       *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,*
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN    *
+ * THE SOFTWARE.                                                                *
+ *******************************************************************************/
+
+package com.thalesgroup.hudson.plugins.xunit.transformer;
+
+import com.thalesgroup.hudson.plugins.xunit.types.NUnitType;
+import com.thalesgroup.hudson.plugins.xunit.types.XUnitXSLUtil;
+import hudson.FilePath;
+
+import javax.xml.transform.Templates;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the conversion throughput of NUnit result files, sequentially and with one thread by processor.
+ * <p/>
+ * Usage: XUnitConversionBenchmark [number of files]
+ */
+public class XUnitConversionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int nbFiles = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        File parentFile = File.createTempFile("xunit", "benchmark");
+        parentFile.delete();
+        File inputDir = new File(parentFile, "input");
+        inputDir.mkdirs();
+        String content = XUnitXSLUtil.readXmlAsString("nunit/NUnit-multinamespace.xml");
+        final List<File> resultFiles = new ArrayList<File>();
+        for (int i = 0; i < nbFiles; i++) {
+            File resultFile = new File(inputDir, "result" + i + ".xml");
+            FileWriter fw = new FileWriter(resultFile);
+            fw.write(content);
+            fw.close();
+            resultFiles.add(resultFile);
+        }
+
+        try {
+            long start = System.nanoTime();
+            Templates templates = XUnitTemplates.getEmbedded(NUnitType.class, "nunit-to-junit.xsl");
+            System.out.println("Style sheet compilation: " + (System.nanoTime() - start) / 1000000 + " ms");
+
+            for (int round = 0; round < 3; round++) {
+                File sequentialDir = new File(parentFile, "sequential" + round);
+                sequentialDir.mkdirs();
+                JUnitConverter converter = new JUnitConverter(templates, sequentialDir);
+                start = System.nanoTime();
+                for (File resultFile : resultFiles) {
+                    converter.convert(resultFile);
+                }
+                report("sequential", nbFiles, System.nanoTime() - start);
+
+                File parallelDir = new File(parentFile, "parallel" + round);
+                parallelDir.mkdirs();
+                final JUnitConverter parallelConverter = new JUnitConverter(templates, parallelDir);
+                int nbThreads = Runtime.getRuntime().availableProcessors();
+                ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+                try {
+                    start = System.nanoTime();
+                    List<Future<Boolean>> conversions = new ArrayList<Future<Boolean>>();
+                    for (final File resultFile : resultFiles) {
+                        conversions.add(executor.submit(new Callable<Boolean>() {
+                            public Boolean call() throws Exception {
+                                return parallelConverter.convert(resultFile);
+                            }
+                        }));
+                    }
+                    for (Future<Boolean> conversion : conversions) {
+                        conversion.get();
+                    }
+                    report("parallel (" + nbThreads + " threads)", nbFiles, System.nanoTime() - start);
+                }
+                finally {
+                    executor.shutdown();
+                }
+            }
+        }
+        finally {
+            new FilePath(parentFile).deleteRecursive();
+        }
+    }
+
+    private static void report(String mode, int nbFiles, long nanos) {
+        long millis = Math.max(1, nanos / 1000000);
+        System.out.println(mode + ": " + nbFiles + " files in " + millis + " ms, " + (nbFiles * 1000L / millis) + " files/s");
+    }
+}